@@ -0,0 +1,39 @@
+package org.example.oms.api;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.tx.Transaction;
+import org.example.oms.bench.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Polymorphic {@link Transaction} deserialization as performed for every POST to /api/tx. The
+ * mapper registers the same modules Spring Boot auto-configures (java.time support).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransactionDeserializationBenchmark {
+
+    private final ObjectReader reader =
+            JsonMapper.builder().findAndAddModules().build().readerFor(Transaction.class);
+
+    @Benchmark
+    public Transaction newOrderTx() throws IOException {
+        return reader.readValue(Fixtures.NEW_ORDER_TX_JSON);
+    }
+
+    @Benchmark
+    public Transaction acceptOrderTx() throws IOException {
+        return reader.readValue(Fixtures.ACCEPT_ORDER_TX_JSON);
+    }
+}
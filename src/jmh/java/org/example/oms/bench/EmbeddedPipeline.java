@@ -0,0 +1,106 @@
+package org.example.oms.bench;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.example.common.model.Order;
+import org.example.oms.OmsApplication;
+import org.example.oms.service.infra.OrderMessageSerializer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Boots the OMS application context against an embedded PostgreSQL instance, with Kafka replaced by
+ * an auto-completing {@link MockProducer}, so pipeline benchmarks measure JPA/JDBC and the
+ * processing stages rather than broker latency.
+ */
+public final class EmbeddedPipeline implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedPipeline(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    public static EmbeddedPipeline start() throws IOException {
+        return start(Map.of());
+    }
+
+    public static EmbeddedPipeline start(Map<String, Object> overrides) throws IOException {
+        return start(overrides, WebApplicationType.NONE);
+    }
+
+    /** Like {@link #start(Map)}, but also starts the web server on a random {@link #port()}. */
+    public static EmbeddedPipeline startServer(Map<String, Object> overrides) throws IOException {
+        return start(overrides, WebApplicationType.SERVLET);
+    }
+
+    private static EmbeddedPipeline start(
+            Map<String, Object> overrides, WebApplicationType webApplicationType)
+            throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("server.port", "0");
+        properties.put("tracing.url", "http://localhost:4317");
+        properties.put("management.tracing.sampling.probability", "0.0");
+        // Keep console output from dominating the measurement
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.example", "WARN");
+        properties.putAll(overrides);
+
+        // Passed as command line arguments so they take precedence over application.yml and .env
+        String[] args =
+                properties.entrySet().stream()
+                        .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                        .toArray(String[]::new);
+        ConfigurableApplicationContext context =
+                new SpringApplicationBuilder(OmsApplication.class, MockKafkaConfig.class)
+                        .web(webApplicationType)
+                        .run(args);
+        return new EmbeddedPipeline(postgres, context);
+    }
+
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Configuration
+    static class MockKafkaConfig {
+
+        @Bean
+        @Primary
+        KafkaTemplate<String, Order> mockKafkaTemplate() {
+            return new KafkaTemplate<>(
+                    () ->
+                            new MockProducer<>(
+                                    true,
+                                    new StringSerializer(),
+                                    new OrderMessageSerializer(Fixtures.SCHEMA_SERIALIZER)));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.oms.bench;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.common.model.ExecInst;
+import org.example.common.model.HandlInst;
+import org.example.common.model.OrdType;
+import org.example.common.model.Order;
+import org.example.common.model.PriceType;
+import org.example.common.model.SecurityIdSource;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.example.common.model.TimeInForce;
+import org.example.common.model.tx.NewOrderTx;
+
+/** Shared sample payloads so every benchmark measures the same order shape. */
+public final class Fixtures {
+
+    private Fixtures() {}
+
+    /** Stands in for the schema registry serializer: the header of schema ID 1. */
+    public static final Serializer<Object> SCHEMA_SERIALIZER =
+            (topic, message) -> new byte[] {0, 0, 0, 0, 1};
+
+    public static final String NEW_ORDER_TX_JSON =
+            """
+            {
+              "type": "newOrderTx",
+              "sessionId": "bench-session",
+              "clOrdId": "20251004-bench-001",
+              "sendingTime": "2025-10-04T10:44:00",
+              "account": "account-01",
+              "execInst": "NO_CROSS",
+              "handlInst": "BROKER_INTERVENTION_OK",
+              "securityIdSource": "RIC",
+              "orderQty": 100.00,
+              "priceType": "PER_UNIT",
+              "ordType": "LIMIT",
+              "price": 22.35,
+              "securityId": "INTC.OQ",
+              "securityDesc": "Intel Corporation",
+              "side": "BUY",
+              "symbol": "INTC",
+              "timeInForce": "DAY",
+              "transactTime": "2025-10-04T10:01:00",
+              "exDestination": "XNAS",
+              "settlCurrency": "USD",
+              "securityExchange": "XNAS",
+              "text": "Benchmark order"
+            }
+            """;
+
+    public static final String ACCEPT_ORDER_TX_JSON =
+            """
+            {"type": "acceptOrderTx", "orderId": "01K6QJ5B1Y8Z3V4N7T2C9XW0RM"}
+            """;
+
+    public static NewOrderTx newOrderTx() {
+        return newOrderTx("20251004-bench-001");
+    }
+
+    public static NewOrderTx newOrderTx(String clOrdId) {
+        return NewOrderTx.builder()
+                .sessionId("bench-session")
+                .clOrdId(clOrdId)
+                .sendingTime(LocalDateTime.of(2025, 10, 4, 10, 44))
+                .account("account-01")
+                .execInst(ExecInst.NO_CROSS)
+                .handlInst(HandlInst.BROKER_INTERVENTION_OK)
+                .securityIdSource(SecurityIdSource.RIC)
+                .orderQty(new BigDecimal("100.00"))
+                .priceType(PriceType.PER_UNIT)
+                .ordType(OrdType.LIMIT)
+                .price(new BigDecimal("22.35"))
+                .securityId("INTC.OQ")
+                .securityDesc("Intel Corporation")
+                .side(Side.BUY)
+                .symbol("INTC")
+                .timeInForce(TimeInForce.DAY)
+                .transactTime(LocalDateTime.of(2025, 10, 4, 10, 1))
+                .exDestination("XNAS")
+                .settlCurrency("USD")
+                .securityExchange("XNAS")
+                .text("Benchmark order")
+                .build();
+    }
+
+    public static Order liveOrder() {
+        return Order.builder()
+                .id(1L)
+                .orderId("01K6QJ5B1Y8Z3V4N7T2C9XW0RM")
+                .rootOrderId("01K6QJ5B1Y8Z3V4N7T2C9XW0RM")
+                .sessionId("bench-session")
+                .clOrdId("20251004-bench-001")
+                .account("account-01")
+                .securityIdSource(SecurityIdSource.RIC)
+                .orderQty(new BigDecimal("100.00"))
+                .ordType(OrdType.LIMIT)
+                .price(new BigDecimal("22.35"))
+                .securityId("INTC.OQ")
+                .securityDesc("Intel Corporation")
+                .side(Side.BUY)
+                .symbol("INTC")
+                .timeInForce(TimeInForce.DAY)
+                .transactTime(LocalDateTime.of(2025, 10, 4, 10, 1))
+                .exDestination("XNAS")
+                .settlCurrency("USD")
+                .securityExchange("XNAS")
+                .text("Benchmark order")
+                .state(State.LIVE)
+                .build();
+    }
+}
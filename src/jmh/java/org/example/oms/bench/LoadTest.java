@@ -0,0 +1,129 @@
+package org.example.oms.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Closed-loop REST load test comparing platform and virtual request threads. For each mode the
+ * application is booted against an embedded PostgreSQL with the {@code loadtest} profile, then each
+ * client count runs for the given duration with every client posting NewOrderTx requests back to
+ * back.
+ *
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--modes=platform,virtual --clients=1000,5000,10000 --seconds=30"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> modes = List.of("platform", "virtual");
+        List<Integer> clientCounts = List.of(1000, 5000, 10000);
+        int seconds = 30;
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            switch (option[0]) {
+                case "modes" -> modes = List.of(option[1].split(","));
+                case "clients" ->
+                        clientCounts =
+                                Arrays.stream(option[1].split(",")).map(Integer::valueOf).toList();
+                case "seconds" -> seconds = Integer.parseInt(option[1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        List<String> results = new ArrayList<>();
+        for (String mode : modes) {
+            try (EmbeddedPipeline pipeline =
+                    EmbeddedPipeline.startServer(
+                            Map.of(
+                                    "spring.profiles.active",
+                                    "loadtest",
+                                    "spring.threads.virtual.enabled",
+                                    mode.equals("virtual")))) {
+                URI uri = URI.create("http://localhost:" + pipeline.port() + "/api/tx");
+                for (int clients : clientCounts) {
+                    results.add(String.format("%-9s %s", mode, run(uri, clients, seconds)));
+                }
+            }
+        }
+        System.out.printf(
+                "%-9s %7s %10s %8s %9s %9s %9s%n",
+                "mode", "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(URI uri, int clients, int seconds) throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Timer latency = Timer.builder("latency").publishPercentiles(0.5, 0.99).register(registry);
+        LongAdder errors = new LongAdder();
+        HttpClient httpClient =
+                HttpClient.newBuilder()
+                        .executor(Executors.newVirtualThreadPerTaskExecutor())
+                        .connectTimeout(Duration.ofSeconds(30))
+                        .build();
+        HttpRequest request =
+                HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(120))
+                        .POST(HttpRequest.BodyPublishers.ofString(Fixtures.NEW_ORDER_TX_JSON))
+                        .build();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.execute(
+                        () -> {
+                            try {
+                                while (System.nanoTime() < deadline) {
+                                    long start = System.nanoTime();
+                                    try {
+                                        HttpResponse<Void> response =
+                                                httpClient.send(
+                                                        request,
+                                                        HttpResponse.BodyHandlers.discarding());
+                                        if (response.statusCode() >= 300) {
+                                            errors.increment();
+                                        }
+                                    } catch (Exception e) {
+                                        errors.increment();
+                                    }
+                                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                }
+                            } finally {
+                                done.countDown();
+                            }
+                        });
+            }
+            done.await();
+        }
+
+        ValueAtPercentile[] percentiles = latency.takeSnapshot().percentileValues();
+        return String.format(
+                "%7d %10d %8d %9.1f %9.1f %9.1f",
+                clients,
+                latency.count(),
+                errors.sum(),
+                (double) latency.count() / seconds,
+                percentiles[0].value(TimeUnit.MILLISECONDS),
+                percentiles[1].value(TimeUnit.MILLISECONDS));
+    }
+}
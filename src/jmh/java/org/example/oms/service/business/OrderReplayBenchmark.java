@@ -0,0 +1,57 @@
+package org.example.oms.service.business;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.Order;
+import org.example.common.model.tx.Transaction;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.model.Event;
+import org.example.oms.service.mapper.NewOrderTxToOrderMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Replay of one order's NEW_ORDER and ACK events as stored in order_events: the transaction JSON is
+ * parsed and applied by {@link OrderReplay}. One operation is two events, so events per second per
+ * rebuild partition is twice the score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderReplayBenchmark {
+
+    private final ObjectReader reader =
+            JsonMapper.builder().findAndAddModules().build().readerFor(Transaction.class);
+    private final OrderReplay replay = new OrderReplay(new NewOrderTxToOrderMapper());
+    private final LocalDate tradeDate = LocalDate.now();
+    private long eventId;
+
+    @Benchmark
+    public Order replayNewAndAck() throws IOException {
+        String orderId = "01K6QJ5B1Y8Z3V4N7T2C9XW0RM";
+        Order order =
+                replay.apply(
+                        null,
+                        orderId,
+                        tradeDate,
+                        ++eventId,
+                        Event.NEW_ORDER,
+                        reader.readValue(Fixtures.NEW_ORDER_TX_JSON));
+        return replay.apply(
+                order,
+                orderId,
+                tradeDate,
+                ++eventId,
+                Event.ACK,
+                reader.readValue(Fixtures.ACCEPT_ORDER_TX_JSON));
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Allocation of one fill of a grouped order across its members: {@link ProRataAllocation} on scaled
+ * longs against the per-member BigDecimal ratio of specs/order_grouping.md.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProRataAllocationBenchmark {
+
+    private static final long LOT = 100;
+
+    @Param({"100", "1000", "10000"})
+    private int members;
+
+    private long[] capacity;
+    private long fill;
+    private BigDecimal[] memberQty;
+    private BigDecimal groupQty;
+    private BigDecimal fillQty;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        capacity = new long[members];
+        memberQty = new BigDecimal[members];
+        long total = 0;
+        for (int i = 0; i < members; i++) {
+            capacity[i] = random.nextLong(1, 5_000) * LOT;
+            memberQty[i] = ProRataAllocation.fromScaled(capacity[i]);
+            total += capacity[i];
+        }
+        // A fill of about a third of the group, not a whole number of lots per member
+        fill = total / 3 / LOT * LOT;
+        groupQty = ProRataAllocation.fromScaled(total);
+        fillQty = ProRataAllocation.fromScaled(fill);
+    }
+
+    @Benchmark
+    public long[] scaledLongs() {
+        return ProRataAllocation.allocate(fill, capacity, LOT);
+    }
+
+    @Benchmark
+    public BigDecimal[] bigDecimalRatios() {
+        BigDecimal[] allocation = new BigDecimal[members];
+        BigDecimal allocated = BigDecimal.ZERO;
+        for (int i = 0; i < members - 1; i++) {
+            BigDecimal ratio = memberQty[i].divide(groupQty, 10, RoundingMode.HALF_UP);
+            allocation[i] = fillQty.multiply(ratio).setScale(0, RoundingMode.DOWN);
+            allocated = allocated.add(allocation[i]);
+        }
+        allocation[members - 1] = fillQty.subtract(allocated);
+        return allocation;
+    }
+}
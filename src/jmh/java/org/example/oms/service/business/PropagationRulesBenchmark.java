@@ -0,0 +1,64 @@
+package org.example.oms.service.business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.Order;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.service.business.PropagationRules.Action;
+import org.example.oms.service.business.PropagationRules.Request;
+import org.example.oms.service.business.PropagationRules.Rule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * One propagation decision for a descendant no rule matches, the worst case: with only enum
+ * conditions the decision table rules out every rule at once, with numeric ones each rule left is
+ * tested.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropagationRulesBenchmark {
+
+    @Param({"4", "64"})
+    private int ruleCount;
+
+    @Param({"true", "false"})
+    private boolean enumsOnly;
+
+    private PropagationRules rules;
+    private Order parent;
+    private Order child;
+
+    @Setup
+    public void setUp() {
+        List<Rule> declared = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            Map<String, Object> when =
+                    enumsOnly
+                            ? Map.of(
+                                    "handlInst",
+                                    "MANUAL",
+                                    "parent.side",
+                                    i % 2 == 0 ? "SELL" : "BUY")
+                            : Map.of("parent.side", "BUY", "orderQty__gt", 1000 + i);
+            declared.add(new Rule("R" + i, null, Action.SKIP, when));
+        }
+        rules = PropagationRules.compile(declared);
+        parent = Fixtures.liveOrder();
+        child = Fixtures.liveOrder().toBuilder().orderId("child").build();
+    }
+
+    @Benchmark
+    public int decide() {
+        return rules.match(Request.REPLACE, parent, child, null);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.oms.service.business;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StateMachineBenchmark {
+
+    // Non-final so the JIT cannot constant-fold the lookups
+    private State from = State.UNACK;
+    private State validTo = State.LIVE;
+    private State invalidTo = State.FILLED;
+    private Order childOrder = Order.builder().orderId("o2").parentOrderId("o1").build();
+
+    // The map and Optional lookup the transition table replaced, for comparison
+    private static final Map<State, Set<State>> MAP = new EnumMap<>(State.class);
+
+    static {
+        for (State from : State.values()) {
+            Set<State> targets = EnumSet.noneOf(State.class);
+            for (State to : State.values()) {
+                if (StateMachine.isValidTransition(from, to)) {
+                    targets.add(to);
+                }
+            }
+            MAP.put(from, targets);
+        }
+    }
+
+    @Benchmark
+    public Optional<State> transitionValid() {
+        return StateMachine.transition(from, validTo);
+    }
+
+    @Benchmark
+    public Optional<State> transitionInvalid() {
+        return StateMachine.transition(from, invalidTo);
+    }
+
+    @Benchmark
+    public Optional<State> transitionSequence() {
+        return StateMachine.transitionSequence(
+                State.NEW, State.UNACK, State.LIVE, State.FILLED, State.CLOSED);
+    }
+
+    @Benchmark
+    public boolean canTransition() {
+        return StateMachine.CLIENT.canTransition(from, validTo);
+    }
+
+    @Benchmark
+    public boolean canTransitionForOrder() {
+        return StateMachine.of(childOrder).canTransition(from, validTo);
+    }
+
+    @Benchmark
+    public boolean canTransitionMapBaseline() {
+        return Optional.ofNullable(MAP.get(from))
+                .map(targets -> targets.contains(validTo))
+                .orElse(false);
+    }
+}
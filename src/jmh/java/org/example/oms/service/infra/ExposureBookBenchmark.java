@@ -0,0 +1,74 @@
+package org.example.oms.service.infra;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.common.model.Order;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.service.infra.ExposureBook.Dimension;
+import org.example.oms.service.infra.ExposureBook.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A pre-trade check of a new order against limits on all three dimensions, reserved and released
+ * again, from one thread and from four contending on the same account, symbol and session.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExposureBookBenchmark {
+
+    /** A new order of each thread's own, on the same account, symbol and session. */
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class NewOrder {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        Order order;
+
+        @Setup
+        public void setUp() {
+            order =
+                    Fixtures.liveOrder().toBuilder()
+                            .orderId("new-" + THREADS.incrementAndGet())
+                            .build();
+        }
+    }
+
+    private ExposureBook book;
+    private long[] limits;
+
+    @Setup
+    public void setUp() {
+        // The JdbcTemplate is only used to build and reconcile the book
+        book = new ExposureBook(new JdbcTemplate(), new SimpleMeterRegistry(), "USD", 0);
+        for (int i = 0; i < 1000; i++) {
+            book.onOrder(Fixtures.liveOrder().toBuilder().orderId("working-" + i).build());
+        }
+        limits = new long[Dimension.values().length];
+        Arrays.fill(limits, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Reservation reserveAndRelease(NewOrder newOrder) {
+        Reservation reservation = book.reserve(newOrder.order, limits);
+        book.release(newOrder.order, reservation);
+        return reservation;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Reservation reserveAndReleaseContended(NewOrder newOrder) {
+        return reserveAndRelease(newOrder);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.oms.service.infra.logging;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.model.Event;
+import org.example.oms.model.OrderEvent;
+import org.example.oms.model.ProcessingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * Formatting cost of the per-transaction pipeline log events: the reflective JSON dumps the
+ * services used to log ({@code toString} via ReflectionToStringBuilder, formatted as SLF4J does
+ * when an event is enabled) against the generated {@link FieldWriter}s. Run with {@code -prof gc}
+ * to compare bytes allocated per event.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PipelineLogBenchmark {
+
+    private static final FieldWriter<Order> ORDER = FieldWriters.of(Order.class);
+    private static final FieldWriter<OrderEvent> ORDER_EVENT = FieldWriters.of(OrderEvent.class);
+
+    private final Order order = Fixtures.liveOrder();
+    private final OrderEvent orderEvent =
+            OrderEvent.builder()
+                    .id(42L)
+                    .orderId(order.getOrderId())
+                    .event(Event.ACK)
+                    .transaction(Fixtures.newOrderTx())
+                    .timeStamp(LocalDateTime.of(2025, 10, 4, 10, 1, 0, 123_000_000))
+                    .build();
+    private final ProcessingContext context =
+            ProcessingContext.builder()
+                    .transaction(Fixtures.newOrderTx())
+                    .order(order)
+                    .event(Event.ACK)
+                    .newState(State.LIVE)
+                    .build();
+
+    @Benchmark
+    public String orderReflection() {
+        return MessageFormatter.format("Order persisted: {}", order).getMessage();
+    }
+
+    @Benchmark
+    public String orderStructured() {
+        return PipelineLog.format("order.persisted", ORDER, order);
+    }
+
+    @Benchmark
+    public String orderEventReflection() {
+        return MessageFormatter.format("Order event persisted: {}", orderEvent).getMessage();
+    }
+
+    @Benchmark
+    public String orderEventStructured() {
+        return PipelineLog.format("event.persisted", ORDER_EVENT, orderEvent);
+    }
+
+    // The whole context, nested order and transaction included, as ValidationService logged it
+    @Benchmark
+    public String contextReflection() {
+        return MessageFormatter.format("Validation successful: {}", context).getMessage();
+    }
+
+    @Benchmark
+    public String contextStructured() {
+        return PipelineLog.format(
+                "validation.passed",
+                (c, out) -> {
+                    Logfmt.append(out, "orderId", c.getOrder().getOrderId());
+                    Logfmt.append(out, "tx", c.getOrder().getTx());
+                    Logfmt.append(out, "event", c.getEvent());
+                    Logfmt.append(out, "state", c.getOrder().getState());
+                    Logfmt.append(out, "newState", c.getNewState());
+                },
+                context);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.oms.service.infra.query;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.Order;
+import org.example.oms.bench.EmbeddedPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Cost of reading one page at increasing depth with offset paging (plus its count query) versus
+ * keyset scrolling, over a seeded orders table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class OrderQueryBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final Map<String, String> FILTER = Map.of("symbol", "INTC");
+    private static final String SORT = "transactTime,DESC";
+
+    @Param({"1", "900"})
+    public int page;
+
+    // Run with -p rows=1000 -p page=1 to see the per-query overhead rather than the database work
+    @Param({"100000"})
+    public int rows;
+
+    private EmbeddedPipeline pipeline;
+    private OrderQueryService orderQueryService;
+    private String cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        pipeline = EmbeddedPipeline.start();
+        orderQueryService = pipeline.getBean(OrderQueryService.class);
+        JdbcTemplate jdbcTemplate = pipeline.getBean(JdbcTemplate.class);
+        jdbcTemplate.update(
+                """
+                INSERT INTO orders (id, order_id, symbol, side, state, price, order_qty, tx_nr,
+                                    transact_time)
+                SELECT i, 'order-' || i, CASE WHEN i % 2 = 0 THEN 'INTC' ELSE 'MSFT' END, 'BUY',
+                       ?, 20 + (i % 100) / 10.0, 100, i,
+                       timestamp '2025-10-04 09:00:00' + i * interval '100 milliseconds'
+                FROM generate_series(1, ?) AS i
+                """,
+                org.example.common.model.State.LIVE.ordinal(), rows);
+        jdbcTemplate.execute("ANALYZE orders");
+
+        // Walk the keyset to the requested depth once, so the benchmark reads only that page
+        cursor = null;
+        for (int i = 0; i < page; i++) {
+            cursor = orderQueryService.scroll(FILTER, cursor, PAGE_SIZE, SORT).next();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public Page<Order> offset() {
+        return orderQueryService.search(FILTER, page, PAGE_SIZE, SORT);
+    }
+
+    @Benchmark
+    public List<Order> keyset() {
+        return orderQueryService.scroll(FILTER, cursor, PAGE_SIZE, SORT).content();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.oms.service.mapper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.Order;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.oms.bench.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NewOrderTxToOrderMapperBenchmark {
+
+    private final NewOrderTxToOrderMapper mapper = new NewOrderTxToOrderMapper();
+    private final NewOrderTx newOrderTx = Fixtures.newOrderTx();
+
+    @Benchmark
+    public Order map() {
+        return mapper.map(newOrderTx);
+    }
+}
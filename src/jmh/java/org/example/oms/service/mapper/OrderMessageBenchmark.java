@@ -0,0 +1,99 @@
+package org.example.oms.service.mapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.example.common.model.Order;
+import org.example.common.model.msg.OrderMessage;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.service.infra.OrderMessageSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the outbound message path: Order to Avro OrderMessage conversion in {@link
+ * OrderToOrderMessageMapper} and its binary encoding, against {@link OrderMessageEncoder} writing
+ * the order straight to Avro and the full {@link OrderMessageSerializer} record. Run with {@code
+ * -prof gc} for allocations per operation; the size of each encoding, the bytes per operation, is
+ * printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderMessageBenchmark {
+
+    private OrderToOrderMessageMapper orderMessageMapper;
+    private OrderMessageEncoder orderMessageEncoder;
+    private OrderMessageSerializer serializer;
+    private Order order;
+    private OrderMessage orderMessage;
+    private DatumWriter<OrderMessage> datumWriter;
+    private ByteArrayOutputStream out;
+    private BinaryEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        orderMessageMapper = new OrderToOrderMessageMapper();
+        orderMessageEncoder = new OrderMessageEncoder();
+        serializer = new OrderMessageSerializer(Fixtures.SCHEMA_SERIALIZER);
+        order = Fixtures.liveOrder();
+        orderMessage = orderMessageMapper.map(order);
+        datumWriter = new SpecificDatumWriter<>(OrderMessage.class);
+        out = new ByteArrayOutputStream(1024);
+        try {
+            System.out.printf(
+                    "OrderMessage bytes/op: datum writer %d, encoder %d, record %d%n",
+                    encode(orderMessage).length, encodeDirect().length, serializeRecord().length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public OrderMessage convert() {
+        return orderMessageMapper.map(order, Instant.now());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return encode(orderMessage);
+    }
+
+    @Benchmark
+    public byte[] convertAndSerialize() throws IOException {
+        return encode(orderMessageMapper.map(order, Instant.now()));
+    }
+
+    @Benchmark
+    public byte[] encodeDirect() throws IOException {
+        out.reset();
+        encoder = EncoderFactory.get().binaryEncoder(out, encoder);
+        orderMessageEncoder.write(order, System.currentTimeMillis(), encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeRecord() {
+        return serializer.serialize("orders", order);
+    }
+
+    private byte[] encode(OrderMessage message) throws IOException {
+        out.reset();
+        encoder = EncoderFactory.get().binaryEncoder(out, encoder);
+        datumWriter.write(message, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.oms.service.processing;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.TxInfo;
+import org.example.oms.bench.EmbeddedPipeline;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.model.ProcessingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Order inserts per second with one {@code nextval} per row (blockSize 1) versus pooled-lo
+ * allocation. Each insert writes one OrderEvent and one Order row. The sequences are migrated to
+ * the block size under test, as a deployment changing it would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class IdAllocationBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1", "50"})
+    public int blockSize;
+
+    private EmbeddedPipeline pipeline;
+    private OrchestrationService orchestrationService;
+    private NewOrderTx newOrderTx;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<String, Object> overrides = new HashMap<>();
+        for (String key : List.of("order", "order-event", "execution", "quote")) {
+            overrides.put("oms.id.block-size." + key, blockSize);
+        }
+        // The sequences are migrated to the same increment after the schema
+        overrides.put(
+                "spring.flyway.locations",
+                "classpath:db/migration,classpath:db/bench/id-allocation");
+        overrides.put("spring.flyway.placeholders.block_size", blockSize);
+        pipeline = EmbeddedPipeline.start(overrides);
+        orchestrationService = pipeline.getBean(OrchestrationService.class);
+        newOrderTx = Fixtures.newOrderTx();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public TxInfo insert() {
+        return orchestrationService.process(
+                ProcessingContext.builder().transaction(newOrderTx).build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TxInfo> insertBatch() {
+        return orchestrationService.processBatch(
+                IntStream.range(0, BATCH_SIZE)
+                        .<ProcessingContext>mapToObj(
+                                i -> ProcessingContext.builder().transaction(newOrderTx).build())
+                        .toList());
+    }
+}
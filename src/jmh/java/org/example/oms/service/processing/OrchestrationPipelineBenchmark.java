@@ -0,0 +1,106 @@
+package org.example.oms.service.processing;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.TxInfo;
+import org.example.oms.bench.EmbeddedPipeline;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.model.ProcessingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end {@link OrchestrationService#process} throughput: TransactionService, EventProcessor,
+ * ValidationService, PersistenceService and EventProducer against an embedded PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class OrchestrationPipelineBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private EmbeddedPipeline pipeline;
+    private OrchestrationService orchestrationService;
+    private NewOrderTx newOrderTx;
+    private String replacedClOrdId;
+    private long replaces;
+
+    @Setup
+    public void setUp() throws IOException {
+        pipeline = EmbeddedPipeline.start();
+        orchestrationService = pipeline.getBean(OrchestrationService.class);
+        newOrderTx = Fixtures.newOrderTx();
+        replacedClOrdId = "bench-rp-0";
+        TxInfo created = process(Fixtures.newOrderTx(replacedClOrdId));
+        process(AcceptOrderTx.builder().orderId(created.getOrderId()).build());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public TxInfo newOrder() {
+        return process(newOrderTx);
+    }
+
+    @Benchmark
+    public TxInfo newAndAcceptOrder() {
+        TxInfo created = process(newOrderTx);
+        return process(AcceptOrderTx.builder().orderId(created.getOrderId()).build());
+    }
+
+    /** A replace storm on one LIVE order: each replace names the ClOrdID of the one before. */
+    @Benchmark
+    public TxInfo replaceOrder() {
+        String clOrdId = "bench-rp-" + ++replaces;
+        TxInfo replaced =
+                process(
+                        ReplaceOrderTx.builder()
+                                .origClOrdId(replacedClOrdId)
+                                .clOrdId(clOrdId)
+                                .price(
+                                        (replaces & 1) == 0
+                                                ? new BigDecimal("22.35")
+                                                : new BigDecimal("22.40"))
+                                .build());
+        replacedClOrdId = clOrdId;
+        return replaced;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TxInfo> newOrderBatch() {
+        return orchestrationService.processBatch(
+                IntStream.range(0, BATCH_SIZE)
+                        .<ProcessingContext>mapToObj(
+                                i -> ProcessingContext.builder().transaction(newOrderTx).build())
+                        .toList());
+    }
+
+    private TxInfo process(Transaction transaction) {
+        return orchestrationService.process(
+                ProcessingContext.builder().transaction(transaction).build());
+    }
+}
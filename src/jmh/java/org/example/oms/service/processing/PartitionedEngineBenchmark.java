@@ -0,0 +1,75 @@
+package org.example.oms.service.processing;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.TxInfo;
+import org.example.oms.bench.EmbeddedPipeline;
+import org.example.oms.bench.Fixtures;
+import org.example.oms.model.ProcessingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of concurrent callers submitting through the group commit engine with one versus
+ * several single-threaded partitions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(16)
+public class PartitionedEngineBenchmark {
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private EmbeddedPipeline pipeline;
+    private OrchestrationService orchestrationService;
+    private NewOrderTx newOrderTx;
+
+    @Setup
+    public void setUp() throws IOException {
+        pipeline =
+                EmbeddedPipeline.start(
+                        Map.of(
+                                "oms.group-commit.enabled",
+                                true,
+                                "oms.group-commit.partitions",
+                                partitions));
+        orchestrationService = pipeline.getBean(OrchestrationService.class);
+        newOrderTx = Fixtures.newOrderTx();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public TxInfo newAndAcceptOrder() {
+        TxInfo created = submit(newOrderTx);
+        return submit(AcceptOrderTx.builder().orderId(created.getOrderId()).build());
+    }
+
+    private TxInfo submit(Transaction transaction) {
+        return orchestrationService
+                .submit(ProcessingContext.builder().transaction(transaction).build())
+                .join();
+    }
+}
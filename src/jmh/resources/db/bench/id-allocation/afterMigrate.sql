@@ -0,0 +1,5 @@
+-- Sequences at the block size IdAllocationBenchmark runs with (oms.id.block-size must match)
+alter sequence order_seq increment by ${block_size};
+alter sequence order_event_seq increment by ${block_size};
+alter sequence execution_seq increment by ${block_size};
+alter sequence quote_seq increment by ${block_size};
@@ -1,38 +1,62 @@
 package org.example.common.model;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.example.common.model.id.PooledSequence;
+import org.hibernate.annotations.PartitionKey;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
 @Entity
-@Table(name = "executions")
+@Table(
+        name = "executions",
+        indexes = {
+            @Index(name = "ix_executions_order_id", columnList = "order_id"),
+            @Index(name = "ux_executions_execid", columnList = "execid, trade_date", unique = true)
+        })
 @SuperBuilder
 @EqualsAndHashCode
 @NoArgsConstructor
 @Getter
 public class Execution {
 
+    /** {@link #getExecType() ExecType} of an execution that counts towards its order. */
+    public static final String FILL = "FILL";
+
+    /** ExecType of an execution cancelled by the venue; it no longer counts. */
+    public static final String BUST = "BUST";
+
+    /** ExecType of an execution removed as booked in error; it no longer counts. */
+    public static final String WHACK = "WHACK";
+
+    /**
+     * ExecType of a member order's share of a grouped order's fill; it counts towards the member
+     * and is reversed with the grouped order's execution.
+     */
+    public static final String ALLOCATION = "ALLOCATION";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "execution_sequence")
-    @SequenceGenerator(
-            name = "execution_sequence",
-            sequenceName = "execution_seq",
-            allocationSize = 1)
+    @PooledSequence(sequenceName = "execution_seq", key = "execution")
     private Long id;
 
+    /** Trade date of the order, which the table is partitioned on. */
+    @PartitionKey
+    @Column(updatable = false)
+    private LocalDate tradeDate;
+
     private String orderId;
     private String executionId;
     private BigDecimal avgPx;
@@ -43,7 +67,7 @@ public class Execution {
     private BigDecimal lastPx;
     private BigDecimal lastQty;
     private LocalDateTime transactTime;
-    private String execType;
+    @Setter private String execType;
     private BigDecimal leavesQty;
     private BigDecimal dayOrderQty;
     private BigDecimal dayCumQty;
@@ -2,23 +2,26 @@ package org.example.common.model;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.example.common.model.id.PooledSequence;
 import org.example.common.model.tx.Tx;
+import org.hibernate.annotations.PartitionKey;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -27,7 +30,23 @@ import lombok.experimental.SuperBuilder;
 import lombok.extern.jackson.Jacksonized;
 
 @Entity
-@Table(name = "orders")
+@Table(
+        name = "orders",
+        // The schema is owned by the Flyway migrations in db/migration; declared here to document
+        // the access paths. Trigram indexes for __like are only in the migration.
+        indexes = {
+            @Index(name = "ux_orders_order_id", columnList = "order_id, trade_date", unique = true),
+            @Index(
+                    name = "ix_orders_account_state_transact_time",
+                    columnList = "account, state, transact_time"),
+            @Index(name = "ix_orders_symbol_side", columnList = "symbol, side"),
+            @Index(name = "ix_orders_transact_time_id", columnList = "transact_time, id"),
+            @Index(name = "ix_orders_root_order_id", columnList = "root_order_id"),
+            @Index(name = "ix_orders_parent_order_id", columnList = "parent_order_id"),
+            @Index(name = "ix_orders_group_order_id", columnList = "group_order_id, order_id"),
+            @Index(name = "ix_orders_cl_ord_id", columnList = "cl_ord_id"),
+            @Index(name = "ix_orders_security_id", columnList = "security_id")
+        })
 @SuperBuilder(toBuilder = true)
 @EqualsAndHashCode
 @NoArgsConstructor
@@ -38,26 +57,37 @@ import lombok.extern.jackson.Jacksonized;
 public class Order implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_sequence")
-    @SequenceGenerator(name = "order_sequence", sequenceName = "order_seq", allocationSize = 1)
+    @PooledSequence(sequenceName = "order_seq", key = "order")
     private Long id;
 
+    // The table is range partitioned on it; updates carry it so they only touch one partition
+    @PartitionKey
+    @Column(updatable = false)
+    private LocalDate tradeDate;
+
     private String orderId;
     private String parentOrderId;
-    private String rootOrderId;
+    @Setter private String rootOrderId;
 
     @Enumerated(EnumType.STRING)
     @Setter
     private Tx tx;
 
     @Setter private long txNr;
+
+    // Bumped by every write of the row, so a write from a stale copy (OrderCache, another
+    // instance) fails instead of overwriting newer state
+    @Version private long version;
+
     private String sessionId;
-    private String clOrdId;
+    // ClOrdID chain: a cancel or replace moves the current ClOrdID to OrigClOrdID
+    @Setter private String clOrdId;
     private LocalDateTime sendingTime;
     private String account;
-    private String origClOrdId;
+    @Setter private String origClOrdId;
 
     @Enumerated(EnumType.STRING)
+    @Setter
     private ExecInst execInst;
 
     @Enumerated(EnumType.STRING)
@@ -66,7 +96,7 @@ public class Order implements Serializable {
     @Enumerated(EnumType.STRING)
     private SecurityIdSource securityIdSource;
 
-    private BigDecimal orderQty;
+    @Setter private BigDecimal orderQty;
     private BigDecimal cashOrderQty;
 
     @Enumerated(EnumType.STRING)
@@ -86,7 +116,7 @@ public class Order implements Serializable {
     @Enumerated(EnumType.STRING)
     private OrdType ordType;
 
-    private BigDecimal price;
+    @Setter private BigDecimal price;
     private BigDecimal stopPx;
     private String securityId;
 
@@ -96,6 +126,7 @@ public class Order implements Serializable {
     private String symbol;
 
     @Enumerated(EnumType.STRING)
+    @Setter
     private TimeInForce timeInForce;
 
     private LocalDateTime transactTime;
@@ -108,6 +139,44 @@ public class Order implements Serializable {
     @Setter private State state;
     @Setter private CancelState cancelState;
 
+    // Maintained by the execution ingestion path only; the transaction pipeline never writes them
+    @Column(insertable = false, updatable = false)
+    private BigDecimal cumQty;
+
+    @Column(precision = 38, scale = 8, insertable = false, updatable = false)
+    private BigDecimal avgPx;
+
+    // Order grouping (V8 migration): members and the grouped order itself carry its orderId
+    @Setter private String groupOrderId;
+
+    @Column(updatable = false)
+    private Integer memberCount;
+
+    @Column(updatable = false)
+    private String groupedBy;
+
+    // Maintained by the allocation of the grouped order's fills only, like CumQty
+    @Column(insertable = false, updatable = false)
+    private BigDecimal allocatedToMembersQty;
+
+    /**
+     * Quantity still to be executed: what is left of OrderQty while the order is working, zero once
+     * it is filled or done.
+     */
+    public BigDecimal getLeavesQty() {
+        if (orderQty == null
+                || (state != State.NEW && state != State.UNACK && state != State.LIVE)) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal leaves = cumQty != null ? orderQty.subtract(cumQty) : orderQty;
+        return leaves.signum() > 0 ? leaves : BigDecimal.ZERO;
+    }
+
+    /** Whether this is a grouped order, executed for its member orders. */
+    public boolean isGroupedOrder() {
+        return orderId != null && orderId.equals(groupOrderId);
+    }
+
     @Override
     public String toString() {
         return ReflectionToStringBuilder.toString(this, ToStringStyle.JSON_STYLE);
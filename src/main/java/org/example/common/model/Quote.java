@@ -5,12 +5,10 @@ import java.time.LocalDateTime;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.example.common.model.id.PooledSequence;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -26,8 +24,7 @@ import lombok.experimental.SuperBuilder;
 public class Quote {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quote_sequence")
-    @SequenceGenerator(name = "quote_sequence", sequenceName = "quote_seq", allocationSize = 1)
+    @PooledSequence(sequenceName = "quote_seq", key = "quote")
     private Long id;
 
     private String symbol;
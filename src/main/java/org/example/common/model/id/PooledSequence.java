@@ -0,0 +1,37 @@
+package org.example.common.model.id;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Sequence-backed identifier that is allocated in blocks using the pooled-lo optimizer, so only one
+ * {@code nextval} round-trip is needed per {@link #blockSize()} inserts. The block size can be
+ * overridden per entity with {@code oms.id.block-size.<key>}; a block size of 1 falls back to one
+ * {@code nextval} per insert.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface PooledSequence {
+
+    /** Name of the database sequence. */
+    String sequenceName();
+
+    /** Configuration key under {@code oms.id.block-size}. */
+    String key();
+
+    /** Block size used when no override is configured. */
+    int blockSize() default 50;
+
+    /**
+     * Whether ids must increase in the order they are drawn, across instances too. Blocks handed to
+     * several instances interleave, so an ordered sequence only accepts a block size of 1.
+     */
+    boolean ordered() default false;
+}
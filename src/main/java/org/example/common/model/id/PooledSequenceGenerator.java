@@ -0,0 +1,66 @@
+package org.example.common.model.id;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * {@link SequenceStyleGenerator} configured from a {@link PooledSequence} annotation, with the
+ * block size resolved from the Hibernate settings at bootstrap.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String BLOCK_SIZE_SETTING_PREFIX = "oms.id.block-size.";
+
+    private static final long serialVersionUID = 1L;
+
+    // Only read while the generator is configured at bootstrap
+    private final transient PooledSequence config;
+
+    public PooledSequenceGenerator(PooledSequence config) {
+        this.config = config;
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry)
+            throws MappingException {
+        int blockSize =
+                blockSize(
+                        config,
+                        serviceRegistry.requireService(ConfigurationService.class).getSettings());
+        parameters.put(SEQUENCE_PARAM, config.sequenceName());
+        parameters.put(INCREMENT_PARAM, String.valueOf(blockSize));
+        parameters.put(
+                OPT_PARAM,
+                blockSize > 1
+                        ? StandardOptimizerDescriptor.POOLED_LO.getExternalName()
+                        : StandardOptimizerDescriptor.NONE.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    /** The block size configured for the sequence, or its default. */
+    public static int blockSize(PooledSequence config, Map<String, Object> settings) {
+        int blockSize =
+                ConfigurationHelper.getInt(
+                        BLOCK_SIZE_SETTING_PREFIX + config.key(), settings, config.blockSize());
+        if (blockSize < 1) {
+            throw new MappingException(
+                    "Block size for sequence " + config.sequenceName() + " must be positive");
+        }
+        if (config.ordered() && blockSize > 1) {
+            throw new MappingException(
+                    "Sequence "
+                            + config.sequenceName()
+                            + " must hand out ids in order and cannot be allocated in blocks of "
+                            + blockSize);
+        }
+        return blockSize;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.common.model.mapper;
+
+import org.example.common.model.TimeInForce;
+import org.example.common.model.tx.NewOrderTx;
+import org.mapstruct.*;
+
+// The order id is assigned when the order is created; transactTime when it is processed
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface CommandMapper {
+    @Mapping(target = "orderId", ignore = true)
+    NewOrderTx toNewOrderTx(org.example.common.model.msg.Order msgOrder);
+
+    @ValueMapping(target = "GOOD_TILL_CANCEL", source = "GTC")
+    @ValueMapping(target = "IMMEDIATE_OR_CANCEL", source = "IOC")
+    @ValueMapping(target = "FILL_OR_KILL", source = "FOK")
+    @ValueMapping(target = "GOOD_TILL_DATE", source = "GTD")
+    @ValueMapping(target = "AT_THE_OPENING", source = "AT_THE_OPEN")
+    TimeInForce toTimeInForce(org.example.common.model.msg.TimeInForce timeInForce);
+}
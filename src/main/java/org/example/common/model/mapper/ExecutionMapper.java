@@ -0,0 +1,33 @@
+package org.example.common.model.mapper;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+import org.example.common.model.Execution;
+import org.mapstruct.*;
+
+// Ids, ExecType and the running totals of the order are filled in when the execution is booked
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface ExecutionMapper {
+    @Mapping(target = "execID", source = "execId")
+    @Mapping(target = "secondaryExecID", source = "secondaryExecId")
+    @Mapping(target = "transactTime", source = "transactTime", qualifiedByName = "offsetToLocal")
+    Execution toExecution(org.example.common.model.cmd.Execution cmdExecution);
+
+    @Mapping(target = "execID", source = "execId")
+    @Mapping(target = "secondaryExecID", source = "secondaryExecId")
+    @Mapping(target = "transactTime", source = "transactTime", qualifiedByName = "instantToLocal")
+    Execution toExecution(org.example.common.model.msg.Execution msgExecution);
+
+    @Named("offsetToLocal")
+    public static LocalDateTime offsetToLocal(OffsetDateTime odt) {
+        return odt == null ? null : odt.toLocalDateTime();
+    }
+
+    @Named("instantToLocal")
+    public static LocalDateTime instantToLocal(Instant instant) {
+        return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
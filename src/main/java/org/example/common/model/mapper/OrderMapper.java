@@ -11,12 +11,20 @@ public interface OrderMapper {
     @Mapping(target = "sendingTime", source = "sendingTime", qualifiedByName = "offsetToLocal")
     @Mapping(target = "expireTime", source = "expireTime", qualifiedByName = "offsetToLocal")
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "tradeDate", ignore = true)
     @Mapping(target = "tx", ignore = true)
     @Mapping(target = "txNr", ignore = true)
+    @Mapping(target = "version", ignore = true)
     @Mapping(target = "transactTime", ignore = true)
     @Mapping(target = "tifTimestamp", ignore = true)
     @Mapping(target = "state", ignore = true)
     @Mapping(target = "cancelState", ignore = true)
+    @Mapping(target = "cumQty", ignore = true)
+    @Mapping(target = "avgPx", ignore = true)
+    @Mapping(target = "groupOrderId", ignore = true)
+    @Mapping(target = "memberCount", ignore = true)
+    @Mapping(target = "groupedBy", ignore = true)
+    @Mapping(target = "allocatedToMembersQty", ignore = true)
     Order toOrder(org.example.common.model.cmd.Order cmdOrder);
 
     @Mapping(target = "sendingTime", source = "sendingTime", qualifiedByName = "localToOffset")
@@ -0,0 +1,36 @@
+package org.example.common.model.tx;
+
+import java.time.LocalDateTime;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Cancels an order and, down its tree, its working child orders (FIX OrderCancelRequest). The order
+ * is given by its orderId or by origClOrdId, which must be its current ClOrdID; clOrdId, if given,
+ * becomes the order's new ClOrdID.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@Jacksonized
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CancelOrderTx extends Transaction {
+
+    private String origClOrdId;
+    private String clOrdId;
+    private LocalDateTime transactTime;
+    private String text;
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.JSON_STYLE);
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.common.model.tx;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
+
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@Jacksonized
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ExpireOrderTx extends Transaction {}
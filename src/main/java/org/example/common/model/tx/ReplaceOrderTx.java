@@ -0,0 +1,44 @@
+package org.example.common.model.tx;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.example.common.model.ExecInst;
+import org.example.common.model.TimeInForce;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Changes the terms of a working order (FIX OrderCancelReplaceRequest); fields left null are
+ * unchanged. The order is given by its orderId or by origClOrdId, which must be its current
+ * ClOrdID, and clOrdId becomes its new ClOrdID. Price, time in force and instructions are carried
+ * down to its working child orders, whose ClOrdIDs stay as they are.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@Jacksonized
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReplaceOrderTx extends Transaction {
+
+    private String origClOrdId;
+    private String clOrdId;
+    private BigDecimal orderQty;
+    private BigDecimal price;
+    private TimeInForce timeInForce;
+    private ExecInst execInst;
+    private LocalDateTime transactTime;
+    private String text;
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.JSON_STYLE);
+    }
+}
@@ -17,7 +17,10 @@ import lombok.experimental.SuperBuilder;
 @JsonSubTypes({
     @JsonSubTypes.Type(value = NewOrderTx.class, name = "newOrderTx"),
     @JsonSubTypes.Type(value = AcceptOrderTx.class, name = "acceptOrderTx"),
-    @JsonSubTypes.Type(value = RejectOrderTx.class, name = "rejectOrderTx")
+    @JsonSubTypes.Type(value = RejectOrderTx.class, name = "rejectOrderTx"),
+    @JsonSubTypes.Type(value = ExpireOrderTx.class, name = "expireOrderTx"),
+    @JsonSubTypes.Type(value = CancelOrderTx.class, name = "cancelOrderTx"),
+    @JsonSubTypes.Type(value = ReplaceOrderTx.class, name = "replaceOrderTx")
 })
 @JsonIgnoreProperties(ignoreUnknown = true)
 public abstract class Transaction {
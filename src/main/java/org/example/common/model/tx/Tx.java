@@ -6,7 +6,9 @@ import lombok.Getter;
 public enum Tx {
     NO("NEW_ORDER"),
     AO("ACCEPT_ORDER"),
-    RO("REJECT_ORDER");
+    RO("REJECT_ORDER"),
+    CO("CANCEL_ORDER"),
+    RP("REPLACE_ORDER");
 
     private final String value;
 
@@ -5,10 +5,22 @@ import org.example.common.model.Order;
 import org.example.common.model.cmd.Command;
 import org.example.common.model.cmd.CommandResult;
 import org.example.common.model.cmd.CommandStatus;
+import org.example.common.model.cmd.ExecutionBustCmd;
+import org.example.common.model.cmd.ExecutionCreateCmd;
+import org.example.common.model.cmd.ExecutionWhackCmd;
 import org.example.common.model.cmd.OrderCreateCmd;
+import org.example.common.model.mapper.ExecutionMapper;
 import org.example.common.model.mapper.OrderMapper;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ExecutionCommand;
+import org.example.oms.model.ExecutionCommand.Bust;
+import org.example.oms.model.ExecutionCommand.Fill;
+import org.example.oms.model.ExecutionCommand.Whack;
+import org.example.oms.service.processing.ExecutionService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -25,9 +37,16 @@ import lombok.extern.slf4j.Slf4j;
 public class CommandController implements ExecuteApi {
 
     private final OrderMapper orderMapper;
+    private final ExecutionMapper executionMapper;
+    private final ExecutionService executionService;
 
-    public CommandController(OrderMapper orderMapper) {
+    public CommandController(
+            OrderMapper orderMapper,
+            ExecutionMapper executionMapper,
+            ExecutionService executionService) {
         this.orderMapper = orderMapper;
+        this.executionMapper = executionMapper;
+        this.executionService = executionService;
     }
 
     @Override
@@ -49,10 +68,44 @@ public class CommandController implements ExecuteApi {
                                                         name = "OrderAcceptCmd",
                                                         summary = "Order accept command",
                                                         value =
-                                                                "{\"type\":\"OrderAcceptCmd\",\"version\":\"1.0\",\"orderId\":\"12345\"}")
+                                                                "{\"type\":\"OrderAcceptCmd\",\"version\":\"1.0\",\"orderId\":\"12345\"}"),
+                                                @ExampleObject(
+                                                        name = "ExecutionCreateCmd",
+                                                        summary = "Execution create command",
+                                                        value =
+                                                                "{\"type\":\"ExecutionCreateCmd\",\"version\":\"1.0\",\"execution\":{\"execId\":\"XNAS-0001\",\"orderId\":\"12345\",\"lastQty\":50,\"lastPx\":172.05,\"lastMkt\":\"XNAS\"}}"),
+                                                @ExampleObject(
+                                                        name = "ExecutionBustCmd",
+                                                        summary = "Execution bust command",
+                                                        value =
+                                                                "{\"type\":\"ExecutionBustCmd\",\"version\":\"1.0\",\"executionId\":\"XNAS-0001\"}")
                                             })))
+    // Executions are committed by their partition; an outer transaction would hold a connection
+    // while the request waits for its batch.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ResponseEntity<CommandResult> executeCommand(@Valid Command command) {
         log.info("Received command: {}", command);
+        ExecutionCommand executionCommand =
+                switch (command) {
+                    case ExecutionCreateCmd cmd ->
+                            new Fill(executionMapper.toExecution(cmd.getExecution()));
+                    case ExecutionBustCmd cmd -> new Bust(cmd.getExecutionId());
+                    case ExecutionWhackCmd cmd -> new Whack(cmd.getExecutionId());
+                    default -> null;
+                };
+        if (executionCommand != null) {
+            TxInfo txInfo = executionService.submit(executionCommand).join();
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(
+                            CommandResult.builder()
+                                    .id(executionCommand.execId())
+                                    .status(
+                                            txInfo.getTxState() == TxState.OK
+                                                    ? CommandStatus.OK
+                                                    : CommandStatus.FAILED)
+                                    .message(txInfo.getMessage())
+                                    .build());
+        }
         if (command instanceof OrderCreateCmd orderCreateCmd) {
             Order order = orderMapper.toOrder(orderCreateCmd.getOrder());
             log.info("Mapped OrderCreateCmd to Order entity: {}", order);
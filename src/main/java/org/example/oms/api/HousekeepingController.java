@@ -0,0 +1,34 @@
+package org.example.oms.api;
+
+import org.example.oms.service.processing.HousekeepingService;
+import org.example.oms.service.processing.HousekeepingService.HousekeepingResult;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/api/admin/housekeeping")
+public class HousekeepingController {
+
+    private final HousekeepingService housekeepingService;
+
+    public HousekeepingController(HousekeepingService housekeepingService) {
+        this.housekeepingService = housekeepingService;
+    }
+
+    @PostMapping("/run")
+    @Operation(
+            summary = "Expire and archive orders now",
+            description =
+                    "Moves working DAY orders of past trade dates and GTD orders past their"
+                            + " expireTime to EXP, then moves closed and expired orders older than"
+                            + " oms.housekeeping.archive-after-days to the oms_archive schema, in"
+                            + " batches of oms.housekeeping.batch-size. Orders locked by the live"
+                            + " flow are skipped until the next run.")
+    public ResponseEntity<HousekeepingResult> run() {
+        return ResponseEntity.ok(housekeepingService.run());
+    }
+}
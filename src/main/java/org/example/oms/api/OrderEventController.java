@@ -1,31 +1,78 @@
 package org.example.oms.api;
 
+import java.time.LocalDate;
 import java.util.List;
 
+import org.example.common.model.Order;
 import org.example.oms.model.OrderEvent;
 import org.example.oms.service.infra.repository.OrderEventRepository;
+import org.example.oms.service.processing.OrderReplayService;
+import org.example.oms.service.processing.OrderReplayService.ReplayCheck;
+import org.example.oms.service.processing.OrderReplayService.SnapshotResult;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import io.swagger.v3.oas.annotations.Hidden;
+import io.swagger.v3.oas.annotations.Operation;
 
 @RestController
 @RequestMapping("/api/order-events")
-@Transactional(readOnly = true)
 public class OrderEventController {
 
     private final OrderEventRepository orderEventRepository;
+    private final OrderReplayService orderReplayService;
 
-    public OrderEventController(OrderEventRepository orderEventRepository) {
+    public OrderEventController(
+            OrderEventRepository orderEventRepository, OrderReplayService orderReplayService) {
         this.orderEventRepository = orderEventRepository;
+        this.orderReplayService = orderReplayService;
     }
 
     @GetMapping("/orderId/{orderId}")
     @Hidden
-    public List<OrderEvent> getOrderEventsByOrderId(@PathVariable String orderId) {
-        return orderEventRepository.findByOrderId(orderId);
+    @Transactional(readOnly = true)
+    public List<OrderEvent> getOrderEventsByOrderId(
+            @PathVariable String orderId,
+            @RequestParam(name = "tradeDate", required = false) LocalDate tradeDate) {
+        return tradeDate != null
+                ? orderEventRepository.findByOrderIdAndTradeDate(orderId, tradeDate)
+                : orderEventRepository.findByOrderId(orderId);
+    }
+
+    @GetMapping("/orderId/{orderId}/replay")
+    @Operation(
+            summary = "Rebuild an order from its events",
+            description =
+                    "Replays the order's events after its latest snapshot and applies its fills,"
+                            + " without reading or changing the stored order.")
+    public ResponseEntity<Order> replay(@PathVariable String orderId) {
+        return ResponseEntity.of(orderReplayService.rebuild(orderId));
+    }
+
+    @PostMapping("/snapshots")
+    @Operation(
+            summary = "Take order snapshots",
+            description =
+                    "Replays the events since the last snapshot checkpoint onto the snapshots of"
+                            + " their orders and moves the checkpoint forward.")
+    public SnapshotResult snapshot() {
+        return orderReplayService.snapshot();
+    }
+
+    @PostMapping("/replay")
+    @Operation(
+            summary = "Rebuild the book and compare it with the orders table",
+            description =
+                    "Rebuilds every order from the snapshots and the events after them in"
+                            + " parallel, applies the fills and lists the values that differ from"
+                            + " the stored orders. The orders table is not changed.")
+    public ReplayCheck replay() {
+        return orderReplayService.check();
     }
 }
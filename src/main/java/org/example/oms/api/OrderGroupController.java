@@ -0,0 +1,50 @@
+package org.example.oms.api;
+
+import java.util.List;
+
+import org.example.oms.api.dto.OrderGroupRequest;
+import org.example.oms.service.processing.OrderGroupingService;
+import org.example.oms.service.processing.OrderGroupingService.OrderGroup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/api/commands/orders")
+public class OrderGroupController {
+
+    private final OrderGroupingService orderGroupingService;
+
+    public OrderGroupController(OrderGroupingService orderGroupingService) {
+        this.orderGroupingService = orderGroupingService;
+    }
+
+    @PostMapping("/group")
+    @Operation(
+            summary = "Group orders",
+            description =
+                    "Creates a LIVE grouped order for the sum of the given orders, which must be"
+                            + " LIVE, unfilled, not yet grouped and agree on symbol, side, order"
+                            + " type and price. Fills of the grouped order are allocated to the"
+                            + " members pro rata in lots of oms.grouping.lot-size; members are"
+                            + " listed by /api/query/orders?groupOrderId=.")
+    public ResponseEntity<OrderGroup> group(@RequestBody OrderGroupRequest request) {
+        List<String> memberOrderIds =
+                request.memberOrderIds() != null ? request.memberOrderIds() : List.of();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(orderGroupingService.group(memberOrderIds, request.groupedBy()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+}
@@ -6,10 +6,14 @@ import java.util.stream.Collectors;
 import org.example.common.model.Order;
 import org.example.oms.api.dto.OrderDto;
 import org.example.oms.api.mapper.OrderDtoMapper;
+import org.example.oms.service.infra.query.CursorPage;
 import org.example.oms.service.infra.query.OrderQueryService;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -57,4 +61,36 @@ public class OrderQueryController {
         Page<OrderDto> dtoPage = result.map(mapper::toDto);
         return ResponseEntity.ok(dtoPage);
     }
+
+    @GetMapping("/scroll")
+    @Operation(
+            summary = "Keyset scroll over Orders",
+            description =
+                    "Same filters and sort syntax as the search, without page numbers or totals."
+                            + " Each response carries a 'next' cursor; pass it back as cursor= to"
+                            + " read the following page. Page cost does not grow with depth.")
+    public ResponseEntity<CursorPage<OrderDto>> scroll(
+            @RequestParam Map<String, String> allParams,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "sort", required = false) String sort) {
+
+        Map<String, String> filterParams =
+                allParams.entrySet().stream()
+                        .filter(
+                                e ->
+                                        !e.getKey().equals("cursor")
+                                                && !e.getKey().equals("size")
+                                                && !e.getKey().equals("sort"))
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        CursorPage<Order> result = service.scroll(filterParams, cursor, size, sort);
+        return ResponseEntity.ok(result.map(mapper::toDto));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
 }
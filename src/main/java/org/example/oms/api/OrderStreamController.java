@@ -0,0 +1,50 @@
+package org.example.oms.api;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.example.oms.api.dto.BlotterEvent;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/api/stream/orders")
+public class OrderStreamController {
+
+    private final OrderStreamService service;
+
+    public OrderStreamController(OrderStreamService service) {
+        this.service = service;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Blotter stream of Orders",
+            description =
+                    "Server-sent events: a snapshot of the matching orders, then live changes."
+                            + " Takes the same filter params as /api/query/orders and an optional"
+                            + " sort for the snapshot.")
+    public Flux<ServerSentEvent<BlotterEvent>> stream(
+            @RequestParam Map<String, String> allParams,
+            @RequestParam(name = "sort", required = false) String sort) {
+        Map<String, String> filterParams =
+                allParams.entrySet().stream()
+                        .filter(e -> !e.getKey().equals("sort"))
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        return service.subscribe(filterParams, sort)
+                .map(
+                        event ->
+                                ServerSentEvent.builder(event)
+                                        .event(event.type().name().toLowerCase())
+                                        .build());
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.oms.api;
+
+import java.util.List;
+
+import org.example.oms.service.business.OrderTreeAggregate;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.OrderTreeAggregator.OrderTreeCheck;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/api/order-trees")
+public class OrderTreeController {
+
+    private final OrderTreeAggregator aggregator;
+
+    public OrderTreeController(OrderTreeAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    @GetMapping("/{rootOrderId}")
+    @Operation(
+            summary = "Rolled-up quantities of an order tree",
+            description =
+                    "PlacedQty, CumQty, LeavesQty and AvgPx of the root order and each of its"
+                            + " descendants, parents first, as maintained incrementally from"
+                            + " committed orders and executions.")
+    public ResponseEntity<List<OrderTreeAggregate>> getTree(@PathVariable String rootOrderId) {
+        List<OrderTreeAggregate> aggregates = aggregator.aggregates(rootOrderId);
+        return aggregates.isEmpty()
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(aggregates);
+    }
+
+    @GetMapping("/{rootOrderId}/check")
+    @Operation(
+            summary = "Compare an order tree with a full recompute",
+            description =
+                    "Recomputes the tree from the orders and executions in the database and lists"
+                            + " every value that differs from the incrementally maintained one;"
+                            + " the tree in memory is then replaced by the recomputed one.")
+    public ResponseEntity<OrderTreeCheck> check(@PathVariable String rootOrderId) {
+        OrderTreeCheck check = aggregator.check(rootOrderId);
+        return check.orders() == 0 ? ResponseEntity.notFound().build() : ResponseEntity.ok(check);
+    }
+}
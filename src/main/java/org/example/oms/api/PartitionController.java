@@ -0,0 +1,47 @@
+package org.example.oms.api;
+
+import java.util.List;
+
+import org.example.oms.service.infra.PartitionMaintenance;
+import org.example.oms.service.infra.PartitionMaintenance.TradeDatePartition;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/api/admin/partitions")
+public class PartitionController {
+
+    private final PartitionMaintenance partitionMaintenance;
+
+    public PartitionController(PartitionMaintenance partitionMaintenance) {
+        this.partitionMaintenance = partitionMaintenance;
+    }
+
+    @GetMapping
+    @Operation(
+            summary = "Attached trade date partitions",
+            description =
+                    "The partitions of orders, oldest first, with their bounds and estimated row"
+                            + " counts; order_events and executions have one per day as well.")
+    public ResponseEntity<List<TradeDatePartition>> partitions() {
+        return ResponseEntity.ok(partitionMaintenance.partitions());
+    }
+
+    @PostMapping("/archive")
+    @Operation(
+            summary = "Create upcoming partitions and archive old ones",
+            description =
+                    "Creates the partitions of the next oms.partitions.days-ahead days and detaches"
+                            + " those older than oms.partitions.retention-days into the oms_archive"
+                            + " schema, stopping at the first day that still has working orders."
+                            + " Returns the suffixes of the archived partitions.")
+    public ResponseEntity<List<String>> archive() {
+        partitionMaintenance.createPartitions();
+        return ResponseEntity.ok(partitionMaintenance.archive());
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.oms.api;
+
+import org.example.oms.service.processing.PropagationRuleEngine;
+import org.example.oms.service.processing.PropagationRuleEngine.RuleSet;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/api/admin/propagation-rules")
+public class PropagationRuleController {
+
+    private final PropagationRuleEngine propagationRuleEngine;
+
+    public PropagationRuleController(PropagationRuleEngine propagationRuleEngine) {
+        this.propagationRuleEngine = propagationRuleEngine;
+    }
+
+    @GetMapping
+    @Operation(summary = "Propagation rules in force")
+    public ResponseEntity<RuleSet> rules() {
+        return ResponseEntity.ok(propagationRuleEngine.ruleSet());
+    }
+
+    @PostMapping("/reload")
+    @Operation(
+            summary = "Reload the propagation rules",
+            description =
+                    "Reads and compiles oms.propagation.rules-location and puts the rules in force"
+                            + " without pausing order flow. If a rule does not compile the rules in"
+                            + " force are kept and the error is returned.")
+    public ResponseEntity<RuleSet> reload() {
+        return ResponseEntity.ok(propagationRuleEngine.reload());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+}
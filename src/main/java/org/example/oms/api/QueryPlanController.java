@@ -0,0 +1,49 @@
+package org.example.oms.api;
+
+import java.util.List;
+
+import org.example.oms.service.infra.query.QueryPlanAdvisor;
+import org.example.oms.service.infra.query.QueryPlanReport;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+@RestController
+@RequestMapping("/api/admin/query-plans")
+public class QueryPlanController {
+
+    private final QueryPlanAdvisor advisor;
+
+    public QueryPlanController(QueryPlanAdvisor advisor) {
+        this.advisor = advisor;
+    }
+
+    @GetMapping
+    @Operation(
+            summary = "Sampled plans of order query shapes",
+            description =
+                    "One entry per combination of filter fields/operators and sort seen by"
+                            + " /api/query/orders, with the relations its generic plan scans"
+                            + " sequentially and the indexes it uses. Shapes with sequential"
+                            + " scans come first.")
+    public ResponseEntity<List<QueryPlanReport>> report(
+            @RequestParam(name = "seqScanOnly", defaultValue = "false") boolean seqScanOnly) {
+        List<QueryPlanReport> report = advisor.report();
+        if (seqScanOnly) {
+            report = report.stream().filter(QueryPlanReport::seqScan).toList();
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Forget all shapes so they are sampled again, e.g. after a migration")
+    public ResponseEntity<Void> reset() {
+        advisor.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,12 +1,17 @@
 package org.example.oms.api;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import org.example.common.model.tx.Transaction;
 import org.example.common.model.tx.TxInfo;
 import org.example.common.model.tx.TxState;
 import org.example.oms.model.ProcessingContext;
 import org.example.oms.service.processing.OrchestrationService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -23,20 +28,54 @@ import lombok.extern.slf4j.Slf4j;
 public class TransactionController {
 
     private final OrchestrationService orchestrationService;
+    private final int maxBatchSize;
 
-    public TransactionController(OrchestrationService orchestrationService) {
+    public TransactionController(
+            OrchestrationService orchestrationService,
+            @Value("${oms.batch.max-size:1000}") int maxBatchSize) {
         this.orchestrationService = orchestrationService;
+        this.maxBatchSize = maxBatchSize;
     }
 
+    // The pipeline manages its own transactions; an outer one would hold a connection while the
+    // request waits for its group commit.
     @PostMapping
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ResponseEntity<TxInfo> execute(@RequestBody Transaction transaction) {
         log.info("Received transaction: {}", transaction);
+        ProcessingContext context = ProcessingContext.builder().transaction(transaction).build();
         TxInfo txInfo =
-                orchestrationService.process(
-                        ProcessingContext.builder().transaction(transaction).build());
+                orchestrationService.isGroupCommitEnabled()
+                        ? orchestrationService.submit(context).join()
+                        : orchestrationService.process(context);
         return ResponseEntity.status(HttpStatus.CREATED).body(txInfo);
     }
 
+    @PostMapping("/batch")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<List<TxInfo>> executeBatch(@RequestBody List<Transaction> transactions) {
+        log.info("Received batch of {} transactions", transactions.size());
+        if (transactions.size() > maxBatchSize) {
+            throw new IllegalArgumentException(
+                    "Batch size " + transactions.size() + " exceeds maximum of " + maxBatchSize);
+        }
+        List<ProcessingContext> contexts =
+                transactions.stream()
+                        .<ProcessingContext>map(
+                                tx -> ProcessingContext.builder().transaction(tx).build())
+                        .toList();
+        List<TxInfo> txInfos;
+        if (orchestrationService.isGroupCommitEnabled()) {
+            // Each order must go through its own partition
+            List<CompletableFuture<TxInfo>> futures =
+                    contexts.stream().map(orchestrationService::submit).toList();
+            txInfos = futures.stream().map(CompletableFuture::join).toList();
+        } else {
+            txInfos = orchestrationService.processBatch(contexts);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(txInfos);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<TxInfo> handleException(Exception e) {
         log.error("Error processing transaction", e);
@@ -0,0 +1,29 @@
+package org.example.oms.api.dto;
+
+import org.example.common.model.Execution;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One message on the blotter stream. A subscription starts with {@code SNAPSHOT} rows followed by
+ * {@code SNAPSHOT_END}, then carries deltas: {@code ORDER} upserts an order, {@code REMOVE} drops
+ * an order that no longer matches the filter, {@code EXECUTION} adds a fill of a streamed order. A
+ * {@code RESYNC} ends the stream of a subscriber that fell too far behind; it should subscribe
+ * again.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BlotterEvent(Type type, String orderId, OrderDto order, Execution execution) {
+
+    public enum Type {
+        SNAPSHOT,
+        SNAPSHOT_END,
+        ORDER,
+        REMOVE,
+        EXECUTION,
+        RESYNC
+    }
+
+    public static BlotterEvent of(Type type) {
+        return new BlotterEvent(type, null, null, null);
+    }
+}
@@ -10,6 +10,7 @@ public record OrderDto(
         String orderId,
         String rootOrderId,
         String parentOrderId,
+        String groupOrderId,
         String symbol,
         String side,
         String state,
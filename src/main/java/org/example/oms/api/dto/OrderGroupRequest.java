@@ -0,0 +1,6 @@
+package org.example.oms.api.dto;
+
+import java.util.List;
+
+/** The orders to group, and who groups them. */
+public record OrderGroupRequest(List<String> memberOrderIds, String groupedBy) {}
@@ -0,0 +1,120 @@
+package org.example.oms.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Admits at most {@code permits} concurrent connection holders, in arrival order. With virtual
+ * threads there can be thousands of request threads for a few dozen pooled connections; queueing
+ * them on a fair semaphore in front of the pool gives first-come-first-served access and a single
+ * place to observe the wait, instead of thousands of threads contending inside the pool.
+ */
+public class AdmissionControlledDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final Timer wait;
+
+    public AdmissionControlledDataSource(
+            DataSource target, int permits, long timeoutMillis, MeterRegistry meterRegistry) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.timeoutMillis = timeoutMillis;
+        this.wait =
+                Timer.builder("oms.db.admission.wait")
+                        .description("Time spent waiting for a connection admission permit")
+                        .register(meterRegistry);
+        Gauge.builder("oms.db.admission.waiting", this.permits, Semaphore::getQueueLength)
+                .description("Threads queued for a connection admission permit")
+                .register(meterRegistry);
+        Gauge.builder("oms.db.admission.in-use", this.permits, s -> permits - s.availablePermits())
+                .description("Connections currently admitted")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return admitted(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return admitted(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "No connection admitted within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a connection", e);
+        } finally {
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Wraps the connection so that closing it gives the permit back, exactly once. */
+    private Connection admitted(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection)
+                Proxy.newProxyInstance(
+                        ConnectionProxy.class.getClassLoader(),
+                        new Class<?>[] {ConnectionProxy.class},
+                        (proxy, method, args) -> {
+                            switch (method.getName()) {
+                                case "getTargetConnection":
+                                    return target;
+                                case "equals":
+                                    return proxy == args[0];
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                case "close":
+                                    try {
+                                        target.close();
+                                    } finally {
+                                        if (released.compareAndSet(false, true)) {
+                                            permits.release();
+                                        }
+                                    }
+                                    return null;
+                                default:
+                                    try {
+                                        return method.invoke(target, args);
+                                    } catch (InvocationTargetException e) {
+                                        throw e.getTargetException();
+                                    }
+                            }
+                        });
+    }
+}
@@ -1,14 +1,45 @@
 package org.example.oms.config;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.example.common.model.msg.CommandMessage;
-import org.example.common.model.msg.QuoteRequestCreateCmd;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.service.processing.CommandService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.Message;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Consumes the command topic a poll at a time. The records of a batch are split into lanes by key
+ * (the orderId), each lane running its commands in offset order through {@link CommandService}
+ * while the lanes run in parallel. The listener returns, and the batch's offsets are committed,
+ * only once every command is durable. A lane stops at a command that could not be processed, so the
+ * commands of a key are never applied out of order; the offsets before the lowest such command of
+ * the batch are committed and the batch is redelivered from it, so commands are processed at least
+ * once.
+ */
 @Component
 @Slf4j
 @ConditionalOnProperty(
@@ -18,18 +49,154 @@ import lombok.extern.slf4j.Slf4j;
         matchIfMissing = false)
 public class CommandListener {
 
+    private record PartitionMeters(LongAdder records, AtomicLong lag) {}
+
+    /** A command left unprocessed after an earlier command of its lane failed. */
+    static final CompletableFuture<TxInfo> NOT_RUN =
+            CompletableFuture.failedFuture(
+                    new IllegalStateException(
+                            "Not run after an earlier command of its key failed"));
+
+    private final CommandService commandService;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService lanes;
+    private final Timer batchTimer;
+    private final Map<TopicPartition, PartitionMeters> partitions = new ConcurrentHashMap<>();
+
+    public CommandListener(
+            CommandService commandService,
+            MeterRegistry meterRegistry,
+            @Value("${oms.commands.concurrency:8}") int concurrency) {
+        this.commandService = commandService;
+        this.meterRegistry = meterRegistry;
+        this.lanes =
+                Executors.newFixedThreadPool(
+                        concurrency,
+                        Thread.ofPlatform().name("oms-command-lane-", 0).daemon().factory());
+        this.batchTimer =
+                Timer.builder("oms.commands.batch")
+                        .description("Time to make a polled batch of commands durable")
+                        .register(meterRegistry);
+    }
+
     @KafkaListener(
             topics = "${kafka.command-topic}",
             containerFactory = "kafkaListenerContainerFactory",
             groupId = "${spring.kafka.consumer.group-id}")
-    public void consume(Message<CommandMessage> message) {
-        log.info("New message: {}", message.getPayload());
-        Object command = message.getPayload().getCommand();
-        if (command instanceof QuoteRequestCreateCmd quoteRequestCreateCmd) {
-            log.info("Received QuoteRequestCreateCmd: {}", quoteRequestCreateCmd);
-            // Process the QuoteRequestCreateCmd as needed
-        } else {
-            log.warn("Received unsupported command type: {}", command.getClass().getName());
+    public void consume(
+            List<ConsumerRecord<String, CommandMessage>> records, Consumer<?, ?> consumer) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Record indexes per key; records without a key keep the order of their partition
+        Map<String, List<Integer>> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, CommandMessage> record = records.get(i);
+            if (record.value() == null) {
+                log.error(
+                        "Skipping undeserializable command at {}-{}@{}",
+                        record.topic(),
+                        record.partition(),
+                        record.offset());
+                continue;
+            }
+            String key = record.key() != null ? record.key() : "partition-" + record.partition();
+            byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
         }
+
+        List<CompletableFuture<TxInfo>> results = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            results.add(null);
+        }
+        List<CompletableFuture<Void>> running = new ArrayList<>(byKey.size());
+        for (List<Integer> indexes : byKey.values()) {
+            running.add(
+                    CompletableFuture.runAsync(() -> runLane(records, indexes, results), lanes));
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        sample.stop(batchTimer);
+        record(records, consumer);
+
+        for (int i = 0; i < records.size(); i++) {
+            CompletableFuture<TxInfo> result = results.get(i);
+            if (result != null && result.isCompletedExceptionally()) {
+                ConsumerRecord<String, CommandMessage> record = records.get(i);
+                Throwable cause = result.exceptionNow();
+                throw new BatchListenerFailedException(
+                        "Command at " + record.partition() + "@" + record.offset() + " failed",
+                        cause,
+                        i);
+            }
+        }
+    }
+
+    private void runLane(
+            List<ConsumerRecord<String, CommandMessage>> records,
+            List<Integer> indexes,
+            List<CompletableFuture<TxInfo>> results) {
+        List<Object> commands = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            commands.add(records.get(i).value().getCommand());
+        }
+        List<CompletableFuture<TxInfo>> laneResults;
+        try {
+            laneResults = commandService.executeInOrder(commands);
+        } catch (RuntimeException e) {
+            laneResults = new ArrayList<>(indexes.size());
+            for (int k = 0; k < indexes.size(); k++) {
+                laneResults.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        for (int k = 0; k < indexes.size(); k++) {
+            if (k >= laneResults.size()) {
+                results.set(indexes.get(k), NOT_RUN);
+                continue;
+            }
+            CompletableFuture<TxInfo> result = laneResults.get(k);
+            ConsumerRecord<String, CommandMessage> record = records.get(indexes.get(k));
+            if (!result.isCompletedExceptionally() && result.join().getTxState() != TxState.OK) {
+                log.warn(
+                        "Command at {}-{}@{} rejected: {}",
+                        record.topic(),
+                        record.partition(),
+                        record.offset(),
+                        result.join().getMessage());
+            }
+            // Lanes write distinct slots, read once all lanes have been joined
+            results.set(indexes.get(k), result);
+        }
+    }
+
+    // Throughput and lag of each partition in the batch, as seen by this consumer
+    private void record(
+            List<ConsumerRecord<String, CommandMessage>> records, Consumer<?, ?> consumer) {
+        Map<TopicPartition, Integer> counts = new LinkedHashMap<>();
+        for (ConsumerRecord<String, CommandMessage> record : records) {
+            counts.merge(new TopicPartition(record.topic(), record.partition()), 1, Integer::sum);
+        }
+        counts.forEach(
+                (partition, count) -> {
+                    PartitionMeters meters = partitions.computeIfAbsent(partition, this::register);
+                    meters.records().add(count);
+                    consumer.currentLag(partition).ifPresent(meters.lag()::set);
+                });
+    }
+
+    private PartitionMeters register(TopicPartition partition) {
+        PartitionMeters meters = new PartitionMeters(new LongAdder(), new AtomicLong());
+        String topic = partition.topic();
+        String number = Integer.toString(partition.partition());
+        FunctionCounter.builder("oms.commands.records", meters.records(), LongAdder::sum)
+                .description("Commands consumed")
+                .tags("topic", topic, "partition", number)
+                .register(meterRegistry);
+        Gauge.builder("oms.commands.lag", meters.lag(), AtomicLong::get)
+                .description("Commands behind the end of the partition after the last batch")
+                .tags("topic", topic, "partition", number)
+                .register(meterRegistry);
+        return meters;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lanes.shutdown();
     }
 }
@@ -0,0 +1,120 @@
+package org.example.oms.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@Configuration
+@Slf4j
+public class DataSourceConfig {
+
+    /**
+     * Puts the pool behind an {@link AdmissionControlledDataSource} with one permit per pooled
+     * connection, enabled by default when running on virtual threads, and then, with {@code
+     * oms.db.replicas.urls} set, behind a {@link ReplicaRoutingDataSource} that sends read-only
+     * transactions to the replicas. Reads that fall back to the primary are admitted like any
+     * other; replica connections come from pools of their own.
+     */
+    @Bean
+    static DestructionAwareBeanPostProcessor dataSourcePostProcessor(
+            Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        boolean admission =
+                environment.getProperty(
+                        "oms.db.admission.enabled",
+                        Boolean.class,
+                        environment.getProperty(
+                                "spring.threads.virtual.enabled", Boolean.class, false));
+        long timeoutMillis =
+                environment.getProperty("oms.db.admission.timeout-ms", Long.class, 30_000L);
+        List<String> replicaUrls =
+                Arrays.stream(environment.getProperty("oms.db.replicas.urls", "").split(","))
+                        .map(String::trim)
+                        .filter(url -> !url.isEmpty())
+                        .toList();
+        Map<String, ReplicaRoutingDataSource> routingDataSources = new ConcurrentHashMap<>();
+        return new DestructionAwareBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikariDataSource)) {
+                    return bean;
+                }
+                DataSource dataSource = hikariDataSource;
+                if (admission) {
+                    int permits = hikariDataSource.getMaximumPoolSize();
+                    log.info("Admitting at most {} concurrent connections", permits);
+                    dataSource =
+                            new AdmissionControlledDataSource(
+                                    dataSource, permits, timeoutMillis, meterRegistry.getObject());
+                }
+                if (!replicaUrls.isEmpty()) {
+                    log.info("Routing read-only transactions to {} replicas", replicaUrls.size());
+                    ReplicaRoutingDataSource routing =
+                            new ReplicaRoutingDataSource(
+                                    dataSource,
+                                    replicas(environment, hikariDataSource, replicaUrls),
+                                    environment.getProperty(
+                                            "oms.db.replicas.max-lag-ms", Long.class, 5_000L),
+                                    environment.getProperty(
+                                            "oms.db.replicas.check-interval-ms",
+                                            Long.class,
+                                            1_000L),
+                                    meterRegistry.getObject());
+                    routingDataSources.put(beanName, routing);
+                    dataSource = routing;
+                }
+                return dataSource;
+            }
+
+            // Destruction is handed the pool the context created, not the wrappers around it
+            @Override
+            public boolean requiresDestruction(Object bean) {
+                return bean instanceof HikariDataSource;
+            }
+
+            @Override
+            public void postProcessBeforeDestruction(Object bean, String beanName) {
+                ReplicaRoutingDataSource routing = routingDataSources.remove(beanName);
+                if (routing != null) {
+                    routing.close();
+                }
+            }
+        };
+    }
+
+    private static List<HikariDataSource> replicas(
+            Environment environment, HikariDataSource primary, List<String> urls) {
+        List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("oms-replica-" + i);
+            config.setJdbcUrl(urls.get(i));
+            config.setUsername(
+                    environment.getProperty("oms.db.replicas.username", primary.getUsername()));
+            config.setPassword(
+                    environment.getProperty("oms.db.replicas.password", primary.getPassword()));
+            config.setMaximumPoolSize(
+                    environment.getProperty("oms.db.replicas.pool-size", Integer.class, 16));
+            config.setReadOnly(true);
+            // A replica that is down at startup is left to the lag check instead of failing it
+            config.setInitializationFailTimeout(-1);
+            replicas.add(new HikariDataSource(config));
+        }
+        return replicas;
+    }
+}
@@ -2,13 +2,16 @@ package org.example.oms.config;
 
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 
 import lombok.AllArgsConstructor;
 
@@ -19,10 +22,23 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
-            KafkaProperties kafkaProperties) {
+            KafkaProperties kafkaProperties,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${oms.commands.consumers:1}") int consumers) {
         ConcurrentKafkaListenerContainerFactory<String, String> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(defaultConsumerFactory(kafkaProperties));
+        // Each poll is handed over as one batch; its offsets are committed once the listener
+        // returns, i.e. once every command in it is durable
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setConcurrency(consumers);
+        if (virtualThreads) {
+            // Boot only does this for its own factory
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("oms-kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
         return factory;
     }
 
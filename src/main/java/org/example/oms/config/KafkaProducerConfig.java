@@ -2,13 +2,19 @@ package org.example.oms.config;
 
 import java.util.Map;
 
-import org.example.common.model.msg.OrderMessage;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.example.common.model.Order;
+import org.example.oms.service.infra.OrderMessageSerializer;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.ClassUtils;
 
 import lombok.RequiredArgsConstructor;
 
@@ -18,8 +24,22 @@ import lombok.RequiredArgsConstructor;
 public class KafkaProducerConfig {
 
     @Bean
-    public KafkaTemplate<String, OrderMessage> kafkaTemplate(KafkaProperties kafkaProperties) {
+    public KafkaTemplate<String, Order> kafkaTemplate(KafkaProperties kafkaProperties) {
         Map<String, Object> kafkaPropertiesMap = kafkaProperties.buildProducerProperties(null);
-        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(kafkaPropertiesMap));
+        // The configured Avro serializer only resolves the schema ID of the OrderMessages
+        Serializer<Object> schemaSerializer =
+                newSerializer(kafkaPropertiesMap.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+        return new KafkaTemplate<>(
+                new DefaultKafkaProducerFactory<>(
+                        kafkaPropertiesMap,
+                        new StringSerializer(),
+                        new OrderMessageSerializer(schemaSerializer)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Serializer<Object> newSerializer(Object type) {
+        Class<?> serializerClass =
+                type instanceof Class<?> c ? c : ClassUtils.resolveClassName(type.toString(), null);
+        return (Serializer<Object>) BeanUtils.instantiateClass(serializerClass);
     }
 }
@@ -1,10 +1,25 @@
 package org.example.oms.config;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.example.common.model.id.PooledSequenceGenerator;
+import org.example.oms.service.infra.query.QueryPlanAdvisor;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.domain.EntityScanner;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import jakarta.persistence.Entity;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
@@ -15,4 +30,56 @@ public class OmsConfig {
     public OtlpGrpcSpanExporter otlpHttpSpanExporter(@Value("${tracing.url}") String url) {
         return OtlpGrpcSpanExporter.builder().setEndpoint(url).build();
     }
+
+    /**
+     * Exposes oms.id.block-size.* to {@link PooledSequenceGenerator} via the Hibernate settings.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer idBlockSizeCustomizer(Environment environment) {
+        return properties -> properties.putAll(blockSizeSettings(environment));
+    }
+
+    /**
+     * Checks the id block sizes against the sequence increments. The JdbcTemplate is only created
+     * once Flyway has migrated, and Hibernate only starts once this has passed.
+     */
+    @Bean
+    public SequenceIncrementCheck sequenceIncrementCheck(
+            ApplicationContext context, JdbcTemplate jdbcTemplate, Environment environment)
+            throws ClassNotFoundException {
+        SequenceIncrementCheck check =
+                new SequenceIncrementCheck(
+                        jdbcTemplate,
+                        blockSizeSettings(environment),
+                        SequenceIncrementCheck.sequencesOf(
+                                new EntityScanner(context).scan(Entity.class)));
+        check.verify();
+        return check;
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor sequenceIncrementCheckFirst() {
+        return new EntityManagerFactoryDependsOnPostProcessor("sequenceIncrementCheck") {};
+    }
+
+    private static Map<String, Object> blockSizeSettings(Environment environment) {
+        Map<String, Object> settings = new HashMap<>();
+        Binder.get(environment)
+                .bind("oms.id.block-size", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of())
+                .forEach(
+                        (key, blockSize) ->
+                                settings.put(
+                                        PooledSequenceGenerator.BLOCK_SIZE_SETTING_PREFIX + key,
+                                        blockSize));
+        return settings;
+    }
+
+    /** Lets {@link QueryPlanAdvisor} capture the SQL of the order queries it samples. */
+    @Bean
+    public HibernatePropertiesCustomizer queryPlanAdvisorCustomizer() {
+        return properties ->
+                properties.put(
+                        AvailableSettings.STATEMENT_INSPECTOR, new QueryPlanAdvisor.SqlCapture());
+    }
 }
@@ -0,0 +1,45 @@
+package org.example.oms.config;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Sends the read-only transactions of a request with {@value #HEADER}{@code : true} to the primary
+ * instead of a read replica (see {@link ReplicaRoutingDataSource}), so a client reading right after
+ * a write sees it.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Read-Your-Writes";
+
+    private static final ThreadLocal<Boolean> REQUIRED = new ThreadLocal<>();
+
+    /** Whether the current thread serves a request that must read from the primary. */
+    public static boolean required() {
+        return REQUIRED.get() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!Boolean.parseBoolean(request.getHeader(HEADER))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        REQUIRED.set(Boolean.TRUE);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            REQUIRED.remove();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.oms.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends the connections of read-only transactions ({@code @Transactional(readOnly = true)}) to a
+ * read replica, round robin, and all others to the primary. The physical connection is only taken
+ * once the transaction has declared itself read-only, see {@link LazyConnectionDataSourceProxy}.
+ *
+ * <p>Every {@code check-interval-ms} the primary writes the time into {@code replica_heartbeat} (V7
+ * migration) and each replica's copy is read back; a replica whose heartbeat is more than {@code
+ * max-lag-ms} behind the one written before, or that cannot be reached, gets no reads until it has
+ * caught up, and with no replica left reads fall back to the primary. Lag is measured in
+ * heartbeats, so {@code max-lag-ms} should be a few intervals; with {@code max-lag-ms} 0 a replica
+ * is only checked for being reachable, e.g. a second local database standing in for one. Requests
+ * with {@value ReadYourWritesFilter#HEADER} read from the primary.
+ */
+@Slf4j
+public final class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    static final String WRITE_HEARTBEAT_SQL =
+            "update replica_heartbeat set beat_at = ? where id = 1";
+
+    static final String READ_HEARTBEAT_SQL = "select beat_at from replica_heartbeat where id = 1";
+
+    /** Lag of a replica that could not be checked. */
+    private static final long UNKNOWN = -1;
+
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final ScheduledExecutorService monitor;
+    private LocalDateTime lastBeat;
+
+    private static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile long lagMillis = UNKNOWN;
+
+        private Replica(HikariDataSource dataSource) {
+            this.name = dataSource.getPoolName();
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+    }
+
+    public ReplicaRoutingDataSource(
+            DataSource primary,
+            List<HikariDataSource> replicas,
+            long maxLagMillis,
+            long checkIntervalMillis,
+            MeterRegistry meterRegistry) {
+        super(primary);
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMillis = maxLagMillis;
+        this.primaryJdbcTemplate = new JdbcTemplate(primary);
+        setReadOnlyDataSource(new ReadOnlyDataSource());
+        for (Replica replica : this.replicas) {
+            Gauge.builder("oms.db.replica.lag", replica, r -> r.lagMillis)
+                    .description("Replication lag of a read replica in ms, -1 if unreachable")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("oms.db.replica.reads", replicaReads, LongAdder::sum)
+                .description("Read-only transactions served by a replica")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.db.replica.fallbacks", fallbacks, LongAdder::sum)
+                .description(
+                        "Read-only transactions sent to the primary: no replica within max lag,"
+                                + " or read-your-writes")
+                .register(meterRegistry);
+        monitor =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("oms-replica-lag").daemon().factory());
+        // Replicas get reads from the first check on, once the migrations have run
+        monitor.scheduleWithFixedDelay(
+                this::check, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void check() {
+        for (Replica replica : replicas) {
+            replica.lagMillis = lagOf(replica);
+        }
+        if (maxLagMillis > 0) {
+            LocalDateTime beat = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            try {
+                primaryJdbcTemplate.update(WRITE_HEARTBEAT_SQL, beat);
+                lastBeat = beat;
+            } catch (DataAccessException e) {
+                log.warn("Could not write the replica heartbeat: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long lagOf(Replica replica) {
+        try {
+            if (maxLagMillis <= 0) {
+                replica.jdbcTemplate.queryForObject("select 1", Integer.class);
+                return 0;
+            }
+            LocalDateTime replicaBeat =
+                    replica.jdbcTemplate.queryForObject(READ_HEARTBEAT_SQL, LocalDateTime.class);
+            if (lastBeat == null || replicaBeat == null) {
+                return UNKNOWN;
+            }
+            return Math.max(0, Duration.between(replicaBeat, lastBeat).toMillis());
+        } catch (DataAccessException e) {
+            if (replica.lagMillis != UNKNOWN) {
+                log.warn("Replica {} is unavailable: {}", replica.name, e.getMessage());
+            }
+            return UNKNOWN;
+        }
+    }
+
+    private boolean usable(Replica replica) {
+        long lag = replica.lagMillis;
+        return lag != UNKNOWN && (maxLagMillis <= 0 || lag <= maxLagMillis);
+    }
+
+    /** Stops the lag checks and closes the replica pools; the primary is closed by its owner. */
+    public void close() {
+        monitor.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /** Picks the replica for a read-only transaction, or the primary if none is usable. */
+    private final class ReadOnlyDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!ReadYourWritesFilter.required()) {
+                int start = next.getAndIncrement();
+                for (int i = 0; i < replicas.size(); i++) {
+                    Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                    if (!usable(replica)) {
+                        continue;
+                    }
+                    try {
+                        Connection connection = replica.dataSource.getConnection();
+                        replicaReads.increment();
+                        return connection;
+                    } catch (SQLException e) {
+                        log.warn("Replica {} is unavailable: {}", replica.name, e.getMessage());
+                        replica.lagMillis = UNKNOWN;
+                    }
+                }
+            }
+            fallbacks.increment();
+            return obtainTargetDataSource().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Replicas use their own credentials");
+        }
+    }
+}
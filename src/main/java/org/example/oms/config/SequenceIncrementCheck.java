@@ -0,0 +1,108 @@
+package org.example.oms.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.example.common.model.id.PooledSequence;
+import org.example.common.model.id.PooledSequenceGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fails the startup if the block size of a {@link PooledSequence} id, set with {@code
+ * oms.id.block-size.<key>} or defaulted, differs from the increment of its database sequence.
+ * Pooled-lo takes the ids from one {@code nextval} up to the block size, so a block larger than the
+ * increment hands the same ids to two instances and a smaller one wastes the rest. Changing a block
+ * size therefore needs a migration of the sequence too.
+ *
+ * <p>Runs once the migrations are done and before Hibernate starts, whose own checks depend on its
+ * settings and name neither the property nor the remedy.
+ */
+@Slf4j
+public class SequenceIncrementCheck {
+
+    static final String INCREMENTS_SQL =
+            "select sequencename, increment_by from pg_sequences"
+                    + " where schemaname = current_schema()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Object> settings;
+    private final Collection<PooledSequence> sequences;
+
+    /**
+     * @param settings the block sizes by {@link PooledSequenceGenerator#BLOCK_SIZE_SETTING_PREFIX}
+     *     and key, as given to Hibernate
+     */
+    public SequenceIncrementCheck(
+            JdbcTemplate jdbcTemplate,
+            Map<String, Object> settings,
+            Collection<PooledSequence> sequences) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = settings;
+        this.sequences = sequences;
+    }
+
+    /**
+     * @throws IllegalStateException naming every sequence whose increment differs from its block
+     *     size
+     */
+    public void verify() {
+        Map<String, Long> increments = new HashMap<>();
+        jdbcTemplate.query(
+                INCREMENTS_SQL,
+                rs -> {
+                    increments.put(rs.getString(1), rs.getLong(2));
+                });
+        List<String> mismatches = mismatches(sequences, settings, increments);
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException(
+                    "Id block sizes differ from their sequence increments, migrate the sequences"
+                            + " along with the block sizes: "
+                            + String.join("; ", mismatches));
+        }
+        log.info("Id block sizes of {} sequences match their increments", sequences.size());
+    }
+
+    /** The sequences whose increment differs from the block size, or that do not exist. */
+    static List<String> mismatches(
+            Collection<PooledSequence> sequences,
+            Map<String, Object> settings,
+            Map<String, Long> increments) {
+        List<String> mismatches = new ArrayList<>();
+        for (PooledSequence sequence : sequences) {
+            int blockSize = PooledSequenceGenerator.blockSize(sequence, settings);
+            Long increment = increments.get(sequence.sequenceName());
+            if (increment == null) {
+                mismatches.add("sequence " + sequence.sequenceName() + " does not exist");
+            } else if (increment != blockSize) {
+                mismatches.add(
+                        sequence.sequenceName()
+                                + " increments by "
+                                + increment
+                                + " but "
+                                + PooledSequenceGenerator.BLOCK_SIZE_SETTING_PREFIX
+                                + sequence.key()
+                                + " is "
+                                + blockSize);
+            }
+        }
+        return mismatches;
+    }
+
+    /** The {@link PooledSequence} ids of the entities. */
+    static List<PooledSequence> sequencesOf(Collection<Class<?>> entities) {
+        List<PooledSequence> sequences = new ArrayList<>();
+        for (Class<?> entity : entities) {
+            ReflectionUtils.doWithFields(
+                    entity,
+                    field -> sequences.add(field.getAnnotation(PooledSequence.class)),
+                    field -> field.isAnnotationPresent(PooledSequence.class));
+        }
+        return sequences;
+    }
+}
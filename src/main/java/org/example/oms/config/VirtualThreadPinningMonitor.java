@@ -0,0 +1,92 @@
+package org.example.oms.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier, typically while blocking inside a
+ * {@code synchronized} block or a native frame. Each pinning site is counted in {@code
+ * oms.virtual-threads.pinned} and its stack trace is logged the first time it is seen.
+ */
+@Component
+@Slf4j
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(
+        prefix = "oms.virtual-threads.pinning-monitor",
+        name = "enabled",
+        havingValue = "true",
+        matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${oms.virtual-threads.pinning-monitor.threshold-ms:20}") long thresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Reporting virtual threads pinned for longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        recordingStream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = site(event);
+        meterRegistry.counter("oms.virtual-threads.pinned", "site", site).increment();
+        if (reportedSites.add(site)) {
+            log.warn(
+                    "Virtual thread pinned for {} ms at {}:\n{}",
+                    event.getDuration().toMillis(),
+                    site,
+                    event.getStackTrace());
+        }
+    }
+
+    /** The innermost application frame, or the innermost frame if none is ours. */
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        RecordedFrame site =
+                frames.stream()
+                        .filter(f -> f.getMethod().getType().getName().startsWith("org.example."))
+                        .findFirst()
+                        .orElse(frames.isEmpty() ? null : frames.get(0));
+        return site == null
+                ? "unknown"
+                : site.getMethod().getType().getName() + "." + site.getMethod().getName();
+    }
+}
@@ -4,5 +4,7 @@ public enum Event {
     NEW_ORDER,
     ACK,
     CXL,
-    REJ
+    REJ,
+    EXP,
+    REPLACE
 }
@@ -0,0 +1,27 @@
+package org.example.oms.model;
+
+import org.example.common.model.Execution;
+
+/**
+ * An execution reported by a venue, or the reversal of one, as handed to the execution ingestion
+ * path. Executions are identified by their ExecID.
+ */
+public sealed interface ExecutionCommand {
+
+    String execId();
+
+    /** A new fill of {@link Execution#getOrderId() its order}. */
+    record Fill(Execution execution) implements ExecutionCommand {
+
+        @Override
+        public String execId() {
+            return execution.getExecID();
+        }
+    }
+
+    /** The venue cancelled the execution; its quantity no longer counts. */
+    record Bust(String execId) implements ExecutionCommand {}
+
+    /** The execution was booked in error and is removed; its quantity no longer counts. */
+    record Whack(String execId) implements ExecutionCommand {}
+}
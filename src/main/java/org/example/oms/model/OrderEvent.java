@@ -1,9 +1,11 @@
 package org.example.oms.model;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.example.common.model.id.PooledSequence;
 import org.example.common.model.tx.Transaction;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -12,10 +14,8 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -23,7 +23,12 @@ import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
 @Entity
-@Table(name = "order_events")
+@Table(
+        name = "order_events",
+        indexes = {
+            @Index(name = "ix_order_events_order_id", columnList = "order_id"),
+            @Index(name = "ix_order_events_time_stamp", columnList = "time_stamp, id")
+        })
 @SuperBuilder
 @EqualsAndHashCode
 @NoArgsConstructor
@@ -31,13 +36,12 @@ import lombok.experimental.SuperBuilder;
 public class OrderEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_event_sequence")
-    @SequenceGenerator(
-            name = "order_event_sequence",
-            sequenceName = "order_event_seq",
-            allocationSize = 1)
+    @PooledSequence(sequenceName = "order_event_seq", key = "order-event")
     private Long id;
 
+    /** Trade date of the order, which the table is partitioned on. */
+    private LocalDate tradeDate;
+
     private String orderId;
 
     @Enumerated(EnumType.STRING)
@@ -1,25 +1,38 @@
 package org.example.oms.model;
 
+import java.time.LocalDateTime;
+
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.example.common.model.Order;
+import org.example.common.model.id.PooledSequence;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
+/**
+ * Outbound order message written in the business transaction and published to Kafka by the {@link
+ * org.example.oms.service.infra.MessagePublisher} relay. Rows are spread over shards by orderId so
+ * that each order's messages are always relayed by one instance, in id order.
+ *
+ * <p>Ids are drawn with one {@code nextval} per row rather than in blocks: writes to an order are
+ * serialized, so each message of an order draws its id after the previous one has committed and
+ * gets a higher one, on whichever instance it is written. Blocks would hand each instance its own
+ * range, and a later message could take a lower id than one already relayed.
+ */
 @Entity
-@Table(name = "order_messages")
+@Table(
+        name = "order_messages",
+        indexes = @Index(name = "ix_order_messages_shard_id", columnList = "shard, id"))
 @SuperBuilder
 @EqualsAndHashCode
 @NoArgsConstructor
@@ -27,17 +40,30 @@ import lombok.experimental.SuperBuilder;
 public class OrderOutbox {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_sequence")
-    @SequenceGenerator(
-            name = "order_outbox_sequence",
+    @PooledSequence(
             sequenceName = "order_outbox_seq",
-            allocationSize = 1)
+            key = "order-outbox",
+            blockSize = 1,
+            ordered = true)
     private Long id;
 
+    private String orderId;
+
+    private int shard;
+
+    private LocalDateTime createdAt;
+
+    /** Times the relay failed to send the row for another reason than the broker being away. */
+    private int attempts;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb", name = "outbound_order")
     private Order order;
 
+    public static int shardOf(String orderId, int shards) {
+        return Math.floorMod(orderId.hashCode(), shards);
+    }
+
     @Override
     public String toString() {
         return ReflectionToStringBuilder.toString(this, ToStringStyle.JSON_STYLE);
@@ -0,0 +1,134 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+import org.example.common.model.CancelState;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
+
+/**
+ * The business rules of cancels and replaces (specs/order_replace.md §4.3, §5.3) and how they
+ * change an order, shared by the transaction pipeline and replay. State transitions are left to the
+ * {@link StateMachine}: a cancel moves the order to CXL, a replace leaves its state alone unless it
+ * takes OrderQty down to CumQty, which fills the order.
+ */
+public final class CancelReplace {
+
+    private CancelReplace() {}
+
+    /** Whether the order takes a replace: it is still working and not part of a group. */
+    public static boolean isReplaceable(Order order) {
+        return (order.getState() == State.UNACK || order.getState() == State.LIVE)
+                && order.getGroupOrderId() == null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the replace does not apply to the order or changes
+     *     nothing
+     */
+    public static void validateReplace(Order order, ReplaceOrderTx tx) {
+        String orderId = order.getOrderId();
+        if (order.getGroupOrderId() != null) {
+            throw new IllegalArgumentException(
+                    "Order " + orderId + " is grouped in " + order.getGroupOrderId());
+        }
+        if (!isReplaceable(order)) {
+            throw new IllegalArgumentException(
+                    "Order " + orderId + " is " + order.getState() + " and cannot be replaced");
+        }
+        BigDecimal orderQty = tx.getOrderQty();
+        if (orderQty != null) {
+            BigDecimal cumQty = order.getCumQty() != null ? order.getCumQty() : BigDecimal.ZERO;
+            if (orderQty.signum() <= 0 || orderQty.compareTo(cumQty) < 0) {
+                throw new IllegalArgumentException(
+                        "OrderQty "
+                                + orderQty
+                                + " of "
+                                + orderId
+                                + " is below its CumQty "
+                                + cumQty);
+            }
+        }
+        if (tx.getPrice() != null && tx.getPrice().signum() <= 0) {
+            throw new IllegalArgumentException("Price must be positive: " + tx.getPrice());
+        }
+        if (!changes(order, tx)) {
+            throw new IllegalArgumentException("Replace of " + orderId + " changes nothing");
+        }
+    }
+
+    /** Whether applying the replace would change any term of the order. */
+    public static boolean changes(Order order, ReplaceOrderTx tx) {
+        return (tx.getOrderQty() != null && !same(tx.getOrderQty(), order.getOrderQty()))
+                || (tx.getPrice() != null && !same(tx.getPrice(), order.getPrice()))
+                || (tx.getTimeInForce() != null && tx.getTimeInForce() != order.getTimeInForce())
+                || (tx.getExecInst() != null && tx.getExecInst() != order.getExecInst());
+    }
+
+    /**
+     * Applies the non-null terms of the replace and moves the order to the new ClOrdID. A LIVE
+     * order whose OrderQty is taken down to its CumQty is FILLED, as nothing is left to execute.
+     */
+    public static void applyReplace(Order order, ReplaceOrderTx tx) {
+        if (tx.getOrderQty() != null) {
+            order.setOrderQty(tx.getOrderQty());
+            if (order.getState() == State.LIVE
+                    && order.getCumQty() != null
+                    && order.getCumQty().compareTo(tx.getOrderQty()) >= 0) {
+                order.setState(StateMachine.of(order).next(State.LIVE, State.FILLED));
+            }
+        }
+        if (tx.getPrice() != null) {
+            order.setPrice(tx.getPrice());
+        }
+        if (tx.getTimeInForce() != null) {
+            order.setTimeInForce(tx.getTimeInForce());
+        }
+        if (tx.getExecInst() != null) {
+            order.setExecInst(tx.getExecInst());
+        }
+        rechain(order, tx.getClOrdId());
+    }
+
+    /** Marks the order cancelled and moves it to the new ClOrdID, if one is given. */
+    public static void applyCancel(Order order, CancelOrderTx tx) {
+        order.setCancelState(CancelState.CXL);
+        rechain(order, tx.getClOrdId());
+    }
+
+    /**
+     * The part of a replace carried down to a child order: price, time in force and instructions,
+     * the price only to child orders that have one. Null if it would not change the child.
+     */
+    public static ReplaceOrderTx carryDown(ReplaceOrderTx tx, Order child, String parentOrderId) {
+        ReplaceOrderTx childTx =
+                ReplaceOrderTx.builder()
+                        .orderId(child.getOrderId())
+                        .price(child.getPrice() != null ? tx.getPrice() : null)
+                        .timeInForce(tx.getTimeInForce())
+                        .execInst(tx.getExecInst())
+                        .transactTime(tx.getTransactTime())
+                        .text("Replace of " + parentOrderId)
+                        .build();
+        return isReplaceable(child) && changes(child, childTx) ? childTx : null;
+    }
+
+    /** Whether any term of the replace is carried down to child orders. */
+    public static boolean carriesDown(ReplaceOrderTx tx) {
+        return tx.getPrice() != null || tx.getTimeInForce() != null || tx.getExecInst() != null;
+    }
+
+    private static void rechain(Order order, String clOrdId) {
+        if (clOrdId != null && !clOrdId.equals(order.getClOrdId())) {
+            order.setOrigClOrdId(order.getClOrdId());
+            order.setClOrdId(clOrdId);
+        }
+    }
+
+    private static boolean same(BigDecimal a, BigDecimal b) {
+        return Objects.equals(a, b) || (a != null && b != null && a.compareTo(b) == 0);
+    }
+}
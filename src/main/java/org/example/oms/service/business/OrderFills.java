@@ -0,0 +1,98 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+
+/**
+ * Running CumQty and AvgPx of one order while a batch of executions is applied to it, starting from
+ * the order's committed values. A LIVE order becomes FILLED once CumQty reaches OrderQty, and a
+ * FILLED order goes back to LIVE if a reversal takes CumQty below it again. Not thread-safe; an
+ * order's executions are applied by a single thread.
+ */
+public final class OrderFills {
+
+    public static final int AVG_PX_SCALE = 8;
+
+    private final BigDecimal orderQty;
+    private BigDecimal cumQty;
+    private BigDecimal notional;
+    private final StateMachine stateMachine;
+    private State state;
+    private int executions;
+
+    public OrderFills(Order order) {
+        this.orderQty = order.getOrderQty() != null ? order.getOrderQty() : BigDecimal.ZERO;
+        this.cumQty = order.getCumQty() != null ? order.getCumQty() : BigDecimal.ZERO;
+        this.notional =
+                order.getAvgPx() != null ? order.getAvgPx().multiply(cumQty) : BigDecimal.ZERO;
+        this.state = order.getState();
+        this.stateMachine = StateMachine.of(order);
+    }
+
+    /** Whether an order in this state can be executed against; late fills on CXL are booked. */
+    public static boolean canExecute(State state) {
+        return state == State.LIVE || state == State.FILLED || state == State.CXL;
+    }
+
+    /** Applies an execution of {@code qty} at {@code px}; a negative quantity reverses one. */
+    public void add(BigDecimal qty, BigDecimal px) {
+        BigDecimal cum = cumQty.add(qty);
+        if (cum.signum() < 0) {
+            throw new IllegalArgumentException(
+                    "Reversing " + qty.negate() + " would take CumQty below zero: " + cumQty);
+        }
+        cumQty = cum;
+        notional = cum.signum() == 0 ? BigDecimal.ZERO : notional.add(qty.multiply(px));
+        executions++;
+        if (state == State.LIVE && cumQty.compareTo(orderQty) >= 0) {
+            state = stateMachine.next(state, State.FILLED);
+        } else if (state == State.FILLED && cumQty.compareTo(orderQty) < 0) {
+            state = stateMachine.next(state, State.LIVE);
+        }
+    }
+
+    /** Whether any execution has been applied. */
+    public boolean changed() {
+        return executions > 0;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public BigDecimal cumQty() {
+        return cumQty;
+    }
+
+    /** Null until something has executed. */
+    public BigDecimal avgPx() {
+        return cumQty.signum() > 0
+                ? notional.divide(cumQty, AVG_PX_SCALE, RoundingMode.HALF_UP)
+                : null;
+    }
+
+    /** What is left to execute; zero once the order is filled or no longer working. */
+    public BigDecimal leavesQty() {
+        if (state != State.LIVE) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal leaves = orderQty.subtract(cumQty);
+        return leaves.signum() > 0 ? leaves : BigDecimal.ZERO;
+    }
+
+    /**
+     * A copy of the order with the fills applied, at the version its row is written with; the row
+     * is locked while the fills are applied.
+     */
+    public Order applyTo(Order order) {
+        return order.toBuilder()
+                .cumQty(cumQty)
+                .avgPx(avgPx())
+                .state(state)
+                .version(order.getVersion() + 1)
+                .build();
+    }
+}
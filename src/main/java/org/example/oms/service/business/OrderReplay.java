@@ -0,0 +1,120 @@
+package org.example.oms.service.business;
+
+import java.time.LocalDate;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.Tx;
+import org.example.oms.model.Event;
+import org.example.oms.service.mapper.NewOrderTxToOrderMapper;
+
+/**
+ * Applies a stored {@code order_events} row to the order it belongs to, the way the transaction
+ * pipeline did when the event was written: a NEW_ORDER event creates the order from its {@link
+ * NewOrderTx}, later events move it through the {@link StateMachine}, and every event advances the
+ * order's txNr; a REPLACE event changes the order's terms and leaves its state alone, see {@link
+ * CancelReplace}. A child order's root cannot be known from its own event; it is left null for the
+ * caller to resolve from the parent. Fills are not events and are applied separately.
+ */
+public final class OrderReplay {
+
+    private final NewOrderTxToOrderMapper newOrderTxToOrderMapper;
+
+    public OrderReplay(NewOrderTxToOrderMapper newOrderTxToOrderMapper) {
+        this.newOrderTxToOrderMapper = newOrderTxToOrderMapper;
+    }
+
+    /**
+     * Returns the order after the event; {@code order} is null before the NEW_ORDER event and is
+     * updated in place afterwards.
+     *
+     * @throws IllegalArgumentException if the event does not apply to the order, e.g. an ACK of an
+     *     order that was never created or an invalid state transition
+     */
+    public Order apply(
+            Order order,
+            String orderId,
+            LocalDate tradeDate,
+            long eventId,
+            Event event,
+            Transaction tx) {
+        Order next;
+        State newState;
+        Tx newTx;
+        if (event == Event.NEW_ORDER) {
+            if (order != null) {
+                throw new IllegalArgumentException("Order created twice: " + orderId);
+            }
+            if (!(tx instanceof NewOrderTx newOrderTx)) {
+                throw new IllegalArgumentException(
+                        "NEW_ORDER event of " + orderId + " without a NewOrderTx");
+            }
+            next =
+                    newOrderTxToOrderMapper.map(newOrderTx).toBuilder()
+                            .orderId(orderId)
+                            .tradeDate(tradeDate)
+                            .rootOrderId(newOrderTx.getParentOrderId() == null ? orderId : null)
+                            .build();
+            newState = State.UNACK;
+            newTx = Tx.NO;
+        } else {
+            if (order == null) {
+                throw new IllegalArgumentException(event + " event of unknown order " + orderId);
+            }
+            next = order;
+            if (event == Event.REPLACE) {
+                if (!(tx instanceof ReplaceOrderTx replaceOrderTx)) {
+                    throw new IllegalArgumentException(
+                            "REPLACE event of " + orderId + " without a ReplaceOrderTx");
+                }
+                if (!CancelReplace.isReplaceable(next)) {
+                    throw new IllegalArgumentException(
+                            "REPLACE event of " + orderId + " while it is " + next.getState());
+                }
+                CancelReplace.applyReplace(next, replaceOrderTx);
+                next.setTx(Tx.RP);
+                next.setTxNr(Math.max(eventId, next.getTxNr() + 1));
+                return next;
+            }
+            newState =
+                    switch (event) {
+                        case ACK -> State.LIVE;
+                        case REJ -> State.REJ;
+                        case CXL -> State.CXL;
+                        case EXP -> State.EXP;
+                        default ->
+                                throw new IllegalArgumentException("Unsupported event: " + event);
+                    };
+            newTx =
+                    switch (event) {
+                        case ACK -> Tx.AO;
+                        case REJ -> Tx.RO;
+                        case CXL -> tx instanceof CancelOrderTx ? Tx.CO : order.getTx();
+                        default -> order.getTx();
+                    };
+        }
+        State from = next.getState();
+        if (!StateMachine.of(next).canTransition(from, newState)) {
+            throw new IllegalArgumentException(
+                    event
+                            + " event of "
+                            + orderId
+                            + " cannot move it from "
+                            + from
+                            + " to "
+                            + newState);
+        }
+        if (event == Event.CXL && tx instanceof CancelOrderTx cancelOrderTx) {
+            CancelReplace.applyCancel(next, cancelOrderTx);
+        }
+        next.setState(newState);
+        next.setTx(newTx);
+        // Same rule as EventProcessor: event ids come from pooled blocks and may interleave
+        next.setTxNr(Math.max(eventId, next.getTxNr() + 1));
+        return next;
+    }
+}
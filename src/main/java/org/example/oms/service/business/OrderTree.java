@@ -0,0 +1,302 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Quantity rollups of one order tree, as defined in {@code specs/order_tree_calculations.md}: every
+ * order's CumQty and notional include its own executions and those of all its descendants, its
+ * PlacedQty is the quantity placed by its direct children (a closed child only counts what it
+ * executed) and LeavesQty and AvgPx derive from them. Executions are allocated straight through, so
+ * a parent's CumQty is the sum of its children's.
+ *
+ * <p>Sums are kept as exact BigDecimals and only AvgPx is rounded, when it is read, so applying
+ * executions incrementally gives the same result as {@link #recompute recomputing} the tree. An
+ * execution updates its order and each ancestor once: O(depth). Not thread-safe; callers hold a
+ * lock of the tree.
+ */
+public final class OrderTree {
+
+    public static final int AVG_PX_SCALE = 4;
+
+    /** An order of the tree; the parent is null for the root. */
+    public record Member(
+            String orderId, String parentOrderId, BigDecimal orderQty, boolean closed) {}
+
+    /** Total quantity and notional (quantity × price) of executions. */
+    public record Fills(BigDecimal qty, BigDecimal notional) {}
+
+    /** A value that differs between two computations of the same tree. */
+    public record Mismatch(String orderId, String field, Object expected, Object actual) {}
+
+    private static final class Node {
+
+        private final String orderId;
+        private final Node parent;
+        private final List<Node> children = new ArrayList<>(2);
+        private BigDecimal orderQty;
+        private boolean closed;
+        private BigDecimal execQty = BigDecimal.ZERO;
+        private BigDecimal execNotional = BigDecimal.ZERO;
+        private BigDecimal cumQty = BigDecimal.ZERO;
+        private BigDecimal notional = BigDecimal.ZERO;
+        private BigDecimal placedQty = BigDecimal.ZERO;
+
+        Node(String orderId, Node parent, BigDecimal orderQty, boolean closed) {
+            this.orderId = orderId;
+            this.parent = parent;
+            this.orderQty = orderQty;
+            this.closed = closed;
+        }
+
+        // What the order counts towards its parent's PlacedQty (spec 4.1.1, 7.4)
+        BigDecimal placement() {
+            return closed ? cumQty : orderQty;
+        }
+    }
+
+    private final String rootOrderId;
+    // Parents are always added before their children, so iteration is top-down
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    public OrderTree(String rootOrderId) {
+        this.rootOrderId = rootOrderId;
+    }
+
+    public String rootOrderId() {
+        return rootOrderId;
+    }
+
+    public boolean contains(String orderId) {
+        return nodes.containsKey(orderId);
+    }
+
+    public Set<String> orderIds() {
+        return nodes.keySet();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Adds an order, or updates the quantity of one already in the tree and whether it is closed.
+     * The parent must already be in the tree, and the root is the only order without one.
+     */
+    public void putOrder(
+            String orderId, String parentOrderId, BigDecimal orderQty, boolean closed) {
+        BigDecimal qty = orderQty != null ? orderQty : BigDecimal.ZERO;
+        Node node = nodes.get(orderId);
+        if (node == null) {
+            Node parent = parent(orderId, parentOrderId);
+            node = new Node(orderId, parent, qty, closed);
+            nodes.put(orderId, node);
+            if (parent != null) {
+                parent.children.add(node);
+                parent.placedQty = parent.placedQty.add(node.placement());
+            }
+            return;
+        }
+        String parentId = node.parent != null ? node.parent.orderId : null;
+        if (parentOrderId != null && !parentOrderId.equals(parentId)) {
+            throw new IllegalArgumentException(
+                    "Order " + orderId + " cannot move from " + parentId + " to " + parentOrderId);
+        }
+        BigDecimal before = node.placement();
+        node.orderQty = qty;
+        node.closed = closed;
+        if (node.parent != null) {
+            node.parent.placedQty = node.parent.placedQty.add(node.placement()).subtract(before);
+        }
+    }
+
+    private Node parent(String orderId, String parentOrderId) {
+        if (parentOrderId == null) {
+            if (!orderId.equals(rootOrderId)) {
+                throw new IllegalArgumentException(
+                        "Order " + orderId + " has no parent but is not the root " + rootOrderId);
+            }
+            return null;
+        }
+        Node parent = nodes.get(parentOrderId);
+        if (parent == null) {
+            throw new IllegalArgumentException(
+                    "Parent " + parentOrderId + " of order " + orderId + " is not in the tree");
+        }
+        return parent;
+    }
+
+    /**
+     * Applies an execution of {@code lastQty} at {@code lastPx}; a negative quantity reverses one.
+     */
+    public void addExecution(String orderId, BigDecimal lastQty, BigDecimal lastPx) {
+        addFills(orderId, lastQty, lastQty.multiply(lastPx));
+    }
+
+    /** Adds fills to an order and rolls them up through every ancestor. */
+    public void addFills(String orderId, BigDecimal qty, BigDecimal notional) {
+        Node node = nodes.get(orderId);
+        if (node == null) {
+            throw new IllegalArgumentException(
+                    "Order " + orderId + " is not in the tree of " + rootOrderId);
+        }
+        node.execQty = node.execQty.add(qty);
+        node.execNotional = node.execNotional.add(notional);
+        for (Node n = node; n != null; n = n.parent) {
+            n.cumQty = n.cumQty.add(qty);
+            n.notional = n.notional.add(notional);
+            // A closed order counts its CumQty as placed, so its parent's PlacedQty moves too
+            if (n.closed && n.parent != null) {
+                n.parent.placedQty = n.parent.placedQty.add(qty);
+            }
+        }
+    }
+
+    public OrderTreeAggregate aggregate(String orderId) {
+        Node node = nodes.get(orderId);
+        return node != null ? aggregate(node) : null;
+    }
+
+    /** Aggregates of all orders, parents before their children. */
+    public List<OrderTreeAggregate> aggregates() {
+        List<OrderTreeAggregate> aggregates = new ArrayList<>(nodes.size());
+        for (Node node : nodes.values()) {
+            aggregates.add(aggregate(node));
+        }
+        return aggregates;
+    }
+
+    private static OrderTreeAggregate aggregate(Node node) {
+        return new OrderTreeAggregate(
+                node.orderId,
+                node.parent != null ? node.parent.orderId : null,
+                node.orderQty,
+                node.placedQty,
+                node.cumQty,
+                node.closed ? BigDecimal.ZERO : node.orderQty.subtract(node.cumQty),
+                avgPx(node.notional, node.cumQty),
+                node.closed);
+    }
+
+    static BigDecimal avgPx(BigDecimal notional, BigDecimal cumQty) {
+        return cumQty.signum() > 0
+                ? notional.divide(cumQty, AVG_PX_SCALE, RoundingMode.HALF_UP)
+                : null;
+    }
+
+    /**
+     * Builds the tree from scratch: each order's own fills, then every rollup in one bottom-up
+     * pass, without going through the incremental updates. Orders whose parent is not among the
+     * members are left out and returned in {@code orphans}.
+     */
+    public static OrderTree recompute(
+            String rootOrderId,
+            List<Member> members,
+            Map<String, Fills> fills,
+            List<String> orphans) {
+        Map<String, List<Member>> children = new HashMap<>();
+        Member root = null;
+        for (Member member : members) {
+            if (member.parentOrderId() == null) {
+                if (member.orderId().equals(rootOrderId)) {
+                    root = member;
+                } else {
+                    orphans.add(member.orderId());
+                }
+            } else {
+                children.computeIfAbsent(member.parentOrderId(), k -> new ArrayList<>())
+                        .add(member);
+            }
+        }
+        OrderTree tree = new OrderTree(rootOrderId);
+        if (root != null) {
+            tree.build(root, null, children, fills);
+        }
+        for (Member member : members) {
+            if (member.parentOrderId() != null && !tree.contains(member.orderId())) {
+                orphans.add(member.orderId());
+            }
+        }
+        return tree;
+    }
+
+    private Node build(
+            Member member,
+            Node parent,
+            Map<String, List<Member>> children,
+            Map<String, Fills> fills) {
+        Node node =
+                new Node(
+                        member.orderId(),
+                        parent,
+                        member.orderQty() != null ? member.orderQty() : BigDecimal.ZERO,
+                        member.closed());
+        nodes.put(node.orderId, node);
+        Fills own = fills.get(node.orderId);
+        if (own != null) {
+            node.execQty = own.qty();
+            node.execNotional = own.notional();
+        }
+        BigDecimal cumQty = node.execQty;
+        BigDecimal notional = node.execNotional;
+        BigDecimal placedQty = BigDecimal.ZERO;
+        for (Member childMember : children.getOrDefault(node.orderId, List.of())) {
+            Node child = build(childMember, node, children, fills);
+            node.children.add(child);
+            cumQty = cumQty.add(child.cumQty);
+            notional = notional.add(child.notional);
+            placedQty = placedQty.add(child.placement());
+        }
+        node.cumQty = cumQty;
+        node.notional = notional;
+        node.placedQty = placedQty;
+        return node;
+    }
+
+    /**
+     * Compares this tree against {@code expected}, e.g. a {@link #recompute} from the database.
+     * Quantities are compared by value, so 100 and 100.00 are equal.
+     */
+    public List<Mismatch> diff(OrderTree expected) {
+        List<Mismatch> mismatches = new ArrayList<>();
+        for (Node e : expected.nodes.values()) {
+            Node a = nodes.get(e.orderId);
+            if (a == null) {
+                mismatches.add(new Mismatch(e.orderId, "order", "present", "missing"));
+                continue;
+            }
+            compare(mismatches, e.orderId, "orderQty", e.orderQty, a.orderQty);
+            compare(mismatches, e.orderId, "execQty", e.execQty, a.execQty);
+            compare(mismatches, e.orderId, "execNotional", e.execNotional, a.execNotional);
+            compare(mismatches, e.orderId, "cumQty", e.cumQty, a.cumQty);
+            compare(mismatches, e.orderId, "notional", e.notional, a.notional);
+            compare(mismatches, e.orderId, "placedQty", e.placedQty, a.placedQty);
+            if (e.closed != a.closed) {
+                mismatches.add(new Mismatch(e.orderId, "closed", e.closed, a.closed));
+            }
+        }
+        for (String orderId : nodes.keySet()) {
+            if (!expected.contains(orderId)) {
+                mismatches.add(new Mismatch(orderId, "order", "missing", "present"));
+            }
+        }
+        return mismatches;
+    }
+
+    private static void compare(
+            List<Mismatch> mismatches,
+            String orderId,
+            String field,
+            BigDecimal expected,
+            BigDecimal actual) {
+        if (expected.compareTo(actual) != 0) {
+            mismatches.add(new Mismatch(orderId, field, expected, actual));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+
+/**
+ * Rolled-up quantities of one order in its tree (see {@link OrderTree}). AvgPx is rounded to {@link
+ * OrderTree#AVG_PX_SCALE} decimals and is null until something has executed; LeavesQty is zero once
+ * the order is closed.
+ */
+public record OrderTreeAggregate(
+        String orderId,
+        String parentOrderId,
+        BigDecimal orderQty,
+        BigDecimal placedQty,
+        BigDecimal cumQty,
+        BigDecimal leavesQty,
+        BigDecimal avgPx,
+        boolean closed) {}
@@ -0,0 +1,138 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Splits a quantity across members in proportion to their capacities, never giving a member more
+ * than its capacity. Quantities are scaled longs with {@link #SCALE} decimals, the scale of the
+ * quantity columns, so thousands of members are allocated without a BigDecimal per member.
+ *
+ * <p>Rounding is deterministic: each member first gets the whole lots of its exact share, rounded
+ * down; the lots left over, fewer than there are members, go one each to the members with the
+ * largest remainders, the lower index first among equal ones; what is still left, less than a lot,
+ * goes to the members in index order up to their capacity. Callers pass the members in a stable
+ * order, e.g. by orderId.
+ */
+public final class ProRataAllocation {
+
+    public static final int SCALE = 2;
+
+    private ProRataAllocation() {}
+
+    /** The quantity as a scaled long; quantities have at most {@link #SCALE} decimals. */
+    public static long toScaled(BigDecimal qty) {
+        return qty.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromScaled(long qty) {
+        return BigDecimal.valueOf(qty, SCALE);
+    }
+
+    /**
+     * Allocates {@code qty} across the members pro rata to {@code capacity}, in multiples of {@code
+     * lot} as far as possible. The allocations add up to {@code qty}, or to the total capacity if
+     * that is less.
+     *
+     * @throws IllegalArgumentException if the quantity or a capacity is negative or the lot is not
+     *     positive
+     */
+    public static long[] allocate(long qty, long[] capacity, long lot) {
+        if (qty < 0 || lot < 1) {
+            throw new IllegalArgumentException(
+                    "Cannot allocate " + qty + " in lots of " + lot + ": must be positive");
+        }
+        int members = capacity.length;
+        long[] allocation = new long[members];
+        long total = 0;
+        for (long c : capacity) {
+            if (c < 0) {
+                throw new IllegalArgumentException("Capacity must not be negative: " + c);
+            }
+            total = Math.addExact(total, c);
+        }
+        if (qty >= total) {
+            System.arraycopy(capacity, 0, allocation, 0, members);
+            return allocation;
+        }
+        long lots = qty / lot;
+        long[] remainders = new long[members];
+        long extraLots = lots;
+        for (int i = 0; i < members; i++) {
+            long share = floorMulDiv(capacity[i], lots, total, remainders, i);
+            allocation[i] = share * lot;
+            extraLots -= share;
+        }
+        long left = qty - (lots - extraLots) * lot;
+        if (extraLots > 0) {
+            int[] order = byRemainder(remainders);
+            for (int k = 0; k < members && extraLots > 0; k++) {
+                int i = order[k];
+                if (remainders[i] == 0) {
+                    break;
+                }
+                if (capacity[i] - allocation[i] >= lot) {
+                    allocation[i] += lot;
+                    left -= lot;
+                    extraLots--;
+                }
+            }
+        }
+        for (int i = 0; i < members && left > 0; i++) {
+            long take = Math.min(left, capacity[i] - allocation[i]);
+            allocation[i] += take;
+            left -= take;
+        }
+        return allocation;
+    }
+
+    /**
+     * {@code a * b / c} rounded down, with the remainder stored at {@code remainders[i]}; the
+     * quotient fits a long as {@code a <= c}.
+     */
+    private static long floorMulDiv(long a, long b, long c, long[] remainders, int i) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if (high == 0 && low >= 0) {
+            remainders[i] = low % c;
+            return low / c;
+        }
+        BigInteger[] quotientAndRemainder =
+                BigInteger.valueOf(a)
+                        .multiply(BigInteger.valueOf(b))
+                        .divideAndRemainder(BigInteger.valueOf(c));
+        remainders[i] = quotientAndRemainder[1].longValue();
+        return quotientAndRemainder[0].longValue();
+    }
+
+    /** Member indexes by descending remainder, the lower index first among equal ones. */
+    static int[] byRemainder(long[] remainders) {
+        int members = remainders.length;
+        int[] order = new int[members];
+        for (int i = 0; i < members; i++) {
+            order[i] = i;
+        }
+        // Bottom-up merge sort: stable, so equal remainders keep their index order
+        int[] buffer = new int[members];
+        for (int width = 1; width < members; width *= 2) {
+            for (int lo = 0; lo < members - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, members);
+                System.arraycopy(order, lo, buffer, lo, hi - lo);
+                int left = lo;
+                int right = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (right >= hi
+                            || (left < mid
+                                    && remainders[buffer[left]] >= remainders[buffer[right]])) {
+                        order[k] = buffer[left++];
+                    } else {
+                        order[k] = buffer[right++];
+                    }
+                }
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.oms.service.business;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.example.common.model.CancelState;
+import org.example.common.model.ExecInst;
+import org.example.common.model.HandlInst;
+import org.example.common.model.OrdType;
+import org.example.common.model.Order;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.example.common.model.TimeInForce;
+
+/**
+ * Rules deciding whether a cancel or replace is carried down to a descendant order
+ * (specs/order_replace.md §10), compiled once into a decision table. A rule matches when all of its
+ * conditions hold; the first matching rule in declaration order decides, and with none the change
+ * is propagated.
+ *
+ * <p>Conditions use the filter syntax of the query API, {@code field} or {@code field__op} with op
+ * one of eq, ne, in (comma separated), gt, gte, lt, lte or null (true/false), and test the
+ * descendant, or with a {@code parent.} prefix the order the request is for, as the request has
+ * changed it (a cancelled parent is CXL, a replaced one has its new terms). Conditions on enum
+ * fields become one bitmask of rules per field and value, so they are decided for all rules with an
+ * AND per field; only the rules left are tested on their other conditions. As in SQL, a null value
+ * fails every comparison but null.
+ */
+public final class PropagationRules {
+
+    /** At most one bit per rule in the decision table. */
+    public static final int MAX_RULES = Long.SIZE;
+
+    public enum Request {
+        CANCEL,
+        REPLACE
+    }
+
+    public enum Action {
+        /** Carry the change down to the descendant. */
+        PROPAGATE,
+        /** Leave the descendant as it is, e.g. while a desk works it. */
+        SKIP,
+        /** Reject the request; nothing is changed. */
+        REJECT
+    }
+
+    /** A declared rule; no {@code requests} means both. */
+    public record Rule(
+            String name, Set<Request> requests, Action action, Map<String, Object> when) {}
+
+    /** Reports the time spent on a candidate rule's conditions outside the table. */
+    @FunctionalInterface
+    public interface Probe {
+        void evaluated(int rule, long nanos);
+    }
+
+    public static final PropagationRules NONE = compile(List.of());
+
+    private enum Type {
+        ENUM,
+        STRING,
+        NUMERIC
+    }
+
+    private record Field(Type type, Function<Order, ?> getter, Enum<?>[] constants) {}
+
+    private record Dimension(boolean parent, Function<Order, ?> getter, long[] masks) {}
+
+    private static final Map<String, Field> FIELDS = new LinkedHashMap<>();
+
+    static {
+        enumeration("state", State.class, Order::getState);
+        enumeration("cancelState", CancelState.class, Order::getCancelState);
+        enumeration("side", Side.class, Order::getSide);
+        enumeration("ordType", OrdType.class, Order::getOrdType);
+        enumeration("timeInForce", TimeInForce.class, Order::getTimeInForce);
+        enumeration("handlInst", HandlInst.class, Order::getHandlInst);
+        enumeration("execInst", ExecInst.class, Order::getExecInst);
+        string("account", Order::getAccount);
+        string("symbol", Order::getSymbol);
+        string("securityId", Order::getSecurityId);
+        string("exDestination", Order::getExDestination);
+        string("sessionId", Order::getSessionId);
+        string("parentOrderId", Order::getParentOrderId);
+        string("groupOrderId", Order::getGroupOrderId);
+        numeric("orderQty", Order::getOrderQty);
+        numeric("cumQty", Order::getCumQty);
+        numeric("price", Order::getPrice);
+        numeric("leavesQty", PropagationRules::leavesQty);
+        // CumQty / OrderQty, e.g. fillRatio__gte: 0.5
+        numeric("fillRatio", PropagationRules::fillRatio);
+    }
+
+    private static <E extends Enum<E>> void enumeration(
+            String name, Class<E> type, Function<Order, E> getter) {
+        FIELDS.put(name, new Field(Type.ENUM, getter, type.getEnumConstants()));
+    }
+
+    private static void string(String name, Function<Order, String> getter) {
+        FIELDS.put(name, new Field(Type.STRING, getter, null));
+    }
+
+    private static void numeric(String name, Function<Order, BigDecimal> getter) {
+        FIELDS.put(name, new Field(Type.NUMERIC, getter, null));
+    }
+
+    private final List<Rule> rules;
+    private final long[] applies;
+    private final Dimension[] dimensions;
+    // Conditions tested outside the table, by rule index; null for a rule without any
+    private final List<BiPredicate<Order, Order>> residuals;
+
+    private PropagationRules(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        this.applies = new long[Request.values().length];
+        this.residuals = new ArrayList<>(Collections.nCopies(rules.size(), null));
+        Map<String, Dimension> dimensions = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        for (int r = 0; r < rules.size(); r++) {
+            Rule rule = rules.get(r);
+            if (rule.name() == null || rule.name().isBlank() || !names.add(rule.name())) {
+                throw new IllegalArgumentException(
+                        "Missing or duplicate rule name: " + rule.name());
+            }
+            if (rule.action() == null) {
+                throw new IllegalArgumentException("Rule " + rule.name() + " has no action");
+            }
+            Set<Request> requests =
+                    rule.requests() == null || rule.requests().isEmpty()
+                            ? EnumSet.allOf(Request.class)
+                            : rule.requests();
+            for (Request request : requests) {
+                applies[request.ordinal()] |= 1L << r;
+            }
+            Map<String, Object> when = rule.when() != null ? rule.when() : Map.of();
+            for (Map.Entry<String, Object> condition : when.entrySet()) {
+                compile(
+                        r,
+                        rule.name(),
+                        condition.getKey().trim(),
+                        condition.getValue(),
+                        dimensions);
+            }
+        }
+        this.dimensions = dimensions.values().toArray(Dimension[]::new);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rule is invalid, naming the rule and the condition
+     */
+    public static PropagationRules compile(List<Rule> rules) {
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException(
+                    rules.size() + " propagation rules, at most " + MAX_RULES + " are supported");
+        }
+        return new PropagationRules(rules);
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * The index in {@link #rules()} of the first rule matching the descendant, or -1 if none does.
+     *
+     * @param probe told of each rule tested on its conditions outside the table; may be null
+     */
+    public int match(Request request, Order parent, Order child, Probe probe) {
+        long candidates = applies[request.ordinal()];
+        for (Dimension dimension : dimensions) {
+            if (candidates == 0) {
+                return -1;
+            }
+            Enum<?> value = (Enum<?>) dimension.getter().apply(dimension.parent() ? parent : child);
+            long[] masks = dimension.masks();
+            candidates &= masks[value != null ? value.ordinal() : masks.length - 1];
+        }
+        while (candidates != 0) {
+            int r = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            BiPredicate<Order, Order> residual = residuals.get(r);
+            if (residual == null) {
+                if (probe != null) {
+                    probe.evaluated(r, 0);
+                }
+                return r;
+            }
+            long start = probe != null ? System.nanoTime() : 0;
+            boolean matched = residual.test(parent, child);
+            if (probe != null) {
+                probe.evaluated(r, System.nanoTime() - start);
+            }
+            if (matched) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    /** The action of the first matching rule, PROPAGATE if none matches. */
+    public Action decide(Request request, Order parent, Order child) {
+        int r = match(request, parent, child, null);
+        return r >= 0 ? rules.get(r).action() : Action.PROPAGATE;
+    }
+
+    private void compile(
+            int r, String rule, String key, Object value, Map<String, Dimension> dimensions) {
+        boolean parent = key.startsWith("parent.");
+        String name = parent ? key.substring("parent.".length()) : key;
+        int idx = name.indexOf("__");
+        String op = idx > 0 ? name.substring(idx + 2) : "eq";
+        name = idx > 0 ? name.substring(0, idx) : name;
+        Field field = FIELDS.get(name);
+        if (field == null) {
+            throw new IllegalArgumentException("Rule " + rule + ": unknown field " + key);
+        }
+        try {
+            if (field.type() == Type.ENUM) {
+                boolean[] accepts = accepts(field.constants(), op, value);
+                Dimension dimension =
+                        dimensions.computeIfAbsent(
+                                parent ? "parent." + name : name,
+                                k -> {
+                                    long[] masks = new long[field.constants().length + 1];
+                                    Arrays.fill(masks, -1L);
+                                    return new Dimension(parent, field.getter(), masks);
+                                });
+                for (int i = 0; i < accepts.length; i++) {
+                    if (!accepts[i]) {
+                        dimension.masks()[i] &= ~(1L << r);
+                    }
+                }
+                return;
+            }
+            Predicate<Order> test = predicate(field, op, value);
+            BiPredicate<Order, Order> condition =
+                    parent ? (p, c) -> test.test(p) : (p, c) -> test.test(c);
+            BiPredicate<Order, Order> residual = residuals.get(r);
+            residuals.set(r, residual != null ? residual.and(condition) : condition);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Rule " + rule + ": " + key + ": " + e.getMessage());
+        }
+    }
+
+    // Which values of the enum, and null in the last slot, the condition accepts
+    private static boolean[] accepts(Enum<?>[] constants, String op, Object value) {
+        boolean[] accepts = new boolean[constants.length + 1];
+        if (op.equals("null")) {
+            boolean isNull = bool(value);
+            Arrays.fill(accepts, !isNull);
+            accepts[constants.length] = isNull;
+            return accepts;
+        }
+        Map<String, Enum<?>> byName = new HashMap<>();
+        for (Enum<?> constant : constants) {
+            byName.put(constant.name(), constant);
+        }
+        List<String> names = op.equals("in") ? values(value) : List.of(scalar(value));
+        for (String name : names) {
+            Enum<?> constant = byName.get(name);
+            if (constant == null) {
+                throw new IllegalArgumentException("unknown value " + name);
+            }
+            accepts[constant.ordinal()] = true;
+        }
+        switch (op) {
+            case "eq", "in" -> {}
+            case "ne" -> {
+                for (int i = 0; i < constants.length; i++) {
+                    accepts[i] = !accepts[i];
+                }
+            }
+            default -> throw new IllegalArgumentException("unsupported operator " + op);
+        }
+        return accepts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Order> predicate(Field field, String op, Object value) {
+        Function<Order, ?> getter = field.getter();
+        if (op.equals("null")) {
+            boolean isNull = bool(value);
+            return o -> (getter.apply(o) == null) == isNull;
+        }
+        if (op.equals("in")) {
+            Set<Object> values = new HashSet<>();
+            for (String v : values(value)) {
+                values.add(
+                        field.type() == Type.NUMERIC ? new BigDecimal(v).stripTrailingZeros() : v);
+            }
+            return field.type() == Type.NUMERIC
+                    ? o ->
+                            getter.apply(o) instanceof BigDecimal v
+                                    && values.contains(v.stripTrailingZeros())
+                    : o -> values.contains(getter.apply(o));
+        }
+        if (field.type() == Type.STRING) {
+            String s = scalar(value);
+            return switch (op) {
+                case "eq" -> o -> s.equals(getter.apply(o));
+                case "ne" -> o -> getter.apply(o) != null && !s.equals(getter.apply(o));
+                default -> throw new IllegalArgumentException("unsupported operator " + op);
+            };
+        }
+        BigDecimal bound = new BigDecimal(scalar(value));
+        Function<Order, BigDecimal> number = (Function<Order, BigDecimal>) getter;
+        IntPredicate test =
+                switch (op) {
+                    case "eq" -> c -> c == 0; // 0.5 equals 0.50
+                    case "ne" -> c -> c != 0;
+                    case "gt" -> c -> c > 0;
+                    case "gte" -> c -> c >= 0;
+                    case "lt" -> c -> c < 0;
+                    case "lte" -> c -> c <= 0;
+                    default -> throw new IllegalArgumentException("unsupported operator " + op);
+                };
+        return o -> {
+            BigDecimal v = number.apply(o);
+            return v != null && test.test(v.compareTo(bound));
+        };
+    }
+
+    private static boolean bool(Object value) {
+        String s = scalar(value);
+        if (!s.equals("true") && !s.equals("false")) {
+            throw new IllegalArgumentException("expected true or false: " + s);
+        }
+        return Boolean.parseBoolean(s);
+    }
+
+    private static String scalar(Object value) {
+        if (value == null || value instanceof Iterable<?>) {
+            throw new IllegalArgumentException("expected a single value: " + value);
+        }
+        return String.valueOf(value).trim();
+    }
+
+    // A YAML list or a comma separated string
+    private static List<String> values(Object value) {
+        List<String> values = new ArrayList<>();
+        if (value instanceof Iterable<?> items) {
+            items.forEach(item -> values.add(String.valueOf(item).trim()));
+        } else {
+            for (String item : scalar(value).split(",")) {
+                values.add(item.trim());
+            }
+        }
+        return values;
+    }
+
+    private static BigDecimal leavesQty(Order order) {
+        BigDecimal orderQty = order.getOrderQty();
+        if (orderQty == null) {
+            return null;
+        }
+        return order.getCumQty() != null ? orderQty.subtract(order.getCumQty()) : orderQty;
+    }
+
+    private static BigDecimal fillRatio(Order order) {
+        BigDecimal orderQty = order.getOrderQty();
+        if (orderQty == null || orderQty.signum() == 0) {
+            return null;
+        }
+        BigDecimal cumQty = order.getCumQty() != null ? order.getCumQty() : BigDecimal.ZERO;
+        return cumQty.divide(orderQty, MathContext.DECIMAL64);
+    }
+}
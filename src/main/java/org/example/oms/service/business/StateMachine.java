@@ -1,28 +1,57 @@
 package org.example.oms.service.business;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.example.common.model.Order;
 import org.example.common.model.State;
 
-public class StateMachine {
-    // Hide implicit public constructor
-    private StateMachine() {}
+/**
+ * Valid order state transitions, one machine per kind of order. Each machine compiles its
+ * transition map into a bitset matrix, one row of target states per state ordinal, so checking a
+ * transition is an array read and a bit test and allocates nothing. The static methods are those of
+ * the client order machine; the Optional results they return are shared instances.
+ */
+public final class StateMachine {
 
     // Define valid transitions as immutable maps
     private static final Map<State, Set<State>> VALID_TRANSITIONS = createTransitionMap();
 
+    private static final State[] STATES = State.values();
+
+    /** Orders received from clients, the roots of order trees. */
+    public static final StateMachine CLIENT = new StateMachine("client", VALID_TRANSITIONS);
+
+    /** Child orders sent to a market or broker; for now they follow the client order lifecycle. */
+    public static final StateMachine MARKET = new StateMachine("market", VALID_TRANSITIONS);
+
+    /**
+     * Grouped orders, created LIVE by the OMS itself (specs/order_grouping.md): nobody acknowledges
+     * or rejects them, so they never move to REJ.
+     */
+    public static final StateMachine GROUPED =
+            new StateMachine("grouped", without(VALID_TRANSITIONS, State.REJ));
+
+    // One shared Optional per state, by ordinal, so the Optional API allocates nothing either
+    private static final List<Optional<State>> RESULTS =
+            Arrays.stream(STATES).map(Optional::of).toList();
+
     private static Map<State, Set<State>> createTransitionMap() {
         Map<State, Set<State>> transitions = new EnumMap<>(State.class);
         transitions.put(State.NEW, Set.of(State.UNACK));
-        transitions.put(State.UNACK, Set.of(State.LIVE, State.REJ));
-        transitions.put(State.LIVE, Set.of(State.FILLED, State.CXL, State.REJ));
-        transitions.put(State.FILLED, Set.of(State.CLOSED));
+        // Working orders expire at the end of their day or at their expireTime (housekeeping)
+        transitions.put(State.UNACK, Set.of(State.LIVE, State.REJ, State.EXP));
+        transitions.put(State.LIVE, Set.of(State.FILLED, State.CXL, State.REJ, State.EXP));
+        // A bust or whack can take a filled order back to working
+        transitions.put(State.FILLED, Set.of(State.LIVE, State.CLOSED));
         transitions.put(State.CXL, Set.of(State.CLOSED));
         transitions.put(State.REJ, Set.of(State.CLOSED));
         transitions.put(State.CLOSED, Collections.emptySet());
@@ -31,20 +60,100 @@ public class StateMachine {
         return Collections.unmodifiableMap(transitions);
     }
 
+    private static Map<State, Set<State>> without(Map<State, Set<State>> transitions, State to) {
+        Map<State, Set<State>> copy = new EnumMap<>(State.class);
+        transitions.forEach(
+                (from, targets) ->
+                        copy.put(
+                                from,
+                                targets.stream()
+                                        .filter(t -> t != to)
+                                        .collect(Collectors.toUnmodifiableSet())));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private final String name;
+    // Bit t of targets[f] is set if the state with ordinal f may move to the one with ordinal t
+    private final long[] targets;
+
+    private StateMachine(String name, Map<State, Set<State>> transitions) {
+        if (STATES.length > Long.SIZE) {
+            throw new IllegalStateException("More states than bits in a row");
+        }
+        this.name = name;
+        this.targets = new long[STATES.length];
+        transitions.forEach(
+                (from, to) -> to.forEach(t -> targets[from.ordinal()] |= 1L << t.ordinal()));
+    }
+
+    /** The machine of the order's kind: grouped, market (a child order) or client. */
+    public static StateMachine of(Order order) {
+        if (order.isGroupedOrder()) {
+            return GROUPED;
+        }
+        return order.getParentOrderId() != null ? MARKET : CLIENT;
+    }
+
+    /** Whether the state with ordinal {@code from} may move to the one with ordinal {@code to}. */
+    public boolean canTransition(int from, int to) {
+        return (targets[from] & (1L << to)) != 0;
+    }
+
+    public boolean canTransition(State from, State to) {
+        return from != null && to != null && canTransition(from.ordinal(), to.ordinal());
+    }
+
+    /** Whether the states can be passed through in order from {@code initial}. */
+    public boolean canTransition(State initial, State... path) {
+        Objects.requireNonNull(initial, "Initial state cannot be null");
+        boolean valid = true;
+        int current = initial.ordinal();
+        for (State next : path) {
+            // Checked all the way, also past an invalid transition
+            Objects.requireNonNull(next, "Transition states cannot be null");
+            valid &= canTransition(current, next.ordinal());
+            current = next.ordinal();
+        }
+        return valid;
+    }
+
+    /**
+     * The state the order moves to.
+     *
+     * @throws IllegalStateException if the transition is not valid
+     */
+    public State next(State from, State to) {
+        if (!canTransition(from, to)) {
+            throw new IllegalStateException(
+                    "Invalid " + name + " order transition " + from + " -> " + to);
+        }
+        return to;
+    }
+
+    /** A state with no outgoing transitions; orders in it can no longer change. */
+    public boolean isFinal(State state) {
+        return state != null && targets[state.ordinal()] == 0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
     // Pure function to validate a transition
     public static boolean isValidTransition(State from, State to) {
-        if (from == null || to == null) {
-            return false;
-        }
-        return Optional.ofNullable(VALID_TRANSITIONS.get(from))
-                .map(validStates -> validStates.contains(to))
-                .orElse(false);
+        return CLIENT.canTransition(from, to);
+    }
+
+    // A state with no outgoing transitions; orders in it can no longer change
+    public static boolean isTerminal(State state) {
+        return CLIENT.isFinal(state);
     }
 
     // Function to transition state, returning Optional to handle invalid
     // transitions
     public static Optional<State> transition(State from, State to) {
-        return isValidTransition(from, to) ? Optional.of(to) : Optional.empty();
+        return isValidTransition(from, to) ? RESULTS.get(to.ordinal()) : Optional.empty();
     }
 
     // Higher-order function that returns a transition function for a specific
@@ -55,14 +164,10 @@ public class StateMachine {
 
     // Composition of transitions
     public static Optional<State> transitionSequence(State initial, State... transitions) {
-        Objects.requireNonNull(initial, "Initial state cannot be null");
-        Optional<State> current = Optional.of(initial);
-
-        for (State nextState : transitions) {
-            Objects.requireNonNull(nextState, "Transition states cannot be null");
-            current = current.flatMap(state -> transition(state, nextState));
+        if (!CLIENT.canTransition(initial, transitions)) {
+            return Optional.empty();
         }
-
-        return current;
+        return RESULTS.get(
+                (transitions.length > 0 ? transitions[transitions.length - 1] : initial).ordinal());
     }
 }
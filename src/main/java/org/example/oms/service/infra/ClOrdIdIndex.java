@@ -0,0 +1,125 @@
+package org.example.oms.service.infra;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.service.business.StateMachine;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The ClOrdID chains of the live orders in memory: every ClOrdID an order has had maps to the order
+ * and to the ClOrdID it replaced, so a cancel or replace given by OrigClOrdID finds its order with
+ * one lookup, and one naming a ClOrdID that has since been replaced is told so. Like {@link
+ * OrderCache} it is updated once writes have committed ({@link #onOrder(Order)}) and drops an
+ * order's chain when the order reaches a terminal state; at startup it holds the current and
+ * previous ClOrdID of each live order.
+ *
+ * <p>ClOrdIDs of new orders are not checked for uniqueness; one used by more than one order no
+ * longer resolves, and the order has to be given by its orderId.
+ */
+@Component
+@Slf4j
+public class ClOrdIdIndex implements SmartInitializingSingleton {
+
+    static final String LIVE_CHAINS_SQL =
+            "select order_id, cl_ord_id, orig_cl_ord_id from orders"
+                    + " where state not in (?, ?) and cl_ord_id is not null";
+
+    /** A ClOrdID's order, null if more than one order uses it, and the ClOrdID it replaced. */
+    public record Link(String orderId, String origClOrdId) {
+
+        public boolean isAmbiguous() {
+            return orderId == null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Link> links = new ConcurrentHashMap<>();
+
+    public ClOrdIdIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("oms.clordid-index.size", links, Map::size)
+                .description("ClOrdIDs of live orders held in the index")
+                .register(meterRegistry);
+    }
+
+    /** The link of a ClOrdID, or null if no live order has used it. */
+    public Link get(String clOrdId) {
+        return clOrdId != null ? links.get(clOrdId) : null;
+    }
+
+    /** Whether any live order uses or has used the ClOrdID. */
+    public boolean contains(String clOrdId) {
+        return links.containsKey(clOrdId);
+    }
+
+    /**
+     * Records the committed ClOrdID of an order, linked to its OrigClOrdID, or drops the order's
+     * chain if it is terminal.
+     */
+    public void onOrder(Order order) {
+        String clOrdId = order.getClOrdId();
+        if (clOrdId == null) {
+            return;
+        }
+        if (StateMachine.isTerminal(order.getState())) {
+            remove(order.getOrderId(), clOrdId);
+            return;
+        }
+        link(order.getOrderId(), clOrdId, order.getOrigClOrdId());
+    }
+
+    private void link(String orderId, String clOrdId, String origClOrdId) {
+        links.merge(
+                clOrdId,
+                new Link(orderId, origClOrdId),
+                (existing, link) ->
+                        orderId.equals(existing.orderId()) ? link : new Link(null, null));
+    }
+
+    /** Walks the chain back from the order's current ClOrdID, dropping the links that are its. */
+    private void remove(String orderId, String clOrdId) {
+        String next = clOrdId;
+        while (next != null) {
+            Link link = links.get(next);
+            if (link == null || !orderId.equals(link.orderId())) {
+                return;
+            }
+            links.remove(next, link);
+            next = link.origClOrdId();
+        }
+    }
+
+    public int size() {
+        return links.size();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        jdbcTemplate.query(
+                LIVE_CHAINS_SQL,
+                rs -> {
+                    String orderId = rs.getString(1);
+                    String origClOrdId = rs.getString(3);
+                    link(orderId, rs.getString(2), origClOrdId);
+                    if (origClOrdId != null) {
+                        links.putIfAbsent(origClOrdId, new Link(orderId, null));
+                    }
+                },
+                State.CLOSED.ordinal(),
+                State.EXP.ordinal());
+        log.info(
+                "ClOrdID index warmed up with {} ClOrdIDs in {} ms",
+                size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
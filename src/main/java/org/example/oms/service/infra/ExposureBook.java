@@ -0,0 +1,392 @@
+package org.example.oms.service.infra;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open notional of the working client orders per account, symbol and session, for pre-trade risk
+ * checks without SQL aggregates. An order's notional is its LeavesQty times its price, in cents as
+ * a long; only UNACK and LIVE orders at the root of their tree count (child orders work the same
+ * quantity, grouped orders that of their members), and orders without a price count nothing.
+ *
+ * <p>Notional is gross: buys and sells both add to it, as either may fill without the other, so a
+ * sell never offsets a buy. It is kept per settlement currency and never converted; orders without
+ * one are in {@code oms.risk.currency}, the currency the limits are given in. Orders in other
+ * currencies are counted in their own, but not checked against the limits.
+ *
+ * <p>Each order's current notional is kept, so a committed change of the order (fill, bust, cancel,
+ * replace, expiry; {@link #onOrder(Order)}) adds only the difference to the LongAdders of its
+ * account, symbol and session. A new or increased notional is {@linkplain #reserve reserved} before
+ * it commits, so concurrent orders cannot both pass a limit they break together. The book is built
+ * from the orders table at startup and compared with it every {@code
+ * oms.risk.reconcile-interval-ms}; a difference seen in two runs in a row is not an order in flight
+ * and is corrected.
+ */
+@Component
+@Slf4j
+public class ExposureBook implements SmartInitializingSingleton {
+
+    /** Notional is held in units of 10^-SCALE. */
+    public static final int SCALE = 2;
+
+    public enum Dimension {
+        ACCOUNT(Order::getAccount, "account"),
+        SYMBOL(Order::getSymbol, "symbol"),
+        SESSION(Order::getSessionId, "session_id");
+
+        private final Function<Order, String> key;
+        private final String column;
+
+        Dimension(Function<Order, String> key, String column) {
+            this.key = key;
+            this.column = column;
+        }
+
+        public String keyOf(Order order) {
+            return key.apply(order);
+        }
+    }
+
+    /**
+     * The outcome of a reservation: the notional added, or the dimension whose limit it would have
+     * broken, with the exposure it would have reached, and nothing added.
+     */
+    public record Reservation(long added, Dimension breached, long exposure, long limit) {
+
+        static final Reservation NONE = new Reservation(0, null, 0, 0);
+
+        public boolean isRejected() {
+            return breached != null;
+        }
+    }
+
+    private static final String WORKING =
+            " from orders where state in (?, ?) and parent_order_id is null"
+                    + " and (group_order_id is null or group_order_id <> order_id)"
+                    + " and price is not null and order_qty is not null";
+
+    static final String WORKING_ORDERS_SQL =
+            "select order_id, account, symbol, session_id, order_qty, cum_qty, price,"
+                    + " settl_currency"
+                    + WORKING;
+
+    // Rounded per order, as in notional(Order)
+    private static final String EXPOSURE_SQL =
+            "select %s, coalesce(settl_currency, ?), sum(round((order_qty - coalesce(cum_qty, 0))"
+                    + " * price, "
+                    + SCALE
+                    + "))"
+                    + WORKING
+                    + " group by 1, 2";
+
+    // An account, symbol or session in a currency
+    private record Key(String key, String currency) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String currency;
+    private final long reconcileIntervalMillis;
+    private final Map<String, Long> notionals = new ConcurrentHashMap<>();
+    // Per currency, the exposures of each dimension by key
+    private final Map<String, Map<Dimension, Map<String, LongAdder>>> exposures =
+            new ConcurrentHashMap<>();
+    // Differences found by the last reconciliation, per dimension and key; guarded by reconcileLock
+    private final Map<Dimension, Map<Key, Long>> differences = new EnumMap<>(Dimension.class);
+    // Held over the queries of a reconciliation, so it is not an intrinsic lock
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private final LongAdder corrections = new LongAdder();
+    private ScheduledExecutorService reconciler;
+
+    public ExposureBook(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${oms.risk.currency:USD}") String currency,
+            @Value("${oms.risk.reconcile-interval-ms:60000}") long reconcileIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.currency = currency;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        for (Dimension dimension : Dimension.values()) {
+            differences.put(dimension, new HashMap<>());
+        }
+        FunctionCounter.builder("oms.risk.reconcile.corrections", corrections, LongAdder::sum)
+                .description("Exposures corrected to the orders table by reconciliation")
+                .register(meterRegistry);
+    }
+
+    /** The notional an order counts for, in units of 10^-{@value #SCALE}. */
+    public static long notional(Order order) {
+        if ((order.getState() != State.UNACK && order.getState() != State.LIVE)
+                || order.getParentOrderId() != null
+                || order.isGroupedOrder()
+                || order.getPrice() == null
+                || order.getOrderQty() == null) {
+            return 0;
+        }
+        BigDecimal leavesQty =
+                order.getCumQty() != null
+                        ? order.getOrderQty().subtract(order.getCumQty())
+                        : order.getOrderQty();
+        return leavesQty
+                .multiply(order.getPrice())
+                .setScale(SCALE, RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    public static long toScaled(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromScaled(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+
+    /** The currency the limits are in, and that of orders without a settlement currency. */
+    public String currency() {
+        return currency;
+    }
+
+    public String currencyOf(Order order) {
+        return order.getSettlCurrency() != null ? order.getSettlCurrency() : currency;
+    }
+
+    /**
+     * The exposure of an account, symbol or session in the limit currency, in units of 10^-{@value
+     * #SCALE}.
+     */
+    public long exposure(Dimension dimension, String key) {
+        return exposure(dimension, key, currency);
+    }
+
+    /** The exposure of an account, symbol or session in a currency. */
+    public long exposure(Dimension dimension, String key, String currency) {
+        Map<Dimension, Map<String, LongAdder>> book = exposures.get(currency);
+        LongAdder exposure = key != null && book != null ? book.get(dimension).get(key) : null;
+        return exposure != null ? exposure.sum() : 0;
+    }
+
+    /** How much the order's notional is above what it counts for now; 0 or less if not. */
+    public long increase(Order order) {
+        return notional(order) - notionals.getOrDefault(order.getOrderId(), 0L);
+    }
+
+    /**
+     * Adds the increase of the order's notional over what it counts for now, unless that takes a
+     * dimension over its limit. The limits only apply to orders in the limit currency.
+     *
+     * @param limits per {@link Dimension} ordinal, in units of 10^-{@value #SCALE}; 0 for none
+     */
+    public Reservation reserve(Order order, long[] limits) {
+        long added = increase(order);
+        if (added <= 0) {
+            return Reservation.NONE; // a decrease is applied once committed
+        }
+        String orderCurrency = currencyOf(order);
+        add(order, orderCurrency, added);
+        for (Dimension dimension : Dimension.values()) {
+            long limit = orderCurrency.equals(currency) ? limits[dimension.ordinal()] : 0;
+            long exposure = exposure(dimension, dimension.keyOf(order), orderCurrency);
+            if (limit > 0 && exposure > limit) {
+                add(order, orderCurrency, -added);
+                return new Reservation(0, dimension, exposure, limit);
+            }
+        }
+        notionals.merge(order.getOrderId(), added, Long::sum);
+        return new Reservation(added, null, 0, 0);
+    }
+
+    /** Takes back a reservation whose transaction did not commit. */
+    public void release(Order order, Reservation reservation) {
+        if (reservation.added() == 0) {
+            return;
+        }
+        notionals.computeIfPresent(
+                order.getOrderId(),
+                (orderId, notional) -> {
+                    add(order, currencyOf(order), -reservation.added());
+                    long left = notional - reservation.added();
+                    return left != 0 ? left : null;
+                });
+    }
+
+    /** Moves the exposures by the change in the committed order's notional. */
+    public void onOrder(Order order) {
+        long notional = notional(order);
+        notionals.compute(
+                order.getOrderId(),
+                (orderId, previous) -> {
+                    long delta = notional - (previous != null ? previous : 0);
+                    if (delta != 0) {
+                        add(order, currencyOf(order), delta);
+                    }
+                    return notional != 0 ? notional : null;
+                });
+    }
+
+    private void add(Order order, String orderCurrency, long amount) {
+        Map<Dimension, Map<String, LongAdder>> book = book(orderCurrency);
+        for (Dimension dimension : Dimension.values()) {
+            String key = dimension.keyOf(order);
+            if (key != null) {
+                book.get(dimension).computeIfAbsent(key, k -> new LongAdder()).add(amount);
+            }
+        }
+    }
+
+    private Map<Dimension, Map<String, LongAdder>> book(String orderCurrency) {
+        return exposures.computeIfAbsent(
+                orderCurrency,
+                c -> {
+                    Map<Dimension, Map<String, LongAdder>> book = new EnumMap<>(Dimension.class);
+                    for (Dimension dimension : Dimension.values()) {
+                        book.put(dimension, new ConcurrentHashMap<>());
+                    }
+                    return book;
+                });
+    }
+
+    /** Working orders counted. */
+    public int size() {
+        return notionals.size();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        jdbcTemplate.query(
+                WORKING_ORDERS_SQL,
+                rs -> {
+                    onOrder(
+                            Order.builder()
+                                    .orderId(rs.getString(1))
+                                    .account(rs.getString(2))
+                                    .symbol(rs.getString(3))
+                                    .sessionId(rs.getString(4))
+                                    .orderQty(rs.getBigDecimal(5))
+                                    .cumQty(rs.getBigDecimal(6))
+                                    .price(rs.getBigDecimal(7))
+                                    .settlCurrency(rs.getString(8))
+                                    .state(State.LIVE)
+                                    .build());
+                },
+                State.UNACK.ordinal(),
+                State.LIVE.ordinal());
+        log.info(
+                "Exposure book built from {} working orders in {} ms",
+                size(),
+                (System.nanoTime() - start) / 1_000_000);
+        if (reconcileIntervalMillis > 0) {
+            reconciler =
+                    Executors.newSingleThreadScheduledExecutor(
+                            Thread.ofPlatform().name("oms-risk-reconcile").daemon().factory());
+            reconciler.scheduleWithFixedDelay(
+                    this::reconcileQuietly,
+                    reconcileIntervalMillis,
+                    reconcileIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            int corrected = reconcile();
+            if (corrected > 0) {
+                log.warn("Corrected {} exposures to the orders table", corrected);
+            }
+        } catch (RuntimeException e) {
+            log.error("Exposure reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Compares the exposures with the orders table and corrects those that differed by the same
+     * amount in the previous run too; a difference seen once may be an order in flight.
+     *
+     * @return the exposures corrected
+     */
+    public int reconcile() {
+        reconcileLock.lock();
+        try {
+            return reconcileLocked();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private int reconcileLocked() {
+        int corrected = 0;
+        for (Dimension dimension : Dimension.values()) {
+            Map<Key, Long> expected = new HashMap<>();
+            jdbcTemplate.query(
+                    EXPOSURE_SQL.formatted(dimension.column),
+                    rs -> {
+                        String key = rs.getString(1);
+                        if (key != null) {
+                            expected.put(
+                                    new Key(key, rs.getString(2)), toScaled(rs.getBigDecimal(3)));
+                        }
+                    },
+                    currency,
+                    State.UNACK.ordinal(),
+                    State.LIVE.ordinal());
+            Set<Key> keys = new HashSet<>(expected.keySet());
+            exposures.forEach(
+                    (bookCurrency, book) ->
+                            book.get(dimension)
+                                    .keySet()
+                                    .forEach(key -> keys.add(new Key(key, bookCurrency))));
+            Map<Key, Long> previous = differences.get(dimension);
+            Map<Key, Long> current = new HashMap<>();
+            for (Key key : keys) {
+                long difference =
+                        expected.getOrDefault(key, 0L)
+                                - exposure(dimension, key.key(), key.currency());
+                if (difference == 0) {
+                    continue;
+                }
+                if (previous.getOrDefault(key, 0L) == difference) {
+                    book(key.currency())
+                            .get(dimension)
+                            .computeIfAbsent(key.key(), k -> new LongAdder())
+                            .add(difference);
+                    corrections.increment();
+                    corrected++;
+                } else {
+                    current.put(key, difference);
+                }
+            }
+            differences.put(dimension, current);
+        }
+        return corrected;
+    }
+}
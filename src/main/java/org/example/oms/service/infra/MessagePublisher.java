@@ -1,41 +1,294 @@
 package org.example.oms.service.infra;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.kafka.common.errors.RetriableException;
+import org.example.common.model.Order;
+import org.example.oms.model.OrderOutbox;
 import org.example.oms.model.ProcessingEvent;
 import org.example.oms.service.infra.repository.OrderOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import io.micrometer.observation.annotation.Observed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Relays committed {@link OrderOutbox} rows to Kafka. A single worker walks the outbox shards; for
+ * each shard it takes a transaction-scoped advisory lock, claims a batch of rows in id order, sends
+ * them, waits for the broker to acknowledge the whole batch and only then deletes the rows. Holding
+ * the shard lock keeps one relay per shard across instances, so messages of an order are published
+ * in the order they were written.
+ *
+ * <p>Delivery is at-least-once. If a row fails to send, it and the later rows of its order stay in
+ * the outbox and are sent again on the next pass, while the rows of the other orders are deleted. A
+ * failure because the broker is unavailable or slow is simply retried; any other failure (a row
+ * that cannot be serialized, say) counts an attempt, and after {@code oms.outbox.max-attempts} the
+ * row is moved to {@code order_messages_dead}, so it cannot hold up its shard for good.
+ */
 @Component
 @Slf4j
+@ConditionalOnProperty(
+        prefix = "oms.outbox",
+        name = "enabled",
+        havingValue = "true",
+        matchIfMissing = true)
 public class MessagePublisher {
 
+    /** First key of the two-part advisory lock, reserved for outbox shards. */
+    static final int LOCK_NAMESPACE = 0x6f6d73;
+
     private final OrderOutboxRepository orderOutboxRepository;
+    private final KafkaTemplate<String, Order> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String topic;
+    private final int shards;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long sendTimeoutMs;
+    private final int maxAttempts;
+
+    private final Timer lag;
+    private final DistributionSummary batchSizes;
+    private final Counter published;
+    private final Counter failures;
+    private final Counter deadLettered;
 
-    public MessagePublisher(OrderOutboxRepository orderOutboxRepository) {
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running;
+    private Thread worker;
+
+    public MessagePublisher(
+            OrderOutboxRepository orderOutboxRepository,
+            KafkaTemplate<String, Order> kafkaTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.order-topic}") String topic,
+            @Value("${oms.outbox.shards:16}") int shards,
+            @Value("${oms.outbox.batch-size:500}") int batchSize,
+            @Value("${oms.outbox.poll-interval-ms:50}") long pollIntervalMs,
+            @Value("${oms.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${oms.outbox.max-attempts:5}") int maxAttempts) {
         this.orderOutboxRepository = orderOutboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.topic = topic;
+        this.shards = shards;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.lag =
+                Timer.builder("oms.outbox.relay.lag")
+                        .description("Time from outbox write to broker acknowledgement")
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry);
+        this.batchSizes =
+                DistributionSummary.builder("oms.outbox.relay.batch.size")
+                        .description("Rows published per relay batch")
+                        .register(meterRegistry);
+        this.published = meterRegistry.counter("oms.outbox.relay.published");
+        this.failures = meterRegistry.counter("oms.outbox.relay.failures");
+        this.deadLettered =
+                Counter.builder("oms.outbox.relay.dead.lettered")
+                        .description("Rows moved to order_messages_dead after max-attempts")
+                        .register(meterRegistry);
     }
 
-    /**
-     * This event listener will only be triggered after the transaction in EventProducerImpl has
-     * successfully committed.
-     */
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("oms-outbox-relay").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        wakeUp.release();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+    }
+
+    /** Wakes the relay as soon as a transaction that wrote to the outbox has committed. */
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    @Observed(name = "oms.message-publisher.handle-order-event")
     public void handleOrderEvent(ProcessingEvent event) {
-        log.info("Processing order event after transaction commit: {}", event);
+        wakeUp.release();
+    }
+
+    private void run() {
+        int offset = 0;
+        while (running) {
+            int relayed = 0;
+            for (int i = 0; i < shards && running; i++) {
+                relayed += relayShard((offset + i) % shards);
+            }
+            // Rotate the starting shard so a busy shard cannot starve the ones after it
+            offset = (offset + 1) % shards;
+            if (relayed == 0) {
+                try {
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
 
+    int relayShard(int shard) {
         try {
-            Long orderId = event.getOrderOutbox().getOrder().getId();
-            log.info("Successfully processed event for order: {}", orderId);
-        } catch (Exception e) {
-            log.error("Error processing order event: {}", e.getMessage(), e);
+            Integer relayed = transactionTemplate.execute(status -> publishBatch(shard));
+            return relayed != null ? relayed : 0;
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("Error relaying outbox shard {}", shard, e);
+            return 0;
+        }
+    }
+
+    private int publishBatch(int shard) {
+        if (!orderOutboxRepository.tryLockShard(LOCK_NAMESPACE, shard)) {
+            return 0;
+        }
+        List<OrderOutbox> batch = orderOutboxRepository.claimBatch(shard, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[batch.size()];
+        RuntimeException[] errors = new RuntimeException[batch.size()];
+        // Index of the first row of each order that failed; the order's later rows wait behind it
+        Map<String, Integer> firstFailed = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutbox orderOutbox = batch.get(i);
+            if (firstFailed.containsKey(orderOutbox.getOrderId())) {
+                continue;
+            }
+            try {
+                sends[i] =
+                        kafkaTemplate.send(topic, orderOutbox.getOrderId(), orderOutbox.getOrder());
+            } catch (RuntimeException e) {
+                errors[i] = e;
+                firstFailed.put(orderOutbox.getOrderId(), i);
+            }
+        }
+        awaitAcknowledged(sends, errors, shard);
+        for (int i = 0; i < batch.size(); i++) {
+            if (errors[i] != null) {
+                firstFailed.merge(batch.get(i).getOrderId(), i, Math::min);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutbox orderOutbox = batch.get(i);
+            Integer failed = firstFailed.get(orderOutbox.getOrderId());
+            if (failed == null || i < failed) {
+                lag.record(Duration.between(orderOutbox.getCreatedAt(), now));
+                ids.add(orderOutbox.getId());
+            }
+        }
+        if (!ids.isEmpty()) {
+            orderOutboxRepository.deleteAllByIdInBatch(ids);
+            batchSizes.record(ids.size());
+            published.increment(ids.size());
+        }
+        firstFailed.values().forEach(i -> failed(batch.get(i), errors[i], shard));
+        log.debug("Relayed {} outbox messages from shard {}", ids.size(), shard);
+        return ids.size();
+    }
+
+    private void failed(OrderOutbox orderOutbox, RuntimeException error, int shard) {
+        failures.increment();
+        if (isTransient(error)) {
+            log.warn(
+                    "Broker did not take outbox message {} of shard {}, retrying",
+                    orderOutbox.getId(),
+                    shard,
+                    error);
+        } else if (orderOutbox.getAttempts() + 1 >= maxAttempts) {
+            orderOutboxRepository.deadLetter(orderOutbox.getId(), String.valueOf(error));
+            deadLettered.increment();
+            log.error(
+                    "Moved outbox message {} of order {} to order_messages_dead after {} attempts",
+                    orderOutbox.getId(),
+                    orderOutbox.getOrderId(),
+                    orderOutbox.getAttempts() + 1,
+                    error);
+        } else {
+            orderOutboxRepository.countAttempt(orderOutbox.getId());
+            log.warn(
+                    "Failed to send outbox message {} of order {}",
+                    orderOutbox.getId(),
+                    orderOutbox.getOrderId(),
+                    error);
+        }
+    }
+
+    /** Whether the broker was unavailable or slow, rather than the message at fault. */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void awaitAcknowledged(
+            CompletableFuture<?>[] sends, RuntimeException[] errors, int shard) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (int i = 0; i < sends.length; i++) {
+            if (sends[i] == null) {
+                continue;
+            }
+            try {
+                sends[i].get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                errors[i] =
+                        new IllegalStateException(
+                                "Kafka did not acknowledge outbox message of shard " + shard,
+                                e.getCause());
+            } catch (TimeoutException e) {
+                errors[i] =
+                        new IllegalStateException(
+                                "Kafka did not acknowledge outbox message of shard "
+                                        + shard
+                                        + " in time",
+                                e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while relaying shard " + shard, e);
+            }
         }
     }
 }
@@ -0,0 +1,154 @@
+package org.example.oms.service.infra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.service.business.StateMachine;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory copy of the committed state of all live orders, keyed by orderId. Writes go to the
+ * database first; {@link #put(Order)} is called once they have committed, and orders reaching a
+ * terminal state are evicted. Entries are detached copies: readers get their own copy, so changes
+ * made by a transaction that later rolls back never reach the cache. Other writers (another
+ * instance, housekeeping) may change an order behind the cache; a write from the stale copy then
+ * fails on the order's version, and the order is evicted and read again.
+ */
+@Component
+@Slf4j
+public class OrderCache implements SmartInitializingSingleton {
+
+    private static final List<State> TERMINAL_STATES =
+            Arrays.stream(State.values()).filter(StateMachine::isTerminal).toList();
+
+    // Fills do not advance the txNr, but every write advances the version
+    private static final Comparator<Order> NEWER =
+            Comparator.comparingLong(Order::getVersion).thenComparingLong(Order::getTxNr);
+
+    private final OrderRepository orderRepository;
+    private final boolean enabled;
+    private final int warmUpBatchSize;
+    private final List<Map<String, Order>> shards;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderCache(
+            OrderRepository orderRepository,
+            MeterRegistry meterRegistry,
+            @Value("${oms.order-cache.enabled:true}") boolean enabled,
+            @Value("${oms.order-cache.shards:16}") int shards,
+            @Value("${oms.order-cache.warm-up-batch-size:1000}") int warmUpBatchSize) {
+        this.orderRepository = orderRepository;
+        this.enabled = enabled;
+        this.warmUpBatchSize = warmUpBatchSize;
+        List<Map<String, Order>> maps = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            maps.add(new ConcurrentHashMap<>());
+        }
+        this.shards = List.copyOf(maps);
+        FunctionCounter.builder("oms.order-cache.hits", hits, LongAdder::sum)
+                .description("Order lookups served from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.order-cache.misses", misses, LongAdder::sum)
+                .description("Order lookups that fell through to the database")
+                .register(meterRegistry);
+        Gauge.builder("oms.order-cache.size", this.shards, OrderCache::sizeOf)
+                .description("Live orders held in the cache")
+                .register(meterRegistry);
+    }
+
+    /** Returns a copy of the cached order, or empty if the order is not cached. */
+    public Optional<Order> get(String orderId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Order order = shard(orderId).get(orderId);
+        if (order == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(order.toBuilder().build());
+    }
+
+    /**
+     * Records the committed state of an order. Terminal orders are evicted, and an update never
+     * replaces a newer one (by version, then txNr) that is already cached.
+     */
+    public void put(Order order) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Order> shard = shard(order.getOrderId());
+        if (StateMachine.isTerminal(order.getState())) {
+            shard.remove(order.getOrderId());
+            return;
+        }
+        Order copy = order.toBuilder().build();
+        shard.merge(
+                order.getOrderId(),
+                copy,
+                (cached, updated) -> NEWER.compare(cached, updated) > 0 ? cached : updated);
+    }
+
+    public void evict(String orderId) {
+        shard(orderId).remove(orderId);
+    }
+
+    public int size() {
+        return sizeOf(shards);
+    }
+
+    private static int sizeOf(List<Map<String, Order>> shards) {
+        int size = 0;
+        for (Map<String, Order> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /** Loads all live orders before the application starts taking traffic. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long lastId = 0;
+        List<Order> batch;
+        do {
+            batch =
+                    orderRepository.findByStateNotInAndIdGreaterThanOrderById(
+                            TERMINAL_STATES, lastId, Limit.of(warmUpBatchSize));
+            for (Order order : batch) {
+                shard(order.getOrderId()).putIfAbsent(order.getOrderId(), order);
+                lastId = order.getId();
+            }
+        } while (batch.size() == warmUpBatchSize);
+        log.info(
+                "Order cache warmed up with {} live orders in {} ms",
+                size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Map<String, Order> shard(String orderId) {
+        return shards.get(Math.floorMod(orderId.hashCode(), shards.size()));
+    }
+}
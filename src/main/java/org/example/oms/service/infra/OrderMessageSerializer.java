@@ -0,0 +1,92 @@
+package org.example.oms.service.infra;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.example.common.model.Order;
+import org.example.common.model.msg.OrderMessage;
+import org.example.oms.service.mapper.OrderMessageEncoder;
+
+/**
+ * Serializes an {@link Order} as an Avro {@link OrderMessage} in the schema registry wire format
+ * (magic byte, schema ID, Avro binary), so consumers keep reading it with the usual Avro
+ * deserializer. The order is written straight through {@link OrderMessageEncoder} into a per-thread
+ * buffer and binary encoder that are reused across records, with the sending time taken once per
+ * record.
+ *
+ * <p>The schema ID is resolved once per topic by the configured Avro serializer, e.g. {@code
+ * KafkaAvroSerializer}: it serializes an empty message, registering the schema if it is configured
+ * to, and its header is reused for every record of the topic.
+ */
+public class OrderMessageSerializer implements Serializer<Order> {
+
+    private static final byte MAGIC_BYTE = 0x0;
+    private static final int HEADER_LENGTH = 5;
+
+    private static final class Buffer {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        BinaryEncoder encoder;
+    }
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private final Serializer<Object> schemaSerializer;
+    private final OrderMessageEncoder orderMessageEncoder = new OrderMessageEncoder();
+    private final Map<String, byte[]> headers = new ConcurrentHashMap<>();
+
+    public OrderMessageSerializer(Serializer<Object> schemaSerializer) {
+        this.schemaSerializer = schemaSerializer;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        schemaSerializer.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Order order) {
+        if (order == null) {
+            return null;
+        }
+        byte[] header = headers.computeIfAbsent(topic, this::header);
+        Buffer buffer = BUFFER.get();
+        buffer.out.reset();
+        buffer.out.write(header, 0, HEADER_LENGTH);
+        buffer.encoder = EncoderFactory.get().binaryEncoder(buffer.out, buffer.encoder);
+        try {
+            orderMessageEncoder.write(order, System.currentTimeMillis(), buffer.encoder);
+            buffer.encoder.flush();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException(
+                    "Error serializing order " + order.getOrderId() + " for topic " + topic, e);
+        }
+        return buffer.out.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        schemaSerializer.close();
+    }
+
+    private byte[] header(String topic) {
+        OrderMessage empty = new OrderMessage();
+        empty.setOrderId("");
+        empty.setRootOrderId("");
+        byte[] serialized = schemaSerializer.serialize(topic, empty);
+        if (serialized == null
+                || serialized.length < HEADER_LENGTH
+                || serialized[0] != MAGIC_BYTE) {
+            throw new SerializationException(
+                    "Serializer "
+                            + schemaSerializer.getClass().getName()
+                            + " does not write the schema registry wire format");
+        }
+        return serialized;
+    }
+}
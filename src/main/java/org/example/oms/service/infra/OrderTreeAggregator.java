@@ -0,0 +1,335 @@
+package org.example.oms.service.infra;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.service.business.OrderTree;
+import org.example.oms.service.business.OrderTree.Fills;
+import org.example.oms.service.business.OrderTree.Member;
+import org.example.oms.service.business.OrderTree.Mismatch;
+import org.example.oms.service.business.OrderTreeAggregate;
+import org.example.oms.service.business.StateMachine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the {@link OrderTree} rollups of recently used order trees in memory, keyed by root order.
+ * A tree is loaded from the database the first time it is read; from then on committed orders and
+ * executions are applied to it incrementally ({@link #onOrder}, {@link #onExecution}), updating
+ * only the order concerned and its ancestors. Trees not in memory are left alone, as loading them
+ * later picks up everything committed. Beyond {@code max-trees} the least recently used trees are
+ * dropped, an eighth of them at a time.
+ *
+ * <p>Each tree has its own lock, so updates of different trees never wait for each other; the maps
+ * of trees and of the orders in them are concurrent, and only the drop of old trees is done by one
+ * thread at a time.
+ *
+ * <p>An execution committing while its tree is being loaded can be missed or counted twice. {@link
+ * #check(String)} recomputes a tree from the database, reports any difference and replaces the tree
+ * with the recomputed one.
+ */
+@Component
+@Slf4j
+public class OrderTreeAggregator {
+
+    static final String MEMBERS_SQL =
+            "select order_id, parent_order_id, order_qty, state from orders"
+                    + " where root_order_id = ? or order_id = ?";
+
+    static final String FILLS_SQL =
+            "select order_id, coalesce(sum(last_qty), 0), coalesce(sum(last_qty * last_px), 0)"
+                    + " from executions where order_id in"
+                    + " (select order_id from orders where root_order_id = ? or order_id = ?)"
+                    + " and (exec_type is null or exec_type not in ('BUST', 'WHACK'))"
+                    + " group by order_id";
+
+    private static final State[] STATES = State.values();
+
+    // A tree in memory; dropped once evicted, so an update racing the eviction is not indexed
+    private static final class Cached {
+        final OrderTree tree;
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long lastUsed = System.nanoTime();
+        boolean evicted; // guarded by lock
+
+        Cached(OrderTree tree) {
+            this.tree = tree;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxTrees;
+    // The index maps every order of a tree in memory to that tree
+    private final Map<String, Cached> trees = new ConcurrentHashMap<>();
+    private final Map<String, Cached> index = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+
+    public OrderTreeAggregator(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${oms.order-tree.enabled:true}") boolean enabled,
+            @Value("${oms.order-tree.max-trees:10000}") int maxTrees) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxTrees = maxTrees;
+        FunctionCounter.builder("oms.order-tree.loads", loads, LongAdder::sum)
+                .description("Order trees loaded from the database")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.order-tree.check.mismatches", mismatches, LongAdder::sum)
+                .description("Differences found between order tree rollups and a full recompute")
+                .register(meterRegistry);
+        Gauge.builder("oms.order-tree.trees", trees, Map::size)
+                .description("Order trees held in memory")
+                .register(meterRegistry);
+    }
+
+    /** Rollups of every order in the tree, parents first; empty if the root order is unknown. */
+    public List<OrderTreeAggregate> aggregates(String rootOrderId) {
+        Cached cached = cached(rootOrderId);
+        if (cached == null) {
+            OrderTree tree = load(rootOrderId);
+            if (tree.size() == 0) {
+                return List.of();
+            }
+            cached = register(tree);
+        }
+        cached.lock.lock();
+        try {
+            return cached.tree.aggregates();
+        } finally {
+            cached.lock.unlock();
+        }
+    }
+
+    /** Applies a committed order to its tree, if the tree is in memory. */
+    public void onOrder(Order order) {
+        if (!enabled) {
+            return;
+        }
+        String rootOrderId = rootOf(order);
+        Cached cached = cached(rootOrderId);
+        if (cached == null) {
+            return;
+        }
+        cached.lock.lock();
+        try {
+            if (cached.evicted) {
+                return;
+            }
+            cached.tree.putOrder(
+                    order.getOrderId(),
+                    order.getParentOrderId(),
+                    order.getOrderQty(),
+                    closed(order.getState()));
+            index.put(order.getOrderId(), cached);
+        } catch (IllegalArgumentException e) {
+            log.warn("Dropping order tree {}: {}", rootOrderId, e.getMessage());
+            evict(cached);
+        } finally {
+            cached.lock.unlock();
+        }
+    }
+
+    /**
+     * Rolls a committed execution up its tree, if the tree is in memory; an execution with a
+     * negative quantity reverses a busted or whacked one.
+     */
+    public void onExecution(Execution execution) {
+        if (!enabled || execution.getLastQty() == null) {
+            return;
+        }
+        Cached cached = index.get(execution.getOrderId());
+        if (cached == null) {
+            return;
+        }
+        BigDecimal lastPx = execution.getLastPx() != null ? execution.getLastPx() : BigDecimal.ZERO;
+        cached.lock.lock();
+        try {
+            cached.tree.addExecution(execution.getOrderId(), execution.getLastQty(), lastPx);
+        } finally {
+            cached.lock.unlock();
+        }
+    }
+
+    /**
+     * Recomputes the tree from the orders and executions in the database and compares it with the
+     * one in memory, which is then replaced by the recomputed tree.
+     */
+    public OrderTreeCheck check(String rootOrderId) {
+        List<String> orphans = new ArrayList<>();
+        OrderTree expected = recompute(rootOrderId, orphans);
+        Cached actual = cached(rootOrderId);
+        List<Mismatch> differences = List.of();
+        if (actual != null) {
+            actual.lock.lock();
+            try {
+                differences = actual.tree.diff(expected);
+            } finally {
+                actual.lock.unlock();
+            }
+            if (!differences.isEmpty()) {
+                mismatches.add(differences.size());
+                log.warn(
+                        "Order tree {} differs from a full recompute: {}",
+                        rootOrderId,
+                        differences);
+                evict(actual);
+                register(expected);
+            }
+        }
+        return new OrderTreeCheck(
+                rootOrderId, expected.size(), actual != null, differences, orphans);
+    }
+
+    int size() {
+        return trees.size();
+    }
+
+    private Cached cached(String rootOrderId) {
+        if (!enabled) {
+            return null;
+        }
+        Cached cached = trees.get(rootOrderId);
+        if (cached != null) {
+            cached.lastUsed = System.nanoTime();
+        }
+        return cached;
+    }
+
+    private OrderTree load(String rootOrderId) {
+        List<String> orphans = new ArrayList<>();
+        OrderTree tree = recompute(rootOrderId, orphans);
+        if (!orphans.isEmpty()) {
+            log.warn("Orders {} of tree {} have no parent in it", orphans, rootOrderId);
+        }
+        return tree;
+    }
+
+    private OrderTree recompute(String rootOrderId, List<String> orphans) {
+        loads.increment();
+        List<Member> members =
+                jdbcTemplate.query(
+                        MEMBERS_SQL,
+                        (rs, i) -> {
+                            int state = rs.getInt(4);
+                            boolean closed = !rs.wasNull() && closed(STATES[state]);
+                            return new Member(
+                                    rs.getString(1), rs.getString(2), rs.getBigDecimal(3), closed);
+                        },
+                        rootOrderId,
+                        rootOrderId);
+        Map<String, Fills> fills = new HashMap<>();
+        jdbcTemplate.query(
+                FILLS_SQL,
+                rs -> {
+                    fills.put(rs.getString(1), new Fills(rs.getBigDecimal(2), rs.getBigDecimal(3)));
+                },
+                rootOrderId,
+                rootOrderId);
+        return OrderTree.recompute(rootOrderId, members, fills, orphans);
+    }
+
+    // A tree loaded concurrently by another thread wins, so updates only ever go to one copy
+    private Cached register(OrderTree tree) {
+        Cached cached = new Cached(tree);
+        if (!enabled) {
+            return cached;
+        }
+        Cached raced = trees.putIfAbsent(tree.rootOrderId(), cached);
+        if (raced != null) {
+            return raced;
+        }
+        cached.lock.lock();
+        try {
+            if (!cached.evicted) {
+                for (String orderId : tree.orderIds()) {
+                    index.put(orderId, cached);
+                }
+            }
+        } finally {
+            cached.lock.unlock();
+        }
+        if (trees.size() > maxTrees) {
+            evictLeastRecentlyUsed();
+        }
+        return cached;
+    }
+
+    // One thread at a time; the others go on, as the trees dropped make room for theirs too
+    private void evictLeastRecentlyUsed() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = trees.size() - (maxTrees - maxTrees / 8);
+            if (excess <= 0) {
+                return;
+            }
+            // Sorted by a snapshot of the times, as trees are used while they are sorted
+            trees.values().stream()
+                    .map(cached -> Map.entry(cached.lastUsed, cached))
+                    .sorted(Map.Entry.comparingByKey())
+                    .limit(excess)
+                    .forEach(entry -> evict(entry.getValue()));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evict(Cached cached) {
+        if (!trees.remove(cached.tree.rootOrderId(), cached)) {
+            return;
+        }
+        cached.lock.lock();
+        try {
+            cached.evicted = true;
+            for (String orderId : cached.tree.orderIds()) {
+                index.remove(orderId, cached);
+            }
+        } finally {
+            cached.lock.unlock();
+        }
+    }
+
+    private static String rootOf(Order order) {
+        return order.getRootOrderId() != null ? order.getRootOrderId() : order.getOrderId();
+    }
+
+    private static boolean closed(State state) {
+        return state != null && StateMachine.isTerminal(state);
+    }
+
+    /**
+     * Result of {@link #check(String)}: the differences between the tree in memory and a full
+     * recompute, none if the tree was not in memory, and orders whose parent is not in the tree.
+     */
+    public record OrderTreeCheck(
+            String rootOrderId,
+            int orders,
+            boolean cached,
+            List<Mismatch> mismatches,
+            List<String> orphans) {
+
+        public boolean consistent() {
+            return mismatches.isEmpty() && orphans.isEmpty();
+        }
+    }
+}
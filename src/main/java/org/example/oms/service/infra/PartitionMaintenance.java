@@ -0,0 +1,222 @@
+package org.example.oms.service.infra;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.example.common.model.State;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the trade date partitions of orders, order_events and executions (see the V5 migration):
+ * the partitions of today and the next {@code days-ahead} days are created on startup and then
+ * periodically, and the partitions of days more than {@code retention-days} old are detached and
+ * moved to the {@value #ARCHIVE_SCHEMA} schema.
+ *
+ * <p>Days are archived oldest first, all three tables of a day in one transaction, and a day that
+ * still has working orders stops the run: its orders, and so the later days' events and fills of
+ * them, must stay attached. Archiving needs a short exclusive lock on the three tables; if it
+ * cannot get it within {@code lock-timeout-ms} it gives up until the next run.
+ */
+@Service
+@Slf4j
+public class PartitionMaintenance {
+
+    static final String ARCHIVE_SCHEMA = "oms_archive";
+
+    // The partitions of a day have the same suffix in every table, e.g. orders_p20251004
+    static final List<String> TABLES = List.of("orders", "order_events", "executions");
+
+    /** First key of the advisory locks, shared with oms_create_partitions; see MessagePublisher. */
+    private static final int LOCK_NAMESPACE = 0x707274;
+
+    private static final int ARCHIVE_LOCK = 1;
+
+    private static final String PARTITIONS_SQL =
+            "select c.relname, pg_get_expr(c.relpartbound, c.oid), c.reltuples::bigint"
+                    + " from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                    + " where i.inhparent = 'orders'::regclass";
+
+    private static final Pattern BOUNDS =
+            Pattern.compile(
+                    "FROM \\((?:'([0-9-]+)'|MINVALUE)\\) TO \\((?:'([0-9-]+)'|MAXVALUE)\\)");
+
+    /** A day's partition, or the history partition, which has no lower bound. */
+    public record TradeDatePartition(String suffix, LocalDate from, LocalDate to, long orders) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int daysAhead;
+    private final int retentionDays;
+    private final long intervalMillis;
+    private final long lockTimeoutMillis;
+    private ScheduledExecutorService scheduler;
+
+    public PartitionMaintenance(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${oms.partitions.days-ahead:7}") int daysAhead,
+            @Value("${oms.partitions.retention-days:0}") int retentionDays,
+            @Value("${oms.partitions.interval-ms:3600000}") long intervalMillis,
+            @Value("${oms.partitions.lock-timeout-ms:2000}") long lockTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.daysAhead = daysAhead;
+        this.retentionDays = retentionDays;
+        this.intervalMillis = intervalMillis;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        // Before any order is taken: an insert for a day without a partition fails
+        createPartitions();
+        scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("oms-partitions").daemon().factory());
+        scheduler.scheduleWithFixedDelay(
+                this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void maintain() {
+        try {
+            createPartitions();
+            archive();
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance failed", e);
+        }
+    }
+
+    /** Creates the missing partitions up to {@code days-ahead} days from today. */
+    public int createPartitions() {
+        LocalDate today = LocalDate.now();
+        Integer created =
+                transactionTemplate.execute(
+                        status ->
+                                jdbcTemplate.queryForObject(
+                                        "select oms_create_partitions(?, ?)",
+                                        Integer.class,
+                                        today,
+                                        today.plusDays(daysAhead)));
+        if (created != null && created > 0) {
+            log.info(
+                    "Created {} trade date partitions up to {}",
+                    created,
+                    today.plusDays(daysAhead));
+        }
+        return created != null ? created : 0;
+    }
+
+    /** The attached partitions of orders, oldest first, with their estimated row counts. */
+    public List<TradeDatePartition> partitions() {
+        List<TradeDatePartition> partitions =
+                jdbcTemplate.query(
+                        PARTITIONS_SQL,
+                        (rs, i) -> {
+                            Matcher bounds = BOUNDS.matcher(rs.getString(2));
+                            if (!bounds.find()) {
+                                throw new IllegalStateException(
+                                        "Unexpected bounds of " + rs.getString(1));
+                            }
+                            return new TradeDatePartition(
+                                    rs.getString(1).substring("orders".length()),
+                                    bounds.group(1) != null
+                                            ? LocalDate.parse(bounds.group(1))
+                                            : null,
+                                    bounds.group(2) != null
+                                            ? LocalDate.parse(bounds.group(2))
+                                            : null,
+                                    Math.max(rs.getLong(3), 0));
+                        });
+        partitions.sort(
+                Comparator.comparing(
+                        TradeDatePartition::to, Comparator.nullsLast(Comparator.naturalOrder())));
+        return partitions;
+    }
+
+    /**
+     * Detaches the partitions of the days before the retention period, oldest first, and returns
+     * their suffixes. Does nothing if {@code retention-days} is not set.
+     */
+    public List<String> archive() {
+        List<String> archived = new ArrayList<>();
+        if (retentionDays <= 0) {
+            return archived;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        for (TradeDatePartition partition : partitions()) {
+            if (partition.to() == null || partition.to().isAfter(cutoff)) {
+                break;
+            }
+            try {
+                if (!Boolean.TRUE.equals(
+                        transactionTemplate.execute(status -> archive(partition)))) {
+                    break;
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not archive partitions {}: {}", partition.suffix(), e.getMessage());
+                break;
+            }
+            archived.add(partition.suffix());
+            log.info("Archived partitions {} to {}", partition.suffix(), ARCHIVE_SCHEMA);
+        }
+        return archived;
+    }
+
+    private boolean archive(TradeDatePartition partition) {
+        Boolean locked =
+                jdbcTemplate.queryForObject(
+                        "select pg_try_advisory_xact_lock(?, ?)",
+                        Boolean.class,
+                        LOCK_NAMESPACE,
+                        ARCHIVE_LOCK);
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+        jdbcTemplate.execute("set local lock_timeout = " + lockTimeoutMillis);
+        String orders = "orders" + partition.suffix();
+        Boolean working =
+                jdbcTemplate.queryForObject(
+                        "select exists (select 1 from " + orders + " where state in (?, ?, ?))",
+                        Boolean.class,
+                        State.NEW.ordinal(),
+                        State.UNACK.ordinal(),
+                        State.LIVE.ordinal());
+        if (Boolean.TRUE.equals(working)) {
+            log.info("Not archiving {} and later: it still has working orders", orders);
+            return false;
+        }
+        // Snapshots of archived orders would otherwise reappear in every rebuild
+        jdbcTemplate.update(
+                "delete from order_snapshots where order_id in (select order_id from "
+                        + orders
+                        + ")");
+        for (String table : TABLES) {
+            jdbcTemplate.execute(
+                    "alter table " + table + " detach partition " + table + partition.suffix());
+            jdbcTemplate.execute(
+                    "alter table " + table + partition.suffix() + " set schema " + ARCHIVE_SCHEMA);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.oms.service.infra.logging;
+
+/**
+ * Writes the fields of a value as logfmt pairs (see {@link Logfmt}). Writers for whole classes are
+ * generated by {@link FieldWriters#of(Class)}; a writer for a handful of chosen fields is simplest
+ * written as a lambda.
+ */
+@FunctionalInterface
+public interface FieldWriter<T> {
+
+    void write(T value, StringBuilder out);
+}
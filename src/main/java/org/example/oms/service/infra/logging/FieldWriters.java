@@ -0,0 +1,156 @@
+package org.example.oms.service.infra.logging;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Generates reflection-free {@link FieldWriter}s for classes with getters, such as the Lombok
+ * {@code @Getter} entities. A class is introspected once: each scalar field (primitives, strings,
+ * numbers, enums, dates) gets its getter bound through {@link LambdaMetafactory}, so writing an
+ * instance is plain method calls, with primitives never boxed. Fields are written in declaration
+ * order, superclass first; nulls and non-scalar fields, such as nested entities, are skipped.
+ */
+public final class FieldWriters {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<FieldWriter<?>> WRITERS =
+            new ClassValue<>() {
+                @Override
+                protected FieldWriter<?> computeValue(Class<?> type) {
+                    return generate(type);
+                }
+            };
+
+    private FieldWriters() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T> FieldWriter<T> of(Class<T> type) {
+        return (FieldWriter<T>) WRITERS.get(type);
+    }
+
+    private static <T> FieldWriter<T> generate(Class<T> type) {
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.push(c);
+        }
+        List<FieldWriter<T>> writers = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || !scalar(field.getType())) {
+                    continue;
+                }
+                Method getter = getter(type, field);
+                if (getter != null) {
+                    writers.add(writer(type, field.getName(), getter));
+                }
+            }
+        }
+        List<FieldWriter<T>> fields = List.copyOf(writers);
+        return (value, out) -> {
+            for (FieldWriter<T> field : fields) {
+                field.write(value, out);
+            }
+        };
+    }
+
+    private static boolean scalar(Class<?> type) {
+        return type.isPrimitive()
+                || type == String.class
+                || Number.class.isAssignableFrom(type)
+                || type.isEnum()
+                || type == Boolean.class
+                || type == LocalDateTime.class
+                || type == LocalDate.class;
+    }
+
+    private static Method getter(Class<?> type, Field field) {
+        String name = field.getName();
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        String[] prefixes =
+                field.getType() == boolean.class
+                        ? new String[] {"is", "get"}
+                        : new String[] {"get"};
+        for (String prefix : prefixes) {
+            try {
+                Method method = type.getMethod(prefix + suffix);
+                if (method.getReturnType() == field.getType()) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // Not exposed; not logged either
+            }
+        }
+        return null;
+    }
+
+    private static <T> FieldWriter<T> writer(Class<T> type, String name, Method getter) {
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflect(getter);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access " + getter, e);
+        }
+        Class<?> returnType = getter.getReturnType();
+        if (returnType == long.class
+                || returnType == int.class
+                || returnType == short.class
+                || returnType == byte.class) {
+            ToLongFunction<T> get = bind(ToLongFunction.class, "applyAsLong", long.class, handle);
+            return (value, out) -> Logfmt.append(out, name, get.applyAsLong(value));
+        }
+        if (returnType == double.class || returnType == float.class) {
+            ToDoubleFunction<T> get =
+                    bind(ToDoubleFunction.class, "applyAsDouble", double.class, handle);
+            return (value, out) -> Logfmt.append(out, name, get.applyAsDouble(value));
+        }
+        if (returnType == boolean.class) {
+            Predicate<T> get = bind(Predicate.class, "test", boolean.class, handle);
+            return (value, out) -> Logfmt.append(out, name, get.test(value));
+        }
+        Function<T, Object> get = bind(Function.class, "apply", Object.class, handle);
+        return (value, out) -> Logfmt.append(out, name, get.apply(value));
+    }
+
+    /** Binds a getter to a functional interface, as the compiler does for a method reference. */
+    @SuppressWarnings("unchecked")
+    private static <F> F bind(
+            Class<?> functionalInterface, String method, Class<?> result, MethodHandle getter) {
+        Class<?> declaring = getter.type().parameterType(0);
+        Class<?> returnType = getter.type().returnType();
+        try {
+            CallSite site =
+                    LambdaMetafactory.metafactory(
+                            LOOKUP,
+                            method,
+                            MethodType.methodType(functionalInterface),
+                            MethodType.methodType(result, Object.class),
+                            getter,
+                            MethodType.methodType(
+                                    result == Object.class ? box(returnType) : result, declaring));
+            return (F) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot bind " + getter, e);
+        }
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+}
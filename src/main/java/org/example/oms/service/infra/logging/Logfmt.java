@@ -0,0 +1,131 @@
+package org.example.oms.service.infra.logging;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Appends {@code key=value} pairs in logfmt, the format Loki's {@code | logfmt} stage parses.
+ * Numbers, enums and date-times are written straight into the builder without intermediate strings;
+ * string values are quoted only when they contain spaces, quotes or {@code =}.
+ */
+public final class Logfmt {
+
+    private Logfmt() {}
+
+    public static StringBuilder key(StringBuilder out, String key) {
+        if (!out.isEmpty()) {
+            out.append(' ');
+        }
+        return out.append(key).append('=');
+    }
+
+    public static void append(StringBuilder out, String key, long value) {
+        key(out, key).append(value);
+    }
+
+    public static void append(StringBuilder out, String key, double value) {
+        key(out, key).append(value);
+    }
+
+    public static void append(StringBuilder out, String key, boolean value) {
+        key(out, key).append(value);
+    }
+
+    /** Skips null values, as ReflectionToStringBuilder's nulls only ever added noise. */
+    public static void append(StringBuilder out, String key, Object value) {
+        if (value != null) {
+            value(key(out, key), value);
+        }
+    }
+
+    // BigDecimal caches its string form, so logging the same value twice is free
+    static void value(StringBuilder out, Object value) {
+        switch (value) {
+            case String s -> string(out, s);
+            case Enum<?> e -> out.append(e.name());
+            case Long l -> out.append(l.longValue());
+            case Integer i -> out.append(i.intValue());
+            case BigDecimal d -> out.append(d.toString());
+            case LocalDateTime t -> dateTime(out, t);
+            case LocalDate d -> date(out, d);
+            case Boolean b -> out.append(b.booleanValue());
+            default -> string(out, value.toString());
+        }
+    }
+
+    static void string(StringBuilder out, String s) {
+        boolean quote = s.isEmpty();
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+        }
+        if (!quote) {
+            out.append(s);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"', '\\' -> out.append('\\').append(c);
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /** Same text as {@link LocalDateTime#toString()}, without building it. */
+    static void dateTime(StringBuilder out, LocalDateTime t) {
+        date(out, t.toLocalDate());
+        out.append('T');
+        time(out, t.toLocalTime());
+    }
+
+    static void date(StringBuilder out, LocalDate d) {
+        int year = d.getYear();
+        if (year < 1000 || year > 9999) {
+            out.append(d);
+            return;
+        }
+        out.append(year).append('-');
+        pad(out, d.getMonthValue(), 2).append('-');
+        pad(out, d.getDayOfMonth(), 2);
+    }
+
+    private static void time(StringBuilder out, LocalTime t) {
+        pad(out, t.getHour(), 2).append(':');
+        pad(out, t.getMinute(), 2);
+        int second = t.getSecond();
+        int nano = t.getNano();
+        if (second == 0 && nano == 0) {
+            return;
+        }
+        out.append(':');
+        pad(out, second, 2);
+        if (nano == 0) {
+            return;
+        }
+        out.append('.');
+        if (nano % 1_000_000 == 0) {
+            pad(out, nano / 1_000_000, 3);
+        } else if (nano % 1_000 == 0) {
+            pad(out, nano / 1_000, 6);
+        } else {
+            pad(out, nano, 9);
+        }
+    }
+
+    private static StringBuilder pad(StringBuilder out, int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                out.append('0');
+            }
+        }
+        return out.append(value);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.oms.service.infra.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+/**
+ * Structured logging for one stage of the processing pipeline. Each stage logs to its own logger,
+ * {@code org.example.oms.pipeline.<stage>}, so its level is set like any other, e.g. {@code
+ * logging.level.org.example.oms.pipeline.validation: DEBUG}. An event is one logfmt line, {@code
+ * msg=order.persisted orderId=... state=LIVE ...}, formatted by {@link FieldWriter}s into a
+ * per-thread buffer, and only when its level is enabled: a disabled event costs a level check.
+ */
+public final class PipelineLog {
+
+    public static final String LOGGER_PREFIX = "org.example.oms.pipeline.";
+
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private final Logger logger;
+
+    private PipelineLog(String stage) {
+        this.logger = LoggerFactory.getLogger(LOGGER_PREFIX + stage);
+    }
+
+    public static PipelineLog forStage(String stage) {
+        return new PipelineLog(stage);
+    }
+
+    public boolean isEnabled(Level level) {
+        return logger.isEnabledForLevel(level);
+    }
+
+    public <T> void debug(String event, FieldWriter<T> writer, T value) {
+        log(Level.DEBUG, event, writer, value);
+    }
+
+    public <T> void info(String event, FieldWriter<T> writer, T value) {
+        log(Level.INFO, event, writer, value);
+    }
+
+    public <T> void warn(String event, FieldWriter<T> writer, T value) {
+        log(Level.WARN, event, writer, value);
+    }
+
+    public <T> void error(String event, FieldWriter<T> writer, T value) {
+        log(Level.ERROR, event, writer, value);
+    }
+
+    public <T> void log(Level level, String event, FieldWriter<T> writer, T value) {
+        if (!logger.isEnabledForLevel(level)) {
+            return;
+        }
+        String message = format(event, writer, value);
+        switch (level) {
+            case ERROR -> logger.error(message);
+            case WARN -> logger.warn(message);
+            case INFO -> logger.info(message);
+            case DEBUG -> logger.debug(message);
+            case TRACE -> logger.trace(message);
+        }
+    }
+
+    /** The logfmt line of an event, as it is logged. */
+    public static <T> String format(String event, FieldWriter<T> writer, T value) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        Logfmt.key(out, "msg").append(event);
+        if (value != null) {
+            writer.write(value, out);
+        }
+        String message = out.toString();
+        // Don't pin an outsized buffer to the thread after an unusually large event
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return message;
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.oms.service.infra.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.example.common.model.Order;
+import org.example.oms.service.infra.query.OrderSpecifications.Field;
+import org.example.oms.service.infra.query.OrderSpecifications.Filter;
+import org.example.oms.service.infra.query.OrderSpecifications.Op;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Parameterized JPQL for one order query shape, built by {@link OrderQueryCompiler}. Filter {@code
+ * i} binds {@code :p<i>} (and {@code :u<i>} for the upper bound of a between); keyset values bind
+ * {@code :k<j>} in sort order. Instances are immutable and shared between threads.
+ */
+final class CompiledOrderQuery {
+
+    private static final String FROM = " from " + Order.class.getName() + " o";
+
+    // Sort properties whose columns are declared not null
+    private static final Set<String> NOT_NULL = Set.of("id", "tradeDate");
+
+    private final String shape;
+    private final String select;
+    private final String count;
+    private final String seek;
+    private final List<Sort.Order> orders;
+    private final String seekFrom;
+    private final String orderBy;
+    private final List<String> sortProperties;
+    private final List<Function<Order, ?>> sortGetters;
+    private final String[] valueParameters;
+    private final String[] upperParameters;
+    private final String[] keyParameters;
+
+    CompiledOrderQuery(String shape, boolean scroll, List<Filter> filters, Sort sort) {
+        this.shape = shape;
+        this.sortProperties = new ArrayList<>();
+        this.sortGetters = new ArrayList<>();
+        this.orders = sort.toList();
+        for (Sort.Order order : orders) {
+            sortProperties.add(order.getProperty());
+            sortGetters.add(getter(order.getProperty()));
+        }
+
+        this.valueParameters = new String[filters.size()];
+        this.upperParameters = new String[filters.size()];
+        for (int i = 0; i < filters.size(); i++) {
+            valueParameters[i] = "p" + i;
+            upperParameters[i] = "u" + i;
+        }
+        this.keyParameters = new String[orders.size()];
+        for (int j = 0; j < orders.size(); j++) {
+            keyParameters[j] = "k" + j;
+        }
+
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < filters.size(); i++) {
+            where.append(i == 0 ? " where " : " and ").append(predicate(filters.get(i), i));
+        }
+        StringBuilder ordering = new StringBuilder(" order by ");
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            ordering.append(i == 0 ? "" : ", ")
+                    .append("o.")
+                    .append(order.getProperty())
+                    .append(order.isAscending() ? " asc" : " desc");
+        }
+        this.orderBy = ordering.toString();
+        this.select = "select o" + FROM + where + orderBy;
+        this.count = scroll ? null : "select count(o)" + FROM + where;
+        this.seekFrom = "select o" + FROM + where + (filters.isEmpty() ? " where " : " and ");
+        this.seek = scroll ? seekFrom + keyset(orders, null) + orderBy : null;
+    }
+
+    String shape() {
+        return shape;
+    }
+
+    String select() {
+        return select;
+    }
+
+    String seek() {
+        return seek;
+    }
+
+    /**
+     * The seek for a keyset position; a position with NULL keys gets its own, rarely used, variant.
+     */
+    String seek(Map<String, Object> after) {
+        return after.containsValue(null) ? seekFrom + keyset(orders, after) + orderBy : seek;
+    }
+
+    /** Reads one page of the filtered orders, counting the total only when it is needed. */
+    Page<Order> page(EntityManager entityManager, List<Filter> filters, Pageable pageable) {
+        TypedQuery<Order> query = bind(entityManager.createQuery(select, Order.class), filters);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return PageableExecutionUtils.getPage(
+                query.getResultList(),
+                pageable,
+                () ->
+                        bind(entityManager.createQuery(count, Long.class), filters)
+                                .getSingleResult());
+    }
+
+    /**
+     * Reads up to {@code limit} filtered orders following the row whose sort values are {@code
+     * after}, or from the start if {@code after} is empty.
+     */
+    List<Order> scroll(
+            EntityManager entityManager,
+            List<Filter> filters,
+            Map<String, Object> after,
+            int limit) {
+        TypedQuery<Order> query;
+        if (after.isEmpty()) {
+            query = bind(entityManager.createQuery(select, Order.class), filters);
+        } else {
+            query = bind(entityManager.createQuery(seek(after), Order.class), filters);
+            for (int j = 0; j < sortProperties.size(); j++) {
+                Object key = after.get(sortProperties.get(j));
+                if (key != null) {
+                    query.setParameter(keyParameters[j], key);
+                }
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /** The sort values of an order, as a keyset position to continue after it. */
+    Map<String, Object> keysetOf(Order order) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (int j = 0; j < sortProperties.size(); j++) {
+            keys.put(sortProperties.get(j), sortGetters.get(j).apply(order));
+        }
+        return keys;
+    }
+
+    private <T> TypedQuery<T> bind(TypedQuery<T> query, List<Filter> filters) {
+        for (int i = 0; i < filters.size(); i++) {
+            Filter filter = filters.get(i);
+            query.setParameter(
+                    valueParameters[i],
+                    filter.op() == Op.LIKE ? "%" + filter.value() + "%" : filter.value());
+            if (filter.op() == Op.BETWEEN) {
+                query.setParameter(upperParameters[i], filter.upper());
+            }
+        }
+        return query;
+    }
+
+    private static String predicate(Filter filter, int i) {
+        String path = "o." + filter.field().name();
+        return switch (filter.op()) {
+            case EQ -> path + " = :p" + i;
+            case LIKE -> "lower(" + path + ") like :p" + i;
+            case GT -> path + " > :p" + i;
+            case GTE -> path + " >= :p" + i;
+            case LT -> path + " < :p" + i;
+            case LTE -> path + " <= :p" + i;
+            case BETWEEN -> path + " between :p" + i + " and :u" + i;
+        };
+    }
+
+    /**
+     * Rows after the keyset position, with NULL sorting after every value as PostgreSQL does by
+     * default (last ascending, first descending). With a single sort direction this is a row
+     * comparison, {@code (a, b) > (:k0, :k1)}, which PostgreSQL can answer from an index on {@code
+     * (a, b)}; mixed directions expand to {@code (a > :k0) or (a = :k0 and b < :k1)}. A nullable
+     * ascending column adds the rows where it is NULL, {@code or a is null}, which the comparison
+     * leaves out. A NULL in the position itself is matched with {@code is null}, and its parameter
+     * is not used.
+     */
+    private static String keyset(List<Sort.Order> orders, Map<String, Object> after) {
+        boolean ascending = orders.get(0).isAscending();
+        boolean nullKeys = after != null && after.containsValue(null);
+        List<String> comparisons = new ArrayList<>();
+        List<String> nulls = new ArrayList<>();
+        StringBuilder equal = new StringBuilder();
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            String path = "o." + order.getProperty();
+            boolean nullKey = nullKeys && after.get(order.getProperty()) == null;
+            if (nullKey) {
+                if (!order.isAscending()) {
+                    comparisons.add(equal + path + " is not null");
+                }
+            } else {
+                comparisons.add(equal + path + (order.isAscending() ? " > :k" : " < :k") + i);
+                if (order.isAscending() && nullable(order.getProperty())) {
+                    nulls.add(equal + path + " is null");
+                }
+            }
+            equal.append(path).append(nullKey ? " is null" : " = :k" + i).append(" and ");
+        }
+        String keyset;
+        if (!nullKeys && orders.stream().allMatch(o -> o.isAscending() == ascending)) {
+            StringBuilder columns = new StringBuilder("(");
+            StringBuilder keys = new StringBuilder("(");
+            for (int i = 0; i < orders.size(); i++) {
+                columns.append(i == 0 ? "o." : ", o.").append(orders.get(i).getProperty());
+                keys.append(i == 0 ? ":k" : ", :k").append(i);
+            }
+            keyset =
+                    columns.append(ascending ? ") > " : ") < ").append(keys).append(')').toString();
+        } else if (comparisons.isEmpty()) {
+            keyset = "1 = 0";
+        } else {
+            keyset = "((" + String.join(") or (", comparisons) + "))";
+        }
+        return nulls.isEmpty() ? keyset : "(" + keyset + " or " + String.join(" or ", nulls) + ")";
+    }
+
+    private static boolean nullable(String property) {
+        return !NOT_NULL.contains(property);
+    }
+
+    // Sort properties are spliced into the JPQL, so only known properties are accepted
+    private static Function<Order, ?> getter(String property) {
+        if (property.equals("id")) {
+            return Order::getId;
+        }
+        Field field = OrderSpecifications.field(property);
+        if (field == null) {
+            throw new IllegalArgumentException("Cannot sort by " + property);
+        }
+        return field.getter();
+    }
+}
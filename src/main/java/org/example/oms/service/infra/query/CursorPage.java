@@ -0,0 +1,15 @@
+package org.example.oms.service.infra.query;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset scroll. {@code next} is the opaque cursor for the following page, or null on
+ * the last page.
+ */
+public record CursorPage<T>(List<T> content, String next) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(content.stream().<R>map(mapper).toList(), next);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.oms.service.infra.query;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.oms.service.infra.query.OrderSpecifications.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ConcurrentLruCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Compiles parsed order filters and a sort into a {@link CompiledOrderQuery}: parameterized JPQL
+ * that depends only on the query shape (filter fields/operators and sort), so repeated queries
+ * reuse both the compiled form and Hibernate's plan for the JPQL string, and only bind values.
+ * Compiled queries are kept in a bounded LRU keyed by shape, which readers do not lock; a shape
+ * missed by two threads at once may be compiled twice.
+ */
+@Component
+class OrderQueryCompiler {
+
+    // A query to compile, equal to any other query of the same shape
+    private record Query(String shape, boolean scroll, List<Filter> filters, Sort sort) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Query query && shape.equals(query.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return shape.hashCode();
+        }
+    }
+
+    private final ConcurrentLruCache<Query, CompiledOrderQuery> cache;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    OrderQueryCompiler(
+            MeterRegistry meterRegistry,
+            @Value("${oms.query.compiled.cache-size:512}") int cacheSize) {
+        this.cache = new ConcurrentLruCache<>(cacheSize, this::compile);
+        FunctionCounter.builder(
+                        "oms.query.compiled.hits", this, c -> c.lookups.sum() - c.misses.sum())
+                .description("Order queries served by an already compiled shape")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.query.compiled.misses", misses, LongAdder::sum)
+                .description("Order queries whose shape had to be compiled")
+                .register(meterRegistry);
+        Gauge.builder("oms.query.compiled.shapes", this, OrderQueryCompiler::size)
+                .description("Compiled order query shapes cached")
+                .register(meterRegistry);
+    }
+
+    /** Offset-paged query, with a count query for the total. */
+    CompiledOrderQuery page(List<Filter> filters, Sort sort) {
+        return lookup(false, filters, sort);
+    }
+
+    /** Keyset query, with a variant that seeks past the last row of the previous page. */
+    CompiledOrderQuery scroll(List<Filter> filters, Sort sort) {
+        return lookup(true, filters, sort);
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private CompiledOrderQuery lookup(boolean scroll, List<Filter> filters, Sort sort) {
+        lookups.increment();
+        return cache.get(new Query(shape(scroll, filters, sort), scroll, filters, sort));
+    }
+
+    // Called by the cache on a miss
+    private CompiledOrderQuery compile(Query query) {
+        misses.increment();
+        return new CompiledOrderQuery(query.shape(), query.scroll(), query.filters(), query.sort());
+    }
+
+    /** Identifies a query by what its JPQL depends on: mode, filter fields/operators and sort. */
+    static String shape(boolean scroll, List<Filter> filters, Sort sort) {
+        StringBuilder shape = new StringBuilder(64).append(scroll ? "scroll [" : "page [");
+        for (int i = 0; i < filters.size(); i++) {
+            if (i > 0) {
+                shape.append(", ");
+            }
+            shape.append(filters.get(i).key());
+        }
+        return shape.append("] sort ").append(sort).toString();
+    }
+}
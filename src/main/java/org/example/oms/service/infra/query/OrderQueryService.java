@@ -1,17 +1,20 @@
 package org.example.oms.service.infra.query;
 
+import java.util.List;
 import java.util.Map;
 
 import org.example.common.model.Order;
-import org.example.oms.service.infra.repository.OrderRepository;
+import org.example.oms.service.infra.query.OrderSpecifications.Filter;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -19,10 +22,17 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class OrderQueryService {
 
-    private final OrderRepository repository;
+    private final EntityManager entityManager;
+    private final OrderQueryCompiler compiler;
+    private final QueryPlanAdvisor queryPlanAdvisor;
 
-    public OrderQueryService(OrderRepository repository) {
-        this.repository = repository;
+    public OrderQueryService(
+            EntityManager entityManager,
+            OrderQueryCompiler compiler,
+            QueryPlanAdvisor queryPlanAdvisor) {
+        this.entityManager = entityManager;
+        this.compiler = compiler;
+        this.queryPlanAdvisor = queryPlanAdvisor;
     }
 
     public Page<Order> search(Map<String, String> params, Integer page, Integer size, String sort) {
@@ -33,15 +43,69 @@ public class OrderQueryService {
                 size,
                 sort);
         Pageable pageable = buildPageable(page, size, sort);
-        Specification<Order> spec = OrderSpecifications.dynamic(params);
-        return repository.findAll(spec, pageable);
+        List<Filter> filters = OrderSpecifications.parse(params);
+        CompiledOrderQuery query = compiler.page(filters, pageable.getSort());
+        return queryPlanAdvisor.sample(
+                query.shape(), () -> query.page(entityManager, filters, pageable));
+    }
+
+    /**
+     * Keyset variant of {@link #search}: pages are read with a seek predicate on the sort key and
+     * id instead of an offset, and no count query is issued, so every page costs the same no matter
+     * how deep. Pass the returned {@link CursorPage#next()} to read the following page.
+     */
+    public CursorPage<Order> scroll(
+            Map<String, String> params, String cursor, Integer size, String sort) {
+        log.info(
+                "Scrolling orders with params: {}, size: {}, sort: {}, cursor: {}",
+                params,
+                size,
+                sort,
+                cursor);
+        Sort keysetSort = withIdTieBreaker(buildSort(sort));
+        String sortKey = keysetSort.toString();
+        ScrollPosition position = ScrollCursor.decode(cursor, sortKey);
+        Map<String, Object> after =
+                position instanceof KeysetScrollPosition keyset ? keyset.getKeys() : Map.of();
+        List<Filter> filters = OrderSpecifications.parse(params);
+        CompiledOrderQuery query = compiler.scroll(filters, keysetSort);
+        int limit = pageSize(size);
+        // One extra row tells whether there is a next page
+        List<Order> rows =
+                queryPlanAdvisor.sample(
+                        query.shape(),
+                        () -> query.scroll(entityManager, filters, after, limit + 1));
+        List<Order> content = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String next =
+                rows.size() > limit
+                        ? ScrollCursor.encode(
+                                ScrollPosition.forward(query.keysetOf(content.get(limit - 1))),
+                                sortKey)
+                        : null;
+        return new CursorPage<>(content, next);
     }
 
     private Pageable buildPageable(Integer page, Integer size, String sort) {
         int p = page != null && page >= 0 ? page : 0;
-        int s = size != null && size > 0 && size <= 500 ? size : 50;
+        return PageRequest.of(p, pageSize(size), buildSort(sort));
+    }
+
+    private static int pageSize(Integer size) {
+        return size != null && size > 0 && size <= 500 ? size : 50;
+    }
+
+    // Keyset positions must be unique, so id always ends the sort
+    private static Sort withIdTieBreaker(Sort sort) {
+        if (sort.getOrderFor("id") != null) {
+            return sort;
+        }
+        Sort.Direction direction = sort.iterator().next().getDirection();
+        return sort.and(Sort.by(direction, "id"));
+    }
+
+    private static Sort buildSort(String sort) {
         if (sort == null || sort.isBlank()) {
-            return PageRequest.of(p, s, Sort.by(Sort.Direction.DESC, "id"));
+            return Sort.by(Sort.Direction.DESC, "id");
         }
         // format: field[,ASC|DESC];field2[,DESC]
         String[] parts = sort.split(";");
@@ -61,6 +125,6 @@ public class OrderQueryService {
         if (finalSort.isUnsorted()) {
             finalSort = Sort.by(Sort.Direction.DESC, "id");
         }
-        return PageRequest.of(p, s, finalSort);
+        return finalSort;
     }
 }
@@ -1,198 +1,242 @@
 package org.example.oms.service.infra.query;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
+import org.example.common.model.CancelState;
+import org.example.common.model.OrdType;
 import org.example.common.model.Order;
-import org.springframework.data.jpa.domain.Specification;
+import org.example.common.model.Side;
+import org.example.common.model.State;
 
 /**
- * Utility builder producing JPA Specifications for dynamic Order queries. Supports a minimal set of
- * operations (eq, like, gt, gte, lt, lte, between) and a few typed fields. Extend safely by adding
- * cases inside buildNumeric / buildString / buildDate.
+ * Parses the dynamic Order filter syntax of the query API: {@code field=value} (eq), {@code
+ * field__like}, {@code __gt}, {@code __gte}, {@code __lt}, {@code __lte} and {@code __between=a,b}.
+ * Filters are parsed once into typed {@link Filter}s, which {@link OrderQueryCompiler} turns into
+ * cached JPQL and {@link #matcher(Map)} into an in-memory predicate. Extend safely by adding
+ * entries to FIELDS.
  */
 public final class OrderSpecifications {
 
     private OrderSpecifications() {}
 
-    public static Specification<Order> dynamic(Map<String, String> params) {
-        List<Specification<Order>> specs = new ArrayList<>();
+    /** Filter operators; {@code between} with an open side is parsed as gte or lte. */
+    enum Op {
+        EQ,
+        LIKE,
+        GT,
+        GTE,
+        LT,
+        LTE,
+        BETWEEN
+    }
+
+    enum Kind {
+        STRING,
+        NUMERIC,
+        DATE,
+        ENUM
+    }
+
+    /** A filterable Order property and how its values are parsed. */
+    record Field(String name, Kind kind, Function<Order, ?> getter, Function<String, ?> parser) {}
+
+    /**
+     * A parsed filter, with its values converted to the field's type. A {@code like} value is the
+     * lower-cased substring; {@code upper} is only set for {@code between}.
+     */
+    record Filter(Field field, Op op, Object value, Object upper) {
+
+        /** The filter without its values: what a query compiled for it depends on. */
+        String key() {
+            return field.name() + " " + op.name().toLowerCase();
+        }
+    }
+
+    private static final Map<String, Field> FIELDS = new LinkedHashMap<>();
+
+    private static final Comparator<Filter> CANONICAL =
+            Comparator.comparing((Filter f) -> f.field().name()).thenComparing(Filter::op);
+
+    static {
+        string("orderId", Order::getOrderId);
+        string("rootOrderId", Order::getRootOrderId);
+        string("parentOrderId", Order::getParentOrderId);
+        string("groupOrderId", Order::getGroupOrderId);
+        string("clOrdId", Order::getClOrdId);
+        string("account", Order::getAccount);
+        string("symbol", Order::getSymbol);
+        string("securityId", Order::getSecurityId);
+        register("price", Kind.NUMERIC, Order::getPrice, BigDecimal::new);
+        register("orderQty", Kind.NUMERIC, Order::getOrderQty, BigDecimal::new);
+        register("cashOrderQty", Kind.NUMERIC, Order::getCashOrderQty, BigDecimal::new);
+        register("sendingTime", Kind.DATE, Order::getSendingTime, LocalDateTime::parse);
+        register("transactTime", Kind.DATE, Order::getTransactTime, LocalDateTime::parse);
+        register("expireTime", Kind.DATE, Order::getExpireTime, LocalDateTime::parse);
+        // The partition key: a filter on it confines the query to those days' partitions
+        register("tradeDate", Kind.DATE, Order::getTradeDate, LocalDate::parse);
+        enumeration("side", Side.class, Order::getSide);
+        enumeration("ordType", OrdType.class, Order::getOrdType);
+        enumeration("state", State.class, Order::getState);
+        enumeration("cancelState", CancelState.class, Order::getCancelState);
+    }
+
+    private static void register(
+            String name, Kind kind, Function<Order, ?> getter, Function<String, ?> parser) {
+        FIELDS.put(name, new Field(name, kind, getter, parser));
+    }
+
+    private static void string(String name, Function<Order, String> getter) {
+        register(name, Kind.STRING, getter, Function.identity());
+    }
 
+    // Constants are looked up in a map built once, rather than by Enum.valueOf on every filter
+    private static <E extends Enum<E>> void enumeration(
+            String name, Class<E> type, Function<Order, E> getter) {
+        Map<String, E> constants = new HashMap<>();
+        for (E constant : type.getEnumConstants()) {
+            constants.put(constant.name(), constant);
+        }
+        register(
+                name,
+                Kind.ENUM,
+                getter,
+                value -> {
+                    E constant = constants.get(value);
+                    if (constant == null) {
+                        throw new IllegalArgumentException("Unknown " + name + ": " + value);
+                    }
+                    return constant;
+                });
+    }
+
+    /** The property of a filterable field, or null if the field cannot be filtered on. */
+    static Field field(String name) {
+        return FIELDS.get(name);
+    }
+
+    /**
+     * Parses the filter parameters, ignoring unknown fields, blank values and invalid numbers or
+     * dates. The filters are returned in a canonical order, so that parameter maps differing only
+     * in values give filters with the same keys.
+     */
+    static List<Filter> parse(Map<String, String> params) {
+        List<Filter> filters = new ArrayList<>(params.size());
         params.forEach(
                 (k, v) -> {
                     if (v == null || v.isBlank()) return; // skip empties
                     String key = k.trim();
                     // pattern: field__op e.g. price__gte, symbol__like
-                    String field;
-                    String op;
                     int idx = key.indexOf("__");
-                    if (idx > 0) {
-                        field = key.substring(0, idx);
-                        op = key.substring(idx + 2);
-                    } else {
-                        field = key;
-                        op = "eq"; // default
+                    String name = idx > 0 ? key.substring(0, idx) : key;
+                    String op = idx > 0 ? key.substring(idx + 2) : "eq";
+                    Field field = FIELDS.get(name);
+                    if (field == null) {
+                        return; // ignore unknown fields silently
                     }
-                    switch (field) {
-                        case "orderId",
-                                        "rootOrderId",
-                                        "parentOrderId",
-                                        "clOrdId",
-                                        "account",
-                                        "symbol",
-                                        "securityId" ->
-                                specs.add(buildString(field, op, v));
-                        case "price", "orderQty", "cashOrderQty" ->
-                                specs.add(buildNumeric(field, op, v));
-                        case "sendingTime", "transactTime", "expireTime" ->
-                                specs.add(buildDate(field, op, v));
-                        case "side", "ordType", "state", "cancelState" ->
-                                specs.add(buildEnum(field, op, v));
-                        default -> {
-                            // ignore unknown fields silently (could log)
-                        }
+                    Filter filter =
+                            switch (field.kind()) {
+                                case STRING ->
+                                        op.equals("like")
+                                                ? new Filter(field, Op.LIKE, v.toLowerCase(), null)
+                                                : new Filter(field, Op.EQ, v, null);
+                                case NUMERIC, DATE -> range(field, op, v);
+                                case ENUM ->
+                                        new Filter(field, Op.EQ, field.parser().apply(v), null);
+                            };
+                    if (filter != null) {
+                        filters.add(filter);
                     }
                 });
-
-        return specs.stream().reduce(all(), Specification::and);
+        filters.sort(CANONICAL);
+        return filters;
     }
 
-    private static Specification<Order> all() {
-        return (r, q, cb) -> cb.conjunction();
+    private static Filter range(Field field, String op, String value) {
+        try {
+            if (!op.equals("between")) {
+                return new Filter(field, comparisonOp(op), field.parser().apply(value), null);
+            }
+            String[] parts = value.split(",", -1); // keep empties
+            if (parts.length != 2) {
+                return null;
+            }
+            Object lower = parts[0].isBlank() ? null : field.parser().apply(parts[0].trim());
+            Object upper = parts[1].isBlank() ? null : field.parser().apply(parts[1].trim());
+            if (lower != null && upper != null) {
+                return new Filter(field, Op.BETWEEN, lower, upper);
+            } else if (lower != null) { // treat as >=
+                return new Filter(field, Op.GTE, lower, null);
+            } else if (upper != null) { // treat as <=
+                return new Filter(field, Op.LTE, upper, null);
+            }
+            return null;
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            // Invalid number or date -> ignore filter
+            return null;
+        }
     }
 
-    private static Specification<Order> buildString(String field, String op, String value) {
-        return (root, query, cb) -> {
-            switch (op) {
-                case "like":
-                    return cb.like(cb.lower(root.get(field)), "%" + value.toLowerCase() + "%");
-                case "eq":
-                default:
-                    return cb.equal(root.get(field), value);
-            }
+    private static Op comparisonOp(String op) {
+        return switch (op) {
+            case "gt" -> Op.GT;
+            case "gte" -> Op.GTE;
+            case "lt" -> Op.LT;
+            case "lte" -> Op.LTE;
+            default -> Op.EQ;
         };
     }
 
-    private static Specification<Order> buildNumeric(String field, String op, String value) {
-        return (root, query, cb) -> {
-            try {
-                switch (op) {
-                    case "between":
-                        {
-                            String[] parts = value.split(",", -1); // keep empties
-                            if (parts.length != 2) {
-                                return cb.conjunction();
-                            }
-                            String leftRaw = parts[0].trim();
-                            String rightRaw = parts[1].trim();
-                            boolean hasLeft = !leftRaw.isEmpty();
-                            boolean hasRight = !rightRaw.isEmpty();
-                            if (hasLeft && hasRight) {
-                                BigDecimal a = new BigDecimal(leftRaw);
-                                BigDecimal b = new BigDecimal(rightRaw);
-                                return cb.between(root.get(field), a, b);
-                            } else if (hasLeft) { // treat as >=
-                                BigDecimal a = new BigDecimal(leftRaw);
-                                return cb.greaterThanOrEqualTo(root.get(field), a);
-                            } else if (hasRight) { // treat as <=
-                                BigDecimal b = new BigDecimal(rightRaw);
-                                return cb.lessThanOrEqualTo(root.get(field), b);
-                            } else {
-                                return cb.conjunction();
-                            }
-                        }
-                    case "gt":
-                        {
-                            BigDecimal v = new BigDecimal(value);
-                            return cb.greaterThan(root.get(field), v);
-                        }
-                    case "gte":
-                        {
-                            BigDecimal v = new BigDecimal(value);
-                            return cb.greaterThanOrEqualTo(root.get(field), v);
-                        }
-                    case "lt":
-                        {
-                            BigDecimal v = new BigDecimal(value);
-                            return cb.lessThan(root.get(field), v);
-                        }
-                    case "lte":
-                        {
-                            BigDecimal v = new BigDecimal(value);
-                            return cb.lessThanOrEqualTo(root.get(field), v);
-                        }
-                    case "eq":
-                    default:
-                        {
-                            BigDecimal v = new BigDecimal(value);
-                            return cb.equal(root.get(field), v);
-                        }
-                }
-            } catch (NumberFormatException ex) {
-                // Invalid number -> ignore filter
-                return cb.conjunction();
-            }
-        };
+    /**
+     * Evaluates the same filter syntax as the query API against an in-memory order, for streams
+     * that must decide whether an updated order still matches without querying.
+     */
+    public static Predicate<Order> matcher(Map<String, String> params) {
+        return parse(params).stream()
+                .map(OrderSpecifications::matcher)
+                .reduce(o -> true, Predicate::and);
     }
 
-    private static Specification<Order> buildDate(String field, String op, String value) {
-        return (root, query, cb) -> {
-            // ISO-8601 expected; between uses comma
-            switch (op) {
-                case "between":
-                    {
-                        String[] parts = value.split(",", -1);
-                        if (parts.length != 2) return cb.conjunction();
-                        String leftRaw = parts[0].trim();
-                        String rightRaw = parts[1].trim();
-                        boolean hasLeft = !leftRaw.isEmpty();
-                        boolean hasRight = !rightRaw.isEmpty();
-                        try {
-                            if (hasLeft && hasRight) {
-                                LocalDateTime a = LocalDateTime.parse(leftRaw);
-                                LocalDateTime b = LocalDateTime.parse(rightRaw);
-                                return cb.between(root.get(field), a, b);
-                            } else if (hasLeft) {
-                                LocalDateTime a = LocalDateTime.parse(leftRaw);
-                                return cb.greaterThanOrEqualTo(root.get(field), a);
-                            } else if (hasRight) {
-                                LocalDateTime b = LocalDateTime.parse(rightRaw);
-                                return cb.lessThanOrEqualTo(root.get(field), b);
-                            } else {
-                                return cb.conjunction();
-                            }
-                        } catch (Exception e) {
-                            return cb.conjunction();
-                        }
-                    }
-                case "gt":
-                    return cb.greaterThan(root.get(field), LocalDateTime.parse(value));
-                case "gte":
-                    return cb.greaterThanOrEqualTo(root.get(field), LocalDateTime.parse(value));
-                case "lt":
-                    return cb.lessThan(root.get(field), LocalDateTime.parse(value));
-                case "lte":
-                    return cb.lessThanOrEqualTo(root.get(field), LocalDateTime.parse(value));
-                case "eq":
-                default:
-                    return cb.equal(root.get(field), LocalDateTime.parse(value));
+    private static Predicate<Order> matcher(Filter filter) {
+        Function<Order, ?> getter = filter.field().getter();
+        Object value = filter.value();
+        return switch (filter.op()) {
+            case EQ ->
+                    filter.field().kind() == Kind.NUMERIC
+                            ? compare(getter, value, c -> c == 0) // 22.35 equals 22.350
+                            : o -> value.equals(getter.apply(o));
+            case LIKE -> {
+                String needle = (String) value;
+                yield o -> getter.apply(o) instanceof String s && s.toLowerCase().contains(needle);
             }
+            case GT -> compare(getter, value, c -> c > 0);
+            case GTE -> compare(getter, value, c -> c >= 0);
+            case LT -> compare(getter, value, c -> c < 0);
+            case LTE -> compare(getter, value, c -> c <= 0);
+            case BETWEEN ->
+                    compare(getter, value, c -> c >= 0)
+                            .and(compare(getter, filter.upper(), c -> c <= 0));
         };
     }
 
-    private static Specification<Order> buildEnum(String field, String op, String value) {
-        return (root, query, cb) -> {
-            Class<?> javaType = root.get(field).getJavaType();
-            if (!javaType.isEnum()) {
-                return cb.conjunction();
-            }
-            @SuppressWarnings({"rawtypes", "unchecked"})
-            Enum enumValue =
-                    Enum.valueOf((Class<? extends Enum>) javaType.asSubclass(Enum.class), value);
-            return cb.equal(root.get(field), enumValue);
+    // As in SQL, a null value never matches a comparison
+    @SuppressWarnings("unchecked")
+    private static Predicate<Order> compare(
+            Function<Order, ?> getter, Object bound, IntPredicate test) {
+        return o -> {
+            Object v = getter.apply(o);
+            return v != null && test.test(((Comparable<Object>) v).compareTo(bound));
         };
     }
 }
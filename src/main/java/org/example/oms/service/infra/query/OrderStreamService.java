@@ -0,0 +1,312 @@
+package org.example.oms.service.infra.query;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.oms.api.dto.BlotterEvent;
+import org.example.oms.api.dto.BlotterEvent.Type;
+import org.example.oms.api.dto.OrderDto;
+import org.example.oms.api.mapper.OrderDtoMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Streams orders to blotters: a snapshot from {@link OrderQueryService} followed by the changes
+ * committed by the processing pipeline. Committed changes are handed over through a bounded queue
+ * and fanned out by a dispatcher thread, so publishing never blocks the pipeline. Each subscriber
+ * keeps its own pending deltas conflated by order, so a slow client receives the latest state of
+ * each order rather than every intermediate one; one that falls further behind than {@code
+ * max-pending} orders is told to resync.
+ */
+@Service
+@Slf4j
+public class OrderStreamService {
+
+    private final OrderQueryService orderQueryService;
+    private final OrderDtoMapper orderDtoMapper;
+    private final int snapshotSize;
+    private final int maxPending;
+
+    private final BlockingQueue<Object> changes;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+    private final Counter resyncs;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public OrderStreamService(
+            OrderQueryService orderQueryService,
+            OrderDtoMapper orderDtoMapper,
+            MeterRegistry meterRegistry,
+            @Value("${oms.blotter.snapshot-size:500}") int snapshotSize,
+            @Value("${oms.blotter.max-pending:10000}") int maxPending,
+            @Value("${oms.blotter.queue-capacity:100000}") int queueCapacity) {
+        this.orderQueryService = orderQueryService;
+        this.orderDtoMapper = orderDtoMapper;
+        this.snapshotSize = snapshotSize;
+        this.maxPending = maxPending;
+        this.changes = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("oms.blotter.subscribers", subscribers, Set::size)
+                .description("Open blotter streams")
+                .register(meterRegistry);
+        this.dropped = meterRegistry.counter("oms.blotter.changes.dropped");
+        this.resyncs = meterRegistry.counter("oms.blotter.resyncs");
+        this.dispatcher =
+                Thread.ofPlatform().name("oms-blotter-dispatch").daemon().start(this::dispatch);
+    }
+
+    /**
+     * Opens a stream of orders matching the {@link OrderSpecifications} filter parameters, with the
+     * snapshot sorted as in {@link OrderQueryService#search}.
+     */
+    public Flux<BlotterEvent> subscribe(Map<String, String> filter, String sort) {
+        Predicate<Order> matcher = OrderSpecifications.matcher(filter);
+        return Flux.<BlotterEvent>create(
+                        sink -> {
+                            Subscriber subscriber = new Subscriber(matcher, sink);
+                            // Registered before the snapshot is read, so no change is missed
+                            subscribers.add(subscriber);
+                            sink.onRequest(n -> subscriber.drain());
+                            sink.onDispose(() -> subscribers.remove(subscriber));
+                            subscriber.snapshot(
+                                    orderQueryService
+                                            .search(filter, 0, snapshotSize, sort)
+                                            .getContent());
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /** Hands a committed order over to the open streams; never blocks. */
+    public void publish(Order order) {
+        if (!subscribers.isEmpty()) {
+            offer(order.toBuilder().build());
+        }
+    }
+
+    /** Hands a committed execution over to the streams showing its order; never blocks. */
+    public void publish(Execution execution) {
+        if (!subscribers.isEmpty()) {
+            offer(execution);
+        }
+    }
+
+    private void offer(Object change) {
+        if (!changes.offer(change)) {
+            // Every stream has lost a change; make them all start over
+            dropped.increment();
+            subscribers.forEach(Subscriber::overflow);
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                Object change = changes.poll(100, TimeUnit.MILLISECONDS);
+                if (change instanceof Order order) {
+                    OrderDto dto = orderDtoMapper.toDto(order);
+                    for (Subscriber subscriber : subscribers) {
+                        subscriber.onOrder(order, dto);
+                    }
+                } else if (change instanceof Execution execution) {
+                    for (Subscriber subscriber : subscribers) {
+                        subscriber.onExecution(execution);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error dispatching blotter change", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        subscribers.forEach(s -> s.sink.complete());
+    }
+
+    private final class Subscriber {
+
+        private final Predicate<Order> matcher;
+        private final FluxSink<BlotterEvent> sink;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        // Guarded by lock
+        private ArrayDeque<BlotterEvent> snapshot;
+        private final LinkedHashMap<String, BlotterEvent> pending = new LinkedHashMap<>();
+        private final Map<String, Long> pendingTxNr = new HashMap<>();
+        private final Map<String, Long> streamed = new HashMap<>();
+        private boolean resync;
+
+        Subscriber(Predicate<Order> matcher, FluxSink<BlotterEvent> sink) {
+            this.matcher = matcher;
+            this.sink = sink;
+        }
+
+        void snapshot(List<Order> orders) {
+            lock.lock();
+            try {
+                snapshot = new ArrayDeque<>(orders.size() + 1);
+                for (Order order : orders) {
+                    Long newer = pendingTxNr.get(order.getOrderId());
+                    if (newer != null && newer > order.getTxNr()) {
+                        continue; // the pending delta supersedes this row
+                    }
+                    dropPending(order.getOrderId());
+                    streamed.put(order.getOrderId(), order.getTxNr());
+                    snapshot.add(
+                            new BlotterEvent(
+                                    Type.SNAPSHOT,
+                                    order.getOrderId(),
+                                    orderDtoMapper.toDto(order),
+                                    null));
+                }
+                snapshot.add(BlotterEvent.of(Type.SNAPSHOT_END));
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+
+        void onOrder(Order order, OrderDto dto) {
+            String orderId = order.getOrderId();
+            boolean matches = matcher.test(order);
+            lock.lock();
+            try {
+                Long known = streamed.get(orderId);
+                if (known != null && known > order.getTxNr()) {
+                    return; // older than what the client already has
+                }
+                if (matches) {
+                    streamed.put(orderId, order.getTxNr());
+                    enqueue("o:" + orderId, new BlotterEvent(Type.ORDER, orderId, dto, null));
+                } else if (streamed.remove(orderId) != null) {
+                    enqueue("o:" + orderId, new BlotterEvent(Type.REMOVE, orderId, null, null));
+                } else {
+                    return;
+                }
+                pendingTxNr.put(orderId, order.getTxNr());
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+
+        void onExecution(Execution execution) {
+            lock.lock();
+            try {
+                if (!streamed.containsKey(execution.getOrderId())) {
+                    return;
+                }
+                enqueue(
+                        "x:" + execution.getId(),
+                        new BlotterEvent(Type.EXECUTION, execution.getOrderId(), null, execution));
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+
+        void overflow() {
+            lock.lock();
+            try {
+                resync = true;
+                pending.clear();
+                pendingTxNr.clear();
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+
+        private void enqueue(String key, BlotterEvent event) {
+            // Replacing keeps the order's original position in the queue
+            pending.put(key, event);
+            if (pending.size() > maxPending) {
+                resync = true;
+                pending.clear();
+                pendingTxNr.clear();
+            }
+        }
+
+        private void dropPending(String orderId) {
+            pending.remove("o:" + orderId);
+            pendingTxNr.remove(orderId);
+        }
+
+        /** Emits as much as the client has asked for; safe to call from any thread. */
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                    BlotterEvent next = poll();
+                    if (next == null) {
+                        break;
+                    }
+                    sink.next(next);
+                    if (next.type() == Type.RESYNC) {
+                        resyncs.increment();
+                        sink.complete();
+                        return;
+                    }
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private BlotterEvent poll() {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    return null; // deltas wait until the snapshot is out
+                }
+                if (!snapshot.isEmpty()) {
+                    return snapshot.poll();
+                }
+                if (resync) {
+                    return BlotterEvent.of(Type.RESYNC);
+                }
+                Iterator<Map.Entry<String, BlotterEvent>> it = pending.entrySet().iterator();
+                if (!it.hasNext()) {
+                    return null;
+                }
+                BlotterEvent next = it.next().getValue();
+                it.remove();
+                if (next.type() != Type.EXECUTION) {
+                    pendingTxNr.remove(next.orderId());
+                }
+                return next;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.example.oms.service.infra.query;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Samples the plans of the order queries actually being run, grouped by the shape their query was
+ * compiled for ({@link OrderQueryCompiler}): mode, filter fields/operators and sort. The first
+ * execution of a shape, and then one per {@code sample-interval-ms}, has its SQL captured through
+ * {@link SqlCapture} and explained in the background as a generic plan, so the report shows which
+ * shapes fall back to sequential scans regardless of the values they were sampled with. Unbounded
+ * index scans that only filter, such as walking the primary key for an unindexed filter, are
+ * reported as well.
+ */
+@Component
+@Slf4j
+public class QueryPlanAdvisor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String STATEMENT_NAME = "oms_query_advisor";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long sampleIntervalMillis;
+    private final int maxShapes;
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final ExecutorService explainer;
+
+    public QueryPlanAdvisor(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${oms.query.advisor.enabled:true}") boolean enabled,
+            @Value("${oms.query.advisor.sample-interval-ms:600000}") long sampleIntervalMillis,
+            @Value("${oms.query.advisor.max-shapes:1000}") int maxShapes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        this.maxShapes = maxShapes;
+        this.explainer =
+                Executors.newSingleThreadExecutor(
+                        Thread.ofPlatform().name("oms-query-advisor").daemon().factory());
+        Gauge.builder("oms.query.shapes", shapes, Map::size)
+                .description("Distinct order query shapes seen")
+                .register(meterRegistry);
+        Gauge.builder(
+                        "oms.query.shapes.seq-scan",
+                        shapes,
+                        s -> s.values().stream().filter(Shape::seqScan).count())
+                .description("Order query shapes whose last sampled plan has a sequential scan")
+                .register(meterRegistry);
+    }
+
+    /** Runs the query, capturing its SQL for an explain if the shape is due for a sample. */
+    public <T> T sample(String shape, Supplier<T> query) {
+        Shape stats = enabled ? track(shape) : null;
+        if (stats == null) {
+            return query.get();
+        }
+        stats.executions.increment();
+        if (!stats.claimSample(System.currentTimeMillis(), sampleIntervalMillis)) {
+            return query.get();
+        }
+        List<String> captured = SqlCapture.start();
+        T result;
+        try {
+            result = query.get();
+        } finally {
+            SqlCapture.stop();
+        }
+        // The first statement is the page itself; a count query may follow
+        captured.stream()
+                .filter(sql -> sql.regionMatches(true, 0, "select", 0, 6))
+                .findFirst()
+                .ifPresent(sql -> explainLater(stats, sql));
+        return result;
+    }
+
+    private Shape track(String shape) {
+        Shape stats = shapes.get(shape);
+        if (stats == null && shapes.size() < maxShapes) {
+            stats = shapes.computeIfAbsent(shape, Shape::new);
+        }
+        return stats;
+    }
+
+    /** Latest sample of every shape, those with sequential scans first, then by executions. */
+    public List<QueryPlanReport> report() {
+        return shapes.values().stream()
+                .map(Shape::report)
+                .sorted(
+                        Comparator.comparing(QueryPlanReport::seqScan)
+                                .thenComparingLong(QueryPlanReport::executions)
+                                .reversed())
+                .toList();
+    }
+
+    /** Forgets all shapes, so each one is sampled again on its next execution. */
+    public void reset() {
+        shapes.clear();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        explainer.shutdownNow();
+    }
+
+    private void explainLater(Shape stats, String sql) {
+        try {
+            explainer.execute(() -> explain(stats, sql));
+        } catch (RejectedExecutionException e) {
+            log.debug("Query advisor is shutting down; not explaining {}", stats.shape);
+        }
+    }
+
+    private void explain(Shape stats, String sql) {
+        try {
+            String plan = jdbcTemplate.execute((ConnectionCallback<String>) c -> explain(c, sql));
+            stats.update(sql, summarize(MAPPER.readTree(plan)));
+            if (stats.seqScan()) {
+                log.info("Query shape {} scans {}", stats.shape, stats.summary.seqScans());
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Could not explain query shape {}: {}", stats.shape, e.getMessage());
+        }
+    }
+
+    /**
+     * Explains the statement as a generic plan: prepared with numbered parameters, planned without
+     * their values and executed with nulls, which works on any supported PostgreSQL version.
+     */
+    private static String explain(Connection connection, String sql) throws SQLException {
+        StringBuilder prepared = new StringBuilder(sql.length() + 16);
+        int parameters = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                prepared.append('$').append(++parameters);
+            } else {
+                prepared.append(c);
+            }
+        }
+        StringBuilder execute =
+                new StringBuilder("EXPLAIN (FORMAT JSON) EXECUTE " + STATEMENT_NAME);
+        if (parameters > 0) {
+            execute.append('(').append("NULL, ".repeat(parameters - 1)).append("NULL)");
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PREPARE " + STATEMENT_NAME + " AS " + prepared);
+            try {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                try (ResultSet rs = statement.executeQuery(execute.toString())) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            } finally {
+                statement.execute("RESET plan_cache_mode");
+                statement.execute("DEALLOCATE " + STATEMENT_NAME);
+            }
+        }
+    }
+
+    /** Extracts the scans and the estimated cost from an {@code EXPLAIN (FORMAT JSON)} result. */
+    static PlanSummary summarize(JsonNode explain) {
+        JsonNode plan = explain.path(0).path("Plan");
+        TreeSet<String> seqScans = new TreeSet<>();
+        TreeSet<String> indexes = new TreeSet<>();
+        collect(plan, seqScans, indexes);
+        return new PlanSummary(
+                plan.path("Total Cost").asDouble(),
+                new ArrayList<>(seqScans),
+                new ArrayList<>(indexes));
+    }
+
+    private static void collect(JsonNode node, TreeSet<String> seqScans, TreeSet<String> indexes) {
+        String nodeType = node.path("Node Type").asText();
+        String relation = node.path("Relation Name").asText();
+        if ("Seq Scan".equals(nodeType)) {
+            seqScans.add(relation);
+        }
+        if (node.has("Index Name")) {
+            String index = node.path("Index Name").asText();
+            indexes.add(index);
+            // Walking a whole index in sort order and filtering every row reads the whole table,
+            // e.g. by primary key under a LIMIT; as bad as a sequential scan for a selective filter
+            if (!node.has("Index Cond") && node.has("Filter")) {
+                seqScans.add(relation + " via " + index);
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, seqScans, indexes);
+        }
+    }
+
+    record PlanSummary(double totalCost, List<String> seqScans, List<String> indexes) {}
+
+    private static final class Shape {
+
+        private final String shape;
+        private final LongAdder executions = new LongAdder();
+        private final AtomicLong nextSampleAt = new AtomicLong();
+        private volatile String sql;
+        private volatile PlanSummary summary;
+        private volatile Instant sampledAt;
+
+        Shape(String shape) {
+            this.shape = shape;
+        }
+
+        boolean claimSample(long now, long interval) {
+            long due = nextSampleAt.get();
+            return now >= due && nextSampleAt.compareAndSet(due, now + interval);
+        }
+
+        void update(String sql, PlanSummary summary) {
+            this.sql = sql;
+            this.summary = summary;
+            this.sampledAt = Instant.now();
+        }
+
+        boolean seqScan() {
+            PlanSummary s = summary;
+            return s != null && !s.seqScans().isEmpty();
+        }
+
+        QueryPlanReport report() {
+            PlanSummary s = summary;
+            return new QueryPlanReport(
+                    shape,
+                    executions.sum(),
+                    sampledAt,
+                    seqScan(),
+                    s == null ? List.of() : s.seqScans(),
+                    s == null ? List.of() : s.indexes(),
+                    s == null ? null : s.totalCost(),
+                    sql);
+        }
+    }
+
+    /**
+     * Hibernate {@link StatementInspector} that hands the SQL of the current thread's statements to
+     * {@link QueryPlanAdvisor} while a sample is being taken. Registered in {@code OmsConfig}.
+     */
+    public static final class SqlCapture implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+        static List<String> start() {
+            List<String> captured = new ArrayList<>(2);
+            CAPTURED.set(captured);
+            return captured;
+        }
+
+        static void stop() {
+            CAPTURED.remove();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            List<String> captured = CAPTURED.get();
+            if (captured != null) {
+                captured.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.oms.service.infra.query;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Latest sampled plan of an order query shape, as reported by {@link QueryPlanAdvisor}. Plan fields
+ * are null until the first sample has been explained.
+ */
+public record QueryPlanReport(
+        String shape,
+        long executions,
+        Instant sampledAt,
+        boolean seqScan,
+        List<String> seqScanRelations,
+        List<String> indexes,
+        Double totalCost,
+        String sql) {}
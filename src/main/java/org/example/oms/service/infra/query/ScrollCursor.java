@@ -0,0 +1,81 @@
+package org.example.oms.service.infra.query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Encodes a keyset position as an opaque URL-safe token and back. The token carries the sort it was
+ * created for, so a cursor cannot be replayed against a different ordering.
+ */
+final class ScrollCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SORT_KEY = "$sort";
+
+    private ScrollCursor() {}
+
+    static String encode(KeysetScrollPosition position, String sort) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put(SORT_KEY, sort);
+        position.getKeys().forEach((k, v) -> values.put(k, v == null ? null : valueOf(v)));
+        try {
+            return Base64.getUrlEncoder()
+                    .withoutPadding()
+                    .encodeToString(MAPPER.writeValueAsBytes(values));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    static ScrollPosition decode(String cursor, String sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, String> values;
+        try {
+            values =
+                    MAPPER.readValue(
+                            new String(
+                                    Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8),
+                            new TypeReference<LinkedHashMap<String, String>>() {});
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (!sort.equals(values.remove(SORT_KEY))) {
+            throw new IllegalArgumentException("Cursor was created for a different sort");
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        values.forEach((k, v) -> keys.put(k, v == null ? null : parse(k, v)));
+        return ScrollPosition.forward(keys);
+    }
+
+    private static String valueOf(Object value) {
+        return value instanceof Enum<?> e ? e.name() : value.toString();
+    }
+
+    // Keys are parsed like filter values of the same field, so every sortable property has one
+    private static Object parse(String property, String value) {
+        if (property.equals("id")) {
+            return Long.valueOf(value);
+        }
+        OrderSpecifications.Field field = OrderSpecifications.field(property);
+        if (field == null) {
+            throw new IllegalArgumentException("Cannot scroll by " + property);
+        }
+        try {
+            return field.parser().apply(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
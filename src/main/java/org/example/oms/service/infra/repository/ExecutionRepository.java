@@ -1,8 +1,17 @@
 package org.example.oms.service.infra.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 import org.example.common.model.Execution;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ExecutionRepository extends JpaRepository<Execution, Long> {}
+public interface ExecutionRepository extends JpaRepository<Execution, Long> {
+
+    Optional<Execution> findByExecID(String execID);
+
+    List<Execution> findByExecIDIn(Collection<String> execIDs);
+}
@@ -1,5 +1,6 @@
 package org.example.oms.service.infra.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.example.oms.model.OrderEvent;
@@ -10,4 +11,7 @@ import org.springframework.stereotype.Repository;
 public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
 
     List<OrderEvent> findByOrderId(String orderId);
+
+    /** Events of an order, read from the partition of its trade date only. */
+    List<OrderEvent> findByOrderIdAndTradeDate(String orderId, LocalDate tradeDate);
 }
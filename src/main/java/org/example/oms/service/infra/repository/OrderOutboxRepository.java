@@ -1,8 +1,48 @@
 package org.example.oms.service.infra.repository;
 
+import java.util.List;
+
 import org.example.oms.model.OrderOutbox;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {}
+public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {
+
+    /**
+     * Takes the transaction-scoped advisory lock for an outbox shard, returning false if another
+     * relay instance already holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:namespace, :shard)", nativeQuery = true)
+    boolean tryLockShard(@Param("namespace") int namespace, @Param("shard") int shard);
+
+    @Query(
+            value =
+                    "SELECT * FROM order_messages WHERE shard = :shard ORDER BY id LIMIT :limit"
+                            + " FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OrderOutbox> claimBatch(@Param("shard") int shard, @Param("limit") int limit);
+
+    @Modifying
+    @Query(
+            value = "UPDATE order_messages SET attempts = attempts + 1 WHERE id = :id",
+            nativeQuery = true)
+    int countAttempt(@Param("id") long id);
+
+    /**
+     * Moves a row that keeps failing to order_messages_dead, with the error of its last attempt.
+     */
+    @Modifying
+    @Query(
+            value =
+                    "WITH dead AS (DELETE FROM order_messages WHERE id = :id RETURNING *)"
+                            + " INSERT INTO order_messages_dead (id, shard, order_id, created_at,"
+                            + " outbound_order, attempts, error, failed_at)"
+                            + " SELECT id, shard, order_id, created_at, outbound_order,"
+                            + " attempts + 1, :error, now() FROM dead",
+            nativeQuery = true)
+    int deadLetter(@Param("id") long id, @Param("error") String error);
+}
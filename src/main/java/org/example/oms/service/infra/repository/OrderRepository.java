@@ -1,12 +1,19 @@
 package org.example.oms.service.infra.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface OrderRepository
         extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
@@ -14,4 +21,12 @@ public interface OrderRepository
     Optional<Order> findByOrderId(String orderId);
 
     Optional<Order> findByRootOrderId(String rootOrderId);
+
+    /** Loads the given orders and locks their rows until the transaction ends. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Order> findByOrderIdIn(Collection<String> orderIds);
+
+    /** Pages through orders not in the given states in id order, starting after {@code id}. */
+    List<Order> findByStateNotInAndIdGreaterThanOrderById(
+            Collection<State> states, Long id, Limit limit);
 }
@@ -1,5 +1,7 @@
 package org.example.oms.service.mapper;
 
+import java.time.LocalDate;
+
 import org.example.common.model.Order;
 import org.example.common.model.State;
 import org.example.common.model.tx.NewOrderTx;
@@ -15,9 +17,13 @@ public class NewOrderTxToOrderMapper {
             return null;
         }
 
+        String orderId = ULID.random().toString();
         return Order.builder()
-                .orderId(ULID.random().toString())
+                .orderId(orderId)
+                .tradeDate(LocalDate.now())
                 .parentOrderId(newOrderTx.getParentOrderId())
+                // A child order's root is that of its parent, resolved by TransactionService
+                .rootOrderId(newOrderTx.getParentOrderId() == null ? orderId : null)
                 .sessionId(newOrderTx.getSessionId())
                 .clOrdId(newOrderTx.getClOrdId())
                 .sendingTime(newOrderTx.getSendingTime())
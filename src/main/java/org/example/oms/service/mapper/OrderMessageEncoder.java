@@ -0,0 +1,258 @@
+package org.example.oms.service.mapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
+import org.example.common.model.Order;
+import org.example.common.model.msg.OrderMessage;
+
+/**
+ * Writes an {@link Order} as the Avro binary form of an {@link OrderMessage}, field by field in
+ * schema order, without building the intermediate message. Produces the same bytes as {@link
+ * OrderToOrderMessageMapper} followed by a {@code SpecificDatumWriter}; the field list is checked
+ * against the generated schema when the class is loaded, so a schema change that is not reflected
+ * here fails fast.
+ */
+public final class OrderMessageEncoder {
+
+    private static final Schema SCHEMA = OrderMessage.getClassSchema();
+
+    private static final List<String> FIELDS =
+            checkFields(
+                    "account",
+                    "cancelState",
+                    "cashOrderQty",
+                    "clOrdId",
+                    "exDestination",
+                    "execInst",
+                    "expireTime",
+                    "handlInst",
+                    "maturityMonthYear",
+                    "ordType",
+                    "orderId",
+                    "orderQty",
+                    "origClOrdId",
+                    "parentOrderId",
+                    "positionEffect",
+                    "price",
+                    "priceType",
+                    "putOrCall",
+                    "rootOrderId",
+                    "securityDesc",
+                    "securityExchange",
+                    "securityIDSource",
+                    "securityId",
+                    "sendingTime",
+                    "sessionId",
+                    "settlCurrency",
+                    "side",
+                    "state",
+                    "stopPx",
+                    "strikePrice",
+                    "symbol",
+                    "text",
+                    "tifTimestamp",
+                    "timeInForce",
+                    "transactTime",
+                    "eventId",
+                    "underlyingSecurityType");
+
+    private static List<String> checkFields(String... fields) {
+        List<String> expected = List.of(fields);
+        List<String> actual = SCHEMA.getFields().stream().map(Schema.Field::name).toList();
+        if (!actual.equals(expected)) {
+            throw new IllegalStateException(
+                    "OrderMessage schema fields "
+                            + actual
+                            + " do not match the encoder "
+                            + expected);
+        }
+        return expected;
+    }
+
+    // Avro symbols whose name differs from the model constant
+    private static final Map<String, String> TIME_IN_FORCE_SYMBOLS =
+            Map.of(
+                    "GOOD_TILL_CANCEL", "GTC",
+                    "AT_THE_OPENING", "AT_THE_OPEN",
+                    "IMMEDIATE_OR_CANCEL", "IOC",
+                    "FILL_OR_KILL", "FOK",
+                    "GOOD_TILL_DATE", "GTD");
+
+    private static final int[] CANCEL_STATE =
+            symbols(org.example.common.model.CancelState.class, "cancelState", Map.of());
+    private static final int[] EXEC_INST =
+            symbols(org.example.common.model.ExecInst.class, "execInst", Map.of());
+    private static final int[] HANDL_INST =
+            symbols(org.example.common.model.HandlInst.class, "handlInst", Map.of());
+    private static final int[] ORD_TYPE =
+            symbols(org.example.common.model.OrdType.class, "ordType", Map.of());
+    private static final int[] POSITION_EFFECT =
+            symbols(org.example.common.model.PositionEffect.class, "positionEffect", Map.of());
+    private static final int[] PRICE_TYPE =
+            symbols(org.example.common.model.PriceType.class, "priceType", Map.of());
+    private static final int[] SECURITY_ID_SOURCE =
+            symbols(org.example.common.model.SecurityIdSource.class, "securityIDSource", Map.of());
+    private static final int[] SIDE =
+            symbols(org.example.common.model.Side.class, "side", Map.of());
+    private static final int[] STATE =
+            symbols(org.example.common.model.State.class, "state", Map.of());
+    private static final int[] TIME_IN_FORCE =
+            symbols(
+                    org.example.common.model.TimeInForce.class,
+                    "timeInForce",
+                    TIME_IN_FORCE_SYMBOLS);
+
+    private static final int DECIMAL_SCALE = decimalScale();
+
+    private final ZoneId zone;
+
+    public OrderMessageEncoder() {
+        this(ZoneId.systemDefault());
+    }
+
+    public OrderMessageEncoder(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Writes the order's message to the encoder. {@code sendingTime} is the event's single
+     * timestamp, in epoch milliseconds; it also stands in for a missing TransactTime.
+     */
+    public void write(Order order, long sendingTime, Encoder out) throws IOException {
+        writeString(order.getAccount(), out);
+        writeEnum(CANCEL_STATE, order.getCancelState(), out);
+        writeDecimal(order.getCashOrderQty(), out);
+        writeString(order.getClOrdId(), out);
+        writeString(order.getExDestination(), out);
+        writeEnum(EXEC_INST, order.getExecInst(), out);
+        writeTimestamp(order.getExpireTime(), out);
+        writeEnum(HANDL_INST, order.getHandlInst(), out);
+        writeString(order.getMaturityMonthYear(), out);
+        writeEnum(ORD_TYPE, order.getOrdType(), out);
+        out.writeString(order.getOrderId());
+        writeDecimal(order.getOrderQty(), out);
+        writeString(order.getOrigClOrdId(), out);
+        writeString(order.getParentOrderId(), out);
+        writeEnum(POSITION_EFFECT, order.getPositionEffect(), out);
+        writeDecimal(order.getPrice(), out);
+        writeEnum(PRICE_TYPE, order.getPriceType(), out);
+        if (order.getPutOrCall() == null) {
+            out.writeIndex(0);
+        } else {
+            out.writeIndex(1);
+            out.writeInt(order.getPutOrCall());
+        }
+        out.writeString(rootOrderId(order));
+        writeString(order.getSecurityDesc(), out);
+        writeString(order.getSecurityExchange(), out);
+        writeEnum(SECURITY_ID_SOURCE, order.getSecurityIdSource(), out);
+        writeString(order.getSecurityId(), out);
+        out.writeIndex(1);
+        out.writeLong(sendingTime);
+        writeString(order.getSessionId(), out);
+        writeString(order.getSettlCurrency(), out);
+        writeEnum(SIDE, order.getSide(), out);
+        writeEnum(STATE, order.getState(), out);
+        writeDecimal(order.getStopPx(), out);
+        writeDecimal(order.getStrikePrice(), out);
+        writeString(order.getSymbol(), out);
+        writeString(order.getText(), out);
+        writeTimestamp(order.getTifTimestamp(), out);
+        writeEnum(TIME_IN_FORCE, order.getTimeInForce(), out);
+        out.writeIndex(1);
+        out.writeLong(
+                order.getTransactTime() != null ? toMillis(order.getTransactTime()) : sendingTime);
+        out.writeIndex(1);
+        out.writeLong(order.getTxNr());
+        writeString(order.getUnderlyingSecurityType(), out);
+    }
+
+    /** The RootOrderId is required by the schema; an order without one is its own root. */
+    static String rootOrderId(Order order) {
+        return order.getRootOrderId() != null ? order.getRootOrderId() : order.getOrderId();
+    }
+
+    /** Decimals are rescaled to the schema's scale; one that would need rounding is rejected. */
+    static BigDecimal toScale(BigDecimal value) {
+        return value.setScale(DECIMAL_SCALE, RoundingMode.UNNECESSARY);
+    }
+
+    long toMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static void writeString(String value, Encoder out) throws IOException {
+        if (value == null) {
+            out.writeIndex(0);
+        } else {
+            out.writeIndex(1);
+            out.writeString(value);
+        }
+    }
+
+    private static void writeDecimal(BigDecimal value, Encoder out) throws IOException {
+        if (value == null) {
+            out.writeIndex(0);
+        } else {
+            out.writeIndex(1);
+            out.writeBytes(toScale(value).unscaledValue().toByteArray());
+        }
+    }
+
+    private void writeTimestamp(LocalDateTime value, Encoder out) throws IOException {
+        if (value == null) {
+            out.writeIndex(0);
+        } else {
+            out.writeIndex(1);
+            out.writeLong(toMillis(value));
+        }
+    }
+
+    private static void writeEnum(int[] symbols, Enum<?> value, Encoder out) throws IOException {
+        if (value == null) {
+            out.writeIndex(0);
+            return;
+        }
+        int symbol = symbols[value.ordinal()];
+        if (symbol < 0) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "No OrderMessage symbol for %s.%s",
+                            value.getDeclaringClass().getSimpleName(), value));
+        }
+        out.writeIndex(1);
+        out.writeEnum(symbol);
+    }
+
+    /** Avro symbol index of each constant of the model enum by ordinal, -1 if it has none. */
+    private static int[] symbols(
+            Class<? extends Enum<?>> type, String field, Map<String, String> renamed) {
+        Schema schema = nonNull(SCHEMA.getField(field).schema());
+        Enum<?>[] constants = type.getEnumConstants();
+        int[] symbols = new int[constants.length];
+        for (Enum<?> constant : constants) {
+            String symbol = renamed.getOrDefault(constant.name(), constant.name());
+            symbols[constant.ordinal()] =
+                    schema.hasEnumSymbol(symbol) ? schema.getEnumOrdinal(symbol) : -1;
+        }
+        return symbols;
+    }
+
+    private static int decimalScale() {
+        Schema schema = nonNull(SCHEMA.getField("orderQty").schema());
+        return ((LogicalTypes.Decimal) schema.getLogicalType()).getScale();
+    }
+
+    private static Schema nonNull(Schema union) {
+        return union.getTypes().get(1);
+    }
+}
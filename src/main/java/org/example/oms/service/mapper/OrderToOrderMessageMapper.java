@@ -0,0 +1,138 @@
+package org.example.oms.service.mapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import org.example.common.model.Order;
+import org.example.common.model.msg.CancelState;
+import org.example.common.model.msg.ExecInst;
+import org.example.common.model.msg.HandlInst;
+import org.example.common.model.msg.OrdType;
+import org.example.common.model.msg.OrderMessage;
+import org.example.common.model.msg.PositionEffect;
+import org.example.common.model.msg.PriceType;
+import org.example.common.model.msg.SecurityIDSource;
+import org.example.common.model.msg.Side;
+import org.example.common.model.msg.State;
+import org.example.common.model.msg.TimeInForce;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the {@link OrderMessage} of an order. The producer writes the same message straight to
+ * Avro binary with {@link OrderMessageEncoder}; this object form is for code that needs the message
+ * itself.
+ */
+@Component
+public class OrderToOrderMessageMapper {
+
+    private final OrderMessageEncoder encoder = new OrderMessageEncoder();
+
+    public OrderMessage map(Order order) {
+        return map(order, Instant.now());
+    }
+
+    /** Maps the order with {@code sendingTime} as the event's timestamp. */
+    public OrderMessage map(Order order, Instant sendingTime) {
+        return OrderMessage.newBuilder()
+                .setOrderId(order.getOrderId())
+                .setRootOrderId(OrderMessageEncoder.rootOrderId(order))
+                .setOrderQty(toScale(order.getOrderQty()))
+                .setPrice(toScale(order.getPrice()))
+                .setSide(mapSide(order.getSide()))
+                .setTimeInForce(mapTimeInForce(order.getTimeInForce()))
+                .setTransactTime(
+                        order.getTransactTime() != null
+                                ? toInstant(order.getTransactTime())
+                                : sendingTime)
+                .setAccount(order.getAccount())
+                .setSymbol(order.getSymbol())
+                .setSecurityId(order.getSecurityId())
+                .setSecurityDesc(order.getSecurityDesc())
+                .setSecurityIDSource(mapSecurityIdSource(order.getSecurityIdSource()))
+                .setCancelState(map(order.getCancelState(), CancelState.class))
+                .setState(map(order.getState(), State.class))
+                .setOrdType(map(order.getOrdType(), OrdType.class))
+                .setClOrdId(order.getClOrdId())
+                .setCashOrderQty(toScale(order.getCashOrderQty()))
+                .setExDestination(order.getExDestination())
+                .setExecInst(map(order.getExecInst(), ExecInst.class))
+                .setExpireTime(toInstant(order.getExpireTime()))
+                .setHandlInst(map(order.getHandlInst(), HandlInst.class))
+                .setMaturityMonthYear(order.getMaturityMonthYear())
+                .setOrigClOrdId(order.getOrigClOrdId())
+                .setParentOrderId(order.getParentOrderId())
+                .setPositionEffect(map(order.getPositionEffect(), PositionEffect.class))
+                .setPutOrCall(order.getPutOrCall())
+                .setPriceType(map(order.getPriceType(), PriceType.class))
+                .setSecurityExchange(order.getSecurityExchange())
+                .setSendingTime(sendingTime)
+                .setSessionId(order.getSessionId())
+                .setSettlCurrency(order.getSettlCurrency())
+                .setStopPx(toScale(order.getStopPx()))
+                .setStrikePrice(toScale(order.getStrikePrice()))
+                .setText(order.getText())
+                .setTifTimestamp(toInstant(order.getTifTimestamp()))
+                .setEventId(order.getTxNr())
+                .setUnderlyingSecurityType(order.getUnderlyingSecurityType())
+                .build();
+    }
+
+    private static BigDecimal toScale(BigDecimal value) {
+        return value == null ? null : OrderMessageEncoder.toScale(value);
+    }
+
+    private Instant toInstant(LocalDateTime time) {
+        return time == null ? null : Instant.ofEpochMilli(encoder.toMillis(time));
+    }
+
+    // Same-named constants
+    private static <E extends Enum<E>> E map(Enum<?> value, Class<E> type) {
+        return value == null ? null : Enum.valueOf(type, value.name());
+    }
+
+    private Side mapSide(org.example.common.model.Side side) {
+        if (side == null) {
+            return null;
+        }
+        return switch (side) {
+            case BUY -> Side.BUY;
+            case SELL -> Side.SELL;
+            default -> throw new IllegalArgumentException(String.format("Unknown side: %s", side));
+        };
+    }
+
+    private TimeInForce mapTimeInForce(org.example.common.model.TimeInForce timeInForce) {
+        if (timeInForce == null) {
+            return null;
+        }
+        return switch (timeInForce) {
+            case DAY -> TimeInForce.DAY;
+            case GOOD_TILL_CANCEL -> TimeInForce.GTC;
+            case AT_THE_OPENING -> TimeInForce.AT_THE_OPEN;
+            case IMMEDIATE_OR_CANCEL -> TimeInForce.IOC;
+            case FILL_OR_KILL -> TimeInForce.FOK;
+            case GOOD_TILL_DATE -> TimeInForce.GTD;
+            case AT_THE_CLOSE -> TimeInForce.AT_THE_CLOSE;
+            default ->
+                    throw new IllegalArgumentException(
+                            String.format("Unknown time in force: %s", timeInForce));
+        };
+    }
+
+    private SecurityIDSource mapSecurityIdSource(
+            org.example.common.model.SecurityIdSource securityIdSource) {
+        if (securityIdSource == null) {
+            return null;
+        }
+        return switch (securityIdSource) {
+            case RIC -> SecurityIDSource.RIC;
+            case ISIN -> SecurityIDSource.ISIN;
+            case EXCHANGE_SYMBOL -> SecurityIDSource.EXCHANGE_SYMBOL;
+            case BLOOMBERG_SYMBOL -> SecurityIDSource.BLOOMBERG_SYMBOL;
+            default ->
+                    throw new IllegalArgumentException(
+                            String.format("Unknown security ID source: %s", securityIdSource));
+        };
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.oms.service.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.common.model.mapper.CommandMapper;
+import org.example.common.model.mapper.ExecutionMapper;
+import org.example.common.model.msg.ExecutionBustCmd;
+import org.example.common.model.msg.ExecutionCreateCmd;
+import org.example.common.model.msg.ExecutionWhackCmd;
+import org.example.common.model.msg.OrderAcceptCmd;
+import org.example.common.model.msg.OrderCreateCmd;
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ExecutionCommand;
+import org.example.oms.model.ExecutionCommand.Bust;
+import org.example.oms.model.ExecutionCommand.Fill;
+import org.example.oms.model.ExecutionCommand.Whack;
+import org.example.oms.model.ProcessingContext;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the Avro commands read from the command topic: order commands become transactions of the
+ * {@link OrchestrationService} pipeline, execution commands go to the {@link ExecutionService}.
+ * Both route an order's work to a single partition, so commands submitted one after the other to
+ * the same engine are applied in that order without waiting for each other, and a burst of fills
+ * shares a batch. Before switching engines the commands already submitted are waited for, so e.g.
+ * the fills following an accept see the order LIVE.
+ */
+@Service
+@Slf4j
+public class CommandService {
+
+    private enum Engine {
+        ORCHESTRATION,
+        EXECUTION
+    }
+
+    private final OrchestrationService orchestrationService;
+    private final ExecutionService executionService;
+    private final CommandMapper commandMapper;
+    private final ExecutionMapper executionMapper;
+
+    public CommandService(
+            OrchestrationService orchestrationService,
+            ExecutionService executionService,
+            CommandMapper commandMapper,
+            ExecutionMapper executionMapper) {
+        this.orchestrationService = orchestrationService;
+        this.executionService = executionService;
+        this.commandMapper = commandMapper;
+        this.executionMapper = executionMapper;
+    }
+
+    /**
+     * Runs the commands in the given order and returns once all of them are durable: one future per
+     * command, each already complete. A command rejected by the business rules completes with a
+     * failed {@link TxInfo}; one that could not be processed, e.g. because the database is down,
+     * completes exceptionally, and no later command is run: the returned list ends with it. With
+     * group commit, commands already queued behind it may have been applied; they are left to be
+     * delivered again. Malformed and unsupported commands are reported as failed.
+     */
+    public List<CompletableFuture<TxInfo>> executeInOrder(List<Object> commands) {
+        List<CompletableFuture<TxInfo>> results = new ArrayList<>(commands.size());
+        List<CompletableFuture<TxInfo>> outstanding = new ArrayList<>();
+        Engine outstandingEngine = null;
+        AtomicBoolean failed = new AtomicBoolean();
+        for (Object command : commands) {
+            if (failed.get()) {
+                break;
+            }
+            Transaction transaction;
+            ExecutionCommand executionCommand;
+            try {
+                transaction = toTransaction(command);
+                executionCommand = transaction == null ? toExecutionCommand(command) : null;
+            } catch (RuntimeException e) {
+                // A malformed command fails the same way on every redelivery, so it is rejected
+                log.warn("Malformed {}: {}", command.getClass().getSimpleName(), e.getMessage());
+                CompletableFuture<TxInfo> rejected =
+                        CompletableFuture.completedFuture(
+                                TxInfo.builder()
+                                        .message("Malformed command: " + e.getMessage())
+                                        .txState(TxState.FAIL)
+                                        .build());
+                results.add(rejected);
+                continue;
+            }
+            Engine engine =
+                    transaction != null
+                            ? Engine.ORCHESTRATION
+                            : executionCommand != null ? Engine.EXECUTION : null;
+            if (engine != outstandingEngine) {
+                await(outstanding);
+                outstandingEngine = engine;
+            }
+            CompletableFuture<TxInfo> result;
+            if (transaction != null) {
+                result = execute(transaction);
+            } else if (executionCommand != null) {
+                result = submit(executionCommand);
+            } else {
+                log.warn("Unsupported command type: {}", command.getClass().getName());
+                result =
+                        CompletableFuture.completedFuture(
+                                TxInfo.builder()
+                                        .message(
+                                                "Unsupported command: "
+                                                        + command.getClass().getSimpleName())
+                                        .txState(TxState.FAIL)
+                                        .build());
+            }
+            result.whenComplete(
+                    (txInfo, e) -> {
+                        if (e != null) {
+                            failed.set(true);
+                        }
+                    });
+            results.add(result);
+            outstanding.add(result);
+        }
+        await(outstanding);
+        for (int k = 0; k < results.size(); k++) {
+            if (results.get(k).isCompletedExceptionally()) {
+                return new ArrayList<>(results.subList(0, k + 1));
+            }
+        }
+        return results;
+    }
+
+    private CompletableFuture<TxInfo> execute(Transaction transaction) {
+        ProcessingContext context = ProcessingContext.builder().transaction(transaction).build();
+        try {
+            if (orchestrationService.isGroupCommitEnabled()) {
+                return orchestrationService.submit(context);
+            }
+            return CompletableFuture.completedFuture(orchestrationService.process(context));
+        } catch (IllegalArgumentException e) {
+            // Rejected by the business rules; nothing was written
+            return CompletableFuture.completedFuture(
+                    TxInfo.builder()
+                            .orderId(transaction.getOrderId())
+                            .message(e.getMessage())
+                            .txState(TxState.FAIL)
+                            .build());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<TxInfo> submit(ExecutionCommand command) {
+        try {
+            return executionService.submit(command);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Transaction toTransaction(Object command) {
+        return switch (command) {
+            case OrderCreateCmd cmd -> commandMapper.toNewOrderTx(cmd.getOrder());
+            case OrderAcceptCmd cmd -> AcceptOrderTx.builder().orderId(cmd.getOrderId()).build();
+            default -> null;
+        };
+    }
+
+    private ExecutionCommand toExecutionCommand(Object command) {
+        return switch (command) {
+            case ExecutionCreateCmd cmd ->
+                    new Fill(executionMapper.toExecution(cmd.getExecution()));
+            case ExecutionBustCmd cmd -> new Bust(cmd.getExecutionId());
+            case ExecutionWhackCmd cmd -> new Whack(cmd.getExecutionId());
+            default -> null;
+        };
+    }
+
+    private static void await(List<CompletableFuture<TxInfo>> outstanding) {
+        for (CompletableFuture<TxInfo> future : outstanding) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                // Reported through the command's own future
+            }
+        }
+        outstanding.clear();
+    }
+}
@@ -2,19 +2,24 @@ package org.example.oms.service.processing;
 
 import java.time.LocalDateTime;
 
+import org.example.common.model.Order;
 import org.example.oms.model.OrderEvent;
 import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.logging.FieldWriter;
+import org.example.oms.service.infra.logging.FieldWriters;
+import org.example.oms.service.infra.logging.PipelineLog;
 import org.example.oms.service.infra.repository.OrderEventRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import io.micrometer.observation.annotation.Observed;
-import lombok.extern.slf4j.Slf4j;
 
 @Service
-@Slf4j
 public class EventProcessor {
 
+    private static final PipelineLog STAGE = PipelineLog.forStage("event");
+    private static final FieldWriter<OrderEvent> ORDER_EVENT = FieldWriters.of(OrderEvent.class);
+
     private final OrderEventRepository orderEventRepository;
 
     public EventProcessor(OrderEventRepository orderEventRepository) {
@@ -26,6 +31,7 @@ public class EventProcessor {
     public void processEvent(ProcessingContext context) {
         OrderEvent orderEvent =
                 OrderEvent.builder()
+                        .tradeDate(context.getOrder().getTradeDate())
                         .orderId(context.getOrder().getOrderId())
                         .transaction(context.getTransaction())
                         .event(context.getEvent())
@@ -33,8 +39,11 @@ public class EventProcessor {
                         .build();
 
         OrderEvent savedOrderEvent = orderEventRepository.save(orderEvent);
-        log.info("Order event persisted: {}", savedOrderEvent);
+        STAGE.info("event.persisted", ORDER_EVENT, savedOrderEvent);
         context.setOrderEvent(savedOrderEvent);
-        context.getOrder().setTxNr(savedOrderEvent.getId());
+        // Event ids come from pooled blocks, so ids from different instances can interleave;
+        // never let the order's txNr go backwards.
+        Order order = context.getOrder();
+        order.setTxNr(Math.max(savedOrderEvent.getId(), order.getTxNr() + 1));
     }
 }
@@ -1,23 +1,17 @@
 package org.example.oms.service.processing;
 
-import java.math.BigDecimal;
-import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.concurrent.CompletableFuture;
 
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.example.common.model.Order;
-import org.example.common.model.msg.CancelState;
-import org.example.common.model.msg.ExecInst;
-import org.example.common.model.msg.HandlInst;
-import org.example.common.model.msg.OrdType;
-import org.example.common.model.msg.OrderMessage;
-import org.example.common.model.msg.PositionEffect;
-import org.example.common.model.msg.PriceType;
-import org.example.common.model.msg.SecurityIDSource;
-import org.example.common.model.msg.Side;
-import org.example.common.model.msg.State;
-import org.example.common.model.msg.TimeInForce;
+import org.example.oms.model.OrderOutbox;
 import org.example.oms.model.ProcessingContext;
+import org.example.oms.model.ProcessingEvent;
+import org.example.oms.service.infra.logging.FieldWriter;
+import org.example.oms.service.infra.logging.FieldWriters;
+import org.example.oms.service.infra.logging.Logfmt;
+import org.example.oms.service.infra.logging.PipelineLog;
 import org.example.oms.service.infra.repository.OrderOutboxRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
@@ -33,129 +27,94 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class EventProducer {
 
+    private static final PipelineLog STAGE = PipelineLog.forStage("producer");
+    private static final FieldWriter<OrderOutbox> OUTBOX = FieldWriters.of(OrderOutbox.class);
+
+    private static final FieldWriter<ProducerRecord<String, Order>> RECORD =
+            (record, out) -> {
+                Logfmt.append(out, "topic", record.topic());
+                Logfmt.append(out, "orderId", record.key());
+            };
+
+    private static final FieldWriter<SendResult<String, Order>> SENT =
+            (result, out) -> {
+                RECORD.write(result.getProducerRecord(), out);
+                Logfmt.append(out, "partition", result.getRecordMetadata().partition());
+                Logfmt.append(out, "offset", result.getRecordMetadata().offset());
+            };
+
     private final OrderOutboxRepository orderOutboxRepository;
     private final ApplicationEventPublisher eventPublisher;
-    private final KafkaTemplate<String, OrderMessage> kafkaTemplate;
+    private final KafkaTemplate<String, Order> kafkaTemplate;
     private final String topic;
+    private final boolean outboxEnabled;
+    private final int outboxShards;
 
     public EventProducer(
             OrderOutboxRepository orderOutboxRepository,
             ApplicationEventPublisher eventPublisher,
-            KafkaTemplate<String, OrderMessage> kafkaTemplate,
-            @Value("${kafka.order-topic}") String topic) {
+            KafkaTemplate<String, Order> kafkaTemplate,
+            @Value("${kafka.order-topic}") String topic,
+            @Value("${oms.outbox.enabled:true}") boolean outboxEnabled,
+            @Value("${oms.outbox.shards:16}") int outboxShards) {
         this.orderOutboxRepository = orderOutboxRepository;
         this.eventPublisher = eventPublisher;
         this.kafkaTemplate = kafkaTemplate;
         this.topic = topic;
+        this.outboxEnabled = outboxEnabled;
+        this.outboxShards = outboxShards;
     }
 
     @Transactional
     @Observed(name = "oms.event-producer.produce-event")
     public void produceEvent(ProcessingContext context) {
-        OrderMessage orderMessage = convertToOrderMessage(context.getOrder());
-        ProducerRecord<String, OrderMessage> producerRecord =
-                new ProducerRecord<>(topic, orderMessage);
-        CompletableFuture<SendResult<String, OrderMessage>> completableFuture =
+        produceEvent(context.getOrder());
+    }
+
+    /** Publishes the order's current state, e.g. after executions changed it. */
+    @Transactional
+    public void produceEvent(Order order) {
+        if (outboxEnabled) {
+            writeOutbox(order);
+        } else {
+            send(order);
+        }
+    }
+
+    /**
+     * Writes the outbound message in the current transaction; the relay publishes it once the
+     * transaction has committed, so a rollback never leaks a message.
+     */
+    private void writeOutbox(Order order) {
+        OrderOutbox orderOutbox =
+                OrderOutbox.builder()
+                        .orderId(order.getOrderId())
+                        .shard(OrderOutbox.shardOf(order.getOrderId(), outboxShards))
+                        .createdAt(LocalDateTime.now())
+                        // Snapshot, so later changes to the managed entity don't leak into it
+                        .order(order.toBuilder().build())
+                        .build();
+        OrderOutbox savedOrderOutbox = orderOutboxRepository.save(orderOutbox);
+        eventPublisher.publishEvent(
+                ProcessingEvent.builder().orderOutbox(savedOrderOutbox).build());
+        STAGE.info("outbox.persisted", OUTBOX, savedOrderOutbox);
+    }
+
+    private void send(Order order) {
+        // Snapshot, as the message is serialized when the producer gets to it
+        ProducerRecord<String, Order> producerRecord =
+                new ProducerRecord<>(topic, order.getOrderId(), order.toBuilder().build());
+        CompletableFuture<SendResult<String, Order>> completableFuture =
                 kafkaTemplate.send(producerRecord);
-        log.info("Sending kafka message on topic {}", topic);
+        STAGE.debug("message.sending", RECORD, producerRecord);
 
         completableFuture.whenComplete(
                 (result, ex) -> {
                     if (ex == null) {
-                        log.info(
-                                "Kafka message successfully sent: {}",
-                                result.getProducerRecord().value());
+                        STAGE.info("message.sent", SENT, result);
                     } else {
                         log.error("Error while sending kafka message: {}", producerRecord, ex);
                     }
                 });
-
-        // OrderOutbox orderOutbox =
-        // OrderOutbox.builder().orderMessage(OrderMessage.builder()
-        // .order(context.getOrder())
-        // .build()).build();
-        // OrderOutbox savedOrderOutbox = orderOutboxRepository.save(orderOutbox);
-        // eventPublisher.publishEvent(ProcessingEvent.builder().orderOutbox(savedOrderOutbox).build());
-        // log.info("Order outbox persisted: {}", savedOrderOutbox);
-    }
-
-    private OrderMessage convertToOrderMessage(Order order) {
-        return OrderMessage.newBuilder()
-                .setOrderId(order.getOrderId())
-                .setRootOrderId(order.getOrderId())
-                .setOrderQty(order.getOrderQty())
-                .setPrice(order.getPrice())
-                .setSide(mapSide(order.getSide()))
-                .setTimeInForce(mapTimeInForce(order.getTimeInForce()))
-                .setTransactTime(Instant.now())
-                .setAccount(order.getAccount())
-                .setSymbol(order.getSymbol())
-                .setSecurityId(order.getSecurityId())
-                .setSecurityDesc(order.getSecurityDesc())
-                .setSecurityIDSource(mapSecurityIdSource(order.getSecurityIdSource()))
-                .setCancelState(CancelState.PCXL)
-                .setState(State.NEW)
-                .setOrdType(OrdType.MARKET)
-                .setClOrdId(order.getClOrdId())
-                .setCashOrderQty(order.getOrderQty())
-                .setExDestination("X")
-                .setExecInst(ExecInst.NO_CROSS)
-                .setExpireTime(Instant.now())
-                .setHandlInst(HandlInst.MANUAL)
-                .setMaturityMonthYear("202510")
-                .setOrigClOrdId(order.getClOrdId())
-                .setParentOrderId(order.getOrderId())
-                .setPositionEffect(PositionEffect.OPEN)
-                .setPutOrCall(0)
-                .setPriceType(PriceType.PER_UNIT)
-                .setSecurityExchange(order.getSecurityExchange())
-                .setSendingTime(Instant.now())
-                .setSessionId(order.getSessionId())
-                .setSettlCurrency(order.getSettlCurrency())
-                .setStopPx(order.getStopPx() != null ? order.getStopPx() : BigDecimal.ZERO)
-                .setStrikePrice(
-                        order.getStrikePrice() != null ? order.getStrikePrice() : BigDecimal.ZERO)
-                .setText(order.getText())
-                .setTifTimestamp(Instant.now())
-                .setEventId(1L)
-                .setUnderlyingSecurityType("n/a")
-                .build();
-    }
-
-    private Side mapSide(org.example.common.model.Side side) {
-        return switch (side) {
-            case BUY -> Side.BUY;
-            case SELL -> Side.SELL;
-            default ->
-                    throw new IllegalArgumentException(
-                            String.format("Unknown time in force: %s", side));
-        };
-    }
-
-    private TimeInForce mapTimeInForce(org.example.common.model.TimeInForce timeInForce) {
-        return switch (timeInForce) {
-            case DAY -> TimeInForce.DAY;
-            case GOOD_TILL_CANCEL -> TimeInForce.GTC;
-            case IMMEDIATE_OR_CANCEL -> TimeInForce.IOC;
-            case FILL_OR_KILL -> TimeInForce.FOK;
-            case GOOD_TILL_DATE -> TimeInForce.GTD;
-            case AT_THE_CLOSE -> TimeInForce.AT_THE_CLOSE;
-            default ->
-                    throw new IllegalArgumentException(
-                            String.format("Unknown time in force: %s", timeInForce));
-        };
-    }
-
-    private SecurityIDSource mapSecurityIdSource(
-            org.example.common.model.SecurityIdSource securityIdSource) {
-        return switch (securityIdSource) {
-            case RIC -> SecurityIDSource.RIC;
-            case ISIN -> SecurityIDSource.ISIN;
-            case EXCHANGE_SYMBOL -> SecurityIDSource.EXCHANGE_SYMBOL;
-            case BLOOMBERG_SYMBOL -> SecurityIDSource.BLOOMBERG_SYMBOL;
-            default ->
-                    throw new IllegalArgumentException(
-                            String.format("Unknown security ID source: %s", securityIdSource));
-        };
     }
 }
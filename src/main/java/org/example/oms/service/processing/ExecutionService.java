@@ -0,0 +1,469 @@
+package org.example.oms.service.processing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ExecutionCommand;
+import org.example.oms.model.ExecutionCommand.Bust;
+import org.example.oms.model.ExecutionCommand.Fill;
+import org.example.oms.model.ExecutionCommand.Whack;
+import org.example.oms.service.business.OrderFills;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.logging.FieldWriter;
+import org.example.oms.service.infra.logging.Logfmt;
+import org.example.oms.service.infra.logging.PipelineLog;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.ExecutionRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.jaspeen.ulid.ULID;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ingests the executions reported by venues, and their busts and whacks, arriving over Kafka and
+ * REST. Commands are routed by order to single-threaded partitions that apply them in micro-batches
+ * through a {@link GroupCommitQueue}: the new executions of a batch are inserted with JDBC
+ * batching, and each order the batch touches is updated, written to the outbox and published once,
+ * with its CumQty, AvgPx and state after all of its executions. A busted or whacked execution keeps
+ * its row, marked with its new ExecType, and no longer counts towards its order.
+ *
+ * <p>Busts and whacks go to the partition of the order of the execution they reverse, looked up
+ * when they are submitted, so an execution can only be reversed once it has been committed. The
+ * orders of a batch are locked while it is applied; CumQty and AvgPx are never written by the
+ * transaction pipeline. The executions of a grouped order, and their reversals, are allocated to
+ * its members by {@link OrderGroupingService} in the same transaction.
+ */
+@Service
+@Slf4j
+public class ExecutionService {
+
+    static final String UPDATE_ORDER_SQL =
+            "update orders set cum_qty = ?, avg_px = ?, state = ?, version = version + 1"
+                    + " where order_id = ? and trade_date = ?";
+
+    // The quantity and price columns of executions are numeric(38,2)
+    private static final int SCALE = 2;
+
+    private static final PipelineLog STAGE = PipelineLog.forStage("execution");
+
+    private static final FieldWriter<Order> FILLED =
+            (order, out) -> {
+                Logfmt.append(out, "orderId", order.getOrderId());
+                Logfmt.append(out, "state", order.getState());
+                Logfmt.append(out, "cumQty", order.getCumQty());
+                Logfmt.append(out, "leavesQty", order.getLeavesQty());
+                Logfmt.append(out, "avgPx", order.getAvgPx());
+            };
+
+    /** A command on its way to the partition of {@code orderId}. */
+    record Ingest(String orderId, ExecutionCommand command) {}
+
+    private final OrderRepository orderRepository;
+    private final ExecutionRepository executionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EventProducer eventProducer;
+    private final OrderCache orderCache;
+    private final OrderStreamService orderStreamService;
+    private final OrderTreeAggregator orderTreeAggregator;
+    private final ExposureBook exposureBook;
+    private final OrderGroupingService orderGroupingService;
+    private final TransactionTemplate transactionTemplate;
+    private final List<GroupCommitQueue<Ingest, TxInfo>> partitions;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // The partitions only call back into applyBatch for commands submitted once this is constructed
+    @SuppressWarnings("this-escape")
+    public ExecutionService(
+            OrderRepository orderRepository,
+            ExecutionRepository executionRepository,
+            JdbcTemplate jdbcTemplate,
+            EventProducer eventProducer,
+            OrderCache orderCache,
+            OrderStreamService orderStreamService,
+            OrderTreeAggregator orderTreeAggregator,
+            ExposureBook exposureBook,
+            OrderGroupingService orderGroupingService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${oms.executions.partitions:0}") int partitions,
+            @Value("${oms.executions.max-batch-size:512}") int maxBatchSize,
+            @Value("${oms.executions.max-wait-micros:500}") long maxWaitMicros) {
+        this.orderRepository = orderRepository;
+        this.executionRepository = executionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventProducer = eventProducer;
+        this.orderCache = orderCache;
+        this.orderStreamService = orderStreamService;
+        this.orderTreeAggregator = orderTreeAggregator;
+        this.exposureBook = exposureBook;
+        this.orderGroupingService = orderGroupingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        List<GroupCommitQueue<Ingest, TxInfo>> queues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GroupCommitQueue<Ingest, TxInfo> partition =
+                    new GroupCommitQueue<>(
+                            this::applyBatch,
+                            maxBatchSize,
+                            TimeUnit.MICROSECONDS.toNanos(maxWaitMicros),
+                            "oms-executions-" + i);
+            queues.add(partition);
+            Gauge.builder("oms.executions.queue.depth", partition, GroupCommitQueue::size)
+                    .description("Execution commands waiting for the next batch")
+                    .tag("partition", Integer.toString(i))
+                    .register(meterRegistry);
+        }
+        this.partitions = List.copyOf(queues);
+        FunctionCounter.builder("oms.executions.applied", applied, LongAdder::sum)
+                .description("Executions, busts and whacks applied to their orders")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.executions.rejected", rejected, LongAdder::sum)
+                .description("Executions, busts and whacks rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the command for the next batch of the partition owning its order. The returned future
+     * completes once the batch has been committed, or straight away if the command is rejected
+     * before being queued.
+     */
+    public CompletableFuture<TxInfo> submit(ExecutionCommand command) {
+        if (command.execId() == null) {
+            rejected.increment();
+            return CompletableFuture.completedFuture(failed(null, "ExecID is required"));
+        }
+        String orderId =
+                switch (command) {
+                    case Fill fill -> fill.execution().getOrderId();
+                    case Bust bust -> orderOf(bust.execId());
+                    case Whack whack -> orderOf(whack.execId());
+                };
+        if (orderId == null) {
+            rejected.increment();
+            String message =
+                    command instanceof Fill
+                            ? "OrderId is required"
+                            : "Execution not found: " + command.execId();
+            return CompletableFuture.completedFuture(failed(null, message));
+        }
+        return partitions
+                .get(PartitionedEngine.partitionOf(orderId, partitions.size()))
+                .submit(new Ingest(orderId, command));
+    }
+
+    private String orderOf(String execId) {
+        return executionRepository.findByExecID(execId).map(Execution::getOrderId).orElse(null);
+    }
+
+    /**
+     * Applies a batch in one transaction, returning one {@link TxInfo} per command in the same
+     * order. A rejected command is reported as failed without affecting the others; if the batch
+     * fails to commit, its commands are retried one by one so a single bad row cannot fail the
+     * whole batch. A command that still fails for any other reason than being rejected, e.g. as the
+     * database is down, fails its future and those of the commands after it, so they are delivered
+     * again rather than reported as rejected.
+     */
+    List<TxInfo> applyBatch(List<Ingest> batch) {
+        TxInfo[] results = new TxInfo[batch.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch, results));
+        } catch (IllegalArgumentException e) {
+            if (batch.size() > 1) {
+                return retryIndividually(batch, e);
+            }
+            rejected.increment();
+            results[0] = failed(batch.get(0).orderId(), e.getMessage());
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                return retryIndividually(batch, e);
+            }
+            throw e;
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<TxInfo> retryIndividually(List<Ingest> batch, RuntimeException cause) {
+        log.warn("Batch of {} executions failed, retrying individually", batch.size(), cause);
+        List<TxInfo> results = new ArrayList<>(batch.size());
+        for (Ingest ingest : batch) {
+            try {
+                results.add(applyBatch(List.of(ingest)).get(0));
+            } catch (RuntimeException e) {
+                throw new GroupCommitQueue.PartialFailure(results, e);
+            }
+        }
+        return results;
+    }
+
+    private void apply(List<Ingest> batch, TxInfo[] results) {
+        Set<String> orderIds = new HashSet<>();
+        Set<String> execIds = new HashSet<>();
+        for (Ingest ingest : batch) {
+            orderIds.add(ingest.orderId());
+            execIds.add(ingest.command().execId());
+        }
+        Map<String, Order> orders = new HashMap<>();
+        for (Order order : orderRepository.findByOrderIdIn(orderIds)) {
+            orders.put(order.getOrderId(), order);
+        }
+        // Executions already booked, and those booked earlier in this batch
+        Map<String, Execution> executions = new HashMap<>();
+        for (Execution execution : executionRepository.findByExecIDIn(execIds)) {
+            executions.put(execution.getExecID(), execution);
+        }
+
+        Map<String, OrderFills> fills = new LinkedHashMap<>();
+        List<Execution> inserted = new ArrayList<>();
+        List<Execution> changed = new ArrayList<>();
+        List<Execution> rollups = new ArrayList<>();
+        // Executions of grouped orders, and reversals of them, to allocate to their members
+        List<Execution> allocations = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        int accepted = 0;
+        int failed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Ingest ingest = batch.get(i);
+            try {
+                Order order = orders.get(ingest.orderId());
+                if (order == null) {
+                    throw new IllegalArgumentException("Order not found: " + ingest.orderId());
+                }
+                OrderFills orderFills =
+                        fills.computeIfAbsent(ingest.orderId(), k -> new OrderFills(order));
+                String message;
+                switch (ingest.command()) {
+                    case Fill fill -> {
+                        Execution execution =
+                                fill(fill.execution(), order, orderFills, executions, now);
+                        inserted.add(execution);
+                        changed.add(execution);
+                        rollups.add(execution);
+                        if (order.isGroupedOrder()) {
+                            allocations.add(execution);
+                        }
+                        message = "Execution booked";
+                    }
+                    case Bust bust -> {
+                        Execution reversal =
+                                reverse(bust.execId(), Execution.BUST, orderFills, executions);
+                        rollups.add(reversal);
+                        if (order.isGroupedOrder()) {
+                            allocations.add(reversal);
+                        }
+                        changed.add(executions.get(bust.execId()));
+                        message = "Execution busted";
+                    }
+                    case Whack whack -> {
+                        Execution reversal =
+                                reverse(whack.execId(), Execution.WHACK, orderFills, executions);
+                        rollups.add(reversal);
+                        if (order.isGroupedOrder()) {
+                            allocations.add(reversal);
+                        }
+                        changed.add(executions.get(whack.execId()));
+                        message = "Execution whacked";
+                    }
+                }
+                results[i] =
+                        TxInfo.builder()
+                                .orderId(ingest.orderId())
+                                .message(message)
+                                .txState(TxState.OK)
+                                .build();
+                accepted++;
+            } catch (IllegalArgumentException e) {
+                failed++;
+                results[i] = failed(ingest.orderId(), e.getMessage());
+            }
+        }
+
+        executionRepository.saveAll(inserted);
+        List<Order> updated = new ArrayList<>(fills.size());
+        fills.forEach(
+                (orderId, orderFills) -> {
+                    if (orderFills.changed()) {
+                        updated.add(orderFills.applyTo(orders.get(orderId)));
+                    }
+                });
+        jdbcTemplate.batchUpdate(
+                UPDATE_ORDER_SQL,
+                updated,
+                updated.size(),
+                (ps, order) -> {
+                    ps.setBigDecimal(1, order.getCumQty());
+                    ps.setBigDecimal(2, order.getAvgPx());
+                    ps.setInt(3, order.getState().ordinal());
+                    ps.setString(4, order.getOrderId());
+                    ps.setObject(5, order.getTradeDate());
+                });
+        for (Order order : updated) {
+            eventProducer.produceEvent(order);
+            STAGE.info("order.filled", FILLED, order);
+        }
+        // In batch order, so a fill is allocated before a bust of it in the same batch is reversed
+        for (Execution execution : allocations) {
+            orderGroupingService.allocate(orders.get(execution.getOrderId()), execution);
+        }
+
+        // Counted once committed, as a failed batch is retried command by command
+        int appliedCount = accepted;
+        int rejectedCount = failed;
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        applied.add(appliedCount);
+                        rejected.add(rejectedCount);
+                        for (Order order : updated) {
+                            orderCache.put(order);
+                            orderStreamService.publish(order);
+                            exposureBook.onOrder(order);
+                        }
+                        changed.forEach(orderStreamService::publish);
+                        rollups.forEach(orderTreeAggregator::onExecution);
+                    }
+                });
+    }
+
+    private static Execution fill(
+            Execution execution,
+            Order order,
+            OrderFills orderFills,
+            Map<String, Execution> executions,
+            LocalDateTime now) {
+        String execId = execution.getExecID();
+        if (order.getGroupOrderId() != null && !order.isGroupedOrder()) {
+            throw new IllegalArgumentException(
+                    "Order "
+                            + order.getOrderId()
+                            + " is a member of "
+                            + order.getGroupOrderId()
+                            + ", which its fills are allocated from");
+        }
+        if (executions.containsKey(execId)) {
+            throw new IllegalArgumentException("Duplicate execution: " + execId);
+        }
+        BigDecimal lastQty = scaled(execution.getLastQty());
+        BigDecimal lastPx = scaled(execution.getLastPx());
+        if (lastQty == null || lastQty.signum() <= 0) {
+            throw new IllegalArgumentException("LastQty must be positive: " + lastQty);
+        }
+        if (lastPx == null || lastPx.signum() < 0) {
+            throw new IllegalArgumentException("LastPx must not be negative: " + lastPx);
+        }
+        if (!OrderFills.canExecute(orderFills.state())) {
+            throw new IllegalArgumentException(
+                    "Order "
+                            + execution.getOrderId()
+                            + " cannot be executed in state "
+                            + orderFills.state());
+        }
+        orderFills.add(lastQty, lastPx);
+        Execution booked =
+                Execution.builder()
+                        .tradeDate(order.getTradeDate())
+                        .orderId(execution.getOrderId())
+                        .executionId(ULID.random().toString())
+                        .execID(execId)
+                        .secondaryExecID(execution.getSecondaryExecID())
+                        .execType(Execution.FILL)
+                        .lastQty(lastQty)
+                        .lastPx(lastPx)
+                        .lastMkt(execution.getLastMkt())
+                        .lastCapacity(execution.getLastCapacity())
+                        .cumQty(orderFills.cumQty())
+                        .leavesQty(orderFills.leavesQty())
+                        .avgPx(scaled(orderFills.avgPx()))
+                        .transactTime(
+                                execution.getTransactTime() != null
+                                        ? execution.getTransactTime()
+                                        : now)
+                        .creationDate(now)
+                        .build();
+        executions.put(execId, booked);
+        return booked;
+    }
+
+    /**
+     * Marks the execution as busted or whacked and takes it off its order; returns the reversal to
+     * roll up the order tree, with the negated quantity.
+     */
+    private static Execution reverse(
+            String execId,
+            String execType,
+            OrderFills orderFills,
+            Map<String, Execution> executions) {
+        Execution original = executions.get(execId);
+        if (original == null) {
+            throw new IllegalArgumentException("Execution not found: " + execId);
+        }
+        if (Execution.ALLOCATION.equals(original.getExecType())) {
+            throw new IllegalArgumentException(
+                    "Execution "
+                            + execId
+                            + " is an allocation; bust or whack the grouped order's execution");
+        }
+        if (original.getExecType() != null && !Execution.FILL.equals(original.getExecType())) {
+            throw new IllegalArgumentException(
+                    "Execution " + execId + " is already reversed: " + original.getExecType());
+        }
+        BigDecimal lastQty =
+                original.getLastQty() != null ? original.getLastQty() : BigDecimal.ZERO;
+        BigDecimal lastPx = original.getLastPx() != null ? original.getLastPx() : BigDecimal.ZERO;
+        orderFills.add(lastQty.negate(), lastPx);
+        // Managed, or about to be inserted if booked earlier in this batch
+        original.setExecType(execType);
+        return Execution.builder()
+                .orderId(original.getOrderId())
+                .execID(execId)
+                .execType(execType)
+                .lastQty(lastQty.negate())
+                .lastPx(lastPx)
+                .build();
+    }
+
+    private static BigDecimal scaled(BigDecimal value) {
+        return value != null ? value.setScale(SCALE, RoundingMode.HALF_UP) : null;
+    }
+
+    private static TxInfo failed(String orderId, String message) {
+        return TxInfo.builder().orderId(orderId).message(message).txState(TxState.FAIL).build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (GroupCommitQueue<?, ?> partition : partitions) {
+            partition.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.oms.service.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects concurrently submitted transactions and hands them to a batch processor in groups, so
+ * that many callers share a single database commit. A single worker thread drains the queue: while
+ * one group is being committed the next one accumulates, which keeps groups small under light load
+ * and large under heavy load without adding latency of its own beyond {@code maxWaitNanos}. The
+ * batch processor returns one result per item, in the order given; if it throws, every item of the
+ * group fails with the exception, unless it is a {@link PartialFailure} naming the results of the
+ * items it did complete.
+ *
+ * @param <T> the items submitted, e.g. transactions
+ * @param <R> the result of each item
+ */
+@Slf4j
+class GroupCommitQueue<T, R> implements AutoCloseable {
+
+    private record Pending<T, R>(T item, CompletableFuture<R> result) {}
+
+    /**
+     * Thrown by a batch processor that completed the first items of a group before failing: those
+     * items get their results and the rest fail with the cause.
+     */
+    static final class PartialFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<?> completed;
+
+        PartialFailure(List<?> completed, RuntimeException cause) {
+            super(cause);
+            this.completed = List.copyOf(completed);
+        }
+
+        List<?> completed() {
+            return completed;
+        }
+    }
+
+    private final BlockingQueue<Pending<T, R>> queue = new LinkedBlockingQueue<>();
+    private final Function<List<T>, List<R>> batchProcessor;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    GroupCommitQueue(
+            Function<List<T>, List<R>> batchProcessor, int maxBatchSize, long maxWaitNanos) {
+        this(batchProcessor, maxBatchSize, maxWaitNanos, "oms-group-commit");
+    }
+
+    GroupCommitQueue(
+            Function<List<T>, List<R>> batchProcessor,
+            int maxBatchSize,
+            long maxWaitNanos,
+            String name) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.batchProcessor = batchProcessor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWaitNanos;
+        this.worker = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    CompletableFuture<R> submit(T item) {
+        if (!running) {
+            throw new IllegalStateException("Group commit queue is shut down");
+        }
+        CompletableFuture<R> result = new CompletableFuture<>();
+        queue.add(new Pending<>(item, result));
+        return result;
+    }
+
+    /** Number of transactions waiting for the next group. */
+    int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Pending<T, R>> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T, R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                collect(group);
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+        // Anything left after an interrupt will never be processed
+        Pending<T, R> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result()
+                    .completeExceptionally(
+                            new IllegalStateException("Group commit queue is shut down"));
+        }
+    }
+
+    private void collect(List<Pending<T, R>> group) throws InterruptedException {
+        queue.drainTo(group, maxBatchSize - group.size());
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (group.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+            queue.drainTo(group, maxBatchSize - group.size());
+        }
+    }
+
+    private void commit(List<Pending<T, R>> group) {
+        List<T> items = new ArrayList<>(group.size());
+        group.forEach(pending -> items.add(pending.item()));
+        try {
+            List<R> results = batchProcessor.apply(items);
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).result().complete(results.get(i));
+            }
+        } catch (PartialFailure e) {
+            List<?> completed = e.completed();
+            log.error(
+                    "Group commit failed after {} of {} items",
+                    completed.size(),
+                    group.size(),
+                    e.getCause());
+            for (int i = 0; i < group.size(); i++) {
+                if (i < completed.size()) {
+                    @SuppressWarnings("unchecked")
+                    R result = (R) completed.get(i);
+                    group.get(i).result().complete(result);
+                } else {
+                    group.get(i).result().completeExceptionally(e.getCause());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} items failed", group.size(), e);
+            group.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+    }
+}
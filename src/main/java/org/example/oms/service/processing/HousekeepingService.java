@@ -0,0 +1,383 @@
+package org.example.oms.service.processing;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.TimeInForce;
+import org.example.common.model.tx.ExpireOrderTx;
+import org.example.oms.model.Event;
+import org.example.oms.model.OrderEvent;
+import org.example.oms.service.business.StateMachine;
+import org.example.oms.service.infra.ClOrdIdIndex;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.OrderEventRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * End-of-day housekeeping: working orders whose time in force has run out are moved to EXP, and
+ * terminal orders older than {@code archive-after-days} are moved to the archive tables of the V6
+ * migration.
+ *
+ * <p>DAY orders expire once their trade date is over, GTD orders at their expireTime. Each batch of
+ * at most {@code batch-size} orders is one transaction that locks its rows with {@code skip
+ * locked}, so an order the live flow is working on is left for a later batch rather than waited
+ * for; expired orders get an EXP event and an outbound message like any other state change. Batches
+ * are {@code pause-ms} apart and a run stops after {@code max-batches}, so a large backlog is
+ * worked off over several runs instead of competing with order flow.
+ *
+ * <p>An order is archived with its events and fills once every order of its tree is terminal and
+ * older than the retention period; day partitions are archived as a whole by PartitionMaintenance.
+ */
+@Service
+@Slf4j
+public class HousekeepingService {
+
+    static final String ARCHIVE_SCHEMA = "oms_archive";
+
+    static final List<String> TABLES = List.of("orders", "order_events", "executions");
+
+    // Partition pruning limits the DAY query to past trade dates
+    static final String EXPIRED_DAY_ORDERS_SQL =
+            "select id from orders where state in (?, ?) and time_in_force = ? and trade_date < ?"
+                    + " order by trade_date, id limit ? for update skip locked";
+
+    static final String EXPIRED_GTD_ORDERS_SQL =
+            "select id from orders where state in (?, ?) and time_in_force = ? and expire_time <= ?"
+                    + " order by expire_time, id limit ? for update skip locked";
+
+    static final String ARCHIVABLE_ORDERS_SQL =
+            "select o.order_id from orders o where o.state in (?, ?) and o.trade_date < ?"
+                    + " and not exists (select 1 from orders t where t.root_order_id ="
+                    + " o.root_order_id and (t.state not in (?, ?) or t.trade_date >= ?))"
+                    + " order by o.trade_date, o.id limit ? for update of o skip locked";
+
+    /** What a run did; {@code expired} counts DAY and GTD orders alike. */
+    public record HousekeepingResult(int expired, int archived, long elapsedMillis) {}
+
+    private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final EventProducer eventProducer;
+    private final OrderCache orderCache;
+    private final OrderStreamService orderStreamService;
+    private final OrderTreeAggregator orderTreeAggregator;
+    private final ExposureBook exposureBook;
+    private final ClOrdIdIndex clOrdIdIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final int maxBatches;
+    private final long pauseMillis;
+    private final long lockTimeoutMillis;
+    private final int archiveAfterDays;
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder archived = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    public HousekeepingService(
+            OrderRepository orderRepository,
+            OrderEventRepository orderEventRepository,
+            EventProducer eventProducer,
+            OrderCache orderCache,
+            OrderStreamService orderStreamService,
+            OrderTreeAggregator orderTreeAggregator,
+            ExposureBook exposureBook,
+            ClOrdIdIndex clOrdIdIndex,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${oms.housekeeping.enabled:true}") boolean enabled,
+            @Value("${oms.housekeeping.interval-ms:60000}") long intervalMillis,
+            @Value("${oms.housekeeping.batch-size:500}") int batchSize,
+            @Value("${oms.housekeeping.max-batches:100}") int maxBatches,
+            @Value("${oms.housekeeping.pause-ms:100}") long pauseMillis,
+            @Value("${oms.housekeeping.lock-timeout-ms:2000}") long lockTimeoutMillis,
+            @Value("${oms.housekeeping.archive-after-days:0}") int archiveAfterDays) {
+        this.orderRepository = orderRepository;
+        this.orderEventRepository = orderEventRepository;
+        this.eventProducer = eventProducer;
+        this.orderCache = orderCache;
+        this.orderStreamService = orderStreamService;
+        this.orderTreeAggregator = orderTreeAggregator;
+        this.exposureBook = exposureBook;
+        this.clOrdIdIndex = clOrdIdIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pauseMillis = pauseMillis;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.archiveAfterDays = archiveAfterDays;
+        FunctionCounter.builder("oms.housekeeping.expired", expired, LongAdder::sum)
+                .description("Working orders moved to EXP by housekeeping")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.housekeeping.archived", archived, LongAdder::sum)
+                .description("Terminal orders moved to the archive tables")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("oms-housekeeping").daemon().factory());
+        scheduler.scheduleWithFixedDelay(
+                this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            HousekeepingResult result = run();
+            if (result.expired() > 0 || result.archived() > 0) {
+                log.info(
+                        "Housekeeping expired {} and archived {} orders in {} ms",
+                        result.expired(),
+                        result.archived(),
+                        result.elapsedMillis());
+            }
+        } catch (RuntimeException e) {
+            log.error("Housekeeping failed", e);
+        }
+    }
+
+    /** Expires what has run out, then archives what is old enough. */
+    public HousekeepingResult run() {
+        long start = System.nanoTime();
+        int expiredOrders = expire();
+        int archivedOrders = archive();
+        return new HousekeepingResult(
+                expiredOrders,
+                archivedOrders,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Moves the working DAY orders of past trade dates and the GTD orders past expireTime to EXP.
+     */
+    public int expire() {
+        LocalDateTime now = LocalDateTime.now();
+        int count =
+                inBatches(
+                        () ->
+                                expireBatch(
+                                        EXPIRED_DAY_ORDERS_SQL,
+                                        TimeInForce.DAY,
+                                        now.toLocalDate(),
+                                        now));
+        if (!Thread.currentThread().isInterrupted()) {
+            count +=
+                    inBatches(
+                            () ->
+                                    expireBatch(
+                                            EXPIRED_GTD_ORDERS_SQL,
+                                            TimeInForce.GOOD_TILL_DATE,
+                                            now,
+                                            now));
+        }
+        return count;
+    }
+
+    /**
+     * Moves the terminal orders of trade dates more than {@code archive-after-days} ago, with their
+     * events and fills, to the archive tables. Does nothing if {@code archive-after-days} is not
+     * set.
+     */
+    public int archive() {
+        if (archiveAfterDays <= 0) {
+            return 0;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        return inBatches(() -> archiveBatch(cutoff));
+    }
+
+    /** Runs batches until one comes back short, {@code max-batches} have run or one fails. */
+    private int inBatches(IntSupplier batch) {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int count;
+            try {
+                count = batch.getAsInt();
+            } catch (DataAccessException e) {
+                log.warn("Housekeeping batch failed, retrying next run: {}", e.getMessage());
+                break;
+            }
+            total += count;
+            if (count < batchSize || !pause()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int expireBatch(String sql, TimeInForce timeInForce, Object bound, LocalDateTime now) {
+        Integer count =
+                transactionTemplate.execute(
+                        status -> {
+                            jdbcTemplate.execute("set local lock_timeout = " + lockTimeoutMillis);
+                            List<Long> ids =
+                                    jdbcTemplate.queryForList(
+                                            sql,
+                                            Long.class,
+                                            State.UNACK.ordinal(),
+                                            State.LIVE.ordinal(),
+                                            timeInForce.name(),
+                                            bound,
+                                            batchSize);
+                            if (!ids.isEmpty()) {
+                                expire(orderRepository.findAllById(ids), now);
+                            }
+                            return ids.size();
+                        });
+        return count != null ? count : 0;
+    }
+
+    private void expire(List<Order> orders, LocalDateTime now) {
+        List<OrderEvent> events = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (!StateMachine.of(order).canTransition(order.getState(), State.EXP)) {
+                throw new IllegalStateException(
+                        "Order " + order.getOrderId() + " cannot expire from " + order.getState());
+            }
+            events.add(
+                    OrderEvent.builder()
+                            .tradeDate(order.getTradeDate())
+                            .orderId(order.getOrderId())
+                            .transaction(
+                                    ExpireOrderTx.builder().orderId(order.getOrderId()).build())
+                            .event(Event.EXP)
+                            .timeStamp(now)
+                            .build());
+        }
+        List<OrderEvent> saved = orderEventRepository.saveAll(events);
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            order.setState(State.EXP);
+            // Same rule as EventProcessor
+            order.setTxNr(Math.max(saved.get(i).getId(), order.getTxNr() + 1));
+            eventProducer.produceEvent(order);
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        expired.add(orders.size());
+                        for (Order order : orders) {
+                            // Evicts it, as EXP is terminal
+                            orderCache.put(order);
+                            orderStreamService.publish(order);
+                            orderTreeAggregator.onOrder(order);
+                            clOrdIdIndex.onOrder(order);
+                            exposureBook.onOrder(order);
+                        }
+                    }
+                });
+    }
+
+    private int archiveBatch(LocalDate cutoff) {
+        Integer count =
+                transactionTemplate.execute(
+                        status -> {
+                            jdbcTemplate.execute("set local lock_timeout = " + lockTimeoutMillis);
+                            List<String> orderIds =
+                                    jdbcTemplate.queryForList(
+                                            ARCHIVABLE_ORDERS_SQL,
+                                            String.class,
+                                            State.CLOSED.ordinal(),
+                                            State.EXP.ordinal(),
+                                            cutoff,
+                                            State.CLOSED.ordinal(),
+                                            State.EXP.ordinal(),
+                                            cutoff,
+                                            batchSize);
+                            if (orderIds.isEmpty()) {
+                                return 0;
+                            }
+                            // Snapshots of archived orders would otherwise reappear in every
+                            // rebuild
+                            jdbcTemplate.update(
+                                    "delete from order_snapshots where order_id = any(?)",
+                                    ps -> ps.setArray(1, textArray(ps.getConnection(), orderIds)));
+                            for (String table : TABLES) {
+                                jdbcTemplate.update(
+                                        "with moved as (delete from "
+                                                + table
+                                                + " where order_id = any(?) and trade_date < ?"
+                                                + " returning *) insert into "
+                                                + ARCHIVE_SCHEMA
+                                                + "."
+                                                + table
+                                                + " select * from moved",
+                                        ps -> {
+                                            ps.setArray(1, textArray(ps.getConnection(), orderIds));
+                                            ps.setObject(2, cutoff);
+                                        });
+                            }
+                            int size = orderIds.size();
+                            TransactionSynchronizationManager.registerSynchronization(
+                                    new TransactionSynchronization() {
+                                        @Override
+                                        public void afterCommit() {
+                                            archived.add(size);
+                                        }
+                                    });
+                            return size;
+                        });
+        return count != null ? count : 0;
+    }
+
+    private static Array textArray(Connection connection, List<String> values) throws SQLException {
+        return connection.createArrayOf("text", values.toArray());
+    }
+}
@@ -1,12 +1,30 @@
 package org.example.oms.service.processing;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.example.common.model.tx.TxInfo;
 import org.example.common.model.tx.TxState;
 import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.OrderCache;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.observation.annotation.Observed;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -16,28 +34,97 @@ public class OrchestrationService {
     private final TransactionService transactionService;
     private final EventProcessor eventProcessor;
     private final ValidationService validationService;
+    private final OrderPropagationService orderPropagationService;
+    private final RiskCheckService riskCheckService;
     private final PersistenceService persistenceService;
     private final EventProducer eventProducer;
+    private final OrderCache orderCache;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionedEngine groupCommitEngine;
+    private final Counter staleRetries;
 
+    // The partitions only call back into processBatch for transactions submitted once this is
+    // constructed
+    @SuppressWarnings("this-escape")
     public OrchestrationService(
             TransactionService transactionService,
             EventProcessor eventProcessor,
             ValidationService validationService,
+            OrderPropagationService orderPropagationService,
+            RiskCheckService riskCheckService,
             PersistenceService persistenceService,
-            EventProducer eventProducer) {
+            EventProducer eventProducer,
+            OrderCache orderCache,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${oms.group-commit.enabled:false}") boolean groupCommitEnabled,
+            @Value("${oms.group-commit.partitions:1}") int groupCommitPartitions,
+            @Value("${oms.group-commit.max-batch-size:256}") int groupCommitMaxBatchSize,
+            @Value("${oms.group-commit.max-wait-micros:200}") long groupCommitMaxWaitMicros) {
         this.transactionService = transactionService;
         this.eventProcessor = eventProcessor;
         this.validationService = validationService;
+        this.orderPropagationService = orderPropagationService;
+        this.riskCheckService = riskCheckService;
         this.persistenceService = persistenceService;
         this.eventProducer = eventProducer;
+        this.orderCache = orderCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.groupCommitEngine =
+                groupCommitEnabled
+                        ? new PartitionedEngine(
+                                this::processBatch,
+                                transactionService::orderIdOf,
+                                groupCommitPartitions > 0
+                                        ? groupCommitPartitions
+                                        : Runtime.getRuntime().availableProcessors(),
+                                groupCommitMaxBatchSize,
+                                TimeUnit.MICROSECONDS.toNanos(groupCommitMaxWaitMicros),
+                                meterRegistry)
+                        : null;
+        this.staleRetries =
+                Counter.builder("oms.orchestration.stale.retries")
+                        .description(
+                                "Transactions run again after writing a stale copy of the order")
+                        .register(meterRegistry);
     }
 
-    @Transactional
+    /**
+     * Runs the transaction through the pipeline and commits it. A write from a stale copy of the
+     * order (an {@link OrderCache} entry that another writer has since changed) fails on the
+     * order's version; the copy is then evicted and the transaction run once more on the current
+     * state.
+     */
     @Observed(name = "oms.orchestration-service.process")
     public TxInfo process(ProcessingContext context) {
+        try {
+            return transactionTemplate.execute(status -> processInTransaction(context));
+        } catch (RuntimeException e) {
+            if (!isStale(e) || TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+            String orderId =
+                    context.getOrder() != null
+                            ? context.getOrder().getOrderId()
+                            : context.getTransaction().getOrderId();
+            log.info("Order {} changed concurrently, retrying on its current state", orderId);
+            if (orderId != null) {
+                orderCache.evict(orderId);
+            }
+            staleRetries.increment();
+            ProcessingContext retry =
+                    ProcessingContext.builder().transaction(context.getTransaction()).build();
+            return transactionTemplate.execute(status -> processInTransaction(retry));
+        }
+    }
+
+    private TxInfo processInTransaction(ProcessingContext context) {
         transactionService.executeTransaction(context);
         eventProcessor.processEvent(context);
         validationService.validate(context);
+        // Before anything is carried down, so a rejected transaction has written nothing
+        riskCheckService.check(context);
+        orderPropagationService.propagate(context);
         persistenceService.persist(context);
         eventProducer.produceEvent(context);
 
@@ -47,4 +134,155 @@ public class OrchestrationService {
                 .txState(TxState.OK)
                 .build();
     }
+
+    /** Whether the failure is a version check of an order that another writer changed first. */
+    static boolean isStale(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isGroupCommitEnabled() {
+        return groupCommitEngine != null;
+    }
+
+    /**
+     * Queues the transaction for the next group commit of the partition owning its order. The
+     * returned future completes once the group containing it has been committed.
+     */
+    public CompletableFuture<TxInfo> submit(ProcessingContext context) {
+        if (groupCommitEngine == null) {
+            throw new IllegalStateException("Group commit is not enabled");
+        }
+        return groupCommitEngine.submit(context);
+    }
+
+    /**
+     * Runs the given transactions through the pipeline and commits them together, returning one
+     * {@link TxInfo} per context in the same order. A transaction rejected by {@link
+     * TransactionService}, {@link ValidationService}, {@link RiskCheckService} or {@link
+     * OrderPropagationService} is reported as failed without affecting the others. Transactions
+     * touching the same order tree (by rootOrderId) are never committed in the same group, as a
+     * cancel or replace is carried down to the descendants: the current group is committed first so
+     * the later one sees the result of the earlier one. If a group fails to commit, its
+     * transactions are retried one by one so a single bad row cannot fail the whole batch. A
+     * transaction that still fails for any other reason than being rejected, e.g. as the database
+     * is down, fails its future and those of the transactions after it, so they are delivered again
+     * rather than reported as rejected.
+     */
+    @Observed(name = "oms.orchestration-service.process-batch")
+    public List<TxInfo> processBatch(List<ProcessingContext> contexts) {
+        TxInfo[] results = new TxInfo[contexts.size()];
+        int from = 0;
+        while (from < contexts.size()) {
+            int to = groupEnd(contexts, from);
+            commitGroup(contexts, from, to, results);
+            from = to;
+        }
+        return Arrays.asList(results);
+    }
+
+    private int groupEnd(List<ProcessingContext> contexts, int from) {
+        Set<String> rootOrderIds = new HashSet<>();
+        int to = from;
+        while (to < contexts.size()) {
+            String rootOrderId =
+                    transactionService.rootOrderIdOf(contexts.get(to).getTransaction());
+            if (rootOrderId != null && !rootOrderIds.add(rootOrderId)) {
+                break;
+            }
+            to++;
+        }
+        return to;
+    }
+
+    private void commitGroup(List<ProcessingContext> contexts, int from, int to, TxInfo[] results) {
+        List<ProcessingContext> accepted = new ArrayList<>(to - from);
+        List<Integer> acceptedIndexes = new ArrayList<>(to - from);
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        for (int i = from; i < to; i++) {
+                            ProcessingContext context = contexts.get(i);
+                            try {
+                                transactionService.executeTransaction(context);
+                                validationService.validate(context);
+                                riskCheckService.check(context);
+                                orderPropagationService.propagate(context);
+                                accepted.add(context);
+                                acceptedIndexes.add(i);
+                            } catch (IllegalArgumentException e) {
+                                // Propagation rejects before changing any descendant
+                                riskCheckService.release(context);
+                                persistenceService.discard(context);
+                                results[i] = failed(context, e);
+                            }
+                        }
+                        for (ProcessingContext context : accepted) {
+                            eventProcessor.processEvent(context);
+                            persistenceService.persist(context);
+                            eventProducer.produceEvent(context);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} transactions failed, retrying individually", to - from, e);
+            // Rejections stand, as no two transactions of a group touch the same order tree
+            for (int i = from; i < to; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                try {
+                    results[i] = processIsolated(contexts.get(i));
+                } catch (RuntimeException failure) {
+                    throw new GroupCommitQueue.PartialFailure(
+                            Arrays.asList(results).subList(0, i), failure);
+                }
+            }
+            return;
+        }
+
+        for (int k = 0; k < accepted.size(); k++) {
+            ProcessingContext context = accepted.get(k);
+            results[acceptedIndexes.get(k)] =
+                    TxInfo.builder()
+                            .message("Processing completed")
+                            .orderId(context.getOrder().getOrderId())
+                            .txState(TxState.OK)
+                            .build();
+        }
+    }
+
+    private TxInfo processIsolated(ProcessingContext context) {
+        ProcessingContext retry =
+                ProcessingContext.builder().transaction(context.getTransaction()).build();
+        try {
+            return process(retry);
+        } catch (IllegalArgumentException e) {
+            return failed(retry, e);
+        }
+    }
+
+    private TxInfo failed(ProcessingContext context, RuntimeException e) {
+        String orderId =
+                context.getOrder() != null
+                        ? context.getOrder().getOrderId()
+                        : context.getTransaction().getOrderId();
+        return TxInfo.builder()
+                .orderId(orderId)
+                .message(e.getMessage())
+                .txState(TxState.FAIL)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (groupCommitEngine != null) {
+            groupCommitEngine.close();
+        }
+    }
 }
@@ -0,0 +1,550 @@
+package org.example.oms.service.processing;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.Tx;
+import org.example.oms.model.Event;
+import org.example.oms.model.OrderEvent;
+import org.example.oms.service.business.ProRataAllocation;
+import org.example.oms.service.business.StateMachine;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.OrderEventRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.example.oms.service.mapper.NewOrderTxToOrderMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.jaspeen.ulid.ULID;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Groups working client orders of the same instrument, side, order type and price into a grouped
+ * order that is executed in the market for them (specs/order_grouping.md), and allocates the
+ * grouped order's fills back to its members.
+ *
+ * <p>Each fill of a grouped order is split across the members pro rata to what they have left, in
+ * lots of {@code lot-size} ({@link ProRataAllocation}): the members are read as scaled longs in
+ * orderId order, and their updates and ALLOCATION executions are written by one statement. A bust
+ * or whack of the grouped order's execution reverses exactly what it allocated. Allocation runs in
+ * the transaction that books the fill, on the execution partition owning the grouped order, which
+ * is the only writer of its members' fills: members cannot be executed directly.
+ */
+@Service
+@Slf4j
+public class OrderGroupingService {
+
+    static final String MEMBERS_SQL =
+            "select order_id, trade_date, order_qty, cum_qty, state from orders"
+                    + " where group_order_id = ? and order_id <> group_order_id order by order_id";
+
+    static final String EXECUTION_IDS_SQL =
+            "select nextval('execution_seq') from generate_series(1, ?)";
+
+    // Members are updated and their executions inserted by one statement; LIVE members reaching
+    // their OrderQty are FILLED, as in OrderFills
+    static final String ALLOCATE_SQL =
+            "with a (order_id, trade_date, qty, id, execution_id) as (select * from"
+                    + " unnest(?::text[], ?::date[], ?::numeric[], ?::bigint[], ?::text[])),"
+                    + " m as (update orders o set"
+                    + " avg_px = round((coalesce(o.avg_px, 0) * o.cum_qty + a.qty * ?)"
+                    + " / (o.cum_qty + a.qty), 8),"
+                    + " cum_qty = o.cum_qty + a.qty,"
+                    + " state = case when o.state = ? and o.cum_qty + a.qty >= o.order_qty"
+                    + " then ? else o.state end,"
+                    + " version = o.version + 1"
+                    + " from a where o.order_id = a.order_id and o.trade_date = a.trade_date"
+                    + " returning a.id, a.execution_id, a.qty, o.order_id, o.trade_date,"
+                    + " o.order_qty, o.cum_qty, o.avg_px, o.state, o.version),"
+                    + " x as (insert into executions (id, trade_date, order_id, execution_id,"
+                    + " execid, exec_type, last_qty, last_px, cum_qty, leaves_qty, avg_px,"
+                    + " transact_time, creation_date)"
+                    + " select id, trade_date, order_id, execution_id, ? || '/' || order_id, ?,"
+                    + " qty, ?, cum_qty, case when state = ? then greatest(order_qty - cum_qty, 0)"
+                    + " else 0 end, round(avg_px, 2), ?, ? from m),"
+                    + " g as (update orders set allocated_to_members_qty ="
+                    + " coalesce(allocated_to_members_qty, 0) + ? where order_id = ?"
+                    + " and trade_date = ?)"
+                    + " select order_id, qty, cum_qty, avg_px, state, version from m";
+
+    // The reverse of ALLOCATE_SQL for the allocations of one execution of the grouped order
+    static final String REVERSE_SQL =
+            "with r as (update executions set exec_type = ? where execid = any(?) and exec_type = ?"
+                    + " returning order_id, trade_date, last_qty, last_px),"
+                    + " m as (update orders o set"
+                    + " avg_px = case when o.cum_qty = r.last_qty then null else"
+                    + " round((o.avg_px * o.cum_qty - r.last_qty * r.last_px)"
+                    + " / (o.cum_qty - r.last_qty), 8) end,"
+                    + " cum_qty = o.cum_qty - r.last_qty,"
+                    + " state = case when o.state = ? and o.cum_qty - r.last_qty < o.order_qty"
+                    + " then ? else o.state end,"
+                    + " version = o.version + 1"
+                    + " from r where o.order_id = r.order_id and o.trade_date = r.trade_date"
+                    + " returning o.order_id, r.last_qty, o.cum_qty, o.avg_px, o.state, o.version),"
+                    + " g as (update orders set allocated_to_members_qty ="
+                    + " coalesce(allocated_to_members_qty, 0)"
+                    + " - (select coalesce(sum(last_qty), 0) from r)"
+                    + " where order_id = ? and trade_date = ?)"
+                    + " select order_id, -last_qty, cum_qty, avg_px, state, version from m";
+
+    private static final State[] STATES = State.values();
+
+    /** A grouped order as created, with its members in allocation order. */
+    public record OrderGroup(
+            String groupOrderId, int memberCount, BigDecimal orderQty, List<String> members) {}
+
+    /** A member's share of an execution of its grouped order; negative if reversed. */
+    private record MemberFill(
+            String orderId,
+            BigDecimal qty,
+            BigDecimal cumQty,
+            BigDecimal avgPx,
+            State state,
+            long version) {}
+
+    private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final NewOrderTxToOrderMapper newOrderTxToOrderMapper;
+    private final EventProducer eventProducer;
+    private final OrderCache orderCache;
+    private final OrderStreamService orderStreamService;
+    private final OrderTreeAggregator orderTreeAggregator;
+    private final ExposureBook exposureBook;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int minMembers;
+    private final int maxMembers;
+    private final long lotSize;
+    private final int executionIdBlockSize;
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+
+    public OrderGroupingService(
+            OrderRepository orderRepository,
+            OrderEventRepository orderEventRepository,
+            NewOrderTxToOrderMapper newOrderTxToOrderMapper,
+            EventProducer eventProducer,
+            OrderCache orderCache,
+            OrderStreamService orderStreamService,
+            OrderTreeAggregator orderTreeAggregator,
+            ExposureBook exposureBook,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${oms.grouping.min-members:2}") int minMembers,
+            @Value("${oms.grouping.max-members:10000}") int maxMembers,
+            @Value("${oms.grouping.lot-size:1}") BigDecimal lotSize,
+            @Value("${oms.id.block-size.execution:100}") int executionIdBlockSize) {
+        this.orderRepository = orderRepository;
+        this.orderEventRepository = orderEventRepository;
+        this.newOrderTxToOrderMapper = newOrderTxToOrderMapper;
+        this.eventProducer = eventProducer;
+        this.orderCache = orderCache;
+        this.orderStreamService = orderStreamService;
+        this.orderTreeAggregator = orderTreeAggregator;
+        this.exposureBook = exposureBook;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minMembers = minMembers;
+        this.maxMembers = maxMembers;
+        this.lotSize = ProRataAllocation.toScaled(lotSize);
+        this.executionIdBlockSize = executionIdBlockSize;
+        FunctionCounter.builder("oms.grouping.groups", groups, LongAdder::sum)
+                .description("Grouped orders created")
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.grouping.allocations", allocations, LongAdder::sum)
+                .description("Executions of grouped orders allocated to, or reversed from, members")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates a grouped order for the given orders, which must be LIVE, unfilled and not grouped
+     * yet, and agree on symbol, side, order type and price. The grouped order is LIVE straight
+     * away, for the sum of their OrderQty; its NEW_ORDER and ACK events are written like those of
+     * any order, so replay rebuilds it.
+     *
+     * @throws IllegalArgumentException if the orders cannot be grouped
+     */
+    public OrderGroup group(List<String> memberOrderIds, String groupedBy) {
+        Set<String> orderIds = new LinkedHashSet<>(memberOrderIds);
+        if (orderIds.size() < minMembers || orderIds.size() > maxMembers) {
+            throw new IllegalArgumentException(
+                    "A group has "
+                            + minMembers
+                            + " to "
+                            + maxMembers
+                            + " distinct orders, not "
+                            + orderIds.size());
+        }
+        return transactionTemplate.execute(status -> group(orderIds, groupedBy));
+    }
+
+    private OrderGroup group(Set<String> orderIds, String groupedBy) {
+        List<Order> members = new ArrayList<>(orderRepository.findByOrderIdIn(orderIds));
+        if (members.size() != orderIds.size()) {
+            Set<String> missing = new LinkedHashSet<>(orderIds);
+            members.forEach(member -> missing.remove(member.getOrderId()));
+            throw new IllegalArgumentException("Orders not found: " + missing);
+        }
+        members.sort(Comparator.comparing(Order::getOrderId));
+        Order reference = members.get(0);
+        BigDecimal orderQty = BigDecimal.ZERO;
+        for (Order member : members) {
+            validate(member, reference);
+            orderQty = orderQty.add(member.getOrderQty());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        NewOrderTx newOrderTx =
+                NewOrderTx.builder()
+                        .sendingTime(now)
+                        .transactTime(now)
+                        .securityIdSource(reference.getSecurityIdSource())
+                        .securityId(reference.getSecurityId())
+                        .securityType(reference.getSecurityType())
+                        .securityExchange(reference.getSecurityExchange())
+                        .symbol(reference.getSymbol())
+                        .side(reference.getSide())
+                        .ordType(reference.getOrdType())
+                        .price(reference.getPrice())
+                        .stopPx(reference.getStopPx())
+                        .orderQty(orderQty)
+                        .timeInForce(reference.getTimeInForce())
+                        .expireTime(reference.getExpireTime())
+                        .settlCurrency(reference.getSettlCurrency())
+                        .build();
+        Order mapped = newOrderTxToOrderMapper.map(newOrderTx);
+        String groupOrderId = mapped.getOrderId();
+        Order groupOrder =
+                mapped.toBuilder()
+                        .groupOrderId(groupOrderId)
+                        .memberCount(members.size())
+                        .groupedBy(groupedBy)
+                        .build();
+        List<OrderEvent> events =
+                orderEventRepository.saveAll(
+                        List.of(
+                                event(groupOrder, Event.NEW_ORDER, newOrderTx, now),
+                                event(
+                                        groupOrder,
+                                        Event.ACK,
+                                        AcceptOrderTx.builder().orderId(groupOrderId).build(),
+                                        now)));
+        groupOrder.setState(
+                StateMachine.transitionSequence(State.NEW, State.UNACK, State.LIVE).orElseThrow());
+        groupOrder.setTx(Tx.AO);
+        groupOrder.setTxNr(events.get(1).getId());
+        Order saved = orderRepository.save(groupOrder);
+        for (Order member : members) {
+            member.setGroupOrderId(groupOrderId);
+        }
+
+        eventProducer.produceEvent(saved);
+        members.forEach(eventProducer::produceEvent);
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        groups.increment();
+                        for (Order order : members) {
+                            orderCache.put(order);
+                            orderStreamService.publish(order);
+                            exposureBook.onOrder(order);
+                        }
+                        orderCache.put(saved);
+                        orderStreamService.publish(saved);
+                        orderTreeAggregator.onOrder(saved);
+                    }
+                });
+        log.info(
+                "Grouped {} orders into {} for {} {}",
+                members.size(),
+                groupOrderId,
+                orderQty,
+                reference.getSymbol());
+        return new OrderGroup(
+                groupOrderId,
+                members.size(),
+                orderQty,
+                members.stream().map(Order::getOrderId).toList());
+    }
+
+    private static void validate(Order member, Order reference) {
+        String orderId = member.getOrderId();
+        if (member.isGroupedOrder() || member.getGroupOrderId() != null) {
+            throw new IllegalArgumentException(
+                    "Order " + orderId + " is already grouped: " + member.getGroupOrderId());
+        }
+        if (member.getState() != State.LIVE) {
+            throw new IllegalArgumentException(
+                    "Order " + orderId + " is " + member.getState() + ", not LIVE");
+        }
+        if (member.getCumQty() != null && member.getCumQty().signum() != 0) {
+            throw new IllegalArgumentException("Order " + orderId + " is partially filled");
+        }
+        if (member.getOrderQty() == null || member.getOrderQty().signum() <= 0) {
+            throw new IllegalArgumentException("Order " + orderId + " has no OrderQty");
+        }
+        if (!Objects.equals(member.getSymbol(), reference.getSymbol())
+                || member.getSide() != reference.getSide()
+                || member.getOrdType() != reference.getOrdType()
+                || !samePrice(member.getPrice(), reference.getPrice())) {
+            throw new IllegalArgumentException(
+                    "Order "
+                            + orderId
+                            + " differs from "
+                            + reference.getOrderId()
+                            + " in symbol, side, order type or price");
+        }
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static OrderEvent event(Order order, Event event, Transaction tx, LocalDateTime now) {
+        return OrderEvent.builder()
+                .tradeDate(order.getTradeDate())
+                .orderId(order.getOrderId())
+                .event(event)
+                .transaction(tx)
+                .timeStamp(now)
+                .build();
+    }
+
+    /**
+     * Allocates a booked execution of a grouped order to its members, or, for a negative quantity,
+     * reverses the allocations of the busted or whacked execution it stands for. Must be called in
+     * the transaction that books the execution; the members are published once it commits.
+     */
+    void allocate(Order groupOrder, Execution execution) {
+        List<MemberFill> fills =
+                execution.getLastQty().signum() > 0
+                        ? allocateFill(groupOrder, execution)
+                        : reverse(groupOrder, execution);
+        if (fills.isEmpty()) {
+            return;
+        }
+        Map<String, Order> cached = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (MemberFill fill : fills) {
+            // A cached copy that missed another write is read again; the update locked the row
+            orderCache
+                    .get(fill.orderId())
+                    .filter(order -> order.getVersion() == fill.version() - 1)
+                    .ifPresentOrElse(
+                            order -> cached.put(order.getOrderId(), order),
+                            () -> uncached.add(fill.orderId()));
+        }
+        if (!uncached.isEmpty()) {
+            orderRepository.findByOrderIdIn(uncached).forEach(o -> cached.put(o.getOrderId(), o));
+        }
+        List<Order> members = new ArrayList<>(fills.size());
+        List<Execution> rollups = new ArrayList<>(fills.size());
+        for (MemberFill fill : fills) {
+            Order member =
+                    cached.get(fill.orderId()).toBuilder()
+                            .cumQty(fill.cumQty())
+                            .avgPx(fill.avgPx())
+                            .state(fill.state())
+                            .version(fill.version())
+                            .build();
+            members.add(member);
+            eventProducer.produceEvent(member);
+            rollups.add(
+                    Execution.builder()
+                            .orderId(fill.orderId())
+                            .execID(allocationExecId(execution.getExecID(), fill.orderId()))
+                            .execType(Execution.ALLOCATION)
+                            .lastQty(fill.qty())
+                            .lastPx(execution.getLastPx())
+                            .build());
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        allocations.increment();
+                        for (Order member : members) {
+                            orderCache.put(member);
+                            orderStreamService.publish(member);
+                            exposureBook.onOrder(member);
+                        }
+                        rollups.forEach(orderTreeAggregator::onExecution);
+                    }
+                });
+    }
+
+    private List<MemberFill> allocateFill(Order groupOrder, Execution execution) {
+        Members group = new Members();
+        jdbcTemplate.query(MEMBERS_SQL, group, groupOrder.getOrderId());
+        int count = group.orderIds.size();
+        long[] allocation =
+                ProRataAllocation.allocate(
+                        ProRataAllocation.toScaled(execution.getLastQty()),
+                        Arrays.copyOf(group.capacity, count),
+                        lotSize);
+
+        int allocated = 0;
+        for (long qty : allocation) {
+            if (qty > 0) {
+                allocated++;
+            }
+        }
+        if (allocated == 0) {
+            log.warn(
+                    "Nothing of {} on {} allocated: no member has quantity left",
+                    execution.getExecID(),
+                    groupOrder.getOrderId());
+            return List.of();
+        }
+        String[] members = new String[allocated];
+        LocalDate[] dates = new LocalDate[allocated];
+        BigDecimal[] quantities = new BigDecimal[allocated];
+        String[] executionIds = new String[allocated];
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0, k = 0; i < count; i++) {
+            if (allocation[i] > 0) {
+                members[k] = group.orderIds.get(i);
+                dates[k] = group.tradeDates.get(i);
+                quantities[k] = ProRataAllocation.fromScaled(allocation[i]);
+                executionIds[k] = ULID.random().toString();
+                total = total.add(quantities[k]);
+                k++;
+            }
+        }
+        Long[] ids = executionIds(allocated);
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal allocatedQty = total;
+        return jdbcTemplate.query(
+                ALLOCATE_SQL,
+                ps -> {
+                    Connection connection = ps.getConnection();
+                    ps.setArray(1, array(connection, "text", members));
+                    ps.setArray(2, array(connection, "date", dates));
+                    ps.setArray(3, array(connection, "numeric", quantities));
+                    ps.setArray(4, array(connection, "bigint", ids));
+                    ps.setArray(5, array(connection, "text", executionIds));
+                    ps.setBigDecimal(6, execution.getLastPx());
+                    ps.setInt(7, State.LIVE.ordinal());
+                    ps.setInt(8, State.FILLED.ordinal());
+                    ps.setString(9, execution.getExecID());
+                    ps.setString(10, Execution.ALLOCATION);
+                    ps.setBigDecimal(11, execution.getLastPx());
+                    ps.setInt(12, State.LIVE.ordinal());
+                    ps.setObject(13, execution.getTransactTime());
+                    ps.setObject(14, now);
+                    ps.setBigDecimal(15, allocatedQty);
+                    ps.setString(16, groupOrder.getOrderId());
+                    ps.setObject(17, groupOrder.getTradeDate());
+                },
+                (rs, i) -> memberFill(rs));
+    }
+
+    private List<MemberFill> reverse(Order groupOrder, Execution reversal) {
+        List<String> execIds = new ArrayList<>();
+        jdbcTemplate.query(
+                MEMBERS_SQL,
+                rs -> {
+                    execIds.add(allocationExecId(reversal.getExecID(), rs.getString(1)));
+                },
+                groupOrder.getOrderId());
+        return jdbcTemplate.query(
+                REVERSE_SQL,
+                ps -> {
+                    ps.setString(1, reversal.getExecType());
+                    ps.setArray(2, array(ps.getConnection(), "text", execIds.toArray()));
+                    ps.setString(3, Execution.ALLOCATION);
+                    ps.setInt(4, State.FILLED.ordinal());
+                    ps.setInt(5, State.LIVE.ordinal());
+                    ps.setString(6, groupOrder.getOrderId());
+                    ps.setObject(7, groupOrder.getTradeDate());
+                },
+                (rs, i) -> memberFill(rs));
+    }
+
+    /** ExecID of a member's share of an execution of its grouped order, as ALLOCATE_SQL sets it. */
+    static String allocationExecId(String execId, String memberOrderId) {
+        return execId + "/" + memberOrderId;
+    }
+
+    private static MemberFill memberFill(ResultSet rs) throws SQLException {
+        return new MemberFill(
+                rs.getString(1),
+                rs.getBigDecimal(2),
+                rs.getBigDecimal(3),
+                rs.getBigDecimal(4),
+                STATES[rs.getInt(5)],
+                rs.getLong(6));
+    }
+
+    /** Ids for new executions, taken in blocks from execution_seq like Hibernate does. */
+    private Long[] executionIds(int count) {
+        int blocks = (count + executionIdBlockSize - 1) / executionIdBlockSize;
+        List<Long> starts = jdbcTemplate.queryForList(EXECUTION_IDS_SQL, Long.class, blocks);
+        Long[] ids = new Long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = starts.get(i / executionIdBlockSize) + i % executionIdBlockSize;
+        }
+        return ids;
+    }
+
+    /** The members of a grouped order in allocation order, with what each can still take. */
+    private static final class Members implements RowCallbackHandler {
+        private final List<String> orderIds = new ArrayList<>();
+        private final List<LocalDate> tradeDates = new ArrayList<>();
+        private long[] capacity = new long[64];
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int i = orderIds.size();
+            orderIds.add(rs.getString(1));
+            tradeDates.add(rs.getObject(2, LocalDate.class));
+            if (i == capacity.length) {
+                capacity = Arrays.copyOf(capacity, i * 2);
+            }
+            // Only LIVE members take fills, up to what they have left
+            long leaves =
+                    ProRataAllocation.toScaled(rs.getBigDecimal(3))
+                            - ProRataAllocation.toScaled(rs.getBigDecimal(4));
+            capacity[i] = STATES[rs.getInt(5)] == State.LIVE ? Math.max(leaves, 0) : 0;
+        }
+    }
+
+    private static Array array(Connection connection, String type, Object[] values)
+            throws SQLException {
+        return connection.createArrayOf(type, values);
+    }
+}
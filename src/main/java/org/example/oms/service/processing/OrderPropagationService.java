@@ -0,0 +1,265 @@
+package org.example.oms.service.processing;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.Tx;
+import org.example.oms.model.Event;
+import org.example.oms.model.OrderEvent;
+import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.business.CancelReplace;
+import org.example.oms.service.business.PropagationRules.Action;
+import org.example.oms.service.business.PropagationRules.Request;
+import org.example.oms.service.business.PropagationRules.Rule;
+import org.example.oms.service.business.StateMachine;
+import org.example.oms.service.infra.ClOrdIdIndex;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.OrderEventRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.annotation.Observed;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Carries a validated cancel or replace down the order's tree (specs/order_replace.md §4.5, §5.4)
+ * in the transaction that applies it: the working descendants are found with one recursive query,
+ * locked and loaded together, and their changes, events and outbound messages are written as one
+ * batch. A cancel of a grouped order cancels its members too.
+ *
+ * <p>A cancel cancels every LIVE descendant and leaves filled and done ones alone; it is rejected,
+ * before anything is written, while a descendant is still unacknowledged. A replace carries its
+ * price, time in force and instructions to the working descendants it changes; OrderQty stays with
+ * the order replaced.
+ *
+ * <p>Before that, the {@link PropagationRuleEngine} decides for each descendant: a rule may leave
+ * it out, or reject the whole request before anything is written.
+ */
+@Service
+@Slf4j
+public class OrderPropagationService {
+
+    // Working descendants; for a grouped order also its members and theirs
+    static final String DESCENDANTS_SQL =
+            "with recursive t (order_id, state) as (select order_id, state from orders"
+                    + " where parent_order_id = ? or (group_order_id = ? and order_id <> ?)"
+                    + " union all select o.order_id, o.state from orders o"
+                    + " join t on o.parent_order_id = t.order_id)"
+                    + " select order_id from t where state in (?, ?)";
+
+    private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final EventProducer eventProducer;
+    private final OrderCache orderCache;
+    private final OrderStreamService orderStreamService;
+    private final OrderTreeAggregator orderTreeAggregator;
+    private final ExposureBook exposureBook;
+    private final ClOrdIdIndex clOrdIdIndex;
+    private final PropagationRuleEngine propagationRuleEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final LongAdder propagated = new LongAdder();
+
+    public OrderPropagationService(
+            OrderRepository orderRepository,
+            OrderEventRepository orderEventRepository,
+            EventProducer eventProducer,
+            OrderCache orderCache,
+            OrderStreamService orderStreamService,
+            OrderTreeAggregator orderTreeAggregator,
+            ExposureBook exposureBook,
+            ClOrdIdIndex clOrdIdIndex,
+            PropagationRuleEngine propagationRuleEngine,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderEventRepository = orderEventRepository;
+        this.eventProducer = eventProducer;
+        this.orderCache = orderCache;
+        this.orderStreamService = orderStreamService;
+        this.orderTreeAggregator = orderTreeAggregator;
+        this.exposureBook = exposureBook;
+        this.clOrdIdIndex = clOrdIdIndex;
+        this.propagationRuleEngine = propagationRuleEngine;
+        this.jdbcTemplate = jdbcTemplate;
+        FunctionCounter.builder("oms.propagation.orders", propagated, LongAdder::sum)
+                .description("Descendant orders cancelled or replaced with their parent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cancels or replaces the descendants of the context's order; does nothing for other
+     * transactions. Must run after the order's own change has been validated.
+     *
+     * @throws IllegalArgumentException if the change cannot be carried down or a rule rejects it;
+     *     nothing has been written
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    @Observed(name = "oms.propagation-service.propagate")
+    public void propagate(ProcessingContext context) {
+        Transaction transaction = context.getTransaction();
+        Order order = context.getOrder();
+        if (transaction instanceof CancelOrderTx cancelOrderTx) {
+            cancelDown(order, cancelOrderTx);
+        } else if (transaction instanceof ReplaceOrderTx replaceOrderTx
+                && CancelReplace.carriesDown(replaceOrderTx)) {
+            replaceDown(order, replaceOrderTx);
+        }
+    }
+
+    private void cancelDown(Order order, CancelOrderTx cancelOrderTx) {
+        List<Order> descendants = propagatedTo(Request.CANCEL, order, workingDescendants(order));
+        if (descendants.isEmpty()) {
+            return;
+        }
+        List<String> unacknowledged =
+                descendants.stream()
+                        .filter(d -> d.getState() == State.UNACK)
+                        .map(Order::getOrderId)
+                        .toList();
+        if (!unacknowledged.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Order "
+                            + order.getOrderId()
+                            + " has child orders not acknowledged yet: "
+                            + unacknowledged);
+        }
+        List<Transaction> transactions = new ArrayList<>(descendants.size());
+        for (Order descendant : descendants) {
+            CancelOrderTx tx =
+                    CancelOrderTx.builder()
+                            .orderId(descendant.getOrderId())
+                            .transactTime(cancelOrderTx.getTransactTime())
+                            .text("Cancel of " + order.getOrderId())
+                            .build();
+            CancelReplace.applyCancel(descendant, tx);
+            descendant.setState(StateMachine.of(descendant).next(descendant.getState(), State.CXL));
+            descendant.setTx(Tx.CO);
+            transactions.add(tx);
+        }
+        write(descendants, transactions, Event.CXL);
+    }
+
+    private void replaceDown(Order order, ReplaceOrderTx replaceOrderTx) {
+        List<Order> replaced = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (Order descendant : propagatedTo(Request.REPLACE, order, workingDescendants(order))) {
+            ReplaceOrderTx tx =
+                    CancelReplace.carryDown(replaceOrderTx, descendant, order.getOrderId());
+            if (tx != null) {
+                CancelReplace.applyReplace(descendant, tx);
+                descendant.setTx(Tx.RP);
+                replaced.add(descendant);
+                transactions.add(tx);
+            }
+        }
+        if (!replaced.isEmpty()) {
+            write(replaced, transactions, Event.REPLACE);
+        }
+    }
+
+    /** The descendants no rule leaves out; throws if a rule rejects the request. */
+    private List<Order> propagatedTo(Request request, Order order, List<Order> descendants) {
+        List<Order> included = new ArrayList<>(descendants.size());
+        for (Order descendant : descendants) {
+            Rule rule = propagationRuleEngine.decide(request, order, descendant);
+            Action action = rule != null ? rule.action() : Action.PROPAGATE;
+            switch (action) {
+                case PROPAGATE -> included.add(descendant);
+                case SKIP ->
+                        log.debug(
+                                "Rule {} keeps {} of {} from {}",
+                                rule.name(),
+                                request,
+                                order.getOrderId(),
+                                descendant.getOrderId());
+                case REJECT ->
+                        throw new IllegalArgumentException(
+                                "Propagation rule "
+                                        + rule.name()
+                                        + " rejects the "
+                                        + request.name().toLowerCase()
+                                        + " of "
+                                        + order.getOrderId()
+                                        + " at child order "
+                                        + descendant.getOrderId());
+            }
+        }
+        return included;
+    }
+
+    /** The UNACK and LIVE descendants of the order, locked until the transaction ends. */
+    private List<Order> workingDescendants(Order order) {
+        String orderId = order.getOrderId();
+        List<String> orderIds =
+                jdbcTemplate.queryForList(
+                        DESCENDANTS_SQL,
+                        String.class,
+                        orderId,
+                        orderId,
+                        orderId,
+                        State.UNACK.ordinal(),
+                        State.LIVE.ordinal());
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        // Re-checked under the lock
+        return orderRepository.findByOrderIdIn(orderIds).stream()
+                .filter(d -> d.getState() == State.UNACK || d.getState() == State.LIVE)
+                .toList();
+    }
+
+    /** Writes the events of the changed descendants and publishes them once committed. */
+    private void write(List<Order> orders, List<Transaction> transactions, Event event) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderEvent> events = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            events.add(
+                    OrderEvent.builder()
+                            .tradeDate(order.getTradeDate())
+                            .orderId(order.getOrderId())
+                            .transaction(transactions.get(i))
+                            .event(event)
+                            .timeStamp(now)
+                            .build());
+        }
+        List<OrderEvent> saved = orderEventRepository.saveAll(events);
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            // Same rule as EventProcessor
+            order.setTxNr(Math.max(saved.get(i).getId(), order.getTxNr() + 1));
+            eventProducer.produceEvent(order);
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        propagated.add(orders.size());
+                        for (Order order : orders) {
+                            orderCache.put(order);
+                            orderStreamService.publish(order);
+                            orderTreeAggregator.onOrder(order);
+                            clOrdIdIndex.onOrder(order);
+                            exposureBook.onOrder(order);
+                        }
+                    }
+                });
+        log.debug("Carried {} down to {} orders", event, orders.size());
+    }
+}
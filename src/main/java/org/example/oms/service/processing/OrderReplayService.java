@@ -0,0 +1,695 @@
+package org.example.oms.service.processing;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.Tx;
+import org.example.oms.model.Event;
+import org.example.oms.service.business.OrderFills;
+import org.example.oms.service.business.OrderReplay;
+import org.example.oms.service.business.OrderTree.Mismatch;
+import org.example.oms.service.mapper.NewOrderTxToOrderMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds order state from the {@code order_events} log with {@link OrderReplay}, starting from
+ * periodic snapshots so that only the tail of the log is read.
+ *
+ * <p>{@link #snapshot()} replays the events stamped since the previous checkpoint, up to {@code
+ * snapshot-lag} ago so that transactions still in flight are not skipped, onto the snapshots of the
+ * orders concerned and moves the checkpoint. A rebuild streams the snapshots and then the events
+ * after the checkpoint from a single reader and hands each order to one of {@code partitions}
+ * workers, which parse and apply them in parallel; the fills in {@code executions} are applied
+ * last, as a bust rewrites the execution it reverses and so cannot be replayed in time order.
+ */
+@Service
+@Slf4j
+public class OrderReplayService {
+
+    /** First key of the advisory lock held while taking a snapshot; see MessagePublisher. */
+    static final int LOCK_NAMESPACE = 0x736e70;
+
+    static final String CHECKPOINT_SQL =
+            "select event_time from order_snapshot_checkpoint where id = 1";
+
+    static final String SNAPSHOTS_SQL = "select order_id, snapshot::text from order_snapshots";
+
+    static final String EVENTS_SQL =
+            "select id, order_id, event, transaction::text, trade_date from order_events";
+
+    static final String FILLS_SQL =
+            "select order_id, last_qty, last_px from executions"
+                    + " where exec_type is null or exec_type not in ('BUST', 'WHACK')";
+
+    static final String ORDER_FILLS_SQL =
+            "select order_id, last_qty, last_px from executions where order_id = ? and trade_date ="
+                    + " ? and (exec_type is null or exec_type not in ('BUST', 'WHACK'))";
+
+    static final String ORDERS_SQL =
+            "select order_id, root_order_id, state, tx, tx_nr, cum_qty, avg_px from orders";
+
+    static final String UPSERT_SNAPSHOT_SQL =
+            "insert into order_snapshots (order_id, last_event_id, snapshot) values (?, ?,"
+                    + " ?::jsonb) on conflict (order_id) do update set last_event_id ="
+                    + " excluded.last_event_id, snapshot = excluded.snapshot";
+
+    static final String UPSERT_CHECKPOINT_SQL =
+            "insert into order_snapshot_checkpoint (id, event_time, taken_at) values (1, ?, ?)"
+                    + " on conflict (id) do update"
+                    + " set event_time = excluded.event_time, taken_at = excluded.taken_at";
+
+    // Live AvgPx is derived from the rounded average of the previous batch
+    private static final BigDecimal AVG_PX_TOLERANCE = new BigDecimal("0.000001");
+    private static final State[] STATES = State.values();
+    private static final int ROWS_PER_HANDOFF = 512;
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final OrderReplay orderReplay;
+    private final ObjectReader transactionReader;
+    private final ObjectReader orderReader;
+    private final ObjectWriter orderWriter;
+    private final int partitions;
+    private final long snapshotLagMs;
+    private final long snapshotIntervalMs;
+    private final boolean onStartup;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private ScheduledExecutorService snapshotter;
+
+    /** Result of a full rebuild, compared with the orders table. */
+    public record ReplayCheck(
+            int orders,
+            long snapshots,
+            long events,
+            long fills,
+            long rejected,
+            long elapsedMillis,
+            long mismatchCount,
+            List<Mismatch> mismatches) {}
+
+    /** What a snapshot run covered; {@code eventTime} is the new checkpoint. */
+    public record SnapshotResult(LocalDateTime eventTime, int orders, long events, long rejected) {}
+
+    /** The book as rebuilt, with counts of what was read. */
+    public record Replay(
+            Map<String, Order> orders,
+            long snapshots,
+            long events,
+            long fills,
+            long rejected,
+            long elapsedMillis) {}
+
+    public OrderReplayService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            NewOrderTxToOrderMapper newOrderTxToOrderMapper,
+            ObjectMapper objectMapper,
+            @Value("${oms.replay.partitions:0}") int partitions,
+            @Value("${oms.replay.fetch-size:10000}") int fetchSize,
+            @Value("${oms.replay.snapshot-lag-ms:60000}") long snapshotLagMs,
+            @Value("${oms.replay.snapshot-interval-ms:0}") long snapshotIntervalMs,
+            @Value("${oms.replay.on-startup:false}") boolean onStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.orderReplay = new OrderReplay(newOrderTxToOrderMapper);
+        this.transactionReader = objectMapper.readerFor(Transaction.class);
+        this.orderReader = objectMapper.readerFor(Order.class);
+        this.orderWriter = objectMapper.writerFor(Order.class);
+        this.partitions = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.snapshotLagMs = snapshotLagMs;
+        this.snapshotIntervalMs = snapshotIntervalMs;
+        this.onStartup = onStartup;
+    }
+
+    @PostConstruct
+    void start() {
+        if (snapshotIntervalMs <= 0) {
+            return;
+        }
+        snapshotter =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("oms-order-snapshots").daemon().factory());
+        snapshotter.scheduleWithFixedDelay(
+                () -> {
+                    try {
+                        snapshot();
+                    } catch (RuntimeException e) {
+                        log.error("Order snapshot failed", e);
+                    }
+                },
+                snapshotIntervalMs,
+                snapshotIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (onStartup) {
+            check();
+        }
+    }
+
+    /**
+     * Replays the events stamped since the last checkpoint onto the snapshots of their orders. Only
+     * one instance snapshots at a time; the others return without doing anything.
+     */
+    public SnapshotResult snapshot() {
+        return transactionTemplate.execute(status -> snapshotLocked());
+    }
+
+    private SnapshotResult snapshotLocked() {
+        Boolean locked =
+                jdbcTemplate.queryForObject(
+                        "select pg_try_advisory_xact_lock(?, 0)", Boolean.class, LOCK_NAMESPACE);
+        LocalDateTime from = checkpoint();
+        // Truncated to the column's precision, so the next window starts exactly after this one
+        LocalDateTime to =
+                LocalDateTime.now()
+                        .minus(snapshotLagMs, ChronoUnit.MILLIS)
+                        .truncatedTo(ChronoUnit.MICROS);
+        if (!Boolean.TRUE.equals(locked) || (from != null && !to.isAfter(from))) {
+            return new SnapshotResult(from, 0, 0, 0);
+        }
+        String window =
+                from == null
+                        ? " where time_stamp <= ?"
+                        : " where time_stamp <= ? and time_stamp > ?";
+        Object[] bounds = from == null ? new Object[] {to} : new Object[] {to, from};
+
+        Map<String, Order> orders = new HashMap<>();
+        jdbcTemplate.query(
+                SNAPSHOTS_SQL
+                        + " where order_id in (select order_id from order_events"
+                        + window
+                        + ")",
+                rs -> {
+                    orders.put(rs.getString(1), readOrder(rs.getString(2)));
+                },
+                bounds);
+        Map<String, Long> lastEventIds = new HashMap<>();
+        long[] counts = new long[2];
+        jdbcTemplate.query(
+                EVENTS_SQL + window + " order by time_stamp, id",
+                rs -> {
+                    String orderId = rs.getString(2);
+                    counts[0]++;
+                    if (apply(orders, rs)) {
+                        lastEventIds.put(orderId, rs.getLong(1));
+                    } else {
+                        counts[1]++;
+                    }
+                },
+                bounds);
+        resolveRoots(orders, this::snapshotOf);
+
+        List<Object[]> rows = new ArrayList<>(lastEventIds.size());
+        lastEventIds.forEach(
+                (orderId, eventId) ->
+                        rows.add(new Object[] {orderId, eventId, writeOrder(orders.get(orderId))}));
+        jdbcTemplate.batchUpdate(UPSERT_SNAPSHOT_SQL, rows);
+        jdbcTemplate.update(
+                UPSERT_CHECKPOINT_SQL,
+                Timestamp.valueOf(to),
+                Timestamp.valueOf(LocalDateTime.now()));
+        log.info(
+                "Snapshot of {} orders at {} from {} events ({} rejected)",
+                rows.size(),
+                to,
+                counts[0],
+                counts[1]);
+        return new SnapshotResult(to, rows.size(), counts[0], counts[1]);
+    }
+
+    /** Rebuilds one order from its snapshot, the events after it and its fills. */
+    public Optional<Order> rebuild(String orderId) {
+        return readOnlyTemplate.execute(
+                status -> {
+                    LocalDateTime from = checkpoint();
+                    Map<String, Order> orders = new HashMap<>();
+                    Order snapshot = snapshotOf(orderId);
+                    if (snapshot != null) {
+                        orders.put(orderId, snapshot);
+                    }
+                    // The snapshot's trade date confines the events to one partition
+                    List<Object> args = new ArrayList<>(List.of(orderId));
+                    StringBuilder sql = new StringBuilder(EVENTS_SQL).append(" where order_id = ?");
+                    if (snapshot != null && snapshot.getTradeDate() != null) {
+                        sql.append(" and trade_date = ?");
+                        args.add(snapshot.getTradeDate());
+                    }
+                    if (from != null) {
+                        sql.append(" and time_stamp > ?");
+                        args.add(from);
+                    }
+                    jdbcTemplate.query(
+                            sql.append(" order by time_stamp, id").toString(),
+                            rs -> {
+                                apply(orders, rs);
+                            },
+                            args.toArray());
+                    Order order = orders.get(orderId);
+                    if (order == null) {
+                        return Optional.<Order>empty();
+                    }
+                    resolveRoots(orders, parentId -> rebuild(parentId).orElse(null));
+                    OrderFills fills = new OrderFills(order);
+                    jdbcTemplate.query(
+                            ORDER_FILLS_SQL,
+                            rs -> {
+                                fills.add(rs.getBigDecimal(2), rs.getBigDecimal(3));
+                            },
+                            orderId,
+                            order.getTradeDate());
+                    return Optional.of(fills.changed() ? fills.applyTo(order) : order);
+                });
+    }
+
+    /** Rebuilds the whole book in parallel. */
+    public Replay rebuild() {
+        long start = System.nanoTime();
+        Partition[] workers = new Partition[partitions];
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        partitions, Thread.ofPlatform().name("oms-replay-", 0).daemon().factory());
+        List<Future<?>> running = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            workers[i] = new Partition();
+            running.add(executor.submit(workers[i]));
+        }
+        long[] read = new long[3];
+        try {
+            try {
+                readOnlyTemplate.executeWithoutResult(status -> read(workers, read));
+            } finally {
+                for (Partition worker : workers) {
+                    worker.flush();
+                    worker.handOff(List.of());
+                }
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding the book", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rebuilding the book failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        Map<String, Order> orders = new HashMap<>();
+        long rejected = 0;
+        for (Partition worker : workers) {
+            orders.putAll(worker.orders);
+            rejected += worker.rejected;
+        }
+        resolveRoots(orders, orders::get);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info(
+                "Rebuilt {} orders from {} snapshots, {} events and {} fills in {} ms ({}"
+                        + " rejected)",
+                orders.size(),
+                read[0],
+                read[1],
+                read[2],
+                elapsedMillis,
+                rejected);
+        return new Replay(orders, read[0], read[1], read[2], rejected, elapsedMillis);
+    }
+
+    /** Streams snapshots, then the events after the checkpoint, then fills to the workers. */
+    private void read(Partition[] workers, long[] read) {
+        LocalDateTime from = checkpoint();
+        stream(
+                SNAPSHOTS_SQL,
+                rs -> new SnapshotRow(rs.getString(1), rs.getString(2)),
+                workers,
+                read,
+                0);
+        stream(
+                EVENTS_SQL
+                        + (from == null ? "" : " where time_stamp > ?")
+                        + " order by time_stamp, id",
+                rs ->
+                        new EventRow(
+                                rs.getLong(1),
+                                rs.getString(2),
+                                rs.getString(3),
+                                rs.getString(4),
+                                rs.getObject(5, LocalDate.class)),
+                workers,
+                read,
+                1,
+                from == null ? new Object[0] : new Object[] {from});
+        stream(
+                FILLS_SQL,
+                rs -> new FillRow(rs.getString(1), rs.getBigDecimal(2), rs.getBigDecimal(3)),
+                workers,
+                read,
+                2);
+    }
+
+    /** Rebuilds the book and compares it with the orders table. */
+    public ReplayCheck check() {
+        Replay replay = rebuild();
+        Map<String, Order> remaining = new HashMap<>(replay.orders());
+        List<Mismatch> mismatches = new ArrayList<>();
+        long[] mismatchCount = new long[1];
+        Consumer<Mismatch> report =
+                mismatch -> {
+                    mismatchCount[0]++;
+                    if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                        mismatches.add(mismatch);
+                    }
+                };
+        readOnlyTemplate.executeWithoutResult(
+                status -> {
+                    streamingJdbcTemplate.query(
+                            ORDERS_SQL,
+                            rs -> {
+                                String orderId = rs.getString(1);
+                                Order rebuilt = remaining.remove(orderId);
+                                if (rebuilt == null) {
+                                    report.accept(new Mismatch(orderId, "order", "stored", null));
+                                    return;
+                                }
+                                compare(
+                                        orderId,
+                                        "rootOrderId",
+                                        rs.getString(2),
+                                        rebuilt.getRootOrderId(),
+                                        report);
+                                int state = rs.getInt(3);
+                                compare(
+                                        orderId,
+                                        "state",
+                                        rs.wasNull() ? null : STATES[state],
+                                        rebuilt.getState(),
+                                        report);
+                                String tx = rs.getString(4);
+                                compare(
+                                        orderId,
+                                        "tx",
+                                        tx == null ? null : Tx.valueOf(tx),
+                                        rebuilt.getTx(),
+                                        report);
+                                compare(orderId, "txNr", rs.getLong(5), rebuilt.getTxNr(), report);
+                                BigDecimal cumQty = rs.getBigDecimal(6);
+                                BigDecimal rebuiltCumQty =
+                                        rebuilt.getCumQty() != null
+                                                ? rebuilt.getCumQty()
+                                                : BigDecimal.ZERO;
+                                if (cumQty.compareTo(rebuiltCumQty) != 0) {
+                                    report.accept(
+                                            new Mismatch(orderId, "cumQty", cumQty, rebuiltCumQty));
+                                }
+                                BigDecimal avgPx = rs.getBigDecimal(7);
+                                BigDecimal rebuiltAvgPx = rebuilt.getAvgPx();
+                                if ((avgPx == null) != (rebuiltAvgPx == null)
+                                        || (avgPx != null
+                                                && avgPx.subtract(rebuiltAvgPx)
+                                                                .abs()
+                                                                .compareTo(AVG_PX_TOLERANCE)
+                                                        > 0)) {
+                                    report.accept(
+                                            new Mismatch(orderId, "avgPx", avgPx, rebuiltAvgPx));
+                                }
+                            });
+                });
+        remaining
+                .keySet()
+                .forEach(orderId -> report.accept(new Mismatch(orderId, "order", null, "rebuilt")));
+        if (mismatchCount[0] > 0) {
+            log.warn(
+                    "Rebuilt book differs from the orders table in {} values, e.g. {}",
+                    mismatchCount[0],
+                    mismatches.subList(0, Math.min(10, mismatches.size())));
+        }
+        return new ReplayCheck(
+                replay.orders().size(),
+                replay.snapshots(),
+                replay.events(),
+                replay.fills(),
+                replay.rejected(),
+                replay.elapsedMillis(),
+                mismatchCount[0],
+                mismatches);
+    }
+
+    private static void compare(
+            String orderId,
+            String field,
+            Object stored,
+            Object rebuilt,
+            Consumer<Mismatch> report) {
+        if (!Objects.equals(stored, rebuilt)) {
+            report.accept(new Mismatch(orderId, field, stored, rebuilt));
+        }
+    }
+
+    private LocalDateTime checkpoint() {
+        List<Timestamp> times = jdbcTemplate.queryForList(CHECKPOINT_SQL, Timestamp.class);
+        return times.isEmpty() ? null : times.get(0).toLocalDateTime();
+    }
+
+    private Order snapshotOf(String orderId) {
+        List<String> snapshots =
+                jdbcTemplate.queryForList(
+                        "select snapshot::text from order_snapshots where order_id = ?",
+                        String.class,
+                        orderId);
+        return snapshots.isEmpty() ? null : readOrder(snapshots.get(0));
+    }
+
+    /** Applies the event in the current row; false if it was rejected. */
+    private boolean apply(Map<String, Order> orders, ResultSet rs) throws SQLException {
+        long id = rs.getLong(1);
+        String orderId = rs.getString(2);
+        try {
+            Event event = Event.valueOf(rs.getString(3));
+            Transaction transaction = transactionReader.readValue(rs.getString(4));
+            orders.put(
+                    orderId,
+                    orderReplay.apply(
+                            orders.get(orderId),
+                            orderId,
+                            rs.getObject(5, LocalDate.class),
+                            id,
+                            event,
+                            transaction));
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Skipping event {} of order {}: {}", id, orderId, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Sets the root of child orders created from events, from their parents' roots. */
+    private static void resolveRoots(Map<String, Order> orders, Function<String, Order> parents) {
+        for (Order order : orders.values()) {
+            resolveRoot(order, orders, parents, 0);
+        }
+    }
+
+    private static String resolveRoot(
+            Order order, Map<String, Order> orders, Function<String, Order> parents, int depth) {
+        if (order.getRootOrderId() != null || order.getParentOrderId() == null || depth > 64) {
+            return order.getRootOrderId();
+        }
+        Order parent = orders.get(order.getParentOrderId());
+        if (parent == null) {
+            parent = parents.apply(order.getParentOrderId());
+        }
+        if (parent != null) {
+            order.setRootOrderId(resolveRoot(parent, orders, parents, depth + 1));
+        }
+        return order.getRootOrderId();
+    }
+
+    private Order readOrder(String json) {
+        try {
+            return orderReader.readValue(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable order snapshot", e);
+        }
+    }
+
+    private String writeOrder(Order order) {
+        try {
+            return orderWriter.writeValueAsString(order);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write snapshot of " + order.getOrderId(), e);
+        }
+    }
+
+    private interface RowReader {
+        Row read(ResultSet rs) throws SQLException;
+    }
+
+    private void stream(
+            String sql,
+            RowReader reader,
+            Partition[] workers,
+            long[] read,
+            int counter,
+            Object... args) {
+        streamingJdbcTemplate.query(
+                sql,
+                rs -> {
+                    Row row = reader.read(rs);
+                    workers[Math.floorMod(row.orderId().hashCode(), workers.length)].add(row);
+                    read[counter]++;
+                },
+                args);
+    }
+
+    private sealed interface Row permits SnapshotRow, EventRow, FillRow {
+        String orderId();
+    }
+
+    private record SnapshotRow(String orderId, String json) implements Row {}
+
+    private record EventRow(long id, String orderId, String event, String json, LocalDate tradeDate)
+            implements Row {}
+
+    private record FillRow(String orderId, BigDecimal qty, BigDecimal px) implements Row {}
+
+    /** The orders hashing to one worker; rows arrive in the order they were read. */
+    private final class Partition implements Runnable {
+
+        private final BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(64);
+        private final Map<String, Order> orders = new HashMap<>();
+        private final Map<String, OrderFills> fills = new HashMap<>();
+        private List<Row> pending = new ArrayList<>(ROWS_PER_HANDOFF);
+        private long rejected;
+
+        // Reader side
+        void add(Row row) {
+            pending.add(row);
+            if (pending.size() == ROWS_PER_HANDOFF) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!pending.isEmpty()) {
+                handOff(pending);
+                pending = new ArrayList<>(ROWS_PER_HANDOFF);
+            }
+        }
+
+        void handOff(List<Row> rows) {
+            try {
+                queue.put(rows);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding the book", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (List<Row> rows = queue.take(); !rows.isEmpty(); rows = queue.take()) {
+                    for (Row row : rows) {
+                        process(row);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            fills.forEach(
+                    (orderId, orderFills) ->
+                            orders.put(orderId, orderFills.applyTo(orders.get(orderId))));
+        }
+
+        private void process(Row row) {
+            try {
+                switch (row) {
+                    case SnapshotRow snapshot ->
+                            orders.put(snapshot.orderId(), readOrder(snapshot.json()));
+                    case EventRow event ->
+                            orders.put(
+                                    event.orderId(),
+                                    orderReplay.apply(
+                                            orders.get(event.orderId()),
+                                            event.orderId(),
+                                            event.tradeDate(),
+                                            event.id(),
+                                            Event.valueOf(event.event()),
+                                            transactionReader.readValue(event.json())));
+                    case FillRow fill -> {
+                        Order order = orders.get(fill.orderId());
+                        if (order == null) {
+                            throw new IllegalArgumentException("fill of unknown order");
+                        }
+                        fills.computeIfAbsent(fill.orderId(), k -> new OrderFills(order))
+                                .add(fill.qty(), fill.px());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // A worker that stopped would block the reader, so a bad row is only counted
+                rejected++;
+                log.warn(
+                        "Skipping {} of order {}: {}",
+                        row.getClass().getSimpleName(),
+                        row.orderId(),
+                        e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.oms.service.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.Transaction;
+import org.example.common.model.tx.TxInfo;
+import org.example.oms.model.ProcessingContext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Routes transactions to a fixed set of single-threaded partitions, each committing its own groups
+ * through a {@link GroupCommitQueue}. All transactions of an order hash to the same partition, so
+ * they are applied one after the other and rarely contend with each other. An order can still be
+ * written from elsewhere: a cancel or replace of its parent carried down to it from the parent's
+ * partition, or a fill from an {@link ExecutionService} partition. Those writes are serialized by
+ * the order's row lock and version check, not by the partitioning: a transaction that wrote from a
+ * stale copy fails and is run again on the current state (see {@link
+ * OrchestrationService#process}). A new order cannot be referenced before it has been created and
+ * its id returned, so it may run on any partition: children go with their parent, others are spread
+ * round-robin.
+ */
+class PartitionedEngine implements AutoCloseable {
+
+    private final List<GroupCommitQueue<ProcessingContext, TxInfo>> partitions;
+    private final Function<Transaction, String> orderIdOf;
+    private final AtomicInteger nextPartition = new AtomicInteger();
+
+    PartitionedEngine(
+            Function<List<ProcessingContext>, List<TxInfo>> batchProcessor,
+            int partitions,
+            int maxBatchSize,
+            long maxWaitNanos,
+            MeterRegistry meterRegistry) {
+        this(
+                batchProcessor,
+                Transaction::getOrderId,
+                partitions,
+                maxBatchSize,
+                maxWaitNanos,
+                meterRegistry);
+    }
+
+    /**
+     * @param orderIdOf the order a transaction is for, e.g. resolved from the OrigClOrdID of a
+     *     cancel; null for a new order
+     */
+    PartitionedEngine(
+            Function<List<ProcessingContext>, List<TxInfo>> batchProcessor,
+            Function<Transaction, String> orderIdOf,
+            int partitions,
+            int maxBatchSize,
+            long maxWaitNanos,
+            MeterRegistry meterRegistry) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        this.orderIdOf = orderIdOf;
+        List<GroupCommitQueue<ProcessingContext, TxInfo>> queues = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            GroupCommitQueue<ProcessingContext, TxInfo> partition =
+                    new GroupCommitQueue<>(
+                            batchProcessor,
+                            maxBatchSize,
+                            maxWaitNanos,
+                            partitions == 1 ? "oms-group-commit" : "oms-partition-" + i);
+            queues.add(partition);
+            Gauge.builder("oms.group-commit.queue.depth", partition, GroupCommitQueue::size)
+                    .description("Transactions waiting for the next group commit")
+                    .tag("partition", Integer.toString(i))
+                    .register(meterRegistry);
+        }
+        this.partitions = List.copyOf(queues);
+    }
+
+    CompletableFuture<TxInfo> submit(ProcessingContext context) {
+        return partitions.get(partitionOf(context.getTransaction())).submit(context);
+    }
+
+    int partitionOf(Transaction transaction) {
+        String key = orderIdOf.apply(transaction);
+        if (key == null && transaction instanceof NewOrderTx newOrderTx) {
+            key = newOrderTx.getParentOrderId();
+        }
+        if (key == null) {
+            return Math.floorMod(nextPartition.getAndIncrement(), partitions.size());
+        }
+        return partitionOf(key, partitions.size());
+    }
+
+    static int partitionOf(String key, int partitions) {
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    int partitions() {
+        return partitions.size();
+    }
+
+    @Override
+    public void close() {
+        for (GroupCommitQueue<?, ?> partition : partitions) {
+            partition.close();
+        }
+    }
+}
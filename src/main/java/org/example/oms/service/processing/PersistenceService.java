@@ -2,28 +2,86 @@ package org.example.oms.service.processing;
 
 import org.example.common.model.Order;
 import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.ClOrdIdIndex;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.logging.FieldWriter;
+import org.example.oms.service.infra.logging.FieldWriters;
+import org.example.oms.service.infra.logging.PipelineLog;
+import org.example.oms.service.infra.query.OrderStreamService;
 import org.example.oms.service.infra.repository.OrderRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class PersistenceService {
 
+    private static final PipelineLog STAGE = PipelineLog.forStage("persistence");
+    private static final FieldWriter<Order> ORDER = FieldWriters.of(Order.class);
+
     private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final OrderCache orderCache;
+    private final OrderStreamService orderStreamService;
+    private final OrderTreeAggregator orderTreeAggregator;
+    private final ExposureBook exposureBook;
+    private final ClOrdIdIndex clOrdIdIndex;
 
-    public PersistenceService(OrderRepository orderRepository) {
+    public PersistenceService(
+            OrderRepository orderRepository,
+            EntityManager entityManager,
+            OrderCache orderCache,
+            OrderStreamService orderStreamService,
+            OrderTreeAggregator orderTreeAggregator,
+            ExposureBook exposureBook,
+            ClOrdIdIndex clOrdIdIndex) {
         this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.orderCache = orderCache;
+        this.orderStreamService = orderStreamService;
+        this.orderTreeAggregator = orderTreeAggregator;
+        this.exposureBook = exposureBook;
+        this.clOrdIdIndex = clOrdIdIndex;
     }
 
     @Transactional
     @Observed(name = "oms.persistence-service.persist")
     public void persist(ProcessingContext context) {
         Order savedOrder = orderRepository.save(context.getOrder());
-        log.info("Order persisted: {}", savedOrder);
+        STAGE.info("order.persisted", ORDER, savedOrder);
         context.setOrder(savedOrder);
+        // The cache, blotter streams and ClOrdID index only ever see committed state
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        orderCache.put(savedOrder);
+                        orderStreamService.publish(savedOrder);
+                        orderTreeAggregator.onOrder(savedOrder);
+                        clOrdIdIndex.onOrder(savedOrder);
+                        exposureBook.onOrder(savedOrder);
+                    }
+                });
+    }
+
+    /**
+     * Drops any unflushed changes a rejected transaction made to its order, so they are not written
+     * when the surrounding batch commits.
+     */
+    @Transactional
+    public void discard(ProcessingContext context) {
+        Order order = context.getOrder();
+        if (order != null && entityManager.contains(order)) {
+            entityManager.detach(order);
+            log.info("Discarded changes to order {}", order.getOrderId());
+        }
     }
 }
@@ -0,0 +1,294 @@
+package org.example.oms.service.processing;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.common.model.Order;
+import org.example.oms.service.business.PropagationRules;
+import org.example.oms.service.business.PropagationRules.Action;
+import org.example.oms.service.business.PropagationRules.Request;
+import org.example.oms.service.business.PropagationRules.Rule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.YamlMapFactoryBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The propagation rules in force, read from the YAML file at {@code oms.propagation.rules-location}
+ * and compiled into {@link PropagationRules}. The file is checked for changes every {@code
+ * oms.propagation.reload-interval-ms} (or reloaded on request); a new rule set is compiled aside
+ * and swapped in with one volatile write, so requests in flight finish with the rules they started
+ * with and none wait for a reload. A file that does not compile is logged and the rules in force
+ * are kept; at startup it fails the application.
+ *
+ * <p>Per rule, {@code oms.propagation.rule.evaluation} times the conditions tested outside the
+ * decision table and {@code oms.propagation.rule.matches} counts the descendants it decided for.
+ */
+@Service
+@Slf4j
+public class PropagationRuleEngine {
+
+    /** The rules in force, when they were loaded and from which version of the file. */
+    public record RuleSet(List<Rule> rules, Instant loadedAt, long lastModified) {}
+
+    // Kept by rule name across reloads, so a rule's meters carry on when the file changes
+    private static final class RuleStats {
+        final LongAdder evaluations = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder matches = new LongAdder();
+    }
+
+    private record Loaded(PropagationRules rules, RuleStats[] stats, RuleSet ruleSet) {}
+
+    private final Resource resource;
+    private final long reloadIntervalMillis;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RuleStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder reloadFailures = new LongAdder();
+    // Reloads, on request and scheduled, read the file one at a time; decide() never takes it
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Loaded loaded;
+    private ScheduledExecutorService reloader;
+
+    public PropagationRuleEngine(
+            ResourceLoader resourceLoader,
+            MeterRegistry meterRegistry,
+            @Value("${oms.propagation.rules-location:classpath:propagation-rules.yml}")
+                    String rulesLocation,
+            @Value("${oms.propagation.reload-interval-ms:5000}") long reloadIntervalMillis) {
+        this.resource = resourceLoader.getResource(rulesLocation);
+        this.reloadIntervalMillis = reloadIntervalMillis;
+        this.meterRegistry = meterRegistry;
+        this.loaded = load();
+        FunctionCounter.builder(
+                        "oms.propagation.rules.reload.failures", reloadFailures, LongAdder::sum)
+                .description("Changed rule files that did not compile and were not loaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The rule deciding what happens to the descendant of the order a cancel or replace is for,
+     * null if none matches and the change is propagated.
+     */
+    public Rule decide(Request request, Order parent, Order child) {
+        Loaded current = loaded;
+        RuleStats[] ruleStats = current.stats();
+        int r =
+                current.rules()
+                        .match(
+                                request,
+                                parent,
+                                child,
+                                (rule, nanos) -> {
+                                    ruleStats[rule].evaluations.increment();
+                                    ruleStats[rule].nanos.add(nanos);
+                                });
+        if (r < 0) {
+            return null;
+        }
+        ruleStats[r].matches.increment();
+        return current.rules().rules().get(r);
+    }
+
+    public RuleSet ruleSet() {
+        return loaded.ruleSet();
+    }
+
+    /**
+     * Reads and compiles the rules file and puts it in force.
+     *
+     * @throws IllegalArgumentException if the file cannot be read or a rule does not compile; the
+     *     rules in force are kept
+     */
+    public RuleSet reload() {
+        reloadLock.lock();
+        try {
+            loaded = load();
+            log.info(
+                    "Loaded {} propagation rules from {}", loaded.rules().rules().size(), resource);
+            return loaded.ruleSet();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("oms.propagation.rules", this, e -> e.loaded.rules().rules().size())
+                .description("Propagation rules in force")
+                .register(meterRegistry);
+        if (reloadIntervalMillis <= 0 || lastModified() < 0) {
+            return; // e.g. packaged in the jar
+        }
+        reloader =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("oms-propagation-rules").daemon().factory());
+        reloader.scheduleWithFixedDelay(
+                this::reloadIfChanged,
+                reloadIntervalMillis,
+                reloadIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    private void reloadIfChanged() {
+        reloadLock.lock();
+        try {
+            reloadIfChangedLocked();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void reloadIfChangedLocked() {
+        long lastModified = lastModified();
+        if (lastModified == loaded.ruleSet().lastModified()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            reloadFailures.increment();
+            log.warn("Propagation rules in {} not loaded, keeping the rules in force", resource, e);
+            // Not retried until the file changes again
+            Loaded current = loaded;
+            loaded =
+                    new Loaded(
+                            current.rules(),
+                            current.stats(),
+                            new RuleSet(
+                                    current.ruleSet().rules(),
+                                    current.ruleSet().loadedAt(),
+                                    lastModified));
+        }
+    }
+
+    private Loaded load() {
+        long lastModified = lastModified();
+        PropagationRules rules = PropagationRules.compile(read());
+        RuleStats[] ruleStats = new RuleStats[rules.rules().size()];
+        for (int r = 0; r < ruleStats.length; r++) {
+            ruleStats[r] = stats.computeIfAbsent(rules.rules().get(r).name(), this::register);
+        }
+        return new Loaded(
+                rules, ruleStats, new RuleSet(rules.rules(), Instant.now(), lastModified));
+    }
+
+    private RuleStats register(String rule) {
+        RuleStats ruleStats = new RuleStats();
+        FunctionTimer.builder(
+                        "oms.propagation.rule.evaluation",
+                        ruleStats,
+                        s -> s.evaluations.sum(),
+                        s -> s.nanos.sum(),
+                        TimeUnit.NANOSECONDS)
+                .description("Conditions of a propagation rule tested outside the decision table")
+                .tag("rule", rule)
+                .register(meterRegistry);
+        FunctionCounter.builder("oms.propagation.rule.matches", ruleStats.matches, LongAdder::sum)
+                .description("Descendant orders a propagation rule decided for")
+                .tag("rule", rule)
+                .register(meterRegistry);
+        return ruleStats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Rule> read() {
+        if (!resource.exists()) {
+            log.info("No propagation rules at {}", resource);
+            return List.of();
+        }
+        YamlMapFactoryBean yaml = new YamlMapFactoryBean();
+        yaml.setResources(resource);
+        Map<String, Object> document;
+        try {
+            document = yaml.getObject();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(
+                    "Cannot read " + resource + ": " + e.getMessage(), e);
+        }
+        Object declared = document != null ? document.get("rules") : null;
+        if (declared == null) {
+            return List.of();
+        }
+        if (!(declared instanceof List<?> list)) {
+            throw new IllegalArgumentException("rules in " + resource + " is not a list");
+        }
+        List<Rule> rules = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> map)) {
+                throw new IllegalArgumentException("Rule is not a map: " + item);
+            }
+            rules.add(rule((Map<String, Object>) map));
+        }
+        return rules;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Rule rule(Map<String, Object> map) {
+        String name = map.get("name") != null ? String.valueOf(map.get("name")) : null;
+        Set<Request> on = EnumSet.noneOf(Request.class);
+        Object requests = map.get("requests");
+        if (requests instanceof List<?> list) {
+            list.forEach(request -> on.add(valueOf(Request.class, request, name)));
+        } else if (requests != null) {
+            on.add(valueOf(Request.class, requests, name));
+        }
+        Action action = valueOf(Action.class, map.get("action"), name);
+        Object when = map.get("when");
+        if (when != null && !(when instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException("Rule " + name + ": when is not a map");
+        }
+        // YamlMapFactoryBean merges nested maps into LinkedHashMaps, keeping the declared order
+        return new Rule(
+                name,
+                on,
+                action,
+                when != null ? new LinkedHashMap<>((Map<String, Object>) when) : Map.of());
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, Object value, String rule) {
+        try {
+            return Enum.valueOf(type, String.valueOf(value).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Rule " + rule + ": unknown " + type.getSimpleName() + " " + value);
+        }
+    }
+
+    // -1 if the resource has no modification time, e.g. inside a jar
+    private long lastModified() {
+        try {
+            return resource.exists() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.oms.service.processing;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.example.common.model.Order;
+import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.ExposureBook.Dimension;
+import org.example.oms.service.infra.ExposureBook.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.annotation.Observed;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pre-trade risk: rejects a transaction that would take the open notional of its account, symbol or
+ * session over {@code oms.risk.max-notional.*}. Only an increase is checked (a new order, a replace
+ * to a larger quantity or price); the notional is reserved in the {@link ExposureBook} as it is
+ * checked and released if the transaction does not commit.
+ *
+ * <p>The limits are in {@code oms.risk.currency} and notional is not converted, so while any limit
+ * is set an increase in another settlement currency is rejected.
+ */
+@Service
+@Slf4j
+public class RiskCheckService {
+
+    private final ExposureBook exposureBook;
+    private final boolean enabled;
+    private final boolean limited;
+    private final long[] limits = new long[Dimension.values().length];
+    private final Map<Dimension, Counter> rejected = new EnumMap<>(Dimension.class);
+    private final Counter otherCurrency;
+
+    public RiskCheckService(
+            ExposureBook exposureBook,
+            MeterRegistry meterRegistry,
+            @Value("${oms.risk.enabled:true}") boolean enabled,
+            @Value("${oms.risk.max-notional.account:0}") BigDecimal maxAccountNotional,
+            @Value("${oms.risk.max-notional.symbol:0}") BigDecimal maxSymbolNotional,
+            @Value("${oms.risk.max-notional.session:0}") BigDecimal maxSessionNotional) {
+        this.exposureBook = exposureBook;
+        this.enabled = enabled;
+        limits[Dimension.ACCOUNT.ordinal()] = ExposureBook.toScaled(maxAccountNotional);
+        limits[Dimension.SYMBOL.ordinal()] = ExposureBook.toScaled(maxSymbolNotional);
+        limits[Dimension.SESSION.ordinal()] = ExposureBook.toScaled(maxSessionNotional);
+        this.limited = Arrays.stream(limits).anyMatch(limit -> limit > 0);
+        this.otherCurrency =
+                Counter.builder("oms.risk.rejected")
+                        .description("Transactions rejected by a pre-trade notional limit")
+                        .tag("dimension", "currency")
+                        .register(meterRegistry);
+        for (Dimension dimension : Dimension.values()) {
+            rejected.put(
+                    dimension,
+                    Counter.builder("oms.risk.rejected")
+                            .description("Transactions rejected by a pre-trade notional limit")
+                            .tag("dimension", dimension.name().toLowerCase())
+                            .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Reserves the increase of the order's notional, to be released if the surrounding transaction
+     * rolls back.
+     *
+     * @throws IllegalArgumentException if the increase breaks a limit
+     */
+    @Observed(name = "oms.risk-check.service-check")
+    public void check(ProcessingContext context) {
+        if (!enabled) {
+            return;
+        }
+        Order order = context.getOrder();
+        String currency = exposureBook.currencyOf(order);
+        if (limited
+                && !currency.equals(exposureBook.currency())
+                && exposureBook.increase(order) > 0) {
+            otherCurrency.increment();
+            String message =
+                    "Order "
+                            + order.getOrderId()
+                            + " settles in "
+                            + currency
+                            + ", but the notional limits are in "
+                            + exposureBook.currency();
+            log.warn(message);
+            throw new IllegalArgumentException(message);
+        }
+        Reservation reservation = exposureBook.reserve(order, limits);
+        if (reservation.isRejected()) {
+            rejected.get(reservation.breached()).increment();
+            Dimension dimension = reservation.breached();
+            String message =
+                    "Order "
+                            + order.getOrderId()
+                            + " would take the notional of "
+                            + dimension.name().toLowerCase()
+                            + " "
+                            + dimension.keyOf(order)
+                            + " to "
+                            + ExposureBook.fromScaled(reservation.exposure()).toPlainString()
+                            + " "
+                            + currency
+                            + ", over its limit of "
+                            + ExposureBook.fromScaled(reservation.limit()).toPlainString();
+            log.warn(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (reservation.added() != 0
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            reservations().byContext.put(context, new Reserved(order, reservation));
+        }
+    }
+
+    /**
+     * Releases what {@link #check} reserved for a transaction that is rejected by a later step,
+     * while the group commit it is part of goes on to commit the others.
+     */
+    public void release(ProcessingContext context) {
+        Reservations reservations =
+                (Reservations) TransactionSynchronizationManager.getResource(this);
+        Reserved reserved = reservations != null ? reservations.byContext.remove(context) : null;
+        if (reserved != null) {
+            exposureBook.release(reserved.order(), reserved.reservation());
+        }
+    }
+
+    /** The reservations of the current transaction, bound to it under this service. */
+    private Reservations reservations() {
+        Reservations reservations =
+                (Reservations) TransactionSynchronizationManager.getResource(this);
+        if (reservations == null) {
+            reservations = new Reservations();
+            TransactionSynchronizationManager.bindResource(this, reservations);
+            TransactionSynchronizationManager.registerSynchronization(reservations);
+        }
+        return reservations;
+    }
+
+    private record Reserved(Order order, Reservation reservation) {}
+
+    private final class Reservations implements TransactionSynchronization {
+
+        // By identity, as a context is mutable
+        private final Map<ProcessingContext, Reserved> byContext = new IdentityHashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RiskCheckService.this);
+            if (status != STATUS_COMMITTED) {
+                byContext.values().forEach(r -> exposureBook.release(r.order(), r.reservation()));
+            }
+        }
+    }
+}
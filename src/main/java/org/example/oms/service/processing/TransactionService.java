@@ -5,11 +5,20 @@ import java.util.Optional;
 import org.example.common.model.Order;
 import org.example.common.model.State;
 import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.CancelOrderTx;
 import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
 import org.example.common.model.tx.Transaction;
 import org.example.common.model.tx.Tx;
 import org.example.oms.model.Event;
 import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.business.CancelReplace;
+import org.example.oms.service.business.StateMachine;
+import org.example.oms.service.infra.ClOrdIdIndex;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.logging.FieldWriter;
+import org.example.oms.service.infra.logging.FieldWriters;
+import org.example.oms.service.infra.logging.PipelineLog;
 import org.example.oms.service.infra.repository.OrderRepository;
 import org.example.oms.service.mapper.NewOrderTxToOrderMapper;
 import org.springframework.stereotype.Service;
@@ -21,34 +30,47 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TransactionService {
 
+    private static final PipelineLog STAGE = PipelineLog.forStage("transaction");
+    private static final FieldWriter<Order> ORDER = FieldWriters.of(Order.class);
+
     private final NewOrderTxToOrderMapper newOrderTxToOrderMapper;
     private final OrderRepository orderRepository;
+    private final OrderCache orderCache;
+    private final ClOrdIdIndex clOrdIdIndex;
 
     public TransactionService(
-            NewOrderTxToOrderMapper newOrderTxToOrderMapper, OrderRepository orderRepository) {
+            NewOrderTxToOrderMapper newOrderTxToOrderMapper,
+            OrderRepository orderRepository,
+            OrderCache orderCache,
+            ClOrdIdIndex clOrdIdIndex) {
         this.newOrderTxToOrderMapper = newOrderTxToOrderMapper;
         this.orderRepository = orderRepository;
+        this.orderCache = orderCache;
+        this.clOrdIdIndex = clOrdIdIndex;
     }
 
-    @Transactional
+    // Rejections must not mark a surrounding batch transaction rollback-only
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
     public void executeTransaction(ProcessingContext context) {
         Transaction transaction = context.getTransaction();
 
         if (transaction instanceof NewOrderTx newOrderTx) {
             Order order = newOrderTxToOrderMapper.map(newOrderTx);
+            if (order.getParentOrderId() != null) {
+                order.setRootOrderId(rootOf(order.getParentOrderId()));
+            }
             order.setTx(Tx.NO);
             context.setNewState(State.UNACK);
-            log.info("Order created: {}", order);
+            STAGE.info("order.created", ORDER, order);
             context.setOrder(order);
             context.setEvent(Event.NEW_ORDER);
         } else if (transaction instanceof AcceptOrderTx acceptOrderTx) {
-            Optional<Order> orderOptional =
-                    orderRepository.findByOrderId(acceptOrderTx.getOrderId());
+            Optional<Order> orderOptional = findOrder(acceptOrderTx.getOrderId());
             if (orderOptional.isPresent()) {
                 Order order = orderOptional.get();
                 order.setTx(Tx.AO);
                 context.setNewState(State.LIVE);
-                log.info("Order accepted: {}", order);
+                STAGE.info("order.accepted", ORDER, order);
                 context.setOrder(order);
                 context.setEvent(Event.ACK);
             } else {
@@ -57,9 +79,137 @@ public class TransactionService {
                 throw new IllegalArgumentException(errorMessage);
             }
 
+        } else if (transaction instanceof CancelOrderTx cancelOrderTx) {
+            Order order =
+                    orderToModify(
+                            cancelOrderTx.getOrderId(),
+                            cancelOrderTx.getOrigClOrdId(),
+                            cancelOrderTx.getClOrdId());
+            if (order.getGroupOrderId() != null && !order.isGroupedOrder()) {
+                throw new IllegalArgumentException(
+                        "Order "
+                                + order.getOrderId()
+                                + " is a member of "
+                                + order.getGroupOrderId()
+                                + "; cancel the grouped order");
+            }
+            if (!StateMachine.of(order).canTransition(order.getState(), State.CXL)) {
+                throw new IllegalArgumentException(
+                        "Order "
+                                + order.getOrderId()
+                                + " is "
+                                + order.getState()
+                                + " and cannot be cancelled");
+            }
+            CancelReplace.applyCancel(order, cancelOrderTx);
+            order.setTx(Tx.CO);
+            context.setNewState(State.CXL);
+            STAGE.info("order.cancelled", ORDER, order);
+            context.setOrder(order);
+            context.setEvent(Event.CXL);
+        } else if (transaction instanceof ReplaceOrderTx replaceOrderTx) {
+            Order order =
+                    orderToModify(
+                            replaceOrderTx.getOrderId(),
+                            replaceOrderTx.getOrigClOrdId(),
+                            replaceOrderTx.getClOrdId());
+            CancelReplace.validateReplace(order, replaceOrderTx);
+            CancelReplace.applyReplace(order, replaceOrderTx);
+            order.setTx(Tx.RP);
+            context.setNewState(order.getState());
+            STAGE.info("order.replaced", ORDER, order);
+            context.setOrder(order);
+            context.setEvent(Event.REPLACE);
         } else {
             throw new IllegalArgumentException(
                     "Unsupported transaction type: " + transaction.getClass().getName());
         }
     }
+
+    /**
+     * The order a transaction is for: its orderId, or for a cancel or replace given by OrigClOrdID
+     * the order of that ClOrdID. Null for a new order or if the ClOrdID does not resolve.
+     */
+    public String orderIdOf(Transaction transaction) {
+        if (transaction.getOrderId() != null) {
+            return transaction.getOrderId();
+        }
+        String origClOrdId =
+                switch (transaction) {
+                    case CancelOrderTx cancelOrderTx -> cancelOrderTx.getOrigClOrdId();
+                    case ReplaceOrderTx replaceOrderTx -> replaceOrderTx.getOrigClOrdId();
+                    default -> null;
+                };
+        ClOrdIdIndex.Link link = clOrdIdIndex.get(origClOrdId);
+        return link != null ? link.orderId() : null;
+    }
+
+    /**
+     * The root of the order tree a transaction changes: that of its order, or for a new child order
+     * that of its parent. Null for a new order without a parent, which changes no existing tree.
+     */
+    public String rootOrderIdOf(Transaction transaction) {
+        String orderId =
+                transaction instanceof NewOrderTx newOrderTx
+                        ? newOrderTx.getParentOrderId()
+                        : orderIdOf(transaction);
+        if (orderId == null) {
+            return null;
+        }
+        return findOrder(orderId)
+                .map(o -> o.getRootOrderId() != null ? o.getRootOrderId() : o.getOrderId())
+                .orElse(orderId);
+    }
+
+    /**
+     * Finds the order a cancel or replace is for, by orderId or else by OrigClOrdID, and checks
+     * that OrigClOrdID is its current ClOrdID and that the new ClOrdID is not in use.
+     */
+    private Order orderToModify(String orderId, String origClOrdId, String clOrdId) {
+        if (orderId == null) {
+            ClOrdIdIndex.Link link = clOrdIdIndex.get(origClOrdId);
+            if (link == null) {
+                throw new IllegalArgumentException("Unknown order: OrigClOrdID " + origClOrdId);
+            }
+            if (link.isAmbiguous()) {
+                throw new IllegalArgumentException(
+                        "OrigClOrdID " + origClOrdId + " is used by more than one order");
+            }
+            orderId = link.orderId();
+        }
+        String id = orderId;
+        Order order =
+                findOrder(id)
+                        .orElseThrow(() -> new IllegalArgumentException("Order not found: " + id));
+        if (origClOrdId != null && !origClOrdId.equals(order.getClOrdId())) {
+            throw new IllegalArgumentException(
+                    "OrigClOrdID "
+                            + origClOrdId
+                            + " is not the current ClOrdID "
+                            + order.getClOrdId()
+                            + " of order "
+                            + id);
+        }
+        if (clOrdId != null
+                && !clOrdId.equals(order.getClOrdId())
+                && clOrdIdIndex.contains(clOrdId)) {
+            throw new IllegalArgumentException("Duplicate ClOrdID: " + clOrdId);
+        }
+        return order;
+    }
+
+    private String rootOf(String parentOrderId) {
+        Order parent =
+                findOrder(parentOrderId)
+                        .orElseThrow(
+                                () ->
+                                        new IllegalArgumentException(
+                                                "Parent order not found: " + parentOrderId));
+        return parent.getRootOrderId() != null ? parent.getRootOrderId() : parent.getOrderId();
+    }
+
+    private Optional<Order> findOrder(String orderId) {
+        Optional<Order> cached = orderCache.get(orderId);
+        return cached.isPresent() ? cached : orderRepository.findByOrderId(orderId);
+    }
 }
@@ -1,43 +1,56 @@
 package org.example.oms.service.processing;
 
-import java.util.Optional;
-
 import org.example.common.model.Order;
 import org.example.common.model.State;
+import org.example.oms.model.Event;
 import org.example.oms.model.ProcessingContext;
 import org.example.oms.service.business.StateMachine;
+import org.example.oms.service.infra.logging.FieldWriter;
+import org.example.oms.service.infra.logging.Logfmt;
+import org.example.oms.service.infra.logging.PipelineLog;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import io.micrometer.observation.annotation.Observed;
-import lombok.extern.slf4j.Slf4j;
 
 @Service
-@Slf4j
 public class ValidationService {
 
-    @Transactional
+    private static final PipelineLog STAGE = PipelineLog.forStage("validation");
+
+    // Logged before the transition is applied, so state is the state it is validated from
+    private static final FieldWriter<ProcessingContext> TRANSITION =
+            (context, out) -> {
+                Order order = context.getOrder();
+                Logfmt.append(out, "orderId", order.getOrderId());
+                Logfmt.append(out, "tx", order.getTx());
+                Logfmt.append(out, "event", context.getEvent());
+                Logfmt.append(out, "state", order.getState());
+                Logfmt.append(out, "newState", context.getNewState());
+            };
+
+    // Rejections must not mark a surrounding batch transaction rollback-only
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
     @Observed(name = "oms.event-validation.service-validate")
     public void validate(ProcessingContext context) {
-        if (isValidStateTransition(context.getOrder(), context.getNewState())) {
+        if (isValid(context)) {
+            STAGE.info("validation.passed", TRANSITION, context);
             context.getOrder().setState(context.getNewState());
-            log.info("Validation successful: {}", context);
         } else {
-            log.error("Validation failed: {}", context);
+            STAGE.error("validation.failed", TRANSITION, context);
             throw new IllegalArgumentException("Validation failed");
         }
     }
 
-    private boolean isValidStateTransition(Order order, State newState) {
-        State currentState = order.getState();
-        Optional<State> transitionedState = StateMachine.transition(currentState, newState);
-
-        if (transitionedState.isPresent()) {
-            log.info("Valid state transition from {} to {}", currentState, newState);
-            return true;
-        } else {
-            log.warn("Invalid state transition from {} to {}", currentState, newState);
-            return false;
+    private boolean isValid(ProcessingContext context) {
+        // A replace changes the terms of the order, not its state
+        if (context.getEvent() == Event.REPLACE) {
+            return context.getNewState() == context.getOrder().getState();
         }
+        return isValidStateTransition(context.getOrder(), context.getNewState());
+    }
+
+    private boolean isValidStateTransition(Order order, State newState) {
+        return StateMachine.of(order).canTransition(order.getState(), newState);
     }
 }
@@ -0,0 +1,4 @@
+-- Outbox ids are drawn one nextval per row (OrderOutbox): blocks handed to several instances would
+-- let a later message of an order take a lower id than an earlier one, and the relay publishes in
+-- id order.
+alter sequence order_outbox_seq increment by 1;
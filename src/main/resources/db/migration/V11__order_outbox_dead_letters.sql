@@ -0,0 +1,16 @@
+-- Outbox rows the relay failed to send for another reason than the broker being unavailable
+-- (MessagePublisher) count their attempts; after oms.outbox.max-attempts they are moved to
+-- order_messages_dead so the rest of their shard keeps flowing.
+alter table order_messages add column attempts integer not null default 0;
+
+create table order_messages_dead (
+    id bigint not null,
+    shard integer not null,
+    order_id varchar(255),
+    created_at timestamp(6),
+    outbound_order jsonb,
+    attempts integer not null,
+    error text,
+    failed_at timestamp(6) not null,
+    primary key (id)
+);
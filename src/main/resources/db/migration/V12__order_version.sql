@@ -0,0 +1,3 @@
+-- Optimistic locking of orders (Order.version): every write of an order row bumps it, and a write
+-- from a copy read before another one fails instead of overwriting it.
+alter table orders add column version bigint not null default 0;
@@ -0,0 +1,3 @@
+-- Order.version (V12) on the archived orders as well: rows are archived with insert ... select *
+-- (V6), so the archive table must have the same columns in the same order as orders.
+alter table oms_archive.orders add column version bigint not null default 0;
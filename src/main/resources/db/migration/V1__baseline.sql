@@ -0,0 +1,108 @@
+-- Schema as previously generated by Hibernate from the entity mappings.
+-- Sequence increments must match oms.id.block-size (see PooledSequenceGenerator).
+
+create sequence execution_seq start with 1 increment by 100;
+
+create sequence order_event_seq start with 1 increment by 50;
+
+create sequence order_outbox_seq start with 1 increment by 50;
+
+create sequence order_seq start with 1 increment by 50;
+
+create sequence quote_seq start with 1 increment by 50;
+
+create table executions (
+    avg_px numeric(38,2),
+    cum_qty numeric(38,2),
+    day_avg_px numeric(38,2),
+    day_cum_qty numeric(38,2),
+    day_order_qty numeric(38,2),
+    last_px numeric(38,2),
+    last_qty numeric(38,2),
+    leaves_qty numeric(38,2),
+    creation_date timestamp(6),
+    id bigint not null,
+    transact_time timestamp(6),
+    exec_type varchar(255),
+    execid varchar(255),
+    execution_id varchar(255),
+    last_capacity varchar(255),
+    last_mkt varchar(255),
+    order_id varchar(255),
+    secondary_execid varchar(255),
+    primary key (id)
+);
+
+create table order_events (
+    id bigint not null,
+    time_stamp timestamp(6),
+    event varchar(255) check (event in ('NEW_ORDER','ACK','CXL','REJ')),
+    order_id varchar(255),
+    transaction jsonb,
+    primary key (id)
+);
+
+create table order_messages (
+    shard integer not null,
+    created_at timestamp(6),
+    id bigint not null,
+    order_id varchar(255),
+    outbound_order jsonb,
+    primary key (id)
+);
+
+create table orders (
+    cancel_state smallint check (cancel_state between 0 and 3),
+    cash_order_qty numeric(38,2),
+    order_qty numeric(38,2),
+    price numeric(38,2),
+    price_type smallint check (price_type between 0 and 6),
+    put_or_call integer,
+    state smallint check (state between 0 and 7),
+    stop_px numeric(38,2),
+    strike_price numeric(38,2),
+    expire_time timestamp(6),
+    id bigint not null,
+    sending_time timestamp(6),
+    tif_timestamp timestamp(6),
+    transact_time timestamp(6),
+    tx_nr bigint not null,
+    account varchar(255),
+    cl_ord_id varchar(255),
+    ex_destination varchar(255),
+    exec_inst varchar(255) check (exec_inst in ('NO_CROSS','OK_TO_CROSS','MID_PEG')),
+    handl_inst varchar(255) check (handl_inst in ('AUTO','BROKER_INTERVENTION_OK','MANUAL')),
+    maturity_month_year varchar(255),
+    ord_type varchar(255) check (ord_type in ('MARKET','LIMIT','STOP','STOP_LIMIT','MARKET_ON_CLOSE')),
+    order_id varchar(255),
+    orig_cl_ord_id varchar(255),
+    parent_order_id varchar(255),
+    position_effect varchar(255) check (position_effect in ('OPEN','CLOSE')),
+    root_order_id varchar(255),
+    security_desc varchar(255),
+    security_exchange varchar(255),
+    security_id varchar(255),
+    security_id_source varchar(255) check (security_id_source in ('ISIN','RIC','EXCHANGE_SYMBOL','BLOOMBERG_SYMBOL')),
+    security_type varchar(255) check (security_type in ('CS','FUT','OPT','ETF','ETN','MF','CORP')),
+    session_id varchar(255),
+    settl_currency varchar(255),
+    side varchar(255) check (side in ('BUY','SELL','SELL_SHORT','SUBSCRIBE','REDEEM')),
+    symbol varchar(255),
+    text varchar(255),
+    time_in_force varchar(255) check (time_in_force in ('DAY','GOOD_TILL_CANCEL','AT_THE_OPENING','IMMEDIATE_OR_CANCEL','FILL_OR_KILL','GOOD_TILL_CROSSING','GOOD_TILL_DATE','AT_THE_CLOSE')),
+    tx varchar(255) check (tx in ('NO','AO','RO')),
+    underlying_security_type varchar(255),
+    primary key (id),
+    constraint ux_orders_order_id unique (order_id)
+);
+
+create table quotes (
+    price numeric(38,2),
+    id bigint not null,
+    timestamp timestamp(6),
+    symbol varchar(255),
+    primary key (id)
+);
+
+create index ix_order_messages_shard_id
+    on order_messages (shard, id);
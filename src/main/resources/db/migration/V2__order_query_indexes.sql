@@ -0,0 +1,48 @@
+-- Indexes behind the OrderSpecifications filters used by the query API and blotters.
+-- Keep in sync with the @Index declarations on Order; QueryPlanAdvisor reports the
+-- query shapes that still end up scanning the whole table.
+
+-- Blotters: an account's live orders, newest first
+create index ix_orders_account_state_transact_time
+    on orders (account, state, transact_time);
+
+-- Instrument views: symbol with or without side
+create index ix_orders_symbol_side
+    on orders (symbol, side);
+
+-- Time-ordered pages and keyset scrolling (transact_time, id)
+create index ix_orders_transact_time_id
+    on orders (transact_time, id);
+
+-- Order tree and client identifier lookups
+create index ix_orders_root_order_id
+    on orders (root_order_id);
+
+create index ix_orders_parent_order_id
+    on orders (parent_order_id);
+
+create index ix_orders_cl_ord_id
+    on orders (cl_ord_id);
+
+create index ix_orders_security_id
+    on orders (security_id);
+
+-- Child rows are always read by their order
+create index ix_executions_order_id
+    on executions (order_id);
+
+create index ix_order_events_order_id
+    on order_events (order_id);
+
+-- __like is a case-insensitive substring match: lower(column) like '%value%'.
+-- Trigram indexes on the columns users search by free text.
+create extension if not exists pg_trgm;
+
+create index ix_orders_account_trgm
+    on orders using gin (lower(account) gin_trgm_ops);
+
+create index ix_orders_symbol_trgm
+    on orders using gin (lower(symbol) gin_trgm_ops);
+
+create index ix_orders_cl_ord_id_trgm
+    on orders using gin (lower(cl_ord_id) gin_trgm_ops);
@@ -0,0 +1,9 @@
+-- Fill state of each order, maintained by the execution ingestion path (ExecutionService).
+-- The transaction pipeline never writes these columns, so the two cannot overwrite each other.
+alter table orders
+    add column cum_qty numeric(38,2) not null default 0,
+    add column avg_px numeric(38,8);
+
+-- An execution is ingested once: duplicates are rejected and busts/whacks look it up by ExecID
+create unique index ux_executions_execid
+    on executions (execid);
@@ -0,0 +1,22 @@
+-- Snapshots of the order state rebuilt from order_events (OrderReplayService). A snapshot covers
+-- the events of its order stamped up to the checkpoint's event_time, so a rebuild starts from the
+-- snapshots and replays only the events after it. Fills are not part of the snapshots; they are
+-- applied from executions.
+create table order_snapshots (
+    order_id varchar(255) not null,
+    last_event_id bigint not null,
+    snapshot jsonb not null,
+    primary key (order_id)
+);
+
+-- Single row: the event time the snapshots are complete up to
+create table order_snapshot_checkpoint (
+    id smallint not null check (id = 1),
+    event_time timestamp(6) not null,
+    taken_at timestamp(6) not null,
+    primary key (id)
+);
+
+-- The tail of the event log after the checkpoint, in event time order
+create index ix_order_events_time_stamp
+    on order_events (time_stamp, id);
@@ -0,0 +1,128 @@
+-- Range partitioning of orders, order_events and executions by trade date: one partition per day,
+-- plus a history partition for the rows that predate this migration. Events and executions take
+-- the trade date of their order, not the day they happen on, so a day's partitions hold the whole
+-- history of that day's orders and can be detached together (PartitionMaintenance).
+--
+-- Primary keys and unique constraints of a partitioned table must include the partition key, so
+-- order_id and execid are unique per trade date; the application checks ExecIDs across days.
+
+-- Trade dates of the existing rows: the day an order was created, as recorded by its first event
+alter table orders add column trade_date date;
+
+update orders o
+set trade_date = coalesce(
+        (select min(e.time_stamp)::date from order_events e where e.order_id = o.order_id),
+        o.transact_time::date,
+        current_date);
+
+-- Order snapshots (V4) carry the trade date like the orders themselves
+update order_snapshots s
+set snapshot = jsonb_set(s.snapshot, '{tradeDate}', to_jsonb(o.trade_date))
+from orders o
+where o.order_id = s.order_id;
+
+alter table order_events add column trade_date date;
+
+update order_events e
+set trade_date = coalesce(
+        (select o.trade_date from orders o where o.order_id = e.order_id),
+        e.time_stamp::date,
+        current_date);
+
+alter table executions add column trade_date date;
+
+update executions x
+set trade_date = coalesce(
+        (select o.trade_date from orders o where o.order_id = x.order_id),
+        x.creation_date::date,
+        current_date);
+
+-- The application always sets trade_date; the default only serves manual and bulk inserts
+alter table orders alter column trade_date set default current_date, alter column trade_date set not null;
+alter table order_events alter column trade_date set default current_date, alter column trade_date set not null;
+alter table executions alter column trade_date set default current_date, alter column trade_date set not null;
+
+alter table orders rename to orders_legacy;
+alter table order_events rename to order_events_legacy;
+alter table executions rename to executions_legacy;
+
+create table orders (like orders_legacy including defaults including constraints)
+    partition by range (trade_date);
+create table order_events (like order_events_legacy including defaults including constraints)
+    partition by range (trade_date);
+create table executions (like executions_legacy including defaults including constraints)
+    partition by range (trade_date);
+
+-- Creates the daily partitions of the three tables from first_day to last_day that do not exist
+-- yet, named <table>_pYYYYMMDD; returns how many were created. Called on startup and periodically.
+create function oms_create_partitions(first_day date, last_day date) returns integer
+language plpgsql as $$
+declare
+    day date;
+    parent text;
+    created integer := 0;
+begin
+    -- Instances starting together would otherwise race on the same names
+    perform pg_advisory_xact_lock(7369332, 0);
+    for day in select d::date from generate_series(first_day, last_day, interval '1 day') d loop
+        foreach parent in array array['orders', 'order_events', 'executions'] loop
+            if to_regclass(parent || '_p' || to_char(day, 'YYYYMMDD')) is null then
+                execute format('create table %I partition of %I for values from (%L) to (%L)',
+                        parent || '_p' || to_char(day, 'YYYYMMDD'), parent, day, day + 1);
+                created := created + 1;
+            end if;
+        end loop;
+    end loop;
+    return created;
+end
+$$;
+
+do $$
+begin
+    execute format('create table orders_history partition of orders for values from (minvalue) to (%L)', current_date);
+    execute format('create table order_events_history partition of order_events for values from (minvalue) to (%L)', current_date);
+    execute format('create table executions_history partition of executions for values from (minvalue) to (%L)', current_date);
+end
+$$;
+
+select oms_create_partitions(
+        current_date,
+        greatest(
+                current_date + 7,
+                (select max(trade_date) from orders_legacy),
+                (select max(trade_date) from order_events_legacy),
+                (select max(trade_date) from executions_legacy)));
+
+insert into orders select * from orders_legacy;
+insert into order_events select * from order_events_legacy;
+insert into executions select * from executions_legacy;
+
+drop table orders_legacy;
+drop table order_events_legacy;
+drop table executions_legacy;
+
+-- Keys and indexes, created once the rows are in; each is created on every partition
+alter table orders add primary key (id, trade_date);
+alter table orders add constraint ux_orders_order_id unique (order_id, trade_date);
+alter table order_events add primary key (id, trade_date);
+alter table executions add primary key (id, trade_date);
+create unique index ux_executions_execid on executions (execid, trade_date);
+
+create index ix_orders_account_state_transact_time on orders (account, state, transact_time);
+create index ix_orders_symbol_side on orders (symbol, side);
+create index ix_orders_transact_time_id on orders (transact_time, id);
+create index ix_orders_root_order_id on orders (root_order_id);
+create index ix_orders_parent_order_id on orders (parent_order_id);
+create index ix_orders_cl_ord_id on orders (cl_ord_id);
+create index ix_orders_security_id on orders (security_id);
+create index ix_orders_account_trgm on orders using gin (lower(account) gin_trgm_ops);
+create index ix_orders_symbol_trgm on orders using gin (lower(symbol) gin_trgm_ops);
+create index ix_orders_cl_ord_id_trgm on orders using gin (lower(cl_ord_id) gin_trgm_ops);
+
+create index ix_executions_order_id on executions (order_id);
+
+create index ix_order_events_order_id on order_events (order_id);
+create index ix_order_events_time_stamp on order_events (time_stamp, id);
+
+-- Detached partitions are moved here, out of the application's way, for export or dropping
+create schema if not exists oms_archive;
@@ -0,0 +1,21 @@
+-- Housekeeping (HousekeepingService): working orders past their time in force are moved to EXP
+-- with an EXP event, and old closed and expired orders are moved to the oms_archive schema.
+
+-- Dropping the check on the parent drops it on every partition; adding it checks them all again
+alter table order_events drop constraint order_events_event_check;
+alter table order_events add constraint order_events_event_check
+    check (event in ('NEW_ORDER','ACK','CXL','REJ','EXP'));
+
+-- Expiry candidates: working (UNACK, LIVE) orders by time in force, and expireTime for GTD
+create index ix_orders_working_expiry on orders (time_in_force, expire_time)
+    where state in (1, 2);
+
+-- Archival candidates: terminal (CLOSED, EXP) orders, oldest first
+create index ix_orders_terminal_trade_date on orders (trade_date, id)
+    where state in (6, 7);
+
+-- Rows of archived orders; same columns in the same order as the live tables, which rows are
+-- moved with insert ... select *, so a column added to one of them must be added here as well
+create table oms_archive.orders (like orders including defaults);
+create table oms_archive.order_events (like order_events including defaults);
+create table oms_archive.executions (like executions including defaults);
@@ -0,0 +1,8 @@
+-- Written by the primary every oms.db.replicas.check-interval-ms and read back from each read
+-- replica to measure its lag (ReplicaRoutingDataSource); must be replicated like the other tables
+create table replica_heartbeat (
+    id integer primary key check (id = 1),
+    beat_at timestamp(6) not null
+);
+
+insert into replica_heartbeat (id, beat_at) values (1, localtimestamp);
@@ -0,0 +1,20 @@
+-- Order grouping (OrderGroupingService, specs/order_grouping.md): a grouped order is worked in the
+-- market for its member orders, and each of its fills is allocated to the members pro rata as
+-- executions of their own, with ExecType ALLOCATION. A grouped order's group_order_id is its own
+-- order_id, and member_count and allocated_to_members_qty are only set on grouped orders.
+alter table orders
+    add column group_order_id varchar(255),
+    add column member_count integer,
+    add column grouped_by varchar(255),
+    add column allocated_to_members_qty numeric(38,2);
+
+-- Rows are archived with insert ... select * (V6), so the columns are added in the same order
+alter table oms_archive.orders
+    add column group_order_id varchar(255),
+    add column member_count integer,
+    add column grouped_by varchar(255),
+    add column allocated_to_members_qty numeric(38,2);
+
+-- Members of a group in allocation order
+create index ix_orders_group_order_id on orders (group_order_id, order_id)
+    where group_order_id is not null;
@@ -0,0 +1,10 @@
+-- Cancel and replace (TransactionService, specs/order_replace.md): a cancel is a CXL event with
+-- Tx CO, a replace a REPLACE event with Tx RP; both are carried down to working child orders with
+-- events of their own.
+alter table order_events drop constraint order_events_event_check;
+alter table order_events add constraint order_events_event_check
+    check (event in ('NEW_ORDER','ACK','CXL','REJ','EXP','REPLACE'));
+
+alter table orders drop constraint orders_tx_check;
+alter table orders add constraint orders_tx_check check (tx in ('NO','AO','RO','CO','RP'));
+
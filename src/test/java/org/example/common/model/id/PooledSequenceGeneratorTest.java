@@ -0,0 +1,98 @@
+package org.example.common.model.id;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.common.model.Order;
+import org.example.oms.model.OrderOutbox;
+import org.hibernate.MappingException;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.junit.jupiter.api.Test;
+
+class PooledSequenceGeneratorTest {
+
+    private static PooledSequence sequenceOf(Class<?> entity) throws NoSuchFieldException {
+        return entity.getDeclaredField("id").getAnnotation(PooledSequence.class);
+    }
+
+    /** A database sequence shared by several instances. */
+    private static AccessCallback sequence(AtomicLong next, int increment) {
+        return new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class)
+                        .initialize(next.getAndAdd(increment));
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return null;
+            }
+        };
+    }
+
+    private static Optimizer optimizer(int blockSize) {
+        return OptimizerFactory.buildOptimizer(
+                blockSize > 1
+                        ? StandardOptimizerDescriptor.POOLED_LO
+                        : StandardOptimizerDescriptor.NONE,
+                Long.class,
+                blockSize,
+                1);
+    }
+
+    @Test
+    void testBlockSizeIsConfiguredPerKey() throws NoSuchFieldException {
+        PooledSequence order = sequenceOf(Order.class);
+
+        assertEquals(50, PooledSequenceGenerator.blockSize(order, Map.of()));
+        assertEquals(
+                100,
+                PooledSequenceGenerator.blockSize(order, Map.of("oms.id.block-size.order", 100)));
+        assertThrows(
+                MappingException.class,
+                () ->
+                        PooledSequenceGenerator.blockSize(
+                                order, Map.of("oms.id.block-size.order", 0)));
+    }
+
+    @Test
+    void testOrderedSequenceRefusesBlocks() throws NoSuchFieldException {
+        PooledSequence outbox = sequenceOf(OrderOutbox.class);
+
+        assertEquals(1, PooledSequenceGenerator.blockSize(outbox, Map.of()));
+        assertThrows(
+                MappingException.class,
+                () ->
+                        PooledSequenceGenerator.blockSize(
+                                outbox, Map.of("oms.id.block-size.order-outbox", 50)));
+    }
+
+    @Test
+    void testInterleavedBlocksHandOutIdsOutOfOrder() {
+        AtomicLong pooled = new AtomicLong(1);
+        Optimizer first = optimizer(50);
+        Optimizer second = optimizer(50);
+        first.generate(sequence(pooled, 50)); // takes the block 1-50
+        long earlier = (Long) second.generate(sequence(pooled, 50)); // takes 51-100
+
+        // A message written after the one of the second instance, by the first one
+        long later = (Long) first.generate(sequence(pooled, 50));
+        assertTrue(later < earlier, later + " < " + earlier);
+
+        AtomicLong ordered = new AtomicLong(1);
+        first = optimizer(1);
+        second = optimizer(1);
+        first.generate(sequence(ordered, 1));
+        earlier = (Long) second.generate(sequence(ordered, 1));
+        later = (Long) first.generate(sequence(ordered, 1));
+        assertTrue(later > earlier, later + " > " + earlier);
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.oms.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.example.common.model.msg.CommandMessage;
+import org.example.common.model.msg.OrderAcceptCmd;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.service.processing.CommandService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CommandListenerTest {
+
+    private final CommandService commandService = mock(CommandService.class);
+    private final CommandListener listener =
+            new CommandListener(commandService, new SimpleMeterRegistry(), 4);
+    private final Consumer<?, ?> consumer = mock(Consumer.class);
+
+    // The orderIds each lane was given, by the key of the lane
+    private final Map<String, List<String>> lanes = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void tearDown() {
+        listener.shutdown();
+    }
+
+    /**
+     * A record of the given key at the offset of its index; the command is for orderId key+index.
+     */
+    private static List<ConsumerRecord<String, CommandMessage>> records(String... keys) {
+        List<ConsumerRecord<String, CommandMessage>> records = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            OrderAcceptCmd command =
+                    OrderAcceptCmd.newBuilder()
+                            .setType("OrderAcceptCmd")
+                            .setVersion("1.0")
+                            .setOrderId(keys[i] + i)
+                            .build();
+            records.add(
+                    new ConsumerRecord<>("commands", 0, i, keys[i], new CommandMessage(command)));
+        }
+        return records;
+    }
+
+    private static String orderIdOf(Object command) {
+        return ((OrderAcceptCmd) command).getOrderId().toString();
+    }
+
+    private static CompletableFuture<TxInfo> ok(String orderId) {
+        return CompletableFuture.completedFuture(
+                TxInfo.builder().orderId(orderId).txState(TxState.OK).build());
+    }
+
+    /** Runs each lane's commands until one whose orderId is in failing, which fails the lane. */
+    @SuppressWarnings("unchecked")
+    private void executes(String... failing) {
+        when(commandService.executeInOrder(any()))
+                .thenAnswer(
+                        invocation -> {
+                            List<Object> commands = invocation.getArgument(0);
+                            List<String> orderIds =
+                                    commands.stream().map(CommandListenerTest::orderIdOf).toList();
+                            lanes.put(orderIds.get(0).substring(0, 1), orderIds);
+                            List<CompletableFuture<TxInfo>> results = new ArrayList<>();
+                            for (String orderId : orderIds) {
+                                if (List.of(failing).contains(orderId)) {
+                                    results.add(
+                                            CompletableFuture.failedFuture(
+                                                    new IllegalStateException("Database down")));
+                                    break;
+                                }
+                                results.add(ok(orderId));
+                            }
+                            return results;
+                        });
+    }
+
+    @Test
+    void testRecordsAreSplitIntoLanesByKeyInOffsetOrder() {
+        executes();
+
+        listener.consume(records("a", "b", "a", "c", "b", "a"), consumer);
+
+        assertEquals(
+                Map.of(
+                        "a", List.of("a0", "a2", "a5"),
+                        "b", List.of("b1", "b4"),
+                        "c", List.of("c3")),
+                lanes);
+    }
+
+    @Test
+    void testBatchFailsAtTheFirstCommandOfTheLaneThatFailed() {
+        executes("a2");
+
+        BatchListenerFailedException e =
+                assertThrows(
+                        BatchListenerFailedException.class,
+                        () -> listener.consume(records("a", "b", "a", "b", "a"), consumer));
+
+        // a4 was not run, b3 was; the batch is delivered again from a2
+        assertEquals(2, e.getIndex());
+        assertEquals("Database down", e.getCause().getMessage());
+    }
+
+    @Test
+    void testBatchFailsAtTheLowestIndexAnyLaneLeftUnprocessed() {
+        executes("a4", "b1");
+
+        BatchListenerFailedException e =
+                assertThrows(
+                        BatchListenerFailedException.class,
+                        () -> listener.consume(records("a", "b", "a", "b", "a"), consumer));
+
+        assertEquals(1, e.getIndex());
+    }
+}
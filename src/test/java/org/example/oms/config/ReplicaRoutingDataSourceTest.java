@@ -0,0 +1,183 @@
+package org.example.oms.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MS = 1000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataSource primary = mock(DataSource.class);
+    private ReplicaRoutingDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    /** A connection whose queries return the one value given, or fail if it is null. */
+    private static Connection connection(Supplier<Object> value) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        when(statement.executeQuery(anyString())).thenAnswer(invocation -> rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(rs.getObject(1, LocalDateTime.class)).thenAnswer(invocation -> value.get());
+        when(rs.getInt(1)).thenReturn(1);
+        return connection;
+    }
+
+    /** A replica whose heartbeat is the given time behind now, or that is down if null. */
+    private static HikariDataSource replica(String name, Long behindMillis) throws SQLException {
+        HikariDataSource replica = mock(HikariDataSource.class);
+        when(replica.getPoolName()).thenReturn(name);
+        if (behindMillis == null) {
+            when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        } else {
+            when(replica.getConnection())
+                    .thenAnswer(
+                            invocation ->
+                                    connection(
+                                            () ->
+                                                    LocalDateTime.now()
+                                                            .minusNanos(behindMillis * 1_000_000)));
+        }
+        return replica;
+    }
+
+    private void start(long maxLagMillis, HikariDataSource... replicas) throws SQLException {
+        when(primary.getConnection()).thenAnswer(invocation -> connection(() -> null));
+        dataSource =
+                new ReplicaRoutingDataSource(
+                        primary, List.of(replicas), maxLagMillis, 3_600_000, meterRegistry);
+        // The first check writes a heartbeat, the second measures the replicas against it
+        dataSource.check();
+        dataSource.check();
+    }
+
+    /** Runs a read-only statement, as a @Transactional(readOnly = true) would. */
+    private void read() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.createStatement();
+        }
+    }
+
+    private double gauge(String replica) {
+        return meterRegistry.get("oms.db.replica.lag").tag("replica", replica).gauge().value();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).functionCounter().count();
+    }
+
+    @Test
+    void testReadsGoToReplicasWithinMaxLagOnly() throws SQLException {
+        HikariDataSource inSync = replica("in-sync", 0L);
+        HikariDataSource lagging = replica("lagging", 10 * MAX_LAG_MS);
+        start(MAX_LAG_MS, inSync, lagging);
+
+        read();
+        read();
+
+        assertTrue(gauge("lagging") > MAX_LAG_MS, "lag " + gauge("lagging"));
+        assertTrue(gauge("in-sync") <= MAX_LAG_MS, "lag " + gauge("in-sync"));
+        // Two lag checks and two reads
+        verify(inSync, times(4)).getConnection();
+        verify(lagging, times(2)).getConnection();
+        assertEquals(2, counter("oms.db.replica.reads"));
+        assertEquals(0, counter("oms.db.replica.fallbacks"));
+    }
+
+    @Test
+    void testReadsFallBackToThePrimaryWithoutAReplica() throws SQLException {
+        start(MAX_LAG_MS, replica("down", null), replica("lagging", 10 * MAX_LAG_MS));
+        read();
+
+        assertEquals(-1, gauge("down"));
+        assertEquals(1, counter("oms.db.replica.fallbacks"));
+        assertEquals(0, counter("oms.db.replica.reads"));
+    }
+
+    @Test
+    void testReplicaFailingToConnectIsSkippedUntilTheNextCheck() throws SQLException {
+        HikariDataSource flaky = replica("flaky", 0L);
+        start(MAX_LAG_MS, flaky);
+        when(flaky.getConnection()).thenThrow(new SQLException("Too many connections"));
+
+        read();
+
+        assertEquals(-1, gauge("flaky"));
+        assertEquals(1, counter("oms.db.replica.fallbacks"));
+    }
+
+    @Test
+    void testReadYourWritesRequestReadsFromThePrimary() throws Exception {
+        HikariDataSource inSync = replica("in-sync", 0L);
+        start(MAX_LAG_MS, inSync);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReadYourWritesFilter.HEADER, "true");
+
+        new ReadYourWritesFilter()
+                .doFilter(
+                        request,
+                        new MockHttpServletResponse(),
+                        (req, res) -> {
+                            assertTrue(ReadYourWritesFilter.required());
+                            try {
+                                read();
+                            } catch (SQLException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+
+        assertFalse(ReadYourWritesFilter.required());
+        verify(inSync, times(2)).getConnection(); // the lag checks only
+        assertEquals(1, counter("oms.db.replica.fallbacks"));
+    }
+
+    @Test
+    void testConnectionWithOtherCredentialsIsNotSupportedForReads() throws SQLException {
+        HikariDataSource inSync = replica("in-sync", 0L);
+        start(MAX_LAG_MS, inSync);
+
+        try (Connection connection = dataSource.getConnection("reporting", "secret")) {
+            connection.setReadOnly(true);
+            assertThrows(SQLFeatureNotSupportedException.class, connection::createStatement);
+        }
+        verify(inSync, never()).getConnection(anyString(), anyString());
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.oms.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.common.model.id.PooledSequence;
+import org.example.oms.model.OrderOutbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+class SequenceIncrementCheckTest {
+
+    // As migrated
+    private static final Map<String, Long> INCREMENTS =
+            Map.of("order_seq", 50L, "order_outbox_seq", 1L, "execution_seq", 100L);
+
+    // As in application.yml
+    private static final Map<String, Object> CONFIGURED =
+            Map.of("oms.id.block-size.execution", 100);
+
+    private static final List<PooledSequence> SEQUENCES =
+            SequenceIncrementCheck.sequencesOf(
+                    List.of(Order.class, OrderOutbox.class, Execution.class));
+
+    @Test
+    void testSequencesAreFoundOnTheEntityIds() {
+        assertEquals(
+                List.of("order_seq", "order_outbox_seq", "execution_seq"),
+                SEQUENCES.stream().map(PooledSequence::sequenceName).toList());
+    }
+
+    @Test
+    void testConfiguredBlockSizesMatchTheMigratedIncrements() {
+        assertEquals(
+                List.of(), SequenceIncrementCheck.mismatches(SEQUENCES, CONFIGURED, INCREMENTS));
+        assertEquals(
+                List.of("execution_seq increments by 100 but oms.id.block-size.execution is 50"),
+                SequenceIncrementCheck.mismatches(SEQUENCES, Map.of(), INCREMENTS));
+    }
+
+    @Test
+    void testBlockSizeOtherThanTheIncrementIsReported() {
+        List<String> mismatches =
+                SequenceIncrementCheck.mismatches(
+                        SEQUENCES,
+                        Map.of("oms.id.block-size.order", 1, "oms.id.block-size.execution", 200),
+                        INCREMENTS);
+
+        assertEquals(
+                List.of(
+                        "order_seq increments by 50 but oms.id.block-size.order is 1",
+                        "execution_seq increments by 100 but oms.id.block-size.execution is 200"),
+                mismatches);
+    }
+
+    @Test
+    void testMissingSequenceIsReported() {
+        assertEquals(
+                List.of("sequence order_outbox_seq does not exist"),
+                SequenceIncrementCheck.mismatches(
+                        SEQUENCES, CONFIGURED, Map.of("order_seq", 50L, "execution_seq", 100L)));
+    }
+
+    @Test
+    void testVerifyFailsTheStartupOnAMismatch() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(
+                        invocation -> {
+                            RowCallbackHandler handler = invocation.getArgument(1);
+                            for (var increment : INCREMENTS.entrySet()) {
+                                ResultSet rs = mock(ResultSet.class);
+                                when(rs.getString(1)).thenReturn(increment.getKey());
+                                when(rs.getLong(2)).thenReturn(increment.getValue());
+                                handler.processRow(rs);
+                            }
+                            return null;
+                        })
+                .when(jdbcTemplate)
+                .query(eq(SequenceIncrementCheck.INCREMENTS_SQL), any(RowCallbackHandler.class));
+
+        new SequenceIncrementCheck(jdbcTemplate, CONFIGURED, SEQUENCES).verify();
+        IllegalStateException e =
+                assertThrows(
+                        IllegalStateException.class,
+                        () ->
+                                new SequenceIncrementCheck(
+                                                jdbcTemplate,
+                                                Map.of("oms.id.block-size.order", 10),
+                                                SEQUENCES)
+                                        .verify());
+        assertTrue(e.getMessage().contains("oms.id.block-size.order is 10"), e.getMessage());
+    }
+}
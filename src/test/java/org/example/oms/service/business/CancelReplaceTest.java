@@ -0,0 +1,131 @@
+package org.example.oms.service.business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.example.common.model.CancelState;
+import org.example.common.model.ExecInst;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.TimeInForce;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
+import org.junit.jupiter.api.Test;
+
+class CancelReplaceTest {
+
+    private static Order order(State state) {
+        return Order.builder()
+                .orderId("o1")
+                .clOrdId("c1")
+                .state(state)
+                .orderQty(new BigDecimal("100"))
+                .cumQty(new BigDecimal("40"))
+                .price(new BigDecimal("22.35"))
+                .timeInForce(TimeInForce.DAY)
+                .build();
+    }
+
+    @Test
+    void testReplaceChangesTermsAndMovesTheClOrdId() {
+        Order order = order(State.LIVE);
+        ReplaceOrderTx tx =
+                ReplaceOrderTx.builder()
+                        .origClOrdId("c1")
+                        .clOrdId("c2")
+                        .orderQty(new BigDecimal("200"))
+                        .price(new BigDecimal("22.40"))
+                        .build();
+
+        CancelReplace.validateReplace(order, tx);
+        CancelReplace.applyReplace(order, tx);
+
+        assertEquals(new BigDecimal("200"), order.getOrderQty());
+        assertEquals(new BigDecimal("22.40"), order.getPrice());
+        assertEquals(TimeInForce.DAY, order.getTimeInForce(), "unchanged when not given");
+        assertEquals("c2", order.getClOrdId());
+        assertEquals("c1", order.getOrigClOrdId());
+        assertEquals(State.LIVE, order.getState());
+    }
+
+    @Test
+    void testReplaceDownToCumQtyFillsTheOrder() {
+        Order order = order(State.LIVE);
+        ReplaceOrderTx tx = ReplaceOrderTx.builder().orderQty(new BigDecimal("40.00")).build();
+
+        CancelReplace.validateReplace(order, tx);
+        CancelReplace.applyReplace(order, tx);
+
+        assertEquals(State.FILLED, order.getState());
+        assertEquals(0, order.getLeavesQty().signum());
+    }
+
+    @Test
+    void testRejectsReplacesThatDoNotApply() {
+        ReplaceOrderTx belowCumQty =
+                ReplaceOrderTx.builder().orderQty(new BigDecimal("30")).build();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CancelReplace.validateReplace(order(State.LIVE), belowCumQty));
+
+        ReplaceOrderTx samePrice = ReplaceOrderTx.builder().price(new BigDecimal("22.350")).build();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CancelReplace.validateReplace(order(State.LIVE), samePrice),
+                "changes nothing");
+
+        ReplaceOrderTx newPrice = ReplaceOrderTx.builder().price(new BigDecimal("22.40")).build();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CancelReplace.validateReplace(order(State.FILLED), newPrice));
+        Order member = order(State.LIVE).toBuilder().groupOrderId("g1").build();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> CancelReplace.validateReplace(member, newPrice));
+    }
+
+    @Test
+    void testCancelMarksTheOrderCancelled() {
+        Order order = order(State.LIVE);
+
+        CancelReplace.applyCancel(
+                order, CancelOrderTx.builder().origClOrdId("c1").clOrdId("c2").build());
+
+        assertEquals(CancelState.CXL, order.getCancelState());
+        assertEquals("c2", order.getClOrdId());
+        assertEquals("c1", order.getOrigClOrdId());
+    }
+
+    @Test
+    void testCarriesPriceTimeInForceAndInstructionsDown() {
+        ReplaceOrderTx tx =
+                ReplaceOrderTx.builder()
+                        .clOrdId("c2")
+                        .orderQty(new BigDecimal("500"))
+                        .price(new BigDecimal("22.40"))
+                        .execInst(ExecInst.NO_CROSS)
+                        .build();
+        Order child = order(State.LIVE).toBuilder().orderId("m1").clOrdId("m1-c").build();
+
+        ReplaceOrderTx childTx = CancelReplace.carryDown(tx, child, "o1");
+        CancelReplace.applyReplace(child, childTx);
+
+        assertEquals(new BigDecimal("22.40"), child.getPrice());
+        assertEquals(ExecInst.NO_CROSS, child.getExecInst());
+        assertEquals(new BigDecimal("100"), child.getOrderQty(), "OrderQty is not carried down");
+        assertEquals("m1-c", child.getClOrdId(), "the child keeps its ClOrdID");
+    }
+
+    @Test
+    void testCarriesNothingDownToOrdersItWouldNotChange() {
+        ReplaceOrderTx tx = ReplaceOrderTx.builder().price(new BigDecimal("22.40")).build();
+        Order market = order(State.LIVE).toBuilder().price(null).build();
+
+        assertNull(CancelReplace.carryDown(tx, market, "o1"), "no price on a market order");
+        assertNull(CancelReplace.carryDown(tx, order(State.FILLED), "o1"));
+        assertFalse(
+                CancelReplace.carriesDown(
+                        ReplaceOrderTx.builder().orderQty(BigDecimal.TEN).build()));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.oms.service.business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.junit.jupiter.api.Test;
+
+class OrderFillsTest {
+
+    private static BigDecimal d(String value) {
+        return new BigDecimal(value);
+    }
+
+    private static void assertValue(String expected, BigDecimal actual) {
+        assertEquals(0, d(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+
+    private static Order order(String orderQty, State state) {
+        return Order.builder().orderId("o1").orderQty(d(orderQty)).state(state).build();
+    }
+
+    @Test
+    void testFillsAccumulateUntilFilled() {
+        OrderFills fills = new OrderFills(order("1000", State.LIVE));
+
+        fills.add(d("400"), d("50.00"));
+        assertEquals(State.LIVE, fills.state());
+        assertValue("600", fills.leavesQty());
+
+        fills.add(d("600"), d("50.50"));
+
+        assertValue("1000", fills.cumQty());
+        assertEquals(d("50.30000000"), fills.avgPx());
+        assertEquals(State.FILLED, fills.state());
+        assertValue("0", fills.leavesQty());
+    }
+
+    @Test
+    void testBustReopensAFilledOrder() {
+        OrderFills fills = new OrderFills(order("100", State.LIVE));
+        fills.add(d("40"), d("9.99"));
+        fills.add(d("60"), d("10.01"));
+        assertEquals(State.FILLED, fills.state());
+
+        fills.add(d("-60"), d("10.01"));
+
+        assertEquals(State.LIVE, fills.state());
+        assertValue("40", fills.cumQty());
+        assertValue("60", fills.leavesQty());
+        assertEquals(d("9.99000000"), fills.avgPx());
+
+        fills.add(d("-40"), d("9.99"));
+        assertValue("0", fills.cumQty());
+        assertNull(fills.avgPx());
+    }
+
+    @Test
+    void testContinuesFromTheCommittedFills() {
+        Order order = order("300", State.LIVE).toBuilder().cumQty(d("100")).avgPx(d("10")).build();
+        OrderFills fills = new OrderFills(order);
+
+        fills.add(d("100"), d("13"));
+
+        assertEquals(d("11.50000000"), fills.avgPx());
+        Order filled = fills.applyTo(order);
+        assertValue("200", filled.getCumQty());
+        assertValue("100", filled.getLeavesQty());
+        assertEquals(order.getVersion() + 1, filled.getVersion());
+        assertValue("100", order.getCumQty());
+    }
+
+    @Test
+    void testLateFillOnCancelledOrderKeepsItCancelled() {
+        OrderFills fills = new OrderFills(order("100", State.CXL));
+
+        fills.add(d("10"), d("5"));
+
+        assertEquals(State.CXL, fills.state());
+        assertValue("0", fills.leavesQty());
+        assertTrue(fills.changed());
+    }
+
+    @Test
+    void testReversalCannotTakeCumQtyBelowZero() {
+        OrderFills fills = new OrderFills(order("100", State.LIVE));
+        fills.add(d("10"), d("5"));
+
+        assertThrows(IllegalArgumentException.class, () -> fills.add(d("-20"), d("5")));
+        assertValue("10", fills.cumQty());
+    }
+
+    @Test
+    void testOnlyWorkingOrdersCanExecute() {
+        assertTrue(OrderFills.canExecute(State.LIVE));
+        assertTrue(OrderFills.canExecute(State.FILLED));
+        assertTrue(OrderFills.canExecute(State.CXL));
+        assertFalse(OrderFills.canExecute(State.NEW));
+        assertFalse(OrderFills.canExecute(State.UNACK));
+        assertFalse(OrderFills.canExecute(State.REJ));
+        assertFalse(OrderFills.canExecute(State.CLOSED));
+        assertFalse(OrderFills.canExecute(null));
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.oms.service.business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.example.common.model.CancelState;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.ExpireOrderTx;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.RejectOrderTx;
+import org.example.common.model.tx.ReplaceOrderTx;
+import org.example.common.model.tx.Tx;
+import org.example.oms.model.Event;
+import org.example.oms.service.mapper.NewOrderTxToOrderMapper;
+import org.junit.jupiter.api.Test;
+
+class OrderReplayTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 16);
+
+    private final OrderReplay replay = new OrderReplay(new NewOrderTxToOrderMapper());
+
+    private static NewOrderTx newOrderTx(String parentOrderId) {
+        return NewOrderTx.builder()
+                .parentOrderId(parentOrderId)
+                .clOrdId("c1")
+                .symbol("INTC")
+                .orderQty(new BigDecimal("100"))
+                .build();
+    }
+
+    @Test
+    void testReplaysTheLifecycleOfAnOrder() {
+        Order order = replay.apply(null, "o1", DAY, 10, Event.NEW_ORDER, newOrderTx(null));
+
+        assertEquals("o1", order.getOrderId());
+        assertEquals("o1", order.getRootOrderId());
+        assertEquals(DAY, order.getTradeDate());
+        assertEquals("INTC", order.getSymbol());
+        assertEquals(State.UNACK, order.getState());
+        assertEquals(Tx.NO, order.getTx());
+        assertEquals(10, order.getTxNr());
+
+        order = replay.apply(order, "o1", DAY, 5, Event.ACK, new AcceptOrderTx());
+        assertEquals(State.LIVE, order.getState());
+        assertEquals(Tx.AO, order.getTx());
+        assertEquals(11, order.getTxNr(), "txNr never goes back with an interleaved event id");
+
+        order = replay.apply(order, "o1", DAY, 30, Event.CXL, new AcceptOrderTx());
+        assertEquals(State.CXL, order.getState());
+        assertEquals(Tx.AO, order.getTx());
+        assertEquals(30, order.getTxNr());
+    }
+
+    @Test
+    void testReplaysAnExpiry() {
+        Order order = replay.apply(null, "o1", DAY, 1, Event.NEW_ORDER, newOrderTx(null));
+        order = replay.apply(order, "o1", DAY, 2, Event.ACK, new AcceptOrderTx());
+
+        order = replay.apply(order, "o1", DAY, 3, Event.EXP, new ExpireOrderTx());
+        assertEquals(State.EXP, order.getState());
+        assertEquals(Tx.AO, order.getTx());
+        assertEquals(3, order.getTxNr());
+
+        Order expired = order;
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> replay.apply(expired, "o1", DAY, 4, Event.CXL, new AcceptOrderTx()),
+                "EXP is terminal");
+    }
+
+    @Test
+    void testReplaysReplacesAndACancel() {
+        Order order = replay.apply(null, "o1", DAY, 1, Event.NEW_ORDER, newOrderTx(null));
+        order = replay.apply(order, "o1", DAY, 2, Event.ACK, new AcceptOrderTx());
+
+        order =
+                replay.apply(
+                        order,
+                        "o1",
+                        DAY,
+                        3,
+                        Event.REPLACE,
+                        ReplaceOrderTx.builder()
+                                .origClOrdId("c1")
+                                .clOrdId("c2")
+                                .orderQty(new BigDecimal("150"))
+                                .build());
+        assertEquals(State.LIVE, order.getState());
+        assertEquals(Tx.RP, order.getTx());
+        assertEquals(new BigDecimal("150"), order.getOrderQty());
+        assertEquals("c2", order.getClOrdId());
+        assertEquals("c1", order.getOrigClOrdId());
+
+        order =
+                replay.apply(
+                        order,
+                        "o1",
+                        DAY,
+                        4,
+                        Event.CXL,
+                        CancelOrderTx.builder().origClOrdId("c2").clOrdId("c3").build());
+        assertEquals(State.CXL, order.getState());
+        assertEquals(Tx.CO, order.getTx());
+        assertEquals(CancelState.CXL, order.getCancelState());
+        assertEquals("c3", order.getClOrdId());
+        assertEquals(4, order.getTxNr());
+
+        Order cancelled = order;
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        replay.apply(
+                                cancelled,
+                                "o1",
+                                DAY,
+                                5,
+                                Event.REPLACE,
+                                ReplaceOrderTx.builder().price(BigDecimal.ONE).build()));
+    }
+
+    @Test
+    void testChildOrderRootIsLeftToTheCaller() {
+        Order child = replay.apply(null, "c1", DAY, 1, Event.NEW_ORDER, newOrderTx("p1"));
+
+        assertEquals("p1", child.getParentOrderId());
+        assertNull(child.getRootOrderId());
+    }
+
+    @Test
+    void testRejectsEventsThatDoNotApply() {
+        Order order = replay.apply(null, "o1", DAY, 1, Event.NEW_ORDER, newOrderTx(null));
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> replay.apply(null, "o2", DAY, 2, Event.ACK, new AcceptOrderTx()));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> replay.apply(order, "o1", DAY, 2, Event.NEW_ORDER, newOrderTx(null)));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> replay.apply(null, "o3", DAY, 2, Event.NEW_ORDER, new AcceptOrderTx()));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> replay.apply(order, "o1", DAY, 2, Event.CXL, new AcceptOrderTx()),
+                "UNACK cannot be cancelled");
+
+        Order rejected = replay.apply(order, "o1", DAY, 3, Event.REJ, new RejectOrderTx());
+        assertEquals(State.REJ, rejected.getState());
+        assertEquals(Tx.RO, rejected.getTx());
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.oms.service.business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.example.oms.service.business.OrderTree.Fills;
+import org.example.oms.service.business.OrderTree.Member;
+import org.example.oms.service.business.OrderTree.Mismatch;
+import org.junit.jupiter.api.Test;
+
+class OrderTreeTest {
+
+    private static BigDecimal d(String value) {
+        return new BigDecimal(value);
+    }
+
+    private static void assertValue(String expected, BigDecimal actual) {
+        assertEquals(0, d(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+
+    @Test
+    void testStpSingleChild() { // spec 13.1
+        OrderTree tree = new OrderTree("client");
+        tree.putOrder("client", null, d("1000"), false);
+        tree.putOrder("market", "client", d("1000"), false);
+
+        tree.addExecution("market", d("500"), d("100.00"));
+        tree.addExecution("market", d("500"), d("101.00"));
+
+        OrderTreeAggregate market = tree.aggregate("market");
+        assertValue("1000", market.cumQty());
+        assertValue("0", market.leavesQty());
+        assertEquals(d("100.5000"), market.avgPx());
+        OrderTreeAggregate client = tree.aggregate("client");
+        assertValue("1000", client.placedQty());
+        assertValue("1000", client.cumQty());
+        assertEquals(d("100.5000"), client.avgPx());
+    }
+
+    @Test
+    void testMultiChildTree() { // spec 13.3
+        OrderTree tree = new OrderTree("client");
+        tree.putOrder("client", null, d("2000"), false);
+        tree.putOrder("a", "client", d("1200"), false);
+        tree.putOrder("b", "client", d("800"), false);
+
+        tree.addExecution("a", d("1200"), d("100"));
+        tree.addExecution("b", d("500"), d("101"));
+
+        OrderTreeAggregate client = tree.aggregate("client");
+        assertValue("2000", client.placedQty());
+        assertValue("1700", client.cumQty());
+        assertValue("300", client.leavesQty());
+        assertEquals(d("100.2941"), client.avgPx());
+    }
+
+    @Test
+    void testAvgPxRollsUpExactlyAndRoundsOnlyOnRead() { // spec 15.2
+        OrderTree tree = new OrderTree("client");
+        tree.putOrder("client", null, d("1500"), false);
+        tree.putOrder("m1", "client", d("1000"), false);
+        tree.putOrder("m2", "client", d("500"), false);
+
+        tree.addExecution("m1", d("400"), d("50.00"));
+        tree.addExecution("m1", d("600"), d("50.50"));
+        tree.addExecution("m2", d("500"), d("51.00"));
+
+        assertEquals(d("50.3000"), tree.aggregate("m1").avgPx());
+        assertEquals(d("50.5333"), tree.aggregate("client").avgPx());
+    }
+
+    @Test
+    void testExecutionsRollUpThroughEveryLevel() {
+        OrderTree tree = new OrderTree("root");
+        tree.putOrder("root", null, d("1000"), false);
+        tree.putOrder("mid", "root", d("600"), false);
+        tree.putOrder("leaf", "mid", d("400"), false);
+
+        tree.addExecution("leaf", d("100"), d("10"));
+
+        for (String orderId : List.of("leaf", "mid", "root")) {
+            assertValue("100", tree.aggregate(orderId).cumQty());
+            assertEquals(d("10.0000"), tree.aggregate(orderId).avgPx());
+        }
+        assertValue("600", tree.aggregate("root").placedQty());
+        assertValue("400", tree.aggregate("mid").placedQty());
+        assertValue("500", tree.aggregate("mid").leavesQty());
+    }
+
+    @Test
+    void testClosedChildOnlyCountsExecutedQuantityAsPlaced() { // spec 7.4
+        OrderTree tree = new OrderTree("client");
+        tree.putOrder("client", null, d("1000"), false);
+        tree.putOrder("market", "client", d("500"), false);
+        tree.putOrder("other", "client", d("500"), false);
+        tree.addExecution("market", d("300"), d("20"));
+
+        tree.putOrder("market", "client", d("500"), true);
+
+        assertValue("800", tree.aggregate("client").placedQty());
+        assertValue("0", tree.aggregate("market").leavesQty());
+
+        // A late fill on the cancelled order is placed after all
+        tree.addExecution("market", d("50"), d("20"));
+        assertValue("850", tree.aggregate("client").placedQty());
+    }
+
+    @Test
+    void testReversedExecutionRestoresTheTree() {
+        OrderTree tree = new OrderTree("client");
+        tree.putOrder("client", null, d("100"), false);
+        tree.putOrder("market", "client", d("100"), false);
+        tree.addExecution("market", d("40"), d("9.99"));
+        tree.addExecution("market", d("60"), d("10.01"));
+
+        tree.addExecution("market", d("-60"), d("10.01"));
+
+        assertValue("40", tree.aggregate("client").cumQty());
+        assertEquals(d("9.9900"), tree.aggregate("client").avgPx());
+    }
+
+    @Test
+    void testOrdersMustJoinAtAKnownParent() {
+        OrderTree tree = new OrderTree("client");
+        tree.putOrder("client", null, d("100"), false);
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> tree.putOrder("market", "unknown", d("10"), false));
+        assertThrows(
+                IllegalArgumentException.class, () -> tree.putOrder("other", null, d("10"), false));
+        assertThrows(
+                IllegalArgumentException.class, () -> tree.addExecution("unknown", d("1"), d("1")));
+    }
+
+    @Test
+    void testIncrementalUpdatesMatchFullRecompute() {
+        Random random = new Random(42);
+        List<Member> members = new ArrayList<>();
+        Map<String, Fills> fills = new HashMap<>();
+        OrderTree incremental = new OrderTree("o0");
+        for (int i = 0; i < 200; i++) {
+            String orderId = "o" + i;
+            String parent = i == 0 ? null : "o" + random.nextInt(i);
+            BigDecimal qty = BigDecimal.valueOf(random.nextInt(10_000), 2);
+            incremental.putOrder(orderId, parent, qty, false);
+            members.add(new Member(orderId, parent, qty, false));
+        }
+        for (int i = 0; i < 2_000; i++) {
+            String orderId = "o" + random.nextInt(200);
+            BigDecimal qty = BigDecimal.valueOf(random.nextInt(1_000) - 100, 1);
+            BigDecimal px = BigDecimal.valueOf(random.nextInt(100_000), 3);
+            incremental.addExecution(orderId, qty, px);
+            fills.merge(
+                    orderId,
+                    new Fills(qty, qty.multiply(px)),
+                    (a, b) -> new Fills(a.qty().add(b.qty()), a.notional().add(b.notional())));
+        }
+        for (int i = 0; i < 200; i += 7) {
+            Member m = members.get(i);
+            incremental.putOrder(m.orderId(), m.parentOrderId(), m.orderQty(), true);
+            members.set(i, new Member(m.orderId(), m.parentOrderId(), m.orderQty(), true));
+        }
+
+        List<String> orphans = new ArrayList<>();
+        OrderTree recomputed = OrderTree.recompute("o0", members, fills, orphans);
+
+        assertEquals(List.of(), incremental.diff(recomputed));
+        assertEquals(List.of(), orphans);
+    }
+
+    @Test
+    void testDiffReportsDriftAndMissingOrders() {
+        List<Member> members =
+                List.of(
+                        new Member("client", null, d("100"), false),
+                        new Member("market", "client", d("100"), false),
+                        new Member("late", "client", d("10"), false),
+                        new Member("orphan", "gone", d("10"), false));
+        List<String> orphans = new ArrayList<>();
+        OrderTree expected =
+                OrderTree.recompute(
+                        "client", members, Map.of("market", new Fills(d("10"), d("100"))), orphans);
+        OrderTree actual = new OrderTree("client");
+        actual.putOrder("client", null, d("100"), false);
+        actual.putOrder("market", "client", d("100"), false);
+        actual.addExecution("market", d("10"), d("10"));
+        actual.addExecution("market", d("10"), d("10")); // counted twice
+
+        List<Mismatch> mismatches = actual.diff(expected);
+
+        assertEquals(List.of("orphan"), orphans);
+        assertTrue(mismatches.contains(new Mismatch("late", "order", "present", "missing")));
+        assertTrue(mismatches.contains(new Mismatch("market", "cumQty", d("10"), d("20"))));
+        assertTrue(mismatches.contains(new Mismatch("client", "cumQty", d("10"), d("20"))));
+        assertTrue(mismatches.contains(new Mismatch("client", "placedQty", d("110"), d("100"))));
+    }
+}
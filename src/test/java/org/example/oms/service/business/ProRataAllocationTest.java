@@ -0,0 +1,114 @@
+package org.example.oms.service.business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ProRataAllocationTest {
+
+    // Whole shares, in scaled units
+    private static final long LOT = 100;
+
+    private static long[] shares(long... shares) {
+        return Arrays.stream(shares).map(s -> s * LOT).toArray();
+    }
+
+    @Test
+    void testAllocatesInProportion() {
+        long[] allocation = ProRataAllocation.allocate(3000 * LOT, shares(2000, 2000, 1000), LOT);
+
+        assertArrayEquals(shares(1200, 1200, 600), allocation);
+    }
+
+    @Test
+    void testLeftoverLotsGoToLargestRemainders() {
+        assertArrayEquals(
+                shares(334, 333, 333),
+                ProRataAllocation.allocate(1000 * LOT, shares(1000, 1000, 1000), LOT));
+        // 100 * 5/7 = 71.4, 100 * 2/7 = 28.6: the second member has the larger remainder
+        assertArrayEquals(
+                shares(71, 29), ProRataAllocation.allocate(100 * LOT, shares(500, 200), LOT));
+    }
+
+    @Test
+    void testQuantityBeyondCapacityFillsEveryMember() {
+        long[] capacity = shares(10, 0, 25);
+
+        assertArrayEquals(capacity, ProRataAllocation.allocate(100 * LOT, capacity, LOT));
+    }
+
+    @Test
+    void testPartOfALotGoesToTheFirstMemberWithRoom() {
+        // 10.50 shares: 10 whole shares pro rata, the half share to the first member
+        long[] allocation = ProRataAllocation.allocate(1050, shares(10, 10), LOT);
+
+        assertArrayEquals(new long[] {550, 500}, allocation);
+    }
+
+    @Test
+    void testSkipsMembersWithoutRoomForALot() {
+        // The second member has 0.50 left, less than a whole share
+        long[] allocation = ProRataAllocation.allocate(300, new long[] {500, 50}, LOT);
+
+        assertArrayEquals(new long[] {300, 0}, allocation);
+        assertArrayEquals(
+                new long[] {500, 50}, ProRataAllocation.allocate(550, new long[] {500, 50}, LOT));
+    }
+
+    @Test
+    void testNeverOverallocatesAndAddsUp() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            long[] capacity = new long[1 + random.nextInt(500)];
+            long total = 0;
+            for (int i = 0; i < capacity.length; i++) {
+                capacity[i] = random.nextInt(4) == 0 ? 0 : random.nextLong(1, 1_000_000);
+                total += capacity[i];
+            }
+            long qty = random.nextLong(0, total + 1);
+            long[] allocation = ProRataAllocation.allocate(qty, capacity, LOT);
+
+            long sum = 0;
+            for (int i = 0; i < capacity.length; i++) {
+                assertTrue(allocation[i] >= 0 && allocation[i] <= capacity[i], "member " + i);
+                sum += allocation[i];
+            }
+            assertEquals(qty, sum);
+            assertArrayEquals(allocation, ProRataAllocation.allocate(qty, capacity, LOT));
+        }
+    }
+
+    @Test
+    void testLargeQuantitiesDoNotOverflow() {
+        long[] capacity = {Long.MAX_VALUE / 4, Long.MAX_VALUE / 4};
+        long qty = Long.MAX_VALUE / 4;
+
+        long[] allocation = ProRataAllocation.allocate(qty, capacity, LOT);
+
+        assertEquals(qty, allocation[0] + allocation[1]);
+        assertTrue(Math.abs(allocation[0] - allocation[1]) < 2 * LOT);
+    }
+
+    @Test
+    void testRejectsNegativeQuantities() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ProRataAllocation.allocate(-1, shares(10), LOT));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ProRataAllocation.allocate(1, new long[] {-1}, LOT));
+        assertThrows(
+                IllegalArgumentException.class, () -> ProRataAllocation.allocate(1, shares(10), 0));
+    }
+
+    @Test
+    void testScaledConversion() {
+        assertEquals(123456, ProRataAllocation.toScaled(new BigDecimal("1234.56")));
+        assertEquals(100, ProRataAllocation.toScaled(BigDecimal.ONE));
+        assertEquals(new BigDecimal("1234.56"), ProRataAllocation.fromScaled(123456));
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.oms.service.business;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.example.common.model.HandlInst;
+import org.example.common.model.Order;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.example.oms.service.business.PropagationRules.Action;
+import org.example.oms.service.business.PropagationRules.Request;
+import org.example.oms.service.business.PropagationRules.Rule;
+import org.junit.jupiter.api.Test;
+
+class PropagationRulesTest {
+
+    private static final Order PARENT =
+            Order.builder().orderId("p1").state(State.LIVE).side(Side.BUY).build();
+
+    private static Order child(HandlInst handlInst, String qty, String cumQty) {
+        return Order.builder()
+                .orderId("c1")
+                .state(State.LIVE)
+                .side(Side.BUY)
+                .handlInst(handlInst)
+                .exDestination("XNAS")
+                .orderQty(new BigDecimal(qty))
+                .cumQty(new BigDecimal(cumQty))
+                .build();
+    }
+
+    private static Rule rule(String name, Action action, Map<String, Object> when) {
+        return new Rule(name, null, action, when);
+    }
+
+    @Test
+    void testFirstMatchingRuleDecides() {
+        PropagationRules rules =
+                PropagationRules.compile(
+                        List.of(
+                                rule("DESK", Action.SKIP, Map.of("handlInst", "MANUAL")),
+                                rule(
+                                        "XNAS_FILLED",
+                                        Action.REJECT,
+                                        Map.of("exDestination", "XNAS", "fillRatio__gte", "0.5")),
+                                rule(
+                                        "XNAS",
+                                        Action.SKIP,
+                                        Map.of("exDestination__in", "XNAS,XNYS"))));
+
+        assertEquals(
+                0, rules.match(Request.CANCEL, PARENT, child(HandlInst.MANUAL, "100", "60"), null));
+        assertEquals(
+                Action.REJECT,
+                rules.decide(Request.CANCEL, PARENT, child(HandlInst.AUTO, "100", "50")));
+        assertEquals(
+                Action.SKIP,
+                rules.decide(Request.CANCEL, PARENT, child(HandlInst.AUTO, "100", "40")));
+        assertEquals(
+                Action.PROPAGATE,
+                rules.decide(
+                        Request.CANCEL,
+                        PARENT,
+                        child(HandlInst.AUTO, "100", "0").toBuilder().exDestination(null).build()));
+    }
+
+    @Test
+    void testConditionsOnTheParentAndPerRequest() {
+        PropagationRules rules =
+                PropagationRules.compile(
+                        List.of(
+                                new Rule(
+                                        "SELL_REPLACES",
+                                        Set.of(Request.REPLACE),
+                                        Action.REJECT,
+                                        Map.of("parent.side", "SELL")),
+                                rule(
+                                        "NOT_BUY",
+                                        Action.SKIP,
+                                        Map.of("side__ne", "BUY", "groupOrderId__null", true))));
+        Order sellParent = PARENT.toBuilder().side(Side.SELL).build();
+        Order buyChild = child(HandlInst.AUTO, "100", "0");
+
+        assertEquals(Action.REJECT, rules.decide(Request.REPLACE, sellParent, buyChild));
+        assertEquals(Action.PROPAGATE, rules.decide(Request.CANCEL, sellParent, buyChild));
+        assertEquals(Action.PROPAGATE, rules.decide(Request.REPLACE, PARENT, buyChild));
+        Order sellChild = buyChild.toBuilder().side(Side.SELL).build();
+        assertEquals(Action.SKIP, rules.decide(Request.CANCEL, PARENT, sellChild));
+        assertEquals(
+                Action.PROPAGATE,
+                rules.decide(
+                        Request.CANCEL, PARENT, sellChild.toBuilder().groupOrderId("g1").build()));
+        assertEquals(
+                Action.PROPAGATE,
+                rules.decide(Request.CANCEL, PARENT, buyChild.toBuilder().side(null).build()),
+                "null never equals nor differs");
+    }
+
+    @Test
+    void testProbeTimesOnlyRulesLeftByTheTable() {
+        PropagationRules rules =
+                PropagationRules.compile(
+                        List.of(
+                                rule(
+                                        "MANUAL_BIG",
+                                        Action.SKIP,
+                                        Map.of("handlInst", "MANUAL", "orderQty__gt", 1000)),
+                                rule("BIG", Action.SKIP, Map.of("orderQty__gt", 50))));
+        List<Integer> evaluated = new ArrayList<>();
+
+        int r =
+                rules.match(
+                        Request.CANCEL,
+                        PARENT,
+                        child(HandlInst.AUTO, "100", "0"),
+                        (rule, nanos) -> evaluated.add(rule));
+
+        assertEquals(1, r);
+        assertEquals(List.of(1), evaluated);
+    }
+
+    @Test
+    void testInvalidRulesDoNotCompile() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        PropagationRules.compile(
+                                List.of(rule("R", Action.SKIP, Map.of("nope", "x")))));
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        PropagationRules.compile(
+                                List.of(rule("R", Action.SKIP, Map.of("state", "PENDING")))));
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        PropagationRules.compile(
+                                List.of(rule("R", Action.SKIP, Map.of("state__gt", "LIVE")))));
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        PropagationRules.compile(
+                                List.of(
+                                        rule("R", Action.SKIP, Map.of()),
+                                        rule("R", Action.REJECT, Map.of()))));
+        List<Rule> tooMany = new ArrayList<>();
+        for (int i = 0; i <= PropagationRules.MAX_RULES; i++) {
+            tooMany.add(rule("R" + i, Action.SKIP, Map.of()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> PropagationRules.compile(tooMany));
+    }
+}
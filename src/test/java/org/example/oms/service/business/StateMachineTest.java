@@ -6,6 +6,7 @@ import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
+import org.example.common.model.Order;
 import org.example.common.model.State;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -19,9 +20,12 @@ class StateMachineTest {
                 Arguments.of(State.NEW, State.UNACK),
                 Arguments.of(State.UNACK, State.LIVE),
                 Arguments.of(State.UNACK, State.REJ),
+                Arguments.of(State.UNACK, State.EXP), // Housekeeping expires working orders
                 Arguments.of(State.LIVE, State.FILLED),
                 Arguments.of(State.LIVE, State.CXL),
                 Arguments.of(State.LIVE, State.REJ),
+                Arguments.of(State.LIVE, State.EXP),
+                Arguments.of(State.FILLED, State.LIVE), // A busted fill reopens the order
                 Arguments.of(State.FILLED, State.CLOSED),
                 Arguments.of(State.CXL, State.CLOSED),
                 Arguments.of(State.REJ, State.CLOSED));
@@ -46,8 +50,9 @@ class StateMachineTest {
                 Arguments.of(State.LIVE, State.LIVE),
                 Arguments.of(State.LIVE, State.CLOSED), // Direct to closed invalid
                 Arguments.of(State.FILLED, State.NEW),
-                Arguments.of(State.FILLED, State.LIVE),
                 Arguments.of(State.FILLED, State.FILLED),
+                Arguments.of(State.FILLED, State.EXP), // Only working orders expire
+                Arguments.of(State.CXL, State.EXP),
                 Arguments.of(State.CXL, State.NEW),
                 Arguments.of(State.CXL, State.LIVE),
                 Arguments.of(State.CXL, State.CXL),
@@ -56,8 +61,9 @@ class StateMachineTest {
                 Arguments.of(State.REJ, State.REJ),
                 Arguments.of(State.CLOSED, State.NEW), // From terminal state
                 Arguments.of(State.CLOSED, State.CLOSED),
-                Arguments.of(State.EXP, State.NEW) // From terminal state
-                );
+                Arguments.of(State.EXP, State.NEW), // From terminal state
+                Arguments.of(State.EXP, State.LIVE),
+                Arguments.of(State.EXP, State.CLOSED));
     }
 
     @ParameterizedTest
@@ -192,4 +198,71 @@ class StateMachineTest {
                 StateMachine.isValidTransition(null, null),
                 "isValidTransition should return false for null 'from' and 'to' states");
     }
+
+    @Test
+    void testIsTerminal() {
+        assertTrue(StateMachine.isTerminal(State.CLOSED), "CLOSED should be terminal");
+        assertTrue(StateMachine.isTerminal(State.EXP), "EXP should be terminal");
+        assertFalse(StateMachine.isTerminal(State.LIVE), "LIVE should not be terminal");
+        assertFalse(StateMachine.isTerminal(State.FILLED), "FILLED should not be terminal");
+        assertFalse(StateMachine.isTerminal(null), "null should not be terminal");
+    }
+
+    @Test
+    void testOrdinalApiMatchesStateApi() {
+        for (State from : State.values()) {
+            for (State to : State.values()) {
+                assertEquals(
+                        StateMachine.isValidTransition(from, to),
+                        StateMachine.CLIENT.canTransition(from.ordinal(), to.ordinal()),
+                        from + " -> " + to);
+                assertEquals(
+                        StateMachine.CLIENT.canTransition(from, to),
+                        StateMachine.MARKET.canTransition(from, to),
+                        from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void testMachinePerOrderKind() {
+        Order client = Order.builder().orderId("o1").build();
+        Order market = Order.builder().orderId("o2").parentOrderId("o1").build();
+        Order grouped = Order.builder().orderId("g1").groupOrderId("g1").build();
+        Order member = Order.builder().orderId("o3").groupOrderId("g1").build();
+
+        assertSame(StateMachine.CLIENT, StateMachine.of(client));
+        assertSame(StateMachine.MARKET, StateMachine.of(market));
+        assertSame(StateMachine.GROUPED, StateMachine.of(grouped));
+        assertSame(StateMachine.CLIENT, StateMachine.of(member));
+    }
+
+    @Test
+    void testGroupedOrdersAreNeverRejected() {
+        assertFalse(StateMachine.GROUPED.canTransition(State.LIVE, State.REJ));
+        assertFalse(StateMachine.GROUPED.canTransition(State.UNACK, State.REJ));
+        assertTrue(StateMachine.GROUPED.canTransition(State.NEW, State.UNACK, State.LIVE));
+        assertTrue(StateMachine.GROUPED.canTransition(State.LIVE, State.CXL));
+        assertTrue(StateMachine.GROUPED.canTransition(State.FILLED, State.LIVE));
+        assertTrue(StateMachine.GROUPED.canTransition(State.LIVE, State.EXP));
+    }
+
+    @Test
+    void testNext() {
+        assertEquals(State.FILLED, StateMachine.CLIENT.next(State.LIVE, State.FILLED));
+        assertThrows(
+                IllegalStateException.class,
+                () -> StateMachine.GROUPED.next(State.LIVE, State.REJ));
+        assertThrows(IllegalStateException.class, () -> StateMachine.CLIENT.next(null, State.LIVE));
+    }
+
+    @Test
+    void testOptionalResultsAreShared() {
+        assertSame(
+                StateMachine.transition(State.UNACK, State.LIVE),
+                StateMachine.transition(State.FILLED, State.LIVE));
+        assertSame(
+                StateMachine.transition(State.UNACK, State.LIVE),
+                StateMachine.transitionSequence(State.NEW, State.UNACK, State.LIVE));
+    }
 }
@@ -0,0 +1,61 @@
+package org.example.oms.service.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ClOrdIdIndexTest {
+
+    private final ClOrdIdIndex index =
+            new ClOrdIdIndex(mock(JdbcTemplate.class), new SimpleMeterRegistry());
+
+    private static Order order(String orderId, String clOrdId, String origClOrdId, State state) {
+        return Order.builder()
+                .orderId(orderId)
+                .clOrdId(clOrdId)
+                .origClOrdId(origClOrdId)
+                .state(state)
+                .build();
+    }
+
+    @Test
+    void testEveryClOrdIdOfTheChainResolvesToTheOrder() {
+        index.onOrder(order("o1", "c1", null, State.LIVE));
+        index.onOrder(order("o1", "c2", "c1", State.LIVE));
+        index.onOrder(order("o1", "c3", "c2", State.LIVE));
+
+        assertEquals(new ClOrdIdIndex.Link("o1", "c2"), index.get("c3"));
+        assertEquals(new ClOrdIdIndex.Link("o1", "c1"), index.get("c2"));
+        assertEquals("o1", index.get("c1").orderId());
+        assertNull(index.get("c4"));
+        assertNull(index.get(null));
+    }
+
+    @Test
+    void testClOrdIdOfTwoOrdersIsAmbiguous() {
+        index.onOrder(order("o1", "c1", null, State.LIVE));
+        index.onOrder(order("o2", "c1", null, State.LIVE));
+
+        assertTrue(index.get("c1").isAmbiguous());
+        assertTrue(index.contains("c1"));
+    }
+
+    @Test
+    void testTerminalOrderDropsItsChain() {
+        index.onOrder(order("o1", "c1", null, State.LIVE));
+        index.onOrder(order("o2", "x1", null, State.LIVE));
+        index.onOrder(order("o1", "c2", "c1", State.LIVE));
+
+        index.onOrder(order("o1", "c2", "c1", State.EXP));
+
+        assertFalse(index.contains("c1"));
+        assertFalse(index.contains("c2"));
+        assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.oms.service.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.example.common.model.Order;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.example.oms.service.infra.ExposureBook.Dimension;
+import org.example.oms.service.infra.ExposureBook.Reservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ExposureBookTest {
+
+    private static final long[] NO_LIMITS = new long[Dimension.values().length];
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExposureBook book = new ExposureBook(jdbcTemplate, meterRegistry, "USD", 0);
+
+    private static Order order(String orderId, String qty, String cumQty, String price) {
+        return Order.builder()
+                .orderId(orderId)
+                .account("acc")
+                .symbol("INTC")
+                .sessionId("s1")
+                .orderQty(new BigDecimal(qty))
+                .cumQty(new BigDecimal(cumQty))
+                .price(price != null ? new BigDecimal(price) : null)
+                .state(State.LIVE)
+                .build();
+    }
+
+    private static long[] limits(long account, long symbol, long session) {
+        return new long[] {account, symbol, session};
+    }
+
+    @Test
+    void testNotionalIsLeavesTimesPriceOfWorkingClientOrders() {
+        assertEquals(2235_00, ExposureBook.notional(order("o1", "100", "0", "22.35")));
+        assertEquals(1117_50, ExposureBook.notional(order("o1", "100", "50", "22.35")));
+        assertEquals(0, ExposureBook.notional(order("o1", "100", "0", null)));
+        Order live = order("o1", "100", "0", "22.35");
+        assertEquals(0, ExposureBook.notional(live.toBuilder().state(State.CXL).build()));
+        assertEquals(0, ExposureBook.notional(live.toBuilder().parentOrderId("p1").build()));
+        assertEquals(0, ExposureBook.notional(live.toBuilder().groupOrderId("o1").build()));
+        assertEquals(2235_00, ExposureBook.notional(live.toBuilder().groupOrderId("g1").build()));
+    }
+
+    @Test
+    void testCurrenciesAreKeptApartAndSidesAddUp() {
+        book.onOrder(order("o1", "100", "0", "10").toBuilder().side(Side.BUY).build());
+        book.onOrder(order("o2", "100", "0", "10").toBuilder().side(Side.SELL).build());
+        Order inEuro = order("o3", "100", "0", "10").toBuilder().settlCurrency("EUR").build();
+        book.onOrder(inEuro);
+
+        assertEquals(2000_00, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertEquals(2000_00, book.exposure(Dimension.ACCOUNT, "acc", "USD"));
+        assertEquals(1000_00, book.exposure(Dimension.SYMBOL, "INTC", "EUR"));
+        assertEquals("USD", book.currencyOf(order("o4", "1", "0", "1")));
+
+        // Limits are in USD, and the exposure in EUR is not checked against them
+        Order more = inEuro.toBuilder().orderQty(new BigDecimal("300")).build();
+        Reservation reserved = book.reserve(more, limits(1000_00, 0, 0));
+        assertFalse(reserved.isRejected());
+        assertEquals(3000_00, book.exposure(Dimension.ACCOUNT, "acc", "EUR"));
+        assertEquals(2000_00, book.exposure(Dimension.ACCOUNT, "acc"));
+
+        book.onOrder(more.toBuilder().state(State.CXL).build());
+        assertEquals(0, book.exposure(Dimension.ACCOUNT, "acc", "EUR"));
+    }
+
+    @Test
+    void testCommittedChangesMoveTheExposuresByTheirDifference() {
+        book.onOrder(order("o1", "100", "0", "10"));
+        book.onOrder(order("o2", "50", "0", "10").toBuilder().account("other").build());
+        assertEquals(1000_00, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertEquals(1500_00, book.exposure(Dimension.SYMBOL, "INTC"));
+
+        book.onOrder(order("o1", "100", "40", "10"));
+        assertEquals(600_00, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertEquals(1100_00, book.exposure(Dimension.SESSION, "s1"));
+
+        book.onOrder(order("o1", "100", "40", "10").toBuilder().state(State.CXL).build());
+        assertEquals(0, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertEquals(500_00, book.exposure(Dimension.SYMBOL, "INTC"));
+        assertEquals(1, book.size());
+    }
+
+    @Test
+    void testReservationOverALimitAddsNothing() {
+        book.onOrder(order("o1", "100", "0", "10"));
+
+        Reservation rejected = book.reserve(order("o2", "60", "0", "10"), limits(0, 1500_00, 0));
+        assertTrue(rejected.isRejected());
+        assertEquals(Dimension.SYMBOL, rejected.breached());
+        assertEquals(1600_00, rejected.exposure());
+        assertEquals(1000_00, book.exposure(Dimension.SYMBOL, "INTC"));
+
+        Reservation reserved = book.reserve(order("o2", "50", "0", "10"), limits(0, 1500_00, 0));
+        assertFalse(reserved.isRejected());
+        assertEquals(1500_00, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertTrue(book.reserve(order("o3", "1", "0", "1"), limits(0, 1500_00, 0)).isRejected());
+
+        // Committed as reserved, nothing left to add
+        book.onOrder(order("o2", "50", "0", "10"));
+        assertEquals(1500_00, book.exposure(Dimension.ACCOUNT, "acc"));
+    }
+
+    @Test
+    void testReleaseTakesBackAReservationThatDidNotCommit() {
+        book.onOrder(order("o1", "100", "0", "10"));
+        Reservation increase = book.reserve(order("o1", "150", "0", "10"), NO_LIMITS);
+        assertEquals(500_00, increase.added());
+        assertEquals(1500_00, book.exposure(Dimension.ACCOUNT, "acc"));
+
+        book.release(order("o1", "150", "0", "10"), increase);
+        assertEquals(1000_00, book.exposure(Dimension.ACCOUNT, "acc"));
+
+        Order o2 = order("o2", "10", "0", "10");
+        book.release(o2, book.reserve(o2, NO_LIMITS));
+        assertEquals(1000_00, book.exposure(Dimension.SESSION, "s1"));
+        assertEquals(1, book.size());
+        assertEquals(Reservation.NONE, book.reserve(order("o1", "50", "0", "10"), NO_LIMITS));
+    }
+
+    @Test
+    void testReconcileCorrectsADifferenceSeenTwice() throws Exception {
+        book.onOrder(order("o1", "100", "0", "10"));
+        Map<String, BigDecimal> inTable = Map.of("acc", new BigDecimal("900.00"));
+        doAnswer(
+                        invocation -> {
+                            String sql = invocation.getArgument(0);
+                            RowCallbackHandler handler = invocation.getArgument(1);
+                            if (sql.startsWith("select account,")) {
+                                for (var row : inTable.entrySet()) {
+                                    ResultSet rs = mock(ResultSet.class);
+                                    when(rs.getString(1)).thenReturn(row.getKey());
+                                    when(rs.getString(2)).thenReturn("USD");
+                                    when(rs.getBigDecimal(3)).thenReturn(row.getValue());
+                                    handler.processRow(rs);
+                                }
+                            }
+                            return null;
+                        })
+                .when(jdbcTemplate)
+                .query(anyString(), any(RowCallbackHandler.class), any(), any(), any());
+
+        assertEquals(0, book.reconcile());
+        assertEquals(1000_00, book.exposure(Dimension.ACCOUNT, "acc"));
+
+        // The symbol and session have no rows in the stub, so they are corrected to 0 as well
+        assertEquals(3, book.reconcile());
+        assertEquals(900_00, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertEquals(0, book.exposure(Dimension.SYMBOL, "INTC"));
+        assertEquals(0, book.reconcile());
+        assertEquals(
+                3, meterRegistry.get("oms.risk.reconcile.corrections").functionCounter().count());
+    }
+}
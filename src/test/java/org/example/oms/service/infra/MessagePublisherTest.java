@@ -0,0 +1,158 @@
+package org.example.oms.service.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.example.common.model.Order;
+import org.example.oms.model.OrderOutbox;
+import org.example.oms.service.infra.repository.OrderOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessagePublisherTest {
+
+    private static final String TOPIC = "orders";
+
+    private final OrderOutboxRepository repository = mock(OrderOutboxRepository.class);
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Order> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MessagePublisher publisher =
+            new MessagePublisher(
+                    repository,
+                    kafkaTemplate,
+                    mock(PlatformTransactionManager.class),
+                    meterRegistry,
+                    TOPIC,
+                    16,
+                    500,
+                    50,
+                    1000,
+                    5);
+
+    private static OrderOutbox row(long id, String orderId, int attempts) {
+        return OrderOutbox.builder()
+                .id(id)
+                .orderId(orderId)
+                .createdAt(LocalDateTime.now())
+                .order(Order.builder().orderId(orderId).txNr(id).build())
+                .attempts(attempts)
+                .build();
+    }
+
+    private static CompletableFuture<SendResult<String, Order>> acknowledged() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(repository.tryLockShard(anyInt(), anyInt())).thenReturn(true);
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any())).thenReturn(acknowledged());
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Test
+    void testSendsClaimedRowsInIdOrderThenDeletesThem() {
+        List<OrderOutbox> batch = List.of(row(1, "a", 0), row(2, "b", 0), row(3, "a", 0));
+        when(repository.claimBatch(0, 500)).thenReturn(batch);
+
+        assertEquals(3, publisher.relayShard(0));
+
+        InOrder inOrder = inOrder(kafkaTemplate, repository);
+        for (OrderOutbox row : batch) {
+            inOrder.verify(kafkaTemplate).send(TOPIC, row.getOrderId(), row.getOrder());
+        }
+        inOrder.verify(repository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+        assertEquals(3, count("oms.outbox.relay.published"));
+    }
+
+    @Test
+    void testShardLockedByAnotherInstanceIsLeftAlone() {
+        when(repository.tryLockShard(anyInt(), eq(3))).thenReturn(false);
+
+        assertEquals(0, publisher.relayShard(3));
+        verify(repository, never()).claimBatch(anyInt(), anyInt());
+    }
+
+    @Test
+    void testFailingRowHoldsBackOnlyItsOrder() {
+        OrderOutbox bad = row(2, "b", 0);
+        when(repository.claimBatch(0, 500))
+                .thenReturn(
+                        List.of(
+                                row(1, "a", 0),
+                                bad,
+                                row(3, "a", 0),
+                                row(4, "b", 0),
+                                row(5, "c", 0)));
+        when(kafkaTemplate.send(TOPIC, "b", bad.getOrder()))
+                .thenThrow(new SerializationException("Rounding necessary"));
+
+        assertEquals(3, publisher.relayShard(0));
+
+        verify(kafkaTemplate, never()).send(eq(TOPIC), eq("b"), eq(row(4, "b", 0).getOrder()));
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 3L, 5L));
+        verify(repository).countAttempt(2);
+        verify(repository, never()).deadLetter(anyLong(), anyString());
+        assertEquals(1, count("oms.outbox.relay.failures"));
+    }
+
+    @Test
+    void testRowFailingItsLastAttemptIsDeadLettered() {
+        OrderOutbox bad = row(2, "b", 4);
+        when(repository.claimBatch(0, 500)).thenReturn(List.of(bad, row(3, "c", 0)));
+        when(kafkaTemplate.send(TOPIC, "b", bad.getOrder()))
+                .thenReturn(
+                        CompletableFuture.failedFuture(
+                                new SerializationException("Rounding necessary")));
+
+        assertEquals(1, publisher.relayShard(0));
+
+        verify(repository).deleteAllByIdInBatch(List.of(3L));
+        verify(repository).deadLetter(eq(2L), anyString());
+        verify(repository, never()).countAttempt(anyLong());
+        assertEquals(1, count("oms.outbox.relay.dead.lettered"));
+    }
+
+    @Test
+    void testBrokerUnavailableCountsNoAttempt() {
+        OrderOutbox first = row(1, "a", 0);
+        when(repository.claimBatch(0, 500))
+                .thenReturn(List.of(first, row(2, "a", 0), row(3, "b", 0)));
+        when(kafkaTemplate.send(TOPIC, "a", first.getOrder()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("No broker")));
+
+        assertEquals(1, publisher.relayShard(0));
+
+        // The second row of the order was sent, but stays behind the first to be sent again
+        verify(repository).deleteAllByIdInBatch(List.of(3L));
+        verify(repository, never()).countAttempt(anyLong());
+        verify(repository, never()).deadLetter(anyLong(), anyString());
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.oms.service.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderCacheTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderCache orderCache =
+            new OrderCache(orderRepository, meterRegistry, true, 4, 2);
+
+    private static Order order(long id, String orderId, State state, long txNr) {
+        return Order.builder().id(id).orderId(orderId).state(state).txNr(txNr).build();
+    }
+
+    @Test
+    void testGetReturnsCopyOfCachedOrder() {
+        orderCache.put(order(1, "order-1", State.UNACK, 1));
+
+        Order first = orderCache.get("order-1").orElseThrow();
+        first.setState(State.LIVE);
+
+        assertEquals(State.UNACK, orderCache.get("order-1").orElseThrow().getState());
+    }
+
+    @Test
+    void testTerminalOrderIsEvicted() {
+        orderCache.put(order(1, "order-1", State.LIVE, 1));
+        orderCache.put(order(1, "order-1", State.CLOSED, 2));
+
+        assertTrue(orderCache.get("order-1").isEmpty());
+        assertEquals(0, orderCache.size());
+    }
+
+    @Test
+    void testOlderUpdateDoesNotReplaceNewer() {
+        orderCache.put(order(1, "order-1", State.LIVE, 5));
+        orderCache.put(order(1, "order-1", State.UNACK, 3));
+
+        assertEquals(State.LIVE, orderCache.get("order-1").orElseThrow().getState());
+    }
+
+    @Test
+    void testUpdateOfAHigherVersionReplacesTheCachedOne() {
+        // A fill is written without a new txNr
+        orderCache.put(order(1, "order-1", State.LIVE, 5).toBuilder().version(3).build());
+        orderCache.put(order(1, "order-1", State.FILLED, 5).toBuilder().version(4).build());
+        orderCache.put(order(1, "order-1", State.LIVE, 5).toBuilder().version(3).build());
+
+        assertEquals(State.FILLED, orderCache.get("order-1").orElseThrow().getState());
+
+        orderCache.put(order(2, "order-2", State.LIVE, 5).toBuilder().version(4).build());
+        orderCache.put(order(2, "order-2", State.UNACK, 6).toBuilder().version(3).build());
+        assertEquals(State.LIVE, orderCache.get("order-2").orElseThrow().getState());
+    }
+
+    @Test
+    void testHitAndMissCounters() {
+        orderCache.put(order(1, "order-1", State.LIVE, 1));
+        orderCache.get("order-1");
+        orderCache.get("order-2");
+        orderCache.get("order-3");
+
+        assertEquals(1, meterRegistry.get("oms.order-cache.hits").functionCounter().count());
+        assertEquals(2, meterRegistry.get("oms.order-cache.misses").functionCounter().count());
+        assertEquals(1, meterRegistry.get("oms.order-cache.size").gauge().value());
+    }
+
+    @Test
+    void testWarmUpPagesThroughLiveOrders() {
+        when(orderRepository.findByStateNotInAndIdGreaterThanOrderById(
+                        any(), eq(0L), any(Limit.class)))
+                .thenReturn(
+                        List.of(
+                                order(1, "order-1", State.LIVE, 1),
+                                order(2, "order-2", State.UNACK, 2)));
+        when(orderRepository.findByStateNotInAndIdGreaterThanOrderById(
+                        any(), eq(2L), any(Limit.class)))
+                .thenReturn(List.of(order(3, "order-3", State.LIVE, 3)));
+
+        orderCache.afterSingletonsInstantiated();
+
+        assertEquals(3, orderCache.size());
+        assertTrue(orderCache.get("order-3").isPresent());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysMisses() {
+        OrderCache disabled =
+                new OrderCache(orderRepository, new SimpleMeterRegistry(), false, 4, 2);
+        when(orderRepository.findByStateNotInAndIdGreaterThanOrderById(
+                        any(), anyLong(), any(Limit.class)))
+                .thenThrow(new AssertionError("warm-up must not run when disabled"));
+
+        disabled.afterSingletonsInstantiated();
+        disabled.put(order(1, "order-1", State.LIVE, 1));
+
+        assertTrue(disabled.get("order-1").isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.oms.service.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.service.business.OrderTree.Member;
+import org.example.oms.service.business.OrderTreeAggregate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderTreeAggregatorTest {
+
+    private static final int MAX_TREES = 8;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderTreeAggregator aggregator =
+            new OrderTreeAggregator(jdbcTemplate, meterRegistry, true, MAX_TREES);
+
+    // Every tree in the stub is a root with one child, <root>-c
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(jdbcTemplate.query(
+                        eq(OrderTreeAggregator.MEMBERS_SQL), any(RowMapper.class), any(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            String root = invocation.getArgument(2);
+                            return List.of(
+                                    new Member(root, null, new BigDecimal("100"), false),
+                                    new Member(root + "-c", root, new BigDecimal("100"), false));
+                        });
+    }
+
+    private static Execution fill(String orderId, String qty) {
+        return Execution.builder()
+                .orderId(orderId)
+                .lastQty(new BigDecimal(qty))
+                .lastPx(BigDecimal.TEN)
+                .build();
+    }
+
+    private BigDecimal cumQty(String rootOrderId) {
+        return aggregator.aggregates(rootOrderId).get(0).cumQty();
+    }
+
+    private double loads() {
+        return meterRegistry.get("oms.order-tree.loads").functionCounter().count();
+    }
+
+    @Test
+    void testLeastRecentlyUsedTreesAreDroppedBeyondMaxTrees() {
+        for (int i = 0; i < MAX_TREES; i++) {
+            aggregator.aggregates("r" + i);
+        }
+        aggregator.aggregates("r0"); // used again, so no longer the eldest
+        aggregator.onExecution(fill("r1-c", "10"));
+
+        aggregator.aggregates("r" + MAX_TREES);
+
+        assertEquals(MAX_TREES - MAX_TREES / 8, aggregator.size());
+        double loaded = loads();
+        aggregator.aggregates("r0");
+        assertEquals(loaded, loads());
+        // A fill of a dropped tree is not applied to it; loading the tree again picks it up
+        aggregator.onExecution(fill("r1-c", "10"));
+        assertEquals(BigDecimal.ZERO, cumQty("r1").stripTrailingZeros());
+        assertEquals(loaded + 1, loads());
+    }
+
+    @Test
+    void testOrdersAndFillsOfATreeInMemoryAreApplied() {
+        aggregator.aggregates("r1");
+
+        aggregator.onOrder(
+                Order.builder()
+                        .orderId("r1-d")
+                        .parentOrderId("r1")
+                        .rootOrderId("r1")
+                        .orderQty(new BigDecimal("50"))
+                        .state(State.LIVE)
+                        .build());
+        aggregator.onExecution(fill("r1-d", "20"));
+        aggregator.onExecution(fill("r1-c", "30"));
+
+        List<OrderTreeAggregate> aggregates = aggregator.aggregates("r1");
+        assertEquals(3, aggregates.size());
+        assertEquals(0, new BigDecimal("50").compareTo(cumQty("r1")));
+        assertEquals(1, loads());
+    }
+
+    @Test
+    void testConcurrentFillsOfManyTreesAreAllCounted() throws Exception {
+        int trees = MAX_TREES - 1;
+        for (int t = 0; t < trees; t++) {
+            aggregator.aggregates("r" + t);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<Void>> fills = new ArrayList<>();
+            for (int n = 0; n < 1000; n++) {
+                String orderId = "r" + (n % trees) + "-c";
+                fills.add(
+                        CompletableFuture.runAsync(
+                                () -> aggregator.onExecution(fill(orderId, "1")), executor));
+            }
+            CompletableFuture.allOf(fills.toArray(CompletableFuture[]::new)).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (int t = 0; t < trees; t++) {
+            total = total.add(cumQty("r" + t));
+        }
+        assertEquals(0, new BigDecimal("1000").compareTo(total));
+        assertEquals(trees, loads());
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.oms.service.infra.logging;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.example.common.model.Order;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.example.common.model.tx.Tx;
+import org.example.oms.model.Event;
+import org.example.oms.model.OrderEvent;
+import org.junit.jupiter.api.Test;
+
+class PipelineLogTest {
+
+    @Test
+    void testGeneratedWriterSkipsNullsAndNestedObjects() {
+        Order order =
+                Order.builder()
+                        .id(7L)
+                        .orderId("order-1")
+                        .tx(Tx.AO)
+                        .txNr(12)
+                        .price(new BigDecimal("22.350"))
+                        .side(Side.BUY)
+                        .transactTime(LocalDateTime.of(2025, 10, 4, 10, 1))
+                        .state(State.LIVE)
+                        .build();
+
+        assertEquals(
+                "msg=order.persisted id=7 orderId=order-1 tx=AO txNr=12 version=0 price=22.350"
+                        + " side=BUY transactTime=2025-10-04T10:01 state=LIVE",
+                PipelineLog.format("order.persisted", FieldWriters.of(Order.class), order));
+
+        OrderEvent orderEvent =
+                OrderEvent.builder()
+                        .id(3L)
+                        .orderId("order-1")
+                        .event(Event.ACK)
+                        .timeStamp(LocalDateTime.of(2025, 10, 4, 10, 1, 2, 5_000))
+                        .build();
+        assertEquals(
+                "msg=event.persisted id=3 orderId=order-1 event=ACK"
+                        + " timeStamp=2025-10-04T10:01:02.000005",
+                PipelineLog.format(
+                        "event.persisted", FieldWriters.of(OrderEvent.class), orderEvent));
+    }
+
+    @Test
+    void testWriterIsGeneratedOncePerClass() {
+        assertSame(FieldWriters.of(Order.class), FieldWriters.of(Order.class));
+    }
+
+    @Test
+    void testDateTimesMatchToString() {
+        for (LocalDateTime t :
+                new LocalDateTime[] {
+                    LocalDateTime.of(2025, 1, 2, 3, 4),
+                    LocalDateTime.of(2025, 1, 2, 3, 4, 5),
+                    LocalDateTime.of(2025, 1, 2, 3, 4, 0, 120_000_000),
+                    LocalDateTime.of(2025, 12, 31, 23, 59, 59, 1_000),
+                    LocalDateTime.of(2025, 12, 31, 23, 59, 59, 7),
+                    LocalDateTime.of(12025, 12, 31, 23, 59, 59)
+                }) {
+            StringBuilder out = new StringBuilder();
+            Logfmt.dateTime(out, t);
+            assertEquals(t.toString(), out.toString());
+        }
+    }
+
+    @Test
+    void testStringsWithSpacesOrQuotesAreQuoted() {
+        StringBuilder out = new StringBuilder();
+        Logfmt.append(out, "a", "plain");
+        Logfmt.append(out, "b", "Benchmark order");
+        Logfmt.append(out, "c", "say \"hi\"\n");
+        Logfmt.append(out, "d", "");
+        Logfmt.append(out, "e", (Object) null);
+
+        assertEquals(
+                "a=plain b=\"Benchmark order\" c=\"say \\\"hi\\\"\\n\" d=\"\"", out.toString());
+    }
+
+    @Test
+    void testNullValueLogsOnlyTheEvent() {
+        assertEquals(
+                "msg=order.persisted",
+                PipelineLog.format("order.persisted", FieldWriters.of(Order.class), null));
+    }
+}
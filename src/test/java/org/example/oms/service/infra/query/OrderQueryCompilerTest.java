@@ -0,0 +1,146 @@
+package org.example.oms.service.infra.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.example.oms.service.infra.query.OrderSpecifications.Filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderQueryCompilerTest {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "transactTime", "id");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderQueryCompiler compiler = new OrderQueryCompiler(meterRegistry, 2);
+
+    @Test
+    void testShapeIgnoresValuesAndParameterOrder() {
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("symbol", "INTC");
+        first.put("price__gt", "20");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("price__gt", "35");
+        second.put("symbol__eq", "MSFT");
+        second.put("account", " ");
+
+        CompiledOrderQuery query = compiler.page(OrderSpecifications.parse(first), NEWEST_FIRST);
+
+        assertSame(query, compiler.page(OrderSpecifications.parse(second), NEWEST_FIRST));
+        assertEquals("page [price gt, symbol eq] sort transactTime: DESC,id: DESC", query.shape());
+        assertNotSame(query, compiler.scroll(OrderSpecifications.parse(first), NEWEST_FIRST));
+    }
+
+    @Test
+    void testOpenBetweenCompilesToComparison() {
+        CompiledOrderQuery open =
+                compiler.page(
+                        OrderSpecifications.parse(Map.of("price__between", "20,")), NEWEST_FIRST);
+        CompiledOrderQuery closed =
+                compiler.page(
+                        OrderSpecifications.parse(Map.of("price__between", "20,25")), NEWEST_FIRST);
+
+        assertTrue(open.select().contains("o.price >= :p0"), open.select());
+        assertTrue(closed.select().contains("o.price between :p0 and :u0"), closed.select());
+    }
+
+    @Test
+    void testSeekUsesRowComparisonForSingleDirection() {
+        List<Filter> filters = OrderSpecifications.parse(Map.of("account__like", "ACC"));
+
+        CompiledOrderQuery sameDirection = compiler.scroll(filters, NEWEST_FIRST);
+        CompiledOrderQuery mixed =
+                compiler.scroll(filters, Sort.by(Sort.Order.asc("symbol"), Sort.Order.desc("id")));
+
+        assertTrue(
+                sameDirection
+                        .seek()
+                        .contains(
+                                "where lower(o.account) like :p0 and"
+                                        + " (o.transactTime, o.id) < (:k0, :k1)"),
+                sameDirection.seek());
+        assertTrue(
+                mixed.seek().contains("((o.symbol > :k0) or (o.symbol = :k0 and o.id < :k1))"),
+                mixed.seek());
+    }
+
+    @Test
+    void testSeekKeepsRowsWithNullKeys() {
+        List<Filter> filters = OrderSpecifications.parse(Map.of());
+        CompiledOrderQuery byPrice = compiler.scroll(filters, Sort.by("price", "id"));
+
+        // NULL sorts last ascending: rows without a price follow every priced one
+        assertTrue(
+                byPrice.seek()
+                        .endsWith(
+                                "((o.price, o.id) > (:k0, :k1) or o.price is null)"
+                                        + " order by o.price asc, o.id asc"),
+                byPrice.seek());
+
+        Map<String, Object> unpriced = new LinkedHashMap<>();
+        unpriced.put("price", null);
+        unpriced.put("id", 42L);
+        assertTrue(
+                byPrice.seek(unpriced).contains("where ((o.price is null and o.id > :k1))"),
+                byPrice.seek(unpriced));
+
+        // and first descending, so a NULL position is followed by every non-NULL row
+        CompiledOrderQuery newest = compiler.scroll(filters, NEWEST_FIRST);
+        Map<String, Object> untimed = new LinkedHashMap<>();
+        untimed.put("transactTime", null);
+        untimed.put("id", 42L);
+        assertTrue(
+                newest.seek().contains("where (o.transactTime, o.id) < (:k0, :k1) order by"),
+                newest.seek());
+        assertTrue(
+                newest.seek(untimed)
+                        .contains(
+                                "where ((o.transactTime is not null)"
+                                        + " or (o.transactTime is null and o.id < :k1))"),
+                newest.seek(untimed));
+    }
+
+    @Test
+    void testSeekByTradeDateIsARowComparison() {
+        CompiledOrderQuery byTradeDate =
+                compiler.scroll(OrderSpecifications.parse(Map.of()), Sort.by("tradeDate", "id"));
+
+        // The partition key is not null, so it needs no NULL branch
+        assertTrue(
+                byTradeDate.seek().contains("where (o.tradeDate, o.id) > (:k0, :k1) order by"),
+                byTradeDate.seek());
+    }
+
+    @Test
+    void testRejectsUnknownSortProperty() {
+        List<Filter> filters = OrderSpecifications.parse(Map.of());
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> compiler.page(filters, Sort.by("symbol; drop table orders")));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedShapeAndCountsHits() {
+        List<Filter> bySymbol = OrderSpecifications.parse(Map.of("symbol", "INTC"));
+        List<Filter> byAccount = OrderSpecifications.parse(Map.of("account", "A"));
+        List<Filter> byState = OrderSpecifications.parse(Map.of("state", "LIVE"));
+
+        CompiledOrderQuery symbol = compiler.page(bySymbol, NEWEST_FIRST);
+        compiler.page(byAccount, NEWEST_FIRST);
+        compiler.page(bySymbol, NEWEST_FIRST); // symbol is now the most recently used
+        compiler.page(byState, NEWEST_FIRST); // evicts account
+
+        assertEquals(2, compiler.size());
+        assertSame(symbol, compiler.page(bySymbol, NEWEST_FIRST));
+        assertEquals(2.0, meterRegistry.get("oms.query.compiled.hits").functionCounter().count());
+        assertEquals(3.0, meterRegistry.get("oms.query.compiled.misses").functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("oms.query.compiled.shapes").gauge().value());
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.oms.service.infra.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.example.common.model.Order;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.junit.jupiter.api.Test;
+
+class OrderSpecificationsTest {
+
+    private final Order order =
+            Order.builder()
+                    .orderId("01ABC")
+                    .symbol("INTC")
+                    .account("account-01")
+                    .side(Side.BUY)
+                    .state(State.LIVE)
+                    .price(new BigDecimal("22.35"))
+                    .orderQty(new BigDecimal("100.00"))
+                    .transactTime(LocalDateTime.parse("2025-10-04T10:44:00"))
+                    .tradeDate(LocalDate.parse("2025-10-04"))
+                    .build();
+
+    private boolean matches(Map<String, String> params) {
+        Predicate<Order> matcher = OrderSpecifications.matcher(params);
+        return matcher.test(order);
+    }
+
+    @Test
+    void testStringEqualsAndLike() {
+        assertTrue(matches(Map.of("symbol", "INTC")));
+        assertFalse(matches(Map.of("symbol", "intc")));
+        assertTrue(matches(Map.of("account__like", "UNT-0")));
+        assertFalse(matches(Map.of("account__like", "other")));
+    }
+
+    @Test
+    void testNumericComparisons() {
+        assertTrue(matches(Map.of("price", "22.350")));
+        assertTrue(matches(Map.of("orderQty__gte", "100")));
+        assertFalse(matches(Map.of("orderQty__gt", "100")));
+        assertTrue(matches(Map.of("price__between", "20,25")));
+        assertTrue(matches(Map.of("price__between", ",25")));
+        assertFalse(matches(Map.of("price__between", "23,")));
+    }
+
+    @Test
+    void testDateAndEnum() {
+        assertTrue(matches(Map.of("transactTime__lt", "2025-10-05T00:00:00")));
+        assertFalse(matches(Map.of("transactTime__gt", "2025-10-05T00:00:00")));
+        assertTrue(matches(Map.of("side", "BUY", "state", "LIVE")));
+        assertFalse(matches(Map.of("state", "FILLED")));
+        assertTrue(matches(Map.of("tradeDate", "2025-10-04")));
+        assertFalse(matches(Map.of("tradeDate__between", "2025-10-05,2025-10-06")));
+    }
+
+    @Test
+    void testNullValueNeverMatchesComparison() {
+        assertFalse(matches(Map.of("cashOrderQty__gte", "0")));
+        assertFalse(matches(Map.of("clOrdId", "x")));
+    }
+
+    @Test
+    void testUnknownFieldsAndInvalidNumbersAreIgnored() {
+        assertTrue(matches(Map.of("unknown", "x", "price__gt", "not-a-number")));
+    }
+
+    @Test
+    void testParseNormalizesOpenRangesAndOrder() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("symbol", "INTC");
+        params.put("price__between", ",25");
+        params.put("account__like", "ACC");
+
+        List<OrderSpecifications.Filter> filters = OrderSpecifications.parse(params);
+
+        assertEquals(
+                List.of("account like", "price lte", "symbol eq"),
+                filters.stream().map(OrderSpecifications.Filter::key).toList());
+        assertEquals("acc", filters.get(0).value());
+        assertEquals(new BigDecimal("25"), filters.get(1).value());
+    }
+
+    @Test
+    void testUnknownEnumValueIsRejected() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> OrderSpecifications.parse(Map.of("state", "SLEEPING")));
+    }
+}
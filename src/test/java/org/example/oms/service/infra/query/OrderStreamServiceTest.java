@@ -0,0 +1,140 @@
+package org.example.oms.service.infra.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.oms.api.dto.BlotterEvent;
+import org.example.oms.api.dto.BlotterEvent.Type;
+import org.example.oms.api.mapper.OrderDtoMapperImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.data.domain.PageImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.BaseSubscriber;
+
+class OrderStreamServiceTest {
+
+    private final OrderQueryService orderQueryService = mock(OrderQueryService.class);
+    private OrderStreamService service;
+
+    private static Order order(String orderId, String symbol, State state, long txNr) {
+        return Order.builder().orderId(orderId).symbol(symbol).state(state).txNr(txNr).build();
+    }
+
+    private static final class Client extends BaseSubscriber<BlotterEvent> {
+        final List<BlotterEvent> events = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // demand is driven by the test
+        }
+
+        @Override
+        protected void hookOnNext(BlotterEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+
+    private Client subscribe(int maxPending, List<Order> snapshot) {
+        service =
+                new OrderStreamService(
+                        orderQueryService,
+                        new OrderDtoMapperImpl(),
+                        new SimpleMeterRegistry(),
+                        500,
+                        maxPending,
+                        1000);
+        when(orderQueryService.search(any(), anyInt(), anyInt(), any()))
+                .thenReturn(new PageImpl<>(snapshot));
+        Client client = new Client();
+        service.subscribe(Map.of("symbol", "INTC"), null).subscribe(client);
+        return client;
+    }
+
+    private static void await(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.get()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testSnapshotThenMatchingDeltas() throws InterruptedException {
+        Client client = subscribe(100, List.of(order("a", "INTC", State.UNACK, 1)));
+        client.request(100);
+        await(() -> client.events.size() == 2);
+        assertEquals(Type.SNAPSHOT, client.events.get(0).type());
+        assertEquals(Type.SNAPSHOT_END, client.events.get(1).type());
+
+        service.publish(order("b", "MSFT", State.UNACK, 2));
+        service.publish(order("a", "INTC", State.LIVE, 3));
+        await(() -> client.events.size() == 3);
+        assertEquals(Type.ORDER, client.events.get(2).type());
+        assertEquals("LIVE", client.events.get(2).order().state());
+
+        // An order that stops matching is removed from the blotter
+        service.publish(order("a", "AMD", State.LIVE, 4));
+        await(() -> client.events.size() == 4);
+        assertEquals(Type.REMOVE, client.events.get(3).type());
+    }
+
+    @Test
+    void testSlowClientReceivesConflatedLatestState() throws InterruptedException {
+        Client client = subscribe(100, List.of());
+        client.request(1);
+        await(() -> client.events.size() == 1);
+
+        service.publish(order("a", "INTC", State.UNACK, 1));
+        service.publish(order("b", "INTC", State.UNACK, 2));
+        service.publish(order("a", "INTC", State.LIVE, 3));
+        Thread.sleep(200);
+        client.request(100);
+
+        await(() -> client.events.size() == 3);
+        Thread.sleep(100);
+        assertEquals(3, client.events.size());
+        assertEquals("a", client.events.get(1).orderId());
+        assertEquals("LIVE", client.events.get(1).order().state());
+        assertEquals("b", client.events.get(2).orderId());
+    }
+
+    @Test
+    void testClientFallingTooFarBehindIsToldToResync() throws InterruptedException {
+        Client client = subscribe(2, List.of());
+        client.request(1);
+        await(() -> client.events.size() == 1);
+
+        for (int i = 0; i < 3; i++) {
+            service.publish(order("order-" + i, "INTC", State.UNACK, i));
+        }
+        Thread.sleep(200);
+        client.request(100);
+
+        await(() -> client.completed);
+        assertEquals(Type.RESYNC, client.events.get(client.events.size() - 1).type());
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.oms.service.infra.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.example.oms.service.infra.query.QueryPlanAdvisor.PlanSummary;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class QueryPlanAdvisorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testSummarizeFindsNestedSeqScan() throws Exception {
+        PlanSummary summary =
+                QueryPlanAdvisor.summarize(
+                        mapper.readTree(
+                                """
+                                [{"Plan": {"Node Type": "Limit", "Total Cost": 1200.5, "Plans": [
+                                  {"Node Type": "Sort", "Plans": [
+                                    {"Node Type": "Seq Scan", "Relation Name": "orders",
+                                     "Filter": "(price > $1)"}]}]}}]
+                                """));
+
+        assertEquals(1200.5, summary.totalCost());
+        assertEquals(List.of("orders"), summary.seqScans());
+        assertEquals(List.of(), summary.indexes());
+    }
+
+    @Test
+    void testSummarizeTreatsFilterOnlyIndexScanAsFullScan() throws Exception {
+        PlanSummary summary =
+                QueryPlanAdvisor.summarize(
+                        mapper.readTree(
+                                """
+                                [{"Plan": {"Node Type": "Limit", "Total Cost": 857.0, "Plans": [
+                                  {"Node Type": "Index Scan", "Relation Name": "orders",
+                                   "Index Name": "orders_pkey", "Filter": "(price > $1)"},
+                                  {"Node Type": "Index Scan", "Relation Name": "orders",
+                                   "Index Name": "ix_orders_symbol_side",
+                                   "Index Cond": "(symbol = $2)"}]}}]
+                                """));
+
+        assertEquals(List.of("orders via orders_pkey"), summary.seqScans());
+        assertEquals(List.of("ix_orders_symbol_side", "orders_pkey"), summary.indexes());
+    }
+}
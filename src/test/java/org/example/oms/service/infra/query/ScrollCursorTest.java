@@ -0,0 +1,79 @@
+package org.example.oms.service.infra.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.example.common.model.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+class ScrollCursorTest {
+
+    private static final String SORT = "transactTime,DESC";
+
+    @Test
+    void testRoundTripKeepsTypedKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("transactTime", LocalDateTime.parse("2025-10-04T10:44:00.123"));
+        keys.put("price", new BigDecimal("22.35"));
+        keys.put("state", State.LIVE);
+        keys.put("id", 42L);
+
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys), SORT);
+        KeysetScrollPosition position = (KeysetScrollPosition) ScrollCursor.decode(cursor, SORT);
+
+        assertEquals(keys, position.getKeys());
+        assertFalse(cursor.contains("="), "cursor should be unpadded");
+    }
+
+    @Test
+    void testRoundTripOfTradeDate() {
+        String sort = "tradeDate: ASC,id: ASC";
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("tradeDate", LocalDate.parse("2025-10-03"));
+        keys.put("id", 42L);
+
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys), sort);
+
+        assertEquals(keys, ((KeysetScrollPosition) ScrollCursor.decode(cursor, sort)).getKeys());
+    }
+
+    @Test
+    void testRoundTripKeepsNullKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("price", null);
+        keys.put("id", 42L);
+
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(keys), SORT);
+
+        assertEquals(keys, ((KeysetScrollPosition) ScrollCursor.decode(cursor, SORT)).getKeys());
+    }
+
+    @Test
+    void testBlankCursorStartsAtTheBeginning() {
+        assertTrue(ScrollCursor.decode(null, SORT).isInitial());
+        assertTrue(ScrollCursor.decode("", SORT).isInitial());
+    }
+
+    @Test
+    void testRejectsCursorForDifferentSort() {
+        String cursor = ScrollCursor.encode(ScrollPosition.forward(Map.of("id", 42L)), SORT);
+
+        assertThrows(
+                IllegalArgumentException.class, () -> ScrollCursor.decode(cursor, "price,ASC"));
+    }
+
+    @Test
+    void testRejectsMalformedCursor() {
+        assertThrows(
+                IllegalArgumentException.class, () -> ScrollCursor.decode("not a cursor", SORT));
+        String unknownKey = ScrollCursor.encode(ScrollPosition.forward(Map.of("nope", "x")), SORT);
+        assertThrows(IllegalArgumentException.class, () -> ScrollCursor.decode(unknownKey, SORT));
+    }
+}
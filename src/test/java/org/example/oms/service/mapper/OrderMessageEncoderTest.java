@@ -0,0 +1,163 @@
+package org.example.oms.service.mapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.example.common.model.CancelState;
+import org.example.common.model.ExecInst;
+import org.example.common.model.HandlInst;
+import org.example.common.model.OrdType;
+import org.example.common.model.Order;
+import org.example.common.model.PositionEffect;
+import org.example.common.model.PriceType;
+import org.example.common.model.SecurityIdSource;
+import org.example.common.model.Side;
+import org.example.common.model.State;
+import org.example.common.model.TimeInForce;
+import org.example.common.model.msg.OrderMessage;
+import org.example.oms.service.infra.OrderMessageSerializer;
+import org.junit.jupiter.api.Test;
+
+class OrderMessageEncoderTest {
+
+    private static final Instant SENT = Instant.parse("2025-10-04T08:02:03.456Z");
+
+    private final OrderMessageEncoder encoder = new OrderMessageEncoder();
+
+    private static Order fullOrder() {
+        return Order.builder()
+                .orderId("o1")
+                .parentOrderId("p1")
+                .rootOrderId("r1")
+                .txNr(7)
+                .sessionId("s1")
+                .clOrdId("c2")
+                .origClOrdId("c1")
+                .account("acc")
+                .execInst(ExecInst.OK_TO_CROSS)
+                .handlInst(HandlInst.AUTO)
+                .securityIdSource(SecurityIdSource.ISIN)
+                .orderQty(new BigDecimal("100"))
+                .cashOrderQty(new BigDecimal("2235.50"))
+                .positionEffect(PositionEffect.CLOSE)
+                .securityDesc("Intel Corporation")
+                .maturityMonthYear("202612")
+                .strikePrice(new BigDecimal("25.5"))
+                .priceType(PriceType.PER_UNIT)
+                .putOrCall(1)
+                .underlyingSecurityType("CS")
+                .ordType(OrdType.STOP_LIMIT)
+                .price(new BigDecimal("22.35"))
+                .stopPx(new BigDecimal("22.40"))
+                .securityId("US4581401001")
+                .side(Side.SELL)
+                .symbol("INTC")
+                .timeInForce(TimeInForce.GOOD_TILL_DATE)
+                .transactTime(LocalDateTime.of(2025, 10, 4, 10, 1, 2))
+                .exDestination("XNAS")
+                .settlCurrency("USD")
+                .expireTime(LocalDateTime.of(2025, 10, 10, 17, 30))
+                .securityExchange("XNAS")
+                .text("full")
+                .tifTimestamp(LocalDateTime.of(2025, 10, 4, 10, 0))
+                .state(State.LIVE)
+                .cancelState(CancelState.PMOD)
+                .build();
+    }
+
+    private byte[] encode(Order order) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder binaryEncoder = EncoderFactory.get().binaryEncoder(out, null);
+        encoder.write(order, SENT.toEpochMilli(), binaryEncoder);
+        binaryEncoder.flush();
+        return out.toByteArray();
+    }
+
+    private static OrderMessage decode(byte[] bytes) throws IOException {
+        return new SpecificDatumReader<>(OrderMessage.class)
+                .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    }
+
+    @Test
+    void testEncodesTheSameMessageAsTheMapper() throws IOException {
+        Order order = fullOrder();
+        OrderMessage expected = new OrderToOrderMessageMapper().map(order, SENT);
+
+        OrderMessage actual = decode(encode(order));
+
+        assertEquals(expected, actual);
+        assertEquals("r1", actual.getRootOrderId());
+        assertEquals(org.example.common.model.msg.TimeInForce.GTD, actual.getTimeInForce());
+        assertEquals(org.example.common.model.msg.CancelState.PMOD, actual.getCancelState());
+        assertEquals(new BigDecimal("100.00"), actual.getOrderQty());
+        assertEquals(
+                order.getTransactTime().atZone(ZoneId.systemDefault()).toInstant(),
+                actual.getTransactTime());
+        assertEquals(SENT, actual.getSendingTime());
+        assertEquals(7L, actual.getEventId());
+    }
+
+    @Test
+    void testMissingFieldsStayNull() throws IOException {
+        Order order = Order.builder().orderId("o1").build();
+
+        OrderMessage message = decode(encode(order));
+
+        assertEquals("o1", message.getRootOrderId());
+        assertNull(message.getSide());
+        assertNull(message.getPrice());
+        assertNull(message.getStopPx());
+        assertNull(message.getExDestination());
+        assertNull(message.getExpireTime());
+        assertEquals(SENT, message.getTransactTime());
+    }
+
+    @Test
+    void testRejectsValuesTheSchemaCannotHold() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> encode(Order.builder().orderId("o1").side(Side.SELL_SHORT).build()));
+        assertThrows(
+                ArithmeticException.class,
+                () -> encode(Order.builder().orderId("o1").price(new BigDecimal("1.005")).build()));
+    }
+
+    @Test
+    void testSerializerWritesTheSchemaRegistryWireFormat() throws IOException {
+        AtomicInteger lookups = new AtomicInteger();
+        OrderMessageSerializer serializer =
+                new OrderMessageSerializer(
+                        (topic, message) -> {
+                            lookups.incrementAndGet();
+                            return new byte[] {0, 0, 0, 1, 2, 99};
+                        });
+
+        byte[] first = serializer.serialize("orders", fullOrder());
+        byte[] second = serializer.serialize("orders", fullOrder());
+
+        assertEquals(1, lookups.get());
+        assertArrayEquals(new byte[] {0, 0, 0, 1, 2}, Arrays.copyOf(first, 5));
+        OrderMessage message = decode(Arrays.copyOfRange(second, 5, second.length));
+        assertEquals("o1", message.getOrderId());
+        assertEquals(org.example.common.model.msg.Side.SELL, message.getSide());
+        assertThrows(
+                SerializationException.class,
+                () ->
+                        serializer.serialize(
+                                "orders",
+                                Order.builder().orderId("o1").side(Side.SELL_SHORT).build()));
+    }
+}
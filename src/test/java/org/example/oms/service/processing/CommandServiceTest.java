@@ -0,0 +1,193 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.example.common.model.Execution;
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.mapper.CommandMapper;
+import org.example.common.model.mapper.ExecutionMapper;
+import org.example.common.model.msg.ExecutionBustCmd;
+import org.example.common.model.msg.OrderAcceptCmd;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.ExecutionRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CommandServiceTest {
+
+    private final OrchestrationService orchestrationService = mock(OrchestrationService.class);
+    private final CommandService commandService =
+            new CommandService(
+                    orchestrationService,
+                    mock(ExecutionService.class),
+                    mock(CommandMapper.class),
+                    mock(ExecutionMapper.class));
+
+    private static Object accept(String orderId) {
+        return OrderAcceptCmd.newBuilder()
+                .setType("OrderAcceptCmd")
+                .setVersion("1.0")
+                .setOrderId(orderId)
+                .build();
+    }
+
+    private static TxInfo txInfo(TxState txState) {
+        return TxInfo.builder().txState(txState).build();
+    }
+
+    @Test
+    void testRejectedCommandDoesNotStopTheOthers() {
+        when(orchestrationService.process(any()))
+                .thenReturn(txInfo(TxState.OK))
+                .thenThrow(new IllegalArgumentException("Order o2 is not UNACK"))
+                .thenReturn(txInfo(TxState.OK));
+
+        List<CompletableFuture<TxInfo>> results =
+                commandService.executeInOrder(List.of(accept("o1"), accept("o2"), accept("o3")));
+
+        assertEquals(3, results.size());
+        assertEquals(TxState.FAIL, results.get(1).join().getTxState());
+        assertEquals(TxState.OK, results.get(2).join().getTxState());
+    }
+
+    @Test
+    void testCommandThatCouldNotBeProcessedStopsTheRest() {
+        when(orchestrationService.process(any()))
+                .thenReturn(txInfo(TxState.OK))
+                .thenThrow(new DataAccessResourceFailureException("Database down"))
+                .thenReturn(txInfo(TxState.OK));
+
+        List<CompletableFuture<TxInfo>> results =
+                commandService.executeInOrder(List.of(accept("o1"), accept("o2"), accept("o3")));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(1).isCompletedExceptionally());
+        verify(orchestrationService, times(2)).process(any());
+    }
+
+    @Test
+    void testGroupCommitThatCouldNotBeProcessedStopsTheRest() {
+        TransactionService transactionService = mock(TransactionService.class);
+        doAnswer(
+                        invocation -> {
+                            ProcessingContext context = invocation.getArgument(0);
+                            String orderId = context.getTransaction().getOrderId();
+                            if (orderId.equals("o2")) {
+                                throw new DataAccessResourceFailureException("Database down");
+                            }
+                            context.setOrder(
+                                    Order.builder().orderId(orderId).state(State.LIVE).build());
+                            return null;
+                        })
+                .when(transactionService)
+                .executeTransaction(any());
+        OrchestrationService groupCommit =
+                new OrchestrationService(
+                        transactionService,
+                        mock(EventProcessor.class),
+                        mock(ValidationService.class),
+                        mock(OrderPropagationService.class),
+                        mock(RiskCheckService.class),
+                        mock(PersistenceService.class),
+                        mock(EventProducer.class),
+                        mock(OrderCache.class),
+                        mock(PlatformTransactionManager.class),
+                        new SimpleMeterRegistry(),
+                        true,
+                        1,
+                        256,
+                        200);
+        CommandService service =
+                new CommandService(
+                        groupCommit,
+                        mock(ExecutionService.class),
+                        mock(CommandMapper.class),
+                        mock(ExecutionMapper.class));
+
+        try {
+            List<CompletableFuture<TxInfo>> results =
+                    service.executeInOrder(List.of(accept("o1"), accept("o2"), accept("o3")));
+
+            assertEquals(2, results.size());
+            assertEquals(TxState.OK, results.get(0).join().getTxState());
+            CompletionException e = assertThrows(CompletionException.class, results.get(1)::join);
+            assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+        } finally {
+            groupCommit.shutdown();
+        }
+    }
+
+    @Test
+    void testExecutionThatCouldNotBeAppliedStopsTheRest() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findByOrderIdIn(any()))
+                .thenThrow(new DataAccessResourceFailureException("Database down"));
+        ExecutionRepository executionRepository = mock(ExecutionRepository.class);
+        when(executionRepository.findByExecID(any()))
+                .thenReturn(Optional.of(Execution.builder().orderId("o1").build()));
+        ExecutionService executionService =
+                new ExecutionService(
+                        orderRepository,
+                        executionRepository,
+                        mock(JdbcTemplate.class),
+                        mock(EventProducer.class),
+                        mock(OrderCache.class),
+                        mock(OrderStreamService.class),
+                        mock(OrderTreeAggregator.class),
+                        mock(ExposureBook.class),
+                        mock(OrderGroupingService.class),
+                        mock(PlatformTransactionManager.class),
+                        new SimpleMeterRegistry(),
+                        1,
+                        16,
+                        0);
+        CommandService service =
+                new CommandService(
+                        orchestrationService,
+                        executionService,
+                        mock(CommandMapper.class),
+                        mock(ExecutionMapper.class));
+
+        try {
+            List<CompletableFuture<TxInfo>> results =
+                    service.executeInOrder(List.of(bust("e1"), bust("e2")));
+
+            assertEquals(1, results.size());
+            CompletionException e = assertThrows(CompletionException.class, results.get(0)::join);
+            assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+        } finally {
+            executionService.shutdown();
+        }
+    }
+
+    private static Object bust(String execId) {
+        return ExecutionBustCmd.newBuilder()
+                .setType("ExecutionBustCmd")
+                .setVersion("1.0")
+                .setExecutionId(execId)
+                .build();
+    }
+}
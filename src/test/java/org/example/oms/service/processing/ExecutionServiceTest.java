@@ -0,0 +1,106 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.example.common.model.Execution;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ExecutionCommand;
+import org.example.oms.model.ExecutionCommand.Fill;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.ExecutionRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ExecutionServiceTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final ExecutionService executionService =
+            new ExecutionService(
+                    orderRepository,
+                    mock(ExecutionRepository.class),
+                    mock(JdbcTemplate.class),
+                    mock(EventProducer.class),
+                    mock(OrderCache.class),
+                    mock(OrderStreamService.class),
+                    mock(OrderTreeAggregator.class),
+                    mock(ExposureBook.class),
+                    mock(OrderGroupingService.class),
+                    mock(PlatformTransactionManager.class),
+                    new SimpleMeterRegistry(),
+                    1,
+                    16,
+                    0);
+
+    @AfterEach
+    void tearDown() {
+        executionService.shutdown();
+    }
+
+    private static ExecutionCommand fill(String orderId, String execId) {
+        return new Fill(
+                Execution.builder()
+                        .orderId(orderId)
+                        .execID(execId)
+                        .lastQty(BigDecimal.TEN)
+                        .lastPx(BigDecimal.ONE)
+                        .build());
+    }
+
+    @Test
+    void testDatabaseFailureFailsTheFutureInsteadOfRejecting() {
+        when(orderRepository.findByOrderIdIn(any()))
+                .thenThrow(new DataAccessResourceFailureException("Database down"));
+
+        CompletableFuture<TxInfo> result = executionService.submit(fill("o1", "e1"));
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+    }
+
+    @Test
+    void testBatchRetryKeepsTheResultsBeforeTheFirstCommandThatCouldNotBeApplied() {
+        when(orderRepository.findByOrderIdIn(any()))
+                .thenThrow(new DataAccessResourceFailureException("Connection reset"))
+                .thenReturn(List.of())
+                .thenThrow(new DataAccessResourceFailureException("Database down"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            GroupCommitQueue.PartialFailure e =
+                    assertThrows(
+                            GroupCommitQueue.PartialFailure.class,
+                            () ->
+                                    executionService.applyBatch(
+                                            List.of(
+                                                    new ExecutionService.Ingest(
+                                                            "o1", fill("o1", "e1")),
+                                                    new ExecutionService.Ingest(
+                                                            "o2", fill("o2", "e2")))));
+
+            assertEquals(1, e.completed().size());
+            assertEquals(TxState.FAIL, ((TxInfo) e.completed().get(0)).getTxState());
+            assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ProcessingContext;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitQueueTest {
+
+    private static ProcessingContext context(String orderId) {
+        return ProcessingContext.builder()
+                .transaction(AcceptOrderTx.builder().orderId(orderId).build())
+                .build();
+    }
+
+    private static List<TxInfo> okFor(List<ProcessingContext> contexts) {
+        return contexts.stream()
+                .<TxInfo>map(
+                        c ->
+                                TxInfo.builder()
+                                        .orderId(c.getTransaction().getOrderId())
+                                        .txState(TxState.OK)
+                                        .build())
+                .toList();
+    }
+
+    @Test
+    void testEachSubmissionReceivesItsOwnResult() {
+        try (GroupCommitQueue<ProcessingContext, TxInfo> queue =
+                new GroupCommitQueue<>(GroupCommitQueueTest::okFor, 16, 1_000_000)) {
+            List<CompletableFuture<TxInfo>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(queue.submit(context("order-" + i)));
+            }
+            for (int i = 0; i < 50; i++) {
+                assertEquals("order-" + i, futures.get(i).join().getOrderId());
+            }
+        }
+    }
+
+    @Test
+    void testSubmissionsQueuedDuringCommitAreGrouped() throws InterruptedException {
+        CountDownLatch firstGroupStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstGroup = new CountDownLatch(1);
+        List<Integer> groupSizes = new CopyOnWriteArrayList<>();
+        try (GroupCommitQueue<ProcessingContext, TxInfo> queue =
+                new GroupCommitQueue<>(
+                        contexts -> {
+                            groupSizes.add(contexts.size());
+                            firstGroupStarted.countDown();
+                            try {
+                                releaseFirstGroup.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return okFor(contexts);
+                        },
+                        100,
+                        0)) {
+            CompletableFuture<TxInfo> first = queue.submit(context("first"));
+            assertTrue(firstGroupStarted.await(5, TimeUnit.SECONDS));
+            List<CompletableFuture<TxInfo>> rest = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                rest.add(queue.submit(context("order-" + i)));
+            }
+            releaseFirstGroup.countDown();
+            first.join();
+            rest.forEach(CompletableFuture::join);
+        }
+        assertEquals(List.of(1, 10), groupSizes);
+    }
+
+    @Test
+    void testGroupSizeIsCapped() {
+        List<Integer> groupSizes = new CopyOnWriteArrayList<>();
+        try (GroupCommitQueue<ProcessingContext, TxInfo> queue =
+                new GroupCommitQueue<>(
+                        contexts -> {
+                            groupSizes.add(contexts.size());
+                            return okFor(contexts);
+                        },
+                        4,
+                        50_000_000)) {
+            List<CompletableFuture<TxInfo>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(queue.submit(context("order-" + i)));
+            }
+            futures.forEach(CompletableFuture::join);
+        }
+        assertTrue(groupSizes.stream().allMatch(size -> size <= 4));
+        assertEquals(10, groupSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testProcessorFailureFailsTheWholeGroup() {
+        try (GroupCommitQueue<ProcessingContext, TxInfo> queue =
+                new GroupCommitQueue<>(
+                        contexts -> {
+                            throw new IllegalStateException("database down");
+                        },
+                        16,
+                        0)) {
+            CompletableFuture<TxInfo> future = queue.submit(context("order-1"));
+            CompletionException e = assertThrows(CompletionException.class, future::join);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void testPartialFailureCompletesTheItemsBeforeTheFailure() {
+        try (GroupCommitQueue<ProcessingContext, TxInfo> queue =
+                new GroupCommitQueue<>(
+                        contexts -> {
+                            throw new GroupCommitQueue.PartialFailure(
+                                    okFor(
+                                            contexts.stream()
+                                                    .takeWhile(
+                                                            c ->
+                                                                    !c.getTransaction()
+                                                                            .getOrderId()
+                                                                            .equals("order-2"))
+                                                    .toList()),
+                                    new IllegalStateException("database down"));
+                        },
+                        16,
+                        50_000_000)) {
+            CompletableFuture<TxInfo> first = queue.submit(context("order-1"));
+            CompletableFuture<TxInfo> second = queue.submit(context("order-2"));
+            assertEquals("order-1", first.join().getOrderId());
+            CompletionException e = assertThrows(CompletionException.class, second::join);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void testSubmitAfterCloseIsRejected() {
+        GroupCommitQueue<ProcessingContext, TxInfo> queue =
+                new GroupCommitQueue<>(GroupCommitQueueTest::okFor, 16, 0);
+        queue.close();
+        assertThrows(IllegalStateException.class, () -> queue.submit(context("order-1")));
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new GroupCommitQueue<>(GroupCommitQueueTest::okFor, 0, 0));
+    }
+}
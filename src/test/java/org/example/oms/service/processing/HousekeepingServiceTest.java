@@ -0,0 +1,86 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.example.common.model.State;
+import org.example.oms.service.infra.ClOrdIdIndex;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.OrderCache;
+import org.example.oms.service.infra.OrderTreeAggregator;
+import org.example.oms.service.infra.query.OrderStreamService;
+import org.example.oms.service.infra.repository.OrderEventRepository;
+import org.example.oms.service.infra.repository.OrderRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/** Archives against the schema of the Flyway migrations, on an embedded PostgreSQL. */
+class HousekeepingServiceTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static HousekeepingService housekeepingService;
+
+    @BeforeAll
+    static void migrate() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        housekeepingService =
+                new HousekeepingService(
+                        mock(OrderRepository.class),
+                        mock(OrderEventRepository.class),
+                        mock(EventProducer.class),
+                        mock(OrderCache.class),
+                        mock(OrderStreamService.class),
+                        mock(OrderTreeAggregator.class),
+                        mock(ExposureBook.class),
+                        mock(ClOrdIdIndex.class),
+                        jdbcTemplate,
+                        new DataSourceTransactionManager(postgres.getPostgresDatabase()),
+                        new SimpleMeterRegistry(),
+                        false,
+                        60_000,
+                        500,
+                        1,
+                        0,
+                        2_000,
+                        1);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void testClosedOrderIsMovedToTheArchiveWithItsVersion() {
+        jdbcTemplate.update(
+                "insert into orders (id, tx_nr, order_id, root_order_id, state, trade_date,"
+                        + " version) values (1, 1, 'o1', 'o1', ?, ?, 3)",
+                State.CLOSED.ordinal(),
+                LocalDate.now().minusDays(2));
+
+        assertEquals(1, housekeepingService.archive());
+
+        assertEquals(
+                0,
+                jdbcTemplate.queryForObject(
+                        "select count(*) from orders where order_id = 'o1'", Integer.class));
+        assertEquals(
+                3L,
+                jdbcTemplate.queryForObject(
+                        "select version from oms_archive.orders where order_id = 'o1'",
+                        Long.class));
+    }
+}
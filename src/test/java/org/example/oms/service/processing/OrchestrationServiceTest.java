@@ -0,0 +1,225 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.OrderCache;
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+
+class OrchestrationServiceTest {
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final PersistenceService persistenceService = mock(PersistenceService.class);
+    private final RiskCheckService riskCheckService = mock(RiskCheckService.class);
+    private final OrderPropagationService orderPropagationService =
+            mock(OrderPropagationService.class);
+    private final OrderCache orderCache = mock(OrderCache.class);
+    private final PlatformTransactionManager transactionManager =
+            mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrchestrationService orchestrationService =
+            new OrchestrationService(
+                    transactionService,
+                    mock(EventProcessor.class),
+                    mock(ValidationService.class),
+                    orderPropagationService,
+                    riskCheckService,
+                    persistenceService,
+                    mock(EventProducer.class),
+                    orderCache,
+                    transactionManager,
+                    meterRegistry,
+                    false,
+                    1,
+                    256,
+                    200);
+
+    private static ProcessingContext cancel(String orderId) {
+        return ProcessingContext.builder()
+                .transaction(CancelOrderTx.builder().orderId(orderId).build())
+                .build();
+    }
+
+    private void readsOrder() {
+        doAnswer(
+                        invocation -> {
+                            ProcessingContext context = invocation.getArgument(0);
+                            context.setOrder(
+                                    Order.builder()
+                                            .orderId(context.getTransaction().getOrderId())
+                                            .state(State.LIVE)
+                                            .build());
+                            return null;
+                        })
+                .when(transactionService)
+                .executeTransaction(any());
+    }
+
+    private static ProcessingContext accept(String orderId) {
+        return ProcessingContext.builder()
+                .transaction(AcceptOrderTx.builder().orderId(orderId).build())
+                .build();
+    }
+
+    private static ObjectOptimisticLockingFailureException stale() {
+        return new ObjectOptimisticLockingFailureException(Order.class, 1L);
+    }
+
+    @Test
+    void testStaleOrderIsEvictedAndTheTransactionRunAgain() {
+        readsOrder();
+        doThrow(stale()).doNothing().when(persistenceService).persist(any());
+
+        TxInfo txInfo = orchestrationService.process(cancel("o1"));
+
+        assertEquals(TxState.OK, txInfo.getTxState());
+        verify(orderCache).evict("o1");
+        verify(transactionService, times(2)).executeTransaction(any());
+        assertEquals(1, meterRegistry.get("oms.orchestration.stale.retries").counter().count());
+    }
+
+    @Test
+    void testCancelRacingAFillIsDecidedOnTheFilledOrder() {
+        // The cached copy is still LIVE when the cancel is checked; the fill has committed since
+        doThrow(stale()).when(persistenceService).persist(any());
+        doAnswer(
+                        invocation -> {
+                            ProcessingContext context = invocation.getArgument(0);
+                            context.setOrder(
+                                    Order.builder().orderId("o1").state(State.LIVE).build());
+                            return null;
+                        })
+                .doThrow(new IllegalArgumentException("Order o1 is FILLED and cannot be cancelled"))
+                .when(transactionService)
+                .executeTransaction(any());
+
+        IllegalArgumentException e =
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> orchestrationService.process(cancel("o1")));
+        assertTrue(e.getMessage().contains("FILLED"));
+        verify(orderCache).evict("o1");
+        verify(persistenceService, times(1)).persist(any());
+    }
+
+    @Test
+    void testStaleAgainOnTheRetryFails() {
+        readsOrder();
+        doThrow(stale()).when(persistenceService).persist(any());
+
+        assertThrows(
+                ObjectOptimisticLockingFailureException.class,
+                () -> orchestrationService.process(cancel("o1")));
+        verify(transactionService, times(2)).executeTransaction(any());
+    }
+
+    @Test
+    void testRejectionIsNotRetried() {
+        doThrow(new IllegalArgumentException("Order o1 is FILLED"))
+                .when(transactionService)
+                .executeTransaction(any());
+
+        assertThrows(
+                IllegalArgumentException.class, () -> orchestrationService.process(cancel("o1")));
+        verify(transactionService).executeTransaction(any());
+        verify(orderCache, never()).evict(anyString());
+    }
+
+    @Test
+    void testStaleStateIsFoundInTheCauseChain() {
+        assertTrue(
+                OrchestrationService.isStale(
+                        new RuntimeException(new StaleObjectStateException("Order", 1L))));
+        assertTrue(OrchestrationService.isStale(new OptimisticLockException()));
+        assertFalse(OrchestrationService.isStale(new IllegalStateException()));
+    }
+
+    @Test
+    void testTransactionOnAChildStartsANewGroupAfterItsParentsCancel() {
+        readsOrder();
+        ProcessingContext parentCancel = cancel("p1");
+        ProcessingContext childAccept = accept("c1");
+        ProcessingContext otherAccept = accept("o1");
+        when(transactionService.rootOrderIdOf(any())).thenReturn("p1", "o1", "p1");
+
+        List<TxInfo> results =
+                orchestrationService.processBatch(List.of(parentCancel, otherAccept, childAccept));
+
+        assertEquals(3, results.size());
+        // The child is read only once the cancel carried down to it has been committed
+        InOrder inOrder = inOrder(transactionService, persistenceService, transactionManager);
+        inOrder.verify(transactionService).executeTransaction(parentCancel);
+        inOrder.verify(persistenceService).persist(parentCancel);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(transactionService).executeTransaction(childAccept);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testRiskIsCheckedBeforeTheTransactionIsCarriedDown() {
+        readsOrder();
+
+        orchestrationService.process(cancel("o1"));
+
+        InOrder inOrder = inOrder(riskCheckService, orderPropagationService);
+        inOrder.verify(riskCheckService).check(any());
+        inOrder.verify(orderPropagationService).propagate(any());
+    }
+
+    @Test
+    void testRiskRejectionInAGroupChangesNoDescendants() {
+        readsOrder();
+        ProcessingContext rejected = cancel("p1");
+        ProcessingContext other = cancel("o1");
+        doThrow(new IllegalArgumentException("Order p1 would take the notional over its limit"))
+                .when(riskCheckService)
+                .check(rejected);
+
+        List<TxInfo> results = orchestrationService.processBatch(List.of(rejected, other));
+
+        assertEquals(TxState.FAIL, results.get(0).getTxState());
+        assertEquals(TxState.OK, results.get(1).getTxState());
+        verify(orderPropagationService, never()).propagate(rejected);
+        verify(persistenceService).discard(rejected);
+        verify(persistenceService, never()).persist(rejected);
+    }
+
+    @Test
+    void testPropagationRejectionInAGroupReleasesTheReservation() {
+        readsOrder();
+        ProcessingContext rejected = cancel("p1");
+        doThrow(new IllegalArgumentException("Propagation rule r1 rejects the cancel of p1"))
+                .when(orderPropagationService)
+                .propagate(rejected);
+
+        List<TxInfo> results = orchestrationService.processBatch(List.of(rejected));
+
+        assertEquals(TxState.FAIL, results.get(0).getTxState());
+        verify(riskCheckService).release(rejected);
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.example.common.model.tx.AcceptOrderTx;
+import org.example.common.model.tx.CancelOrderTx;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.common.model.tx.TxInfo;
+import org.example.common.model.tx.TxState;
+import org.example.oms.model.ProcessingContext;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PartitionedEngineTest {
+
+    private static List<TxInfo> okFor(List<ProcessingContext> contexts) {
+        return contexts.stream()
+                .<TxInfo>map(
+                        c ->
+                                TxInfo.builder()
+                                        .orderId(c.getTransaction().getOrderId())
+                                        .message(Thread.currentThread().getName())
+                                        .txState(TxState.OK)
+                                        .build())
+                .toList();
+    }
+
+    private static ProcessingContext accept(String orderId) {
+        return ProcessingContext.builder()
+                .transaction(AcceptOrderTx.builder().orderId(orderId).build())
+                .build();
+    }
+
+    @Test
+    void testSameOrderAlwaysRunsOnSamePartition() {
+        try (PartitionedEngine engine =
+                new PartitionedEngine(
+                        PartitionedEngineTest::okFor, 4, 16, 0, new SimpleMeterRegistry())) {
+            ConcurrentHashMap<String, Set<String>> threadsByOrder = new ConcurrentHashMap<>();
+            List<CompletableFuture<TxInfo>> futures =
+                    IntStream.range(0, 200)
+                            .mapToObj(i -> engine.submit(accept("order-" + (i % 20))))
+                            .toList();
+            for (CompletableFuture<TxInfo> future : futures) {
+                TxInfo txInfo = future.join();
+                threadsByOrder
+                        .computeIfAbsent(txInfo.getOrderId(), id -> ConcurrentHashMap.newKeySet())
+                        .add(txInfo.getMessage());
+            }
+            assertEquals(20, threadsByOrder.size());
+            threadsByOrder.values().forEach(threads -> assertEquals(1, threads.size()));
+        }
+    }
+
+    @Test
+    void testNewOrdersAreSpreadOverPartitions() {
+        try (PartitionedEngine engine =
+                new PartitionedEngine(
+                        PartitionedEngineTest::okFor, 4, 16, 0, new SimpleMeterRegistry())) {
+            Set<Integer> used = new HashSet<>();
+            for (int i = 0; i < 8; i++) {
+                used.add(engine.partitionOf(NewOrderTx.builder().build()));
+            }
+            assertEquals(4, used.size());
+        }
+    }
+
+    @Test
+    void testChildOrderFollowsParent() {
+        try (PartitionedEngine engine =
+                new PartitionedEngine(
+                        PartitionedEngineTest::okFor, 8, 16, 0, new SimpleMeterRegistry())) {
+            assertEquals(
+                    engine.partitionOf(AcceptOrderTx.builder().orderId("parent-1").build()),
+                    engine.partitionOf(NewOrderTx.builder().parentOrderId("parent-1").build()));
+        }
+    }
+
+    @Test
+    void testPartitionsByResolvedOrderId() {
+        try (PartitionedEngine engine =
+                new PartitionedEngine(
+                        PartitionedEngineTest::okFor,
+                        tx -> tx.getOrderId() != null ? tx.getOrderId() : "order-1",
+                        8,
+                        16,
+                        0,
+                        new SimpleMeterRegistry())) {
+            assertEquals(
+                    engine.partitionOf(AcceptOrderTx.builder().orderId("order-1").build()),
+                    engine.partitionOf(CancelOrderTx.builder().origClOrdId("c1").build()));
+        }
+    }
+
+    @Test
+    void testInvalidPartitionCount() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        new PartitionedEngine(
+                                PartitionedEngineTest::okFor, 0, 16, 0, new SimpleMeterRegistry()));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.example.common.model.HandlInst;
+import org.example.common.model.Order;
+import org.example.oms.service.business.PropagationRules.Action;
+import org.example.oms.service.business.PropagationRules.Request;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PropagationRuleEngineTest {
+
+    private static final Order PARENT = Order.builder().orderId("p1").build();
+    private static final Order MANUAL_CHILD =
+            Order.builder().orderId("c1").handlInst(HandlInst.MANUAL).build();
+
+    @TempDir Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PropagationRuleEngine engine(Path rules) {
+        return new PropagationRuleEngine(
+                new DefaultResourceLoader(), meterRegistry, "file:" + rules, 0);
+    }
+
+    @Test
+    void testLoadsRulesAndCountsMatches() throws IOException {
+        Path rules = dir.resolve("rules.yml");
+        Files.writeString(
+                rules,
+                """
+                rules:
+                  - name: DESK_WORKING
+                    requests: [cancel]
+                    action: skip
+                    when:
+                      handlInst: MANUAL
+                """);
+        PropagationRuleEngine engine = engine(rules);
+
+        assertEquals(Action.SKIP, engine.decide(Request.CANCEL, PARENT, MANUAL_CHILD).action());
+        assertNull(engine.decide(Request.REPLACE, PARENT, MANUAL_CHILD));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("oms.propagation.rule.matches")
+                        .tag("rule", "DESK_WORKING")
+                        .functionCounter()
+                        .count());
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("oms.propagation.rule.evaluation")
+                        .tag("rule", "DESK_WORKING")
+                        .functionTimer()
+                        .count());
+    }
+
+    @Test
+    void testReloadKeepsRulesInForceIfTheFileDoesNotCompile() throws IOException {
+        Path rules = dir.resolve("rules.yml");
+        Files.writeString(rules, "rules: []\n");
+        PropagationRuleEngine engine = engine(rules);
+        assertNull(engine.decide(Request.CANCEL, PARENT, MANUAL_CHILD));
+
+        Files.writeString(
+                rules,
+                """
+                rules:
+                  - name: NO_MANUAL
+                    action: reject
+                    when:
+                      handlInst__in: [MANUAL, AUTO]
+                """);
+        assertEquals(1, engine.reload().rules().size());
+        assertEquals(Action.REJECT, engine.decide(Request.REPLACE, PARENT, MANUAL_CHILD).action());
+
+        Files.writeString(
+                rules,
+                """
+                rules:
+                  - name: BROKEN
+                    action: skip
+                    when:
+                      handlInst: SOMETIMES
+                """);
+        assertThrows(IllegalArgumentException.class, engine::reload);
+        assertEquals("NO_MANUAL", engine.ruleSet().rules().get(0).name());
+    }
+
+    @Test
+    void testMissingFileMeansNoRules() {
+        PropagationRuleEngine engine = engine(dir.resolve("missing.yml"));
+
+        assertTrue(engine.ruleSet().rules().isEmpty());
+        assertNull(engine.decide(Request.CANCEL, PARENT, MANUAL_CHILD));
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.oms.service.processing;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+
+import org.example.common.model.Order;
+import org.example.common.model.State;
+import org.example.common.model.tx.NewOrderTx;
+import org.example.oms.model.ProcessingContext;
+import org.example.oms.service.infra.ExposureBook;
+import org.example.oms.service.infra.ExposureBook.Dimension;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RiskCheckServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExposureBook book =
+            new ExposureBook(mock(JdbcTemplate.class), meterRegistry, "USD", 0);
+
+    private RiskCheckService riskCheck(String maxAccountNotional) {
+        return new RiskCheckService(
+                book,
+                meterRegistry,
+                true,
+                new BigDecimal(maxAccountNotional),
+                BigDecimal.ZERO,
+                BigDecimal.ZERO);
+    }
+
+    private static ProcessingContext context(String orderId, String qty, String currency) {
+        return ProcessingContext.builder()
+                .transaction(NewOrderTx.builder().build())
+                .order(
+                        Order.builder()
+                                .orderId(orderId)
+                                .account("acc")
+                                .symbol("INTC")
+                                .sessionId("s1")
+                                .orderQty(new BigDecimal(qty))
+                                .price(BigDecimal.TEN)
+                                .settlCurrency(currency)
+                                .state(State.LIVE)
+                                .build())
+                .build();
+    }
+
+    private double rejected(String dimension) {
+        return meterRegistry.get("oms.risk.rejected").tag("dimension", dimension).counter().count();
+    }
+
+    @Test
+    void testOrderOverTheLimitIsRejectedInTheLimitCurrency() {
+        RiskCheckService riskCheck = riskCheck("1500");
+        riskCheck.check(context("o1", "100", null));
+
+        IllegalArgumentException e =
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> riskCheck.check(context("o2", "60", "USD")));
+        assertTrue(e.getMessage().contains("to 1600.00 USD"), e.getMessage());
+        assertEquals(1000_00, book.exposure(Dimension.ACCOUNT, "acc"));
+        assertEquals(1, rejected("account"));
+    }
+
+    @Test
+    void testIncreaseInAnotherCurrencyIsRejectedWhileALimitIsSet() {
+        book.onOrder(context("o1", "100", "EUR").getOrder());
+
+        IllegalArgumentException e =
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> riskCheck("1500").check(context("o2", "1", "EUR")));
+        assertTrue(e.getMessage().contains("settles in EUR"), e.getMessage());
+        assertEquals(1, rejected("currency"));
+
+        // A decrease of an order already working is not, and it is applied once committed
+        riskCheck("1500").check(context("o1", "50", "EUR"));
+        // nor is anything without limits
+        riskCheck("0").check(context("o2", "1", "EUR"));
+        assertEquals(1010_00, book.exposure(Dimension.ACCOUNT, "acc", "EUR"));
+    }
+
+    @Test
+    void testReservationOfATransactionRejectedLaterIsReleased() {
+        RiskCheckService riskCheck = riskCheck("1500");
+        ProcessingContext rejected = context("o1", "100", "USD");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            riskCheck.check(rejected);
+            riskCheck.check(context("o2", "20", "USD"));
+            assertEquals(1200_00, book.exposure(Dimension.ACCOUNT, "acc"));
+
+            riskCheck.release(rejected);
+            assertEquals(200_00, book.exposure(Dimension.ACCOUNT, "acc"));
+
+            // Released once only when the transaction rolls back
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertEquals(0, book.exposure(Dimension.ACCOUNT, "acc"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}